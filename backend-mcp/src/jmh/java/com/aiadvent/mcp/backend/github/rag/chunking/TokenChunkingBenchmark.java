@@ -0,0 +1,103 @@
+package com.aiadvent.mcp.backend.github.rag.chunking;
+
+import com.aiadvent.mcp.backend.config.GitHubRagProperties;
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.IntArrayList;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link TokenChunkingStrategy} with the previous decode-and-search approach on generated
+ * Java sources. Run with {@code ./gradlew :backend-mcp:jmh -Pjmh.includes=TokenChunkingBenchmark}
+ * and compare both score and {@code gc.alloc.rate.norm} (add {@code -prof gc}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TokenChunkingBenchmark {
+
+  private static final Encoding ENCODING =
+      Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+  @Param({"2000", "20000"})
+  public int methods;
+
+  private final TokenChunkingStrategy strategy = new TokenChunkingStrategy();
+  private ChunkingContext context;
+  private String content;
+  private int chunkSize;
+  private int overlap;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    StringBuilder source = new StringBuilder("package bench;\n\npublic class Generated {\n");
+    for (int i = 0; i < methods; i++) {
+      source
+          .append("  /** Computes value ")
+          .append(i)
+          .append(" — with a non-ASCII note. */\n")
+          .append("  public int method")
+          .append(i)
+          .append("(int input) {\n")
+          .append("    int result = input * ")
+          .append(i % 97)
+          .append(" + helper(\"")
+          .append(Integer.toHexString(i * 31))
+          .append("\");\n")
+          .append("    return result;\n")
+          .append("  }\n\n");
+    }
+    source.append("}\n");
+    GitHubRagProperties properties = new GitHubRagProperties();
+    GitHubRagProperties.Chunking chunking = properties.getChunking();
+    chunkSize = chunking.getToken().getChunkSizeTokens();
+    overlap = chunking.getOverlapTokens();
+    chunking.getToken().setMaxNumChunks(Integer.MAX_VALUE);
+    ChunkableFile file =
+        ChunkableFile.from(Path.of("/bench/Generated.java"), "Generated.java", "java", source.toString());
+    content = file.content();
+    context = new ChunkingContext(file, chunking, GitHubRagProperties.Strategy.TOKEN);
+  }
+
+  @Benchmark
+  public List<Chunk> primitiveOffsets() {
+    return strategy.chunk(context);
+  }
+
+  /** The pre-change algorithm: boxed tokens, decode every window, then search the content. */
+  @Benchmark
+  public void legacyDecodeAndSearch(Blackhole blackhole) {
+    List<Integer> tokens = ENCODING.encode(content).boxed();
+    int step = Math.max(1, chunkSize - Math.min(overlap, chunkSize - 1));
+    int lastStart = -1;
+    for (int start = 0; start < tokens.size(); start += step) {
+      int end = Math.min(tokens.size(), start + chunkSize);
+      List<Integer> slice = tokens.subList(start, end);
+      IntArrayList list = new IntArrayList(slice.size());
+      slice.forEach(list::add);
+      String text = ENCODING.decode(list).trim();
+      int charStart = content.indexOf(text, lastStart + 1);
+      if (charStart < 0) {
+        break;
+      }
+      lastStart = charStart;
+      blackhole.consume(text);
+      if (end >= tokens.size()) {
+        break;
+      }
+    }
+  }
+}
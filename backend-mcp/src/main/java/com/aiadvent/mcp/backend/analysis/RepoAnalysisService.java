@@ -72,7 +72,7 @@ public class RepoAnalysisService {
 
 private static final Logger log = LoggerFactory.getLogger(RepoAnalysisService.class);
 
-private static final int SEGMENT_HASH_HISTORY = 500;
+static final int SEGMENT_HASH_HISTORY = 500;
 
   private static final Pattern COMPLEXITY_KEYWORDS =
       Pattern.compile("\\b(if|for|while|case|catch|switch|when|except)\\b", Pattern.CASE_INSENSITIVE);
@@ -193,8 +193,7 @@ private static final int SEGMENT_HASH_HISTORY = 500;
         state.addPendingFirst(cursor);
       }
 
-      state.touch();
-      stateStore.save(state);
+      stateStore.recordSegment(state, cursor, segmentResult.hash(), segmentResult.tags());
 
       RepoAnalysisModels.SegmentMetadata segmentMetadata =
           toSegmentMetadata(state.getWorkspaceMetadata());
@@ -230,7 +229,12 @@ private static final int SEGMENT_HASH_HISTORY = 500;
           Instant.now(),
           null);
     } catch (IOException ex) {
+      stateStore.evict(analysisId);
       throw new IllegalStateException("Failed to read next segment: " + ex.getMessage(), ex);
+    } catch (RuntimeException ex) {
+      // the cached state may hold a polled cursor that never reached the journal
+      stateStore.evict(analysisId);
+      throw ex;
     } finally {
       lock.unlock();
     }
@@ -260,8 +264,11 @@ private static final int SEGMENT_HASH_HISTORY = 500;
       }
 
       int newFindings = appendFindings(state, request.findings());
-      state.touch();
-      stateStore.save(state);
+      if (newFindings > 0) {
+        List<RepoAnalysisState.RepoFinding> findings = state.getFindings();
+        stateStore.recordFindings(
+            state, List.copyOf(findings.subList(findings.size() - newFindings, findings.size())));
+      }
 
       List<FileFindings> files = aggregateFiles(state.getFindings());
       return new AggregateFindingsResponse(
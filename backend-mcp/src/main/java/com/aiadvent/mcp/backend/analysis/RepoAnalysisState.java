@@ -9,6 +9,7 @@ import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -34,6 +35,7 @@ public class RepoAnalysisState {
   private String reportMarkdownPath;
   private WorkspaceMetadata workspaceMetadata;
   private int processedSegments;
+  private long journalSequence;
 
   public RepoAnalysisState() {}
 
@@ -145,6 +147,15 @@ public class RepoAnalysisState {
     this.processedSegments++;
   }
 
+  /** Sequence of the last journal entry already reflected in this state. */
+  public long getJournalSequence() {
+    return journalSequence;
+  }
+
+  public void setJournalSequence(long journalSequence) {
+    this.journalSequence = journalSequence;
+  }
+
   public void addWarning(String warning) {
     if (warning != null && !warning.isBlank()) {
       warnings.add(warning);
@@ -215,6 +226,17 @@ public class RepoAnalysisState {
     }
   }
 
+  public boolean removePending(String path) {
+    for (int i = 0; i < pending.size(); i++) {
+      FileCursor candidate = pending.get(i);
+      if (candidate != null && Objects.equals(candidate.getPath(), path)) {
+        pending.remove(i);
+        return true;
+      }
+    }
+    return false;
+  }
+
   public List<FileCursor> viewPending() {
     return Collections.unmodifiableList(new ArrayList<>(pending));
   }
@@ -1,19 +1,33 @@
 package com.aiadvent.mcp.backend.analysis;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+/**
+ * Keeps active analyses in memory and persists them as a snapshot ({@code <id>.json}) plus an
+ * append-only journal ({@code <id>.journal}) of scanned segments and new findings. The journal is
+ * folded into a fresh snapshot every {@code journal-compaction-threshold} entries; {@link #load}
+ * replays whatever the last snapshot does not cover, so a crashed process resumes where its last
+ * journal entry left off. Callers serialize access per analysis id.
+ */
 @Component
 public class RepoAnalysisStateStore {
 
@@ -21,6 +35,8 @@ public class RepoAnalysisStateStore {
 
   private final Path root;
   private final ObjectMapper objectMapper;
+  private final int compactionThreshold;
+  private final Cache<String, ActiveState> active;
 
   RepoAnalysisStateStore(com.aiadvent.mcp.backend.config.RepoAnalysisProperties properties) {
     this.root = properties.stateRootPath();
@@ -29,6 +45,9 @@ public class RepoAnalysisStateStore {
             .registerModule(new JavaTimeModule())
             .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
             .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    this.compactionThreshold = Math.max(1, properties.getJournalCompactionThreshold());
+    this.active =
+        Caffeine.newBuilder().maximumSize(Math.max(1, properties.getMaxActiveAnalyses())).build();
     try {
       Files.createDirectories(root);
     } catch (IOException ex) {
@@ -38,22 +57,38 @@ public class RepoAnalysisStateStore {
 
   Optional<RepoAnalysisState> load(String analysisId) {
     Path statePath = statePath(analysisId);
+    ActiveState cached = active.getIfPresent(analysisId);
+    if (cached != null) {
+      return Optional.of(cached.state);
+    }
     if (!Files.exists(statePath)) {
       return Optional.empty();
     }
+    RepoAnalysisState state;
     try {
-      RepoAnalysisState state =
-          objectMapper.readValue(Files.readAllBytes(statePath), RepoAnalysisState.class);
-      return Optional.of(state);
+      state = objectMapper.readValue(Files.readAllBytes(statePath), RepoAnalysisState.class);
     } catch (IOException ex) {
       log.warn("Failed to read analysis state {}: {}", analysisId, ex.getMessage());
       return Optional.empty();
     }
+    int replayed = replayJournal(analysisId, state);
+    if (replayed > 0) {
+      log.info("Recovered analysis {} by replaying {} journal entries", analysisId, replayed);
+    }
+    if (Files.exists(journalPath(analysisId))) {
+      // start the next journal on a clean file, a torn tail line must not prefix new entries
+      save(state);
+    } else {
+      active.put(analysisId, new ActiveState(state));
+    }
+    return Optional.of(state);
   }
 
+  /** Writes a full snapshot of {@code state} and truncates its journal. */
   void save(RepoAnalysisState state) {
     state.setUpdatedAt(Instant.now());
-    Path statePath = statePath(state.getAnalysisId());
+    String analysisId = state.getAnalysisId();
+    Path statePath = statePath(analysisId);
     Path tempPath = statePath.resolveSibling(statePath.getFileName() + ".tmp");
     try {
       byte[] bytes = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(state);
@@ -67,30 +102,200 @@ public class RepoAnalysisStateStore {
       } catch (java.nio.file.AtomicMoveNotSupportedException ex) {
         Files.move(tempPath, statePath, StandardCopyOption.REPLACE_EXISTING);
       }
+      // entries up to journalSequence are in the snapshot; a crash before this delete only
+      // leaves entries that replay skips
+      Files.deleteIfExists(journalPath(analysisId));
     } catch (IOException ex) {
       try {
         Files.deleteIfExists(tempPath);
       } catch (IOException ignore) {
         // ignore
       }
+      active.invalidate(analysisId);
       throw new IllegalStateException(
-          "Failed to persist analysis state %s".formatted(state.getAnalysisId()), ex);
+          "Failed to persist analysis state %s".formatted(analysisId), ex);
+    }
+    active.put(analysisId, new ActiveState(state));
+  }
+
+  /**
+   * Journals one scanned segment: {@code cursor} as it stands after the read (back in pending or
+   * moved to processed when completed) together with the segment hash and heuristics tags.
+   */
+  void recordSegment(
+      RepoAnalysisState state,
+      RepoAnalysisState.FileCursor cursor,
+      String segmentHash,
+      List<String> heuristics) {
+    append(
+        state,
+        new JournalEntry(
+            0L,
+            EntryType.SEGMENT,
+            null,
+            cursor,
+            segmentHash,
+            heuristics != null && !heuristics.isEmpty() ? heuristics : null,
+            null));
+  }
+
+  /** Journals findings that were just appended to {@code state}. */
+  void recordFindings(RepoAnalysisState state, List<RepoAnalysisState.RepoFinding> findings) {
+    if (findings == null || findings.isEmpty()) {
+      return;
     }
+    append(
+        state,
+        new JournalEntry(0L, EntryType.FINDINGS, null, null, null, null, List.copyOf(findings)));
+  }
+
+  /** Drops the in-memory copy so the next {@link #load} rebuilds it from disk. */
+  void evict(String analysisId) {
+    active.invalidate(analysisId);
   }
 
   void delete(String analysisId) {
     Path statePath = statePath(analysisId);
+    active.invalidate(analysisId);
     try {
       Files.deleteIfExists(statePath);
+      Files.deleteIfExists(journalPath(analysisId));
     } catch (IOException ex) {
       log.warn("Failed to delete state {}: {}", analysisId, ex.getMessage());
     }
   }
 
+  private void append(RepoAnalysisState state, JournalEntry template) {
+    String analysisId = state.getAnalysisId();
+    Instant now = Instant.now();
+    long sequence = state.getJournalSequence() + 1;
+    JournalEntry entry =
+        new JournalEntry(
+            sequence,
+            template.type(),
+            now,
+            template.cursor(),
+            template.segmentHash(),
+            template.heuristics(),
+            template.findings());
+    try {
+      byte[] line = objectMapper.writeValueAsBytes(entry);
+      byte[] record = new byte[line.length + 1];
+      System.arraycopy(line, 0, record, 0, line.length);
+      record[line.length] = '\n';
+      Files.write(
+          journalPath(analysisId),
+          record,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE,
+          StandardOpenOption.APPEND);
+    } catch (IOException ex) {
+      active.invalidate(analysisId);
+      throw new IllegalStateException(
+          "Failed to append journal entry for analysis %s".formatted(analysisId), ex);
+    }
+    state.setJournalSequence(sequence);
+    state.setUpdatedAt(now);
+    ActiveState cached = active.get(analysisId, key -> new ActiveState(state));
+    if (cached.state != state) {
+      cached = new ActiveState(state);
+      active.put(analysisId, cached);
+    }
+    if (++cached.journalEntries >= compactionThreshold) {
+      log.debug("Compacting journal of analysis {} at sequence {}", analysisId, sequence);
+      save(state);
+    }
+  }
+
+  private int replayJournal(String analysisId, RepoAnalysisState state) {
+    Path journalPath = journalPath(analysisId);
+    if (!Files.exists(journalPath)) {
+      return 0;
+    }
+    int replayed = 0;
+    try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isBlank()) {
+          continue;
+        }
+        JournalEntry entry;
+        try {
+          entry = objectMapper.readValue(line, JournalEntry.class);
+        } catch (IOException ex) {
+          // only the last entry can be torn by a crash mid-append
+          log.warn(
+              "Stopping journal replay of analysis {} at unreadable entry: {}",
+              analysisId,
+              ex.getMessage());
+          break;
+        }
+        if (entry.sequence() <= state.getJournalSequence()) {
+          continue;
+        }
+        apply(state, entry);
+        replayed++;
+      }
+    } catch (IOException ex) {
+      log.warn("Failed to read journal of analysis {}: {}", analysisId, ex.getMessage());
+    }
+    return replayed;
+  }
+
+  private void apply(RepoAnalysisState state, JournalEntry entry) {
+    if (entry.type() == EntryType.SEGMENT && entry.cursor() != null) {
+      RepoAnalysisState.FileCursor cursor = entry.cursor();
+      state.removePending(cursor.getPath());
+      if (cursor.isCompleted()) {
+        state.addProcessed(cursor);
+      } else {
+        state.addPending(cursor);
+      }
+      state.incrementProcessedSegments();
+      state.registerSegmentHash(entry.segmentHash(), RepoAnalysisService.SEGMENT_HASH_HISTORY);
+      state.recordHeuristics(cursor.getPath(), entry.heuristics());
+    } else if (entry.type() == EntryType.FINDINGS && entry.findings() != null) {
+      entry.findings().forEach(state::addFinding);
+    }
+    state.setJournalSequence(entry.sequence());
+    if (entry.at() != null) {
+      state.setUpdatedAt(entry.at());
+    }
+  }
+
   private Path statePath(String analysisId) {
     if (analysisId == null || analysisId.isBlank()) {
       throw new IllegalArgumentException("analysisId must not be blank");
     }
     return root.resolve("%s.json".formatted(analysisId));
   }
+
+  private Path journalPath(String analysisId) {
+    Path statePath = statePath(analysisId);
+    return statePath.resolveSibling("%s.journal".formatted(analysisId));
+  }
+
+  private static final class ActiveState {
+    private final RepoAnalysisState state;
+    private int journalEntries;
+
+    private ActiveState(RepoAnalysisState state) {
+      this.state = state;
+    }
+  }
+
+  enum EntryType {
+    SEGMENT,
+    FINDINGS
+  }
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  record JournalEntry(
+      long sequence,
+      EntryType type,
+      Instant at,
+      RepoAnalysisState.FileCursor cursor,
+      String segmentHash,
+      List<String> heuristics,
+      List<RepoAnalysisState.RepoFinding> findings) {}
 }
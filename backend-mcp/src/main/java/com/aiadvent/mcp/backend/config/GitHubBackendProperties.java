@@ -12,6 +12,9 @@ public class GitHubBackendProperties {
   private Duration readTimeout = Duration.ofSeconds(30);
   private Duration treeCacheTtl = Duration.ofMinutes(2);
   private Duration fileCacheTtl = Duration.ofMinutes(2);
+  private Long treeCacheMaxBytes = 32L * 1024 * 1024;
+  private Long fileCacheMaxBytes = 64L * 1024 * 1024;
+  private Duration cacheRetention = Duration.ofMinutes(30);
   private Integer treeMaxDepth = 3;
   private Integer treeMaxEntries = 500;
   private Long fileMaxSizeBytes = 512 * 1024L;
@@ -22,6 +25,7 @@ public class GitHubBackendProperties {
   private Long workspaceMaxSizeBytes = 2L * 1024 * 1024 * 1024;
   private Long archiveMaxSizeBytes = 512L * 1024 * 1024;
   private Duration archiveDownloadTimeout = Duration.ofMinutes(2);
+  private Integer archiveExtractThreads = 0;
   private Long commitDiffMaxBytes = 1_048_576L;
   private Integer commitMaxFiles = 200;
   private Integer pullRequestMaxFiles = 300;
@@ -30,6 +34,9 @@ public class GitHubBackendProperties {
   private Integer workspaceGitStateMaxEntries = 200;
   private Long workspaceGitStateMaxBytes = 64 * 1024L;
   private Duration workspaceGitStateTimeout = Duration.ofSeconds(20);
+  private boolean mirrorEnabled = true;
+  private String mirrorRoot = "/var/tmp/aiadvent/mcp-mirror";
+  private Long mirrorMaxBytes = 4L * 1024 * 1024 * 1024;
 
   public String getBaseUrl() {
     return baseUrl;
@@ -79,6 +86,30 @@ public class GitHubBackendProperties {
     this.fileCacheTtl = fileCacheTtl;
   }
 
+  public Long getTreeCacheMaxBytes() {
+    return treeCacheMaxBytes;
+  }
+
+  public void setTreeCacheMaxBytes(Long treeCacheMaxBytes) {
+    this.treeCacheMaxBytes = treeCacheMaxBytes;
+  }
+
+  public Long getFileCacheMaxBytes() {
+    return fileCacheMaxBytes;
+  }
+
+  public void setFileCacheMaxBytes(Long fileCacheMaxBytes) {
+    this.fileCacheMaxBytes = fileCacheMaxBytes;
+  }
+
+  public Duration getCacheRetention() {
+    return cacheRetention;
+  }
+
+  public void setCacheRetention(Duration cacheRetention) {
+    this.cacheRetention = cacheRetention;
+  }
+
   public Integer getTreeMaxDepth() {
     return treeMaxDepth;
   }
@@ -159,6 +190,14 @@ public class GitHubBackendProperties {
     this.archiveDownloadTimeout = archiveDownloadTimeout;
   }
 
+  public Integer getArchiveExtractThreads() {
+    return archiveExtractThreads;
+  }
+
+  public void setArchiveExtractThreads(Integer archiveExtractThreads) {
+    this.archiveExtractThreads = archiveExtractThreads;
+  }
+
   public Long getCommitDiffMaxBytes() {
     return commitDiffMaxBytes;
   }
@@ -222,4 +261,28 @@ public class GitHubBackendProperties {
   public void setWorkspaceGitStateTimeout(Duration workspaceGitStateTimeout) {
     this.workspaceGitStateTimeout = workspaceGitStateTimeout;
   }
+
+  public boolean isMirrorEnabled() {
+    return mirrorEnabled;
+  }
+
+  public void setMirrorEnabled(boolean mirrorEnabled) {
+    this.mirrorEnabled = mirrorEnabled;
+  }
+
+  public String getMirrorRoot() {
+    return mirrorRoot;
+  }
+
+  public void setMirrorRoot(String mirrorRoot) {
+    this.mirrorRoot = mirrorRoot;
+  }
+
+  public Long getMirrorMaxBytes() {
+    return mirrorMaxBytes;
+  }
+
+  public void setMirrorMaxBytes(Long mirrorMaxBytes) {
+    this.mirrorMaxBytes = mirrorMaxBytes;
+  }
 }
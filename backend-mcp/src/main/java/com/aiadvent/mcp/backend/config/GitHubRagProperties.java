@@ -37,6 +37,8 @@ public class GitHubRagProperties implements InitializingBean {
   private final Ast ast = new Ast();
   private final Graph graph = new Graph();
   private final Retry retry = new Retry();
+  private final Queue queue = new Queue();
+  private final Indexing indexing = new Indexing();
   private final Ignore ignore = new Ignore();
   private final Embedding embedding = new Embedding();
   private final Rerank rerank = new Rerank();
@@ -44,6 +46,7 @@ public class GitHubRagProperties implements InitializingBean {
   private final MultiQuery multiQuery = new MultiQuery();
   private final PostProcessing postProcessing = new PostProcessing();
   private final Generation generation = new Generation();
+  private final SearchCache searchCache = new SearchCache();
   private List<RagParameterProfile> parameterProfiles = new ArrayList<>();
   private String defaultProfile;
   private Map<String, ResolvedRagParameterProfile> profileIndex = Map.of();
@@ -86,6 +89,14 @@ public class GitHubRagProperties implements InitializingBean {
     return retry;
   }
 
+  public Queue getQueue() {
+    return queue;
+  }
+
+  public Indexing getIndexing() {
+    return indexing;
+  }
+
   public Ignore getIgnore() {
     return ignore;
   }
@@ -114,6 +125,10 @@ public class GitHubRagProperties implements InitializingBean {
     return generation;
   }
 
+  public SearchCache getSearchCache() {
+    return searchCache;
+  }
+
   private void initializeProfiles() {
     if (parameterProfiles == null || parameterProfiles.isEmpty()) {
       profileIndex = Map.of();
@@ -632,6 +647,9 @@ public class GitHubRagProperties implements InitializingBean {
     private List<String> languages =
         new ArrayList<>(List.of("java", "kotlin", "typescript", "javascript", "python", "go"));
     private String libraryPath = "classpath:treesitter";
+    private int parserPoolSize = 0;
+    private boolean cacheEnabled = true;
+    private int cacheMaxEntries = 20_000;
     private final Health health = new Health();
 
     public boolean isEnabled() {
@@ -666,6 +684,31 @@ public class GitHubRagProperties implements InitializingBean {
       this.libraryPath = libraryPath;
     }
 
+    /** Parsers kept per language; non-positive values follow the indexing parse concurrency. */
+    public int getParserPoolSize() {
+      return parserPoolSize;
+    }
+
+    public void setParserPoolSize(int parserPoolSize) {
+      this.parserPoolSize = parserPoolSize;
+    }
+
+    public boolean isCacheEnabled() {
+      return cacheEnabled;
+    }
+
+    public void setCacheEnabled(boolean cacheEnabled) {
+      this.cacheEnabled = cacheEnabled;
+    }
+
+    public int getCacheMaxEntries() {
+      return cacheMaxEntries;
+    }
+
+    public void setCacheMaxEntries(int cacheMaxEntries) {
+      this.cacheMaxEntries = cacheMaxEntries;
+    }
+
     public Health getHealth() {
       return health;
     }
@@ -693,6 +736,7 @@ public class GitHubRagProperties implements InitializingBean {
     private Duration syncTimeout = Duration.ofSeconds(45);
     private int syncBatchSize = 500;
     private Duration syncRetryDelay = Duration.ofSeconds(5);
+    private Duration lensTimeout = Duration.ofMillis(800);
 
     public boolean isEnabled() {
       return enabled;
@@ -765,6 +809,14 @@ public class GitHubRagProperties implements InitializingBean {
     public void setSyncRetryDelay(Duration syncRetryDelay) {
       this.syncRetryDelay = syncRetryDelay != null ? syncRetryDelay : Duration.ofSeconds(5);
     }
+
+    public Duration getLensTimeout() {
+      return lensTimeout;
+    }
+
+    public void setLensTimeout(Duration lensTimeout) {
+      this.lensTimeout = lensTimeout != null ? lensTimeout : Duration.ofMillis(800);
+    }
   }
 
   public enum Strategy {
@@ -898,6 +950,110 @@ public class GitHubRagProperties implements InitializingBean {
     }
   }
 
+  public static class Queue {
+    private Duration pollInterval = Duration.ofSeconds(2);
+    private Duration leaseDuration = Duration.ofMinutes(2);
+
+    public Duration getPollInterval() {
+      return pollInterval;
+    }
+
+    public void setPollInterval(Duration pollInterval) {
+      this.pollInterval = pollInterval;
+    }
+
+    /** How long a claimed job stays owned without a heartbeat before another worker may take it. */
+    public Duration getLeaseDuration() {
+      return leaseDuration;
+    }
+
+    public void setLeaseDuration(Duration leaseDuration) {
+      this.leaseDuration = leaseDuration;
+    }
+  }
+
+  public static class Indexing {
+    private int parseConcurrency = 0;
+    private int embedConcurrency = 2;
+    private int queueCapacity = 256;
+    private Duration progressInterval = Duration.ofSeconds(2);
+    private boolean chunkDiffEnabled = true;
+    private boolean incrementalEnabled = true;
+    private int incrementalMaxChangedFiles = 5000;
+    private Duration incrementalGitTimeout = Duration.ofSeconds(30);
+
+    public int getParseConcurrency() {
+      return parseConcurrency;
+    }
+
+    public void setParseConcurrency(int parseConcurrency) {
+      this.parseConcurrency = parseConcurrency;
+    }
+
+    /** Parse/chunk threads; non-positive values fall back to the number of available cores. */
+    public int resolveParseConcurrency() {
+      return parseConcurrency > 0
+          ? parseConcurrency
+          : Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getEmbedConcurrency() {
+      return embedConcurrency;
+    }
+
+    public void setEmbedConcurrency(int embedConcurrency) {
+      this.embedConcurrency = embedConcurrency;
+    }
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getProgressInterval() {
+      return progressInterval;
+    }
+
+    public void setProgressInterval(Duration progressInterval) {
+      this.progressInterval = progressInterval;
+    }
+
+    public boolean isChunkDiffEnabled() {
+      return chunkDiffEnabled;
+    }
+
+    public void setChunkDiffEnabled(boolean chunkDiffEnabled) {
+      this.chunkDiffEnabled = chunkDiffEnabled;
+    }
+
+    public boolean isIncrementalEnabled() {
+      return incrementalEnabled;
+    }
+
+    public void setIncrementalEnabled(boolean incrementalEnabled) {
+      this.incrementalEnabled = incrementalEnabled;
+    }
+
+    public int getIncrementalMaxChangedFiles() {
+      return incrementalMaxChangedFiles;
+    }
+
+    public void setIncrementalMaxChangedFiles(int incrementalMaxChangedFiles) {
+      this.incrementalMaxChangedFiles = incrementalMaxChangedFiles;
+    }
+
+    public Duration getIncrementalGitTimeout() {
+      return incrementalGitTimeout;
+    }
+
+    public void setIncrementalGitTimeout(Duration incrementalGitTimeout) {
+      this.incrementalGitTimeout = incrementalGitTimeout;
+    }
+  }
+
   public static class Ignore {
     private List<String> directories =
         new ArrayList<>(List.of(".git", ".github", "node_modules", "dist", "build"));
@@ -914,6 +1070,16 @@ public class GitHubRagProperties implements InitializingBean {
   public static class Embedding {
     private String model = "text-embedding-3-small";
     private int dimensions = 1536;
+    private final Batch batch = new Batch();
+    private final Cache cache = new Cache();
+
+    public Batch getBatch() {
+      return batch;
+    }
+
+    public Cache getCache() {
+      return cache;
+    }
 
     public String getModel() {
       return model;
@@ -932,6 +1098,84 @@ public class GitHubRagProperties implements InitializingBean {
     }
   }
 
+  public static class Batch {
+    private boolean enabled = true;
+    private int maxBatchTokens = 8000;
+    private int maxBatchItems = 128;
+    private Duration flushDeadline = Duration.ofMillis(500);
+    private int insertBatchRows = 200;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getMaxBatchTokens() {
+      return maxBatchTokens;
+    }
+
+    public void setMaxBatchTokens(int maxBatchTokens) {
+      this.maxBatchTokens = maxBatchTokens;
+    }
+
+    public int getMaxBatchItems() {
+      return maxBatchItems;
+    }
+
+    public void setMaxBatchItems(int maxBatchItems) {
+      this.maxBatchItems = maxBatchItems;
+    }
+
+    public Duration getFlushDeadline() {
+      return flushDeadline;
+    }
+
+    public void setFlushDeadline(Duration flushDeadline) {
+      this.flushDeadline = flushDeadline;
+    }
+
+    public int getInsertBatchRows() {
+      return insertBatchRows;
+    }
+
+    public void setInsertBatchRows(int insertBatchRows) {
+      this.insertBatchRows = insertBatchRows;
+    }
+  }
+
+  public static class Cache {
+    private boolean enabled = true;
+    private long l1MaxEntries = 50_000;
+    private Duration l1ExpireAfterAccess = Duration.ofMinutes(30);
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public long getL1MaxEntries() {
+      return l1MaxEntries;
+    }
+
+    public void setL1MaxEntries(long l1MaxEntries) {
+      this.l1MaxEntries = l1MaxEntries;
+    }
+
+    public Duration getL1ExpireAfterAccess() {
+      return l1ExpireAfterAccess;
+    }
+
+    public void setL1ExpireAfterAccess(Duration l1ExpireAfterAccess) {
+      this.l1ExpireAfterAccess = l1ExpireAfterAccess;
+    }
+  }
+
   public static class Rerank {
     private int topN = 8;
     private double scoreWeight = 0.8;
@@ -1109,6 +1353,9 @@ public class GitHubRagProperties implements InitializingBean {
     private String defaultTargetLanguage = "ru";
     private String model = "gpt-4o-mini";
     private double temperature = 0.0;
+    private boolean fastPathEnabled = true;
+    private long cacheMaxEntries = 2_000;
+    private Duration cacheTtl = Duration.ofMinutes(30);
 
     public boolean isEnabled() {
       return enabled;
@@ -1149,6 +1396,30 @@ public class GitHubRagProperties implements InitializingBean {
     public void setTemperature(double temperature) {
       this.temperature = temperature;
     }
+
+    public boolean isFastPathEnabled() {
+      return fastPathEnabled;
+    }
+
+    public void setFastPathEnabled(boolean fastPathEnabled) {
+      this.fastPathEnabled = fastPathEnabled;
+    }
+
+    public long getCacheMaxEntries() {
+      return cacheMaxEntries;
+    }
+
+    public void setCacheMaxEntries(long cacheMaxEntries) {
+      this.cacheMaxEntries = cacheMaxEntries;
+    }
+
+    public Duration getCacheTtl() {
+      return cacheTtl;
+    }
+
+    public void setCacheTtl(Duration cacheTtl) {
+      this.cacheTtl = cacheTtl;
+    }
   }
 
   public static class MultiQuery {
@@ -1186,6 +1457,11 @@ public class GitHubRagProperties implements InitializingBean {
     private boolean llmCompressionEnabled = true;
     private String llmCompressionModel = "gpt-4o-mini";
     private double llmCompressionTemperature = 0.0;
+    private int llmCompressionRequestConcurrency = 4;
+    private int llmCompressionGlobalConcurrency = 8;
+    private Duration llmCompressionTimeout = Duration.ofSeconds(8);
+    private long llmCompressionCacheMaxEntries = 5_000;
+    private Duration llmCompressionCacheTtl = Duration.ofHours(6);
     private final Neighbor neighbor = new Neighbor();
 
     public int getMaxContextTokens() {
@@ -1220,6 +1496,46 @@ public class GitHubRagProperties implements InitializingBean {
       this.llmCompressionTemperature = llmCompressionTemperature;
     }
 
+    public int getLlmCompressionRequestConcurrency() {
+      return llmCompressionRequestConcurrency;
+    }
+
+    public void setLlmCompressionRequestConcurrency(int llmCompressionRequestConcurrency) {
+      this.llmCompressionRequestConcurrency = llmCompressionRequestConcurrency;
+    }
+
+    public int getLlmCompressionGlobalConcurrency() {
+      return llmCompressionGlobalConcurrency;
+    }
+
+    public void setLlmCompressionGlobalConcurrency(int llmCompressionGlobalConcurrency) {
+      this.llmCompressionGlobalConcurrency = llmCompressionGlobalConcurrency;
+    }
+
+    public Duration getLlmCompressionTimeout() {
+      return llmCompressionTimeout;
+    }
+
+    public void setLlmCompressionTimeout(Duration llmCompressionTimeout) {
+      this.llmCompressionTimeout = llmCompressionTimeout;
+    }
+
+    public long getLlmCompressionCacheMaxEntries() {
+      return llmCompressionCacheMaxEntries;
+    }
+
+    public void setLlmCompressionCacheMaxEntries(long llmCompressionCacheMaxEntries) {
+      this.llmCompressionCacheMaxEntries = llmCompressionCacheMaxEntries;
+    }
+
+    public Duration getLlmCompressionCacheTtl() {
+      return llmCompressionCacheTtl;
+    }
+
+    public void setLlmCompressionCacheTtl(Duration llmCompressionCacheTtl) {
+      this.llmCompressionCacheTtl = llmCompressionCacheTtl;
+    }
+
     public Neighbor getNeighbor() {
       return neighbor;
     }
@@ -1356,4 +1672,61 @@ public class GitHubRagProperties implements InitializingBean {
       this.emptyContextMessage = emptyContextMessage;
     }
   }
+
+  public static class SearchCache {
+    private boolean enabled = true;
+    private long maxEntries = 1_000;
+    private Duration ttl = Duration.ofMinutes(30);
+    private boolean semanticEnabled = false;
+    private double semanticThreshold = 0.95d;
+    private int semanticMaxEntriesPerScope = 64;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public long getMaxEntries() {
+      return maxEntries;
+    }
+
+    public void setMaxEntries(long maxEntries) {
+      this.maxEntries = maxEntries;
+    }
+
+    public Duration getTtl() {
+      return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+      this.ttl = ttl;
+    }
+
+    public boolean isSemanticEnabled() {
+      return semanticEnabled;
+    }
+
+    public void setSemanticEnabled(boolean semanticEnabled) {
+      this.semanticEnabled = semanticEnabled;
+    }
+
+    public double getSemanticThreshold() {
+      return semanticThreshold;
+    }
+
+    public void setSemanticThreshold(double semanticThreshold) {
+      this.semanticThreshold = semanticThreshold;
+    }
+
+    public int getSemanticMaxEntriesPerScope() {
+      return semanticMaxEntriesPerScope;
+    }
+
+    public void setSemanticMaxEntriesPerScope(int semanticMaxEntriesPerScope) {
+      this.semanticMaxEntriesPerScope = semanticMaxEntriesPerScope;
+    }
+  }
 }
@@ -48,6 +48,8 @@ public class RepoAnalysisProperties {
           List.of(".git", "node_modules", "build", "dist", "out", "target", ".idea", ".gradle"));
   private Priorities priorities = new Priorities();
   private boolean enableAdvancedMetrics = false;
+  private int journalCompactionThreshold = 256;
+  private int maxActiveAnalyses = 64;
 
   public String getStateRoot() {
     return stateRoot;
@@ -144,6 +146,22 @@ public class RepoAnalysisProperties {
     this.enableAdvancedMetrics = enableAdvancedMetrics;
   }
 
+  public int getJournalCompactionThreshold() {
+    return journalCompactionThreshold;
+  }
+
+  public void setJournalCompactionThreshold(int journalCompactionThreshold) {
+    this.journalCompactionThreshold = Math.max(1, journalCompactionThreshold);
+  }
+
+  public int getMaxActiveAnalyses() {
+    return maxActiveAnalyses;
+  }
+
+  public void setMaxActiveAnalyses(int maxActiveAnalyses) {
+    this.maxActiveAnalyses = Math.max(1, maxActiveAnalyses);
+  }
+
   public static class Priorities {
     private FileTypePriority code = new FileTypePriority(1.0, 5000);
     private FileTypePriority test = new FileTypePriority(0.8, 4000);
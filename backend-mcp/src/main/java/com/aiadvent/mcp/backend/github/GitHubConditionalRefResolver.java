@@ -0,0 +1,169 @@
+package com.aiadvent.mcp.backend.github;
+
+import com.aiadvent.mcp.backend.config.GitHubBackendProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+
+/**
+ * Resolves a repository ref to its commit SHA with conditional requests: {@code GET
+ * /repos/{owner}/{repo}/commits/{ref}} in the {@code vnd.github.sha} media type, sending the last
+ * ETag as {@code If-None-Match}. A {@code 304 Not Modified} answer is free of rate-limit budget and
+ * tells the caller that every payload cached for the previous SHA is still current.
+ */
+class GitHubConditionalRefResolver {
+
+  private static final Logger log = LoggerFactory.getLogger(GitHubConditionalRefResolver.class);
+  private static final Pattern COMMIT_SHA = Pattern.compile("[0-9a-fA-F]{40}");
+
+  private final GitHubBackendProperties properties;
+  private final Supplier<String> tokenSupplier;
+  private final HttpClient httpClient;
+  private final Cache<String, RefState> refs;
+  private final Counter notModified;
+  private final Counter modified;
+  private final Counter failed;
+
+  GitHubConditionalRefResolver(
+      GitHubBackendProperties properties, Supplier<String> tokenSupplier, MeterRegistry registry) {
+    this.properties = Objects.requireNonNull(properties, "properties");
+    this.tokenSupplier = Objects.requireNonNull(tokenSupplier, "tokenSupplier");
+    Duration connectTimeout =
+        properties.getConnectTimeout() != null
+            ? properties.getConnectTimeout()
+            : Duration.ofSeconds(10);
+    this.httpClient =
+        HttpClient.newBuilder()
+            .connectTimeout(connectTimeout)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    this.refs =
+        Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(
+                properties.getCacheRetention() != null
+                    ? properties.getCacheRetention()
+                    : Duration.ofMinutes(30))
+            .build();
+    this.notModified =
+        registry.counter("github_conditional_requests_total", "result", "not_modified");
+    this.modified = registry.counter("github_conditional_requests_total", "result", "modified");
+    this.failed = registry.counter("github_conditional_requests_total", "result", "error");
+  }
+
+  /**
+   * Returns the commit SHA of {@code ref}, or {@code null} when it could not be resolved (callers
+   * then fall back to an unconditional fetch). A SHA validated less than {@code freshFor} ago is
+   * returned without a request; full commit SHAs never need one.
+   */
+  @Nullable
+  String resolve(String fullName, String ref, Duration freshFor) {
+    if (StringUtils.hasText(ref) && COMMIT_SHA.matcher(ref.trim()).matches()) {
+      return ref.trim().toLowerCase(Locale.ROOT);
+    }
+    String key = fullName.toLowerCase(Locale.ROOT) + "@" + ref;
+    RefState state = refs.getIfPresent(key);
+    Instant now = Instant.now();
+    if (state != null && state.validatedAt().plus(freshFor).isAfter(now)) {
+      return state.commitSha();
+    }
+    try {
+      HttpRequest.Builder request =
+          HttpRequest.newBuilder(commitUri(fullName, ref))
+              .GET()
+              .header("Accept", "application/vnd.github.sha")
+              .header("X-GitHub-Api-Version", "2022-11-28");
+      Duration readTimeout = properties.getReadTimeout();
+      if (readTimeout != null && !readTimeout.isZero() && !readTimeout.isNegative()) {
+        request.timeout(readTimeout);
+      }
+      if (StringUtils.hasText(properties.getUserAgent())) {
+        request.header("User-Agent", properties.getUserAgent());
+      }
+      String token = tokenSupplier.get();
+      if (StringUtils.hasText(token)) {
+        request.header("Authorization", "Bearer " + token.trim());
+      }
+      if (state != null && StringUtils.hasText(state.etag())) {
+        request.header("If-None-Match", state.etag());
+      }
+      HttpResponse<String> response =
+          httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+      if (response.statusCode() == 304 && state != null) {
+        notModified.increment();
+        refs.put(key, new RefState(state.commitSha(), state.etag(), now));
+        return state.commitSha();
+      }
+      String body = response.body() != null ? response.body().trim() : "";
+      if (response.statusCode() == 200 && COMMIT_SHA.matcher(body).matches()) {
+        modified.increment();
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String commitSha = body.toLowerCase(Locale.ROOT);
+        refs.put(key, new RefState(commitSha, etag, now));
+        return commitSha;
+      }
+      failed.increment();
+      log.debug(
+          "Conditional ref lookup for {}@{} returned HTTP {}",
+          fullName,
+          ref,
+          response.statusCode());
+      return null;
+    } catch (IOException | RuntimeException ex) {
+      failed.increment();
+      log.debug("Conditional ref lookup for {}@{} failed: {}", fullName, ref, ex.getMessage());
+      return null;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      failed.increment();
+      return null;
+    }
+  }
+
+  private URI commitUri(String fullName, String ref) {
+    String baseUrl =
+        StringUtils.hasText(properties.getBaseUrl())
+            ? properties.getBaseUrl().trim()
+            : "https://api.github.com";
+    if (baseUrl.endsWith("/")) {
+      baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
+    }
+    return URI.create(
+        baseUrl
+            + "/repos/"
+            + fullName
+            + "/commits/"
+            + URLEncoder.encode(commitish(ref), StandardCharsets.UTF_8));
+  }
+
+  /** The commits endpoint takes a bare branch, tag or SHA, not {@code heads/...} refs. */
+  private static String commitish(String ref) {
+    String value = StringUtils.hasText(ref) ? ref.trim() : "HEAD";
+    for (String prefix : new String[] {"refs/heads/", "refs/tags/", "heads/", "tags/"}) {
+      if (value.startsWith(prefix)) {
+        return value.substring(prefix.length());
+      }
+    }
+    return value;
+  }
+
+  private record RefState(String commitSha, String etag, Instant validatedAt) {}
+}
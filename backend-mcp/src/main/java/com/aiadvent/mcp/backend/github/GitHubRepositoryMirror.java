@@ -0,0 +1,355 @@
+package com.aiadvent.mcp.backend.github;
+
+import com.aiadvent.mcp.backend.config.GitHubBackendProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StringUtils;
+
+/**
+ * Local, size-bounded mirror of extracted repository archives keyed by (repository, commit SHA).
+ * Workspaces are materialized from it with {@code cp --reflink=auto}, which is a copy-on-write
+ * clone on btrfs/xfs and a plain copy elsewhere, so every workspace stays independently writable.
+ * Hardlinks are deliberately not used: in-place writes from {@code coding.*} tools or builds would
+ * otherwise leak into the mirror. Entries are evicted least-recently-used once the mirror exceeds
+ * {@code github.backend.mirror-max-bytes}.
+ */
+class GitHubRepositoryMirror {
+
+  private static final Logger log = LoggerFactory.getLogger(GitHubRepositoryMirror.class);
+  private static final Pattern COMMIT_SHA = Pattern.compile("[0-9a-f]{40}");
+  private static final String STAGING_PREFIX = ".staging-";
+
+  private final boolean enabled;
+  private final Path root;
+  private final long maxBytes;
+  private final Set<String> excludedNames;
+  private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final AtomicLong totalBytes = new AtomicLong();
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter evictions;
+  private volatile boolean nativeCopyAvailable = true;
+
+  GitHubRepositoryMirror(
+      GitHubBackendProperties properties, Set<String> excludedNames, MeterRegistry registry) {
+    this.maxBytes =
+        properties.getMirrorMaxBytes() != null ? Math.max(0L, properties.getMirrorMaxBytes()) : 0L;
+    this.root =
+        Path.of(
+                StringUtils.hasText(properties.getMirrorRoot())
+                    ? properties.getMirrorRoot()
+                    : "/var/tmp/aiadvent/mcp-mirror")
+            .toAbsolutePath()
+            .normalize();
+    this.excludedNames = Set.copyOf(excludedNames);
+    this.hits = registry.counter("github_repository_mirror_requests_total", "result", "hit");
+    this.misses = registry.counter("github_repository_mirror_requests_total", "result", "miss");
+    this.evictions = registry.counter("github_repository_mirror_evictions_total");
+    registry.gauge("github_repository_mirror_bytes", totalBytes);
+    this.enabled = properties.isMirrorEnabled() && maxBytes > 0 && initialize();
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Copies the mirrored tree of {@code fullName@commitSha} into {@code workspace}. Returns empty on
+   * a miss or when the copy fails; the caller then falls back to downloading the archive.
+   */
+  Optional<Materialization> materialize(String fullName, String commitSha, Path workspace) {
+    if (!enabled || !COMMIT_SHA.matcher(normalizeSha(commitSha)).matches()) {
+      return Optional.empty();
+    }
+    String key = key(fullName, commitSha);
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry != null) {
+        entry.pins++;
+      }
+    }
+    if (entry == null) {
+      misses.increment();
+      return Optional.empty();
+    }
+    long started = System.nanoTime();
+    try {
+      copyTree(entry.path, workspace);
+      touch(entry.path);
+      hits.increment();
+      return Optional.of(
+          new Materialization(entry.sizeBytes, Duration.ofNanos(System.nanoTime() - started)));
+    } catch (IOException | RuntimeException ex) {
+      log.warn("Failed to materialize {}@{} from mirror: {}", fullName, commitSha, ex.getMessage());
+      misses.increment();
+      return Optional.empty();
+    } finally {
+      synchronized (this) {
+        entry.pins--;
+      }
+      evictIfNeeded();
+    }
+  }
+
+  /** Stores a freshly extracted workspace tree; failures only cost the next fetch a download. */
+  void store(String fullName, String commitSha, Path source, long sizeBytes) {
+    if (!enabled
+        || sizeBytes <= 0
+        || sizeBytes > maxBytes
+        || !COMMIT_SHA.matcher(normalizeSha(commitSha)).matches()) {
+      return;
+    }
+    String key = key(fullName, commitSha);
+    synchronized (this) {
+      if (entries.containsKey(key)) {
+        return;
+      }
+    }
+    Path staging = root.resolve(STAGING_PREFIX + UUID.randomUUID());
+    Path target = root.resolve(key);
+    try {
+      Files.createDirectories(staging);
+      copyTree(source, staging);
+      for (String excluded : excludedNames) {
+        Files.deleteIfExists(staging.resolve(excluded));
+      }
+      Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+      synchronized (this) {
+        entries.put(key, new Entry(target, sizeBytes));
+        totalBytes.addAndGet(sizeBytes);
+      }
+    } catch (IOException | RuntimeException ex) {
+      log.debug("Unable to mirror {}@{}: {}", fullName, commitSha, ex.getMessage());
+      deleteTree(staging);
+      return;
+    }
+    evictIfNeeded();
+  }
+
+  private void evictIfNeeded() {
+    List<Entry> victims = new ArrayList<>();
+    synchronized (this) {
+      var iterator = entries.values().iterator();
+      while (totalBytes.get() > maxBytes && iterator.hasNext()) {
+        Entry candidate = iterator.next();
+        if (candidate.pins > 0) {
+          continue;
+        }
+        iterator.remove();
+        totalBytes.addAndGet(-candidate.sizeBytes);
+        victims.add(candidate);
+      }
+    }
+    for (Entry victim : victims) {
+      deleteTree(victim.path);
+      evictions.increment();
+    }
+  }
+
+  private boolean initialize() {
+    try {
+      Files.createDirectories(root);
+    } catch (IOException ex) {
+      log.warn("Repository mirror disabled: cannot create {}: {}", root, ex.getMessage());
+      return false;
+    }
+    List<Entry> existing = new ArrayList<>();
+    try (Stream<Path> paths = Files.list(root)) {
+      paths
+          .filter(Files::isDirectory)
+          .forEach(
+              path -> {
+                if (path.getFileName().toString().startsWith(STAGING_PREFIX)) {
+                  deleteTree(path);
+                  return;
+                }
+                existing.add(new Entry(path, treeSize(path)));
+              });
+    } catch (IOException ex) {
+      log.warn("Failed to scan repository mirror {}: {}", root, ex.getMessage());
+    }
+    // oldest first, so the access-ordered map keeps its LRU order after a restart
+    existing.sort(
+        (left, right) -> lastModified(left.path).compareTo(lastModified(right.path)));
+    synchronized (this) {
+      for (Entry entry : existing) {
+        entries.put(entry.path.getFileName().toString(), entry);
+        totalBytes.addAndGet(entry.sizeBytes);
+      }
+    }
+    evictIfNeeded();
+    return true;
+  }
+
+  private void copyTree(Path source, Path target) throws IOException {
+    Files.createDirectories(target);
+    if (nativeCopyAvailable && copyWithReflink(source, target)) {
+      return;
+    }
+    Files.walkFileTree(
+        source,
+        new SimpleFileVisitor<>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+              throws IOException {
+            Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+              throws IOException {
+            Files.copy(
+                file,
+                target.resolve(source.relativize(file).toString()),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.COPY_ATTRIBUTES,
+                LinkOption.NOFOLLOW_LINKS);
+            return FileVisitResult.CONTINUE;
+          }
+        });
+  }
+
+  /** {@code cp -a --reflink=auto}; disables itself for good once the platform lacks it. */
+  private boolean copyWithReflink(Path source, Path target) {
+    ProcessBuilder builder =
+        new ProcessBuilder(
+            "cp", "-a", "--reflink=auto", source.toString() + "/.", target.toString());
+    builder.redirectErrorStream(true);
+    try {
+      Process process = builder.start();
+      byte[] output;
+      try (InputStream in = process.getInputStream()) {
+        output = in.readAllBytes();
+      }
+      if (!process.waitFor(10, TimeUnit.MINUTES)) {
+        process.destroyForcibly();
+        return false;
+      }
+      if (process.exitValue() == 0) {
+        return true;
+      }
+      log.debug(
+          "cp --reflink=auto failed ({}), using Java copy: {}",
+          process.exitValue(),
+          new String(output, StandardCharsets.UTF_8).trim());
+    } catch (IOException ex) {
+      log.debug("cp is not available, using Java copy: {}", ex.getMessage());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    nativeCopyAvailable = false;
+    return false;
+  }
+
+  private static void touch(Path path) {
+    try {
+      Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+    } catch (IOException ignore) {
+      // recency is also tracked in memory
+    }
+  }
+
+  private static FileTime lastModified(Path path) {
+    try {
+      return Files.getLastModifiedTime(path);
+    } catch (IOException ex) {
+      return FileTime.fromMillis(0L);
+    }
+  }
+
+  private static long treeSize(Path path) {
+    try (Stream<Path> files = Files.walk(path)) {
+      return files
+          .filter(Files::isRegularFile)
+          .mapToLong(
+              file -> {
+                try {
+                  return Files.size(file);
+                } catch (IOException ex) {
+                  return 0L;
+                }
+              })
+          .sum();
+    } catch (IOException ex) {
+      return 0L;
+    }
+  }
+
+  private static void deleteTree(Path path) {
+    if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+      return;
+    }
+    try {
+      Files.walkFileTree(
+          path,
+          new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                throws IOException {
+              Files.deleteIfExists(file);
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc)
+                throws IOException {
+              Files.deleteIfExists(dir);
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    } catch (IOException ex) {
+      log.debug("Failed to delete mirror directory {}: {}", path, ex.getMessage());
+    }
+  }
+
+  private static String key(String fullName, String commitSha) {
+    return fullName.toLowerCase(Locale.ROOT).replace("/", "+") + "@" + normalizeSha(commitSha);
+  }
+
+  private static String normalizeSha(String commitSha) {
+    return commitSha != null ? commitSha.trim().toLowerCase(Locale.ROOT) : "";
+  }
+
+  record Materialization(long bytesServed, Duration duration) {}
+
+  private static final class Entry {
+    private final Path path;
+    private final long sizeBytes;
+    private int pins;
+
+    private Entry(Path path, long sizeBytes) {
+      this.path = path;
+      this.sizeBytes = sizeBytes;
+    }
+  }
+}
@@ -6,12 +6,14 @@ import com.aiadvent.mcp.backend.github.workspace.TempWorkspaceService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Scheduler;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
-import java.io.BufferedInputStream;
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -21,6 +23,7 @@ import java.io.OutputStream;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
@@ -38,17 +41,29 @@ import java.util.Base64;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 import java.util.regex.Pattern;
 import org.kohsuke.github.GHCheckRun;
 import org.kohsuke.github.GHCommit;
@@ -103,6 +118,7 @@ public class GitHubRepositoryService {
   private static final Pattern INVALID_BRANCH_PATTERN = Pattern.compile("[\\s~^:?*\\[\\\\]");
   private static final Pattern INVALID_BRANCH_COMPONENT = Pattern.compile("(^\\.|\\.\\.|@\\{|//|\\.lock$)");
   private static final String WORKSPACE_METADATA_FILE = ".workspace.json";
+  private static final int ARCHIVE_BUFFER_BYTES = 256 * 1024;
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
   private final GitHubClientExecutor executor;
@@ -117,8 +133,11 @@ public class GitHubRepositoryService {
   private final DistributionSummary downloadSizeSummary;
   private final DistributionSummary workspaceSizeSummary;
 
-  private final Map<String, CachedTree> treeCache = new ConcurrentHashMap<>();
-  private final Map<String, CachedFile> fileCache = new ConcurrentHashMap<>();
+  private final Cache<String, CachedTree> treeCache;
+  private final Cache<String, CachedFile> fileCache;
+  private final Map<String, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
+  private final GitHubConditionalRefResolver refResolver;
+  private final GitHubRepositoryMirror mirror;
 
   GitHubRepositoryService(
       GitHubClientExecutor executor,
@@ -147,6 +166,25 @@ public class GitHubRepositoryService {
         this.meterRegistry.summary("github_repository_fetch_download_bytes");
     this.workspaceSizeSummary =
         this.meterRegistry.summary("github_repository_fetch_workspace_bytes");
+    Duration retention = safeTtl(properties.getCacheRetention(), Duration.ofMinutes(30));
+    this.treeCache =
+        Caffeine.newBuilder()
+            .maximumWeight(cacheBytes(properties.getTreeCacheMaxBytes(), 32L * 1024 * 1024))
+            .weigher((String key, CachedTree entry) -> entry.weight())
+            .expireAfterWrite(retention)
+            .scheduler(Scheduler.systemScheduler())
+            .build();
+    this.fileCache =
+        Caffeine.newBuilder()
+            .maximumWeight(cacheBytes(properties.getFileCacheMaxBytes(), 64L * 1024 * 1024))
+            .weigher((String key, CachedFile entry) -> entry.weight())
+            .expireAfterWrite(retention)
+            .scheduler(Scheduler.systemScheduler())
+            .build();
+    this.refResolver =
+        new GitHubConditionalRefResolver(properties, tokenManager::currentToken, this.meterRegistry);
+    this.mirror =
+        new GitHubRepositoryMirror(properties, Set.of(WORKSPACE_METADATA_FILE), this.meterRegistry);
   }
 
   ListRepositoryTreeResult listRepositoryTree(ListRepositoryTreeInput input) {
@@ -193,6 +231,10 @@ public class GitHubRepositoryService {
       FetchExecutionOutcome outcome = performFetch(repository, workspace, options);
       long workspaceSize = calculateWorkspaceSize(workspace.path());
       workspaceService.ensureWithinLimit(workspaceSize);
+      if (outcome.downloadedBytes() > 0) {
+        // only archive downloads report bytes; clones carry .git and are not mirrored
+        mirror.store(repository.fullName(), outcome.commitSha(), workspace.path(), workspaceSize);
+      }
       List<String> keyFiles =
           options.detectKeyFiles() ? collectKeyFiles(workspace.path()) : List.of();
       TempWorkspaceService.Workspace updated =
@@ -226,7 +268,10 @@ public class GitHubRepositoryService {
               duration,
               outcome.strategy(),
               keyFiles,
-              outcome.completedAt());
+              outcome.completedAt(),
+              outcome.cacheHit(),
+              outcome.cacheBytesServed(),
+              outcome.materializationDuration());
       scheduleRagIndexing(result);
       return result;
     } catch (RuntimeException ex) {
@@ -1293,28 +1338,130 @@ public class GitHubRepositoryService {
     };
   }
 
+  /**
+   * Serves trees from a byte-bounded cache. Past {@code tree-cache-ttl} an entry is revalidated
+   * with a conditional ref lookup and reused while the ref still points at the same commit;
+   * concurrent misses for one key share a single fetch.
+   */
   private TreeData loadTree(RepositoryRef repository, int requestedDepth) {
     int depth = Math.max(1, Math.min(10, requestedDepth));
     String cacheKey = treeCacheKey(repository, depth);
-    CachedTree cached = treeCache.get(cacheKey);
+    Duration ttl = safeTtl(properties.getTreeCacheTtl(), Duration.ofMinutes(1));
+    CachedTree cached = treeCache.getIfPresent(cacheKey);
     if (cached != null && !cached.isExpired()) {
+      recordCacheResult("tree", "hit");
       return cached.payload();
     }
-
-    TreeData loaded = executor.execute(github -> fetchTree(github, repository, depth));
-    treeCache.put(cacheKey, new CachedTree(loaded, expiry(properties.getTreeCacheTtl())));
-    return loaded;
+    return singleFlight(
+        "tree:" + cacheKey,
+        () -> {
+          CachedTree current = treeCache.getIfPresent(cacheKey);
+          if (current != null && !current.isExpired()) {
+            recordCacheResult("tree", "hit");
+            return current.payload();
+          }
+          String commitSha = refResolver.resolve(repository.fullName(), repository.ref(), ttl);
+          if (current != null && commitSha != null && commitSha.equalsIgnoreCase(current.commitSha())) {
+            treeCache.put(cacheKey, current.revalidated(expiry(ttl)));
+            recordCacheResult("tree", "revalidated");
+            return current.payload();
+          }
+          RepositoryRef target = commitSha != null ? repository.withRef(commitSha) : repository;
+          TreeData fetched = executor.execute(github -> fetchTree(github, target, depth));
+          TreeData loaded =
+              new TreeData(repository, fetched.resolvedRef(), fetched.entries(), fetched.truncated());
+          treeCache.put(
+              cacheKey,
+              new CachedTree(loaded, loaded.resolvedRef(), weigh(loaded), expiry(ttl)));
+          recordCacheResult("tree", "miss");
+          return loaded;
+        });
   }
 
+  /** File counterpart of {@link #loadTree}; a file is fetched at the commit its ref resolved to. */
   private FileData loadFile(RepositoryRef repository, String path) {
     String cacheKey = fileCacheKey(repository, path);
-    CachedFile cached = fileCache.get(cacheKey);
+    Duration ttl = safeTtl(properties.getFileCacheTtl(), Duration.ofMinutes(1));
+    CachedFile cached = fileCache.getIfPresent(cacheKey);
     if (cached != null && !cached.isExpired()) {
+      recordCacheResult("file", "hit");
       return cached.payload();
     }
-    FileData loaded = executor.execute(github -> fetchFile(github, repository, path));
-    fileCache.put(cacheKey, new CachedFile(loaded, expiry(properties.getFileCacheTtl())));
-    return loaded;
+    return singleFlight(
+        "file:" + cacheKey,
+        () -> {
+          CachedFile current = fileCache.getIfPresent(cacheKey);
+          if (current != null && !current.isExpired()) {
+            recordCacheResult("file", "hit");
+            return current.payload();
+          }
+          String commitSha = refResolver.resolve(repository.fullName(), repository.ref(), ttl);
+          if (current != null && commitSha != null && commitSha.equalsIgnoreCase(current.commitSha())) {
+            fileCache.put(cacheKey, current.revalidated(expiry(ttl)));
+            recordCacheResult("file", "revalidated");
+            return current.payload();
+          }
+          RepositoryRef target = commitSha != null ? repository.withRef(commitSha) : repository;
+          FileData fetched = executor.execute(github -> fetchFile(github, target, path));
+          FileData loaded = new FileData(repository, repository.ref(), fetched.file());
+          fileCache.put(
+              cacheKey, new CachedFile(loaded, commitSha, weigh(loaded), expiry(ttl)));
+          recordCacheResult("file", "miss");
+          return loaded;
+        });
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T singleFlight(String key, Supplier<T> loader) {
+    CompletableFuture<Object> own = new CompletableFuture<>();
+    CompletableFuture<Object> existing = inFlightLoads.putIfAbsent(key, own);
+    if (existing != null) {
+      try {
+        return (T) existing.join();
+      } catch (CompletionException ex) {
+        if (ex.getCause() instanceof RuntimeException runtime) {
+          throw runtime;
+        }
+        throw ex;
+      }
+    }
+    try {
+      T value = loader.get();
+      own.complete(value);
+      return value;
+    } catch (RuntimeException ex) {
+      own.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      inFlightLoads.remove(key, own);
+    }
+  }
+
+  private void recordCacheResult(String cache, String result) {
+    meterRegistry.counter("github_cache_requests_total", "cache", cache, "result", result).increment();
+  }
+
+  private static long cacheBytes(Long configured, long fallback) {
+    return configured != null && configured >= 0 ? configured : fallback;
+  }
+
+  private static int weigh(TreeData tree) {
+    long bytes = 256;
+    for (TreeEntry entry : tree.entries()) {
+      bytes += 96 + 2L * (entry.path() != null ? entry.path().length() : 0);
+    }
+    return (int) Math.min(Integer.MAX_VALUE, bytes);
+  }
+
+  private static int weigh(FileData data) {
+    RepositoryFile file = data.file();
+    long bytes = 256;
+    if (file != null) {
+      bytes += file.contentBase64() != null ? file.contentBase64().length() : 0;
+      bytes += file.textContent() != null ? 2L * file.textContent().length() : 0;
+      bytes += file.path() != null ? 2L * file.path().length() : 0;
+    }
+    return (int) Math.min(Integer.MAX_VALUE, bytes);
   }
 
   private PullRequestListData fetchPullRequests(
@@ -2482,6 +2629,11 @@ public class GitHubRepositoryService {
     CheckoutStrategy strategy = options.strategy();
     if (strategy == CheckoutStrategy.ARCHIVE_ONLY
         || strategy == CheckoutStrategy.ARCHIVE_WITH_FALLBACK_CLONE) {
+      Optional<FetchExecutionOutcome> mirrored =
+          materializeFromMirror(repository, workspace, strategy);
+      if (mirrored.isPresent()) {
+        return mirrored.get();
+      }
       try {
         return executor.execute(
             github ->
@@ -2514,6 +2666,39 @@ public class GitHubRepositoryService {
     return cloneRepository(repository, workspace, options);
   }
 
+  /**
+   * Serves archive strategies from the local mirror when the ref still points at a mirrored
+   * commit. The SHA is revalidated with a conditional request, which does not spend rate limit.
+   */
+  private Optional<FetchExecutionOutcome> materializeFromMirror(
+      RepositoryRef repository,
+      TempWorkspaceService.Workspace workspace,
+      CheckoutStrategy strategy) {
+    if (!mirror.isEnabled()) {
+      return Optional.empty();
+    }
+    String commitSha = refResolver.resolve(repository.fullName(), repository.ref(), Duration.ZERO);
+    if (commitSha == null) {
+      return Optional.empty();
+    }
+    Optional<GitHubRepositoryMirror.Materialization> materialization =
+        mirror.materialize(repository.fullName(), commitSha, workspace.path());
+    if (materialization.isEmpty()) {
+      // a partial copy is wiped by the archive download that follows
+      return Optional.empty();
+    }
+    return Optional.of(
+        new FetchExecutionOutcome(
+            strategy,
+            commitSha,
+            commitSha,
+            0L,
+            Instant.now(),
+            true,
+            materialization.get().bytesServed(),
+            materialization.get().duration()));
+  }
+
   private FetchExecutionOutcome downloadRepositoryArchive(
       org.kohsuke.github.GitHub github,
       RepositoryRef repository,
@@ -2525,18 +2710,31 @@ public class GitHubRepositoryService {
       String ref = repository.ref();
       String commitSha = resolveCommitSha(repo, ref);
       emptyDirectory(workspace.path());
-      long downloadedBytes =
-          repo.readZip(
-              stream ->
-                  extractZipArchive(
-                      stream,
-                      workspace.path(),
-                      options.archiveSizeLimit(),
-                      workspaceService.getSizeLimitBytes()),
-              ref);
+      // spool next to the workspace (same filesystem), outside the workspace directory itself
+      Path spool =
+          workspace.path().resolveSibling(".archive-" + workspace.workspaceId() + ".zip");
+      long downloadedBytes;
+      try {
+        repo.readZip(stream -> spoolArchive(stream, spool, options.archiveSizeLimit()), ref);
+        downloadedBytes =
+            extractZipArchive(
+                spool,
+                workspace.path(),
+                options.archiveSizeLimit(),
+                workspaceService.getSizeLimitBytes());
+      } finally {
+        Files.deleteIfExists(spool);
+      }
       Instant completedAt = Instant.now();
       return new FetchExecutionOutcome(
-          requestedStrategy, commitSha, commitSha, downloadedBytes, completedAt);
+          requestedStrategy,
+          commitSha,
+          commitSha,
+          downloadedBytes,
+          completedAt,
+          false,
+          0L,
+          Duration.ZERO);
     } catch (ArchiveDownloadException ex) {
       throw ex;
     } catch (IOException ex) {
@@ -2610,20 +2808,52 @@ public class GitHubRepositoryService {
         options.strategy() == CheckoutStrategy.CLONE_WITH_SUBMODULES
             ? CheckoutStrategy.CLONE_WITH_SUBMODULES
             : CheckoutStrategy.ARCHIVE_WITH_FALLBACK_CLONE;
-    return new FetchExecutionOutcome(applied, commitSha, commitSha, 0L, completedAt);
+    return new FetchExecutionOutcome(
+        applied, commitSha, commitSha, 0L, completedAt, false, 0L, Duration.ZERO);
+  }
+
+  private Path spoolArchive(InputStream stream, Path spool, long archiveSizeLimit) {
+    byte[] buffer = new byte[ARCHIVE_BUFFER_BYTES];
+    long spooled = 0L;
+    try (OutputStream out =
+        Files.newOutputStream(
+            spool,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      int read;
+      while ((read = stream.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+        spooled += read;
+        if (archiveSizeLimit > 0 && spooled > archiveSizeLimit) {
+          throw new ArchiveDownloadException(
+              "Archive size exceeds configured limit %d bytes".formatted(archiveSizeLimit));
+        }
+      }
+    } catch (ArchiveDownloadException ex) {
+      throw ex;
+    } catch (IOException ex) {
+      throw new ArchiveDownloadException("Failed to download repository archive", ex);
+    }
+    return spool;
   }
 
+  /**
+   * Extracts a spooled archive. Entries are validated and all directories are created up front on
+   * the calling thread; file contents are then inflated and written by a worker pool reading the
+   * zip with random access, each worker with its own direct buffer. Size limits are enforced on the
+   * bytes actually written, so a lying central directory cannot exceed them.
+   */
   private long extractZipArchive(
-      InputStream stream,
-      Path workspacePath,
-      long archiveSizeLimit,
-      long workspaceSizeLimit) {
-    byte[] buffer = new byte[8192];
-    long written = 0L;
-    String rootPrefix = null;
-    try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(stream))) {
-      ZipEntry entry;
-      while ((entry = zip.getNextEntry()) != null) {
+      Path archive, Path workspacePath, long archiveSizeLimit, long workspaceSizeLimit) {
+    try (ZipFile zip = new ZipFile(archive.toFile())) {
+      Map<Path, ZipEntry> files = new LinkedHashMap<>();
+      Set<Path> directories = new TreeSet<>();
+      String rootPrefix = null;
+      long declared = 0L;
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
         String rawName = entry.getName();
         if (!StringUtils.hasText(rawName)) {
           continue;
@@ -2644,41 +2874,127 @@ public class GitHubRepositoryService {
         Path target = workspacePath.resolve(relativeName).normalize();
         ensurePathWithin(workspacePath, target);
         if (entry.isDirectory()) {
-          Files.createDirectories(target);
+          directories.add(target);
           continue;
         }
-        Files.createDirectories(target.getParent());
-        try (OutputStream out = Files.newOutputStream(target)) {
-          int read;
-          while ((read = zip.read(buffer)) != -1) {
-            out.write(buffer, 0, read);
-            written += read;
-            if (archiveSizeLimit > 0 && written > archiveSizeLimit) {
-              throw new ArchiveDownloadException(
-                  "Archive extracted size exceeds configured limit %d bytes"
-                      .formatted(archiveSizeLimit));
-            }
-            if (workspaceSizeLimit > 0 && written > workspaceSizeLimit) {
-              throw new ArchiveDownloadException(
-                  "Workspace size exceeds configured limit %d bytes"
-                      .formatted(workspaceSizeLimit));
-            }
-          }
-        }
-        try {
-          if (entry.getLastModifiedTime() != null) {
-            Files.setLastModifiedTime(target, entry.getLastModifiedTime());
-          }
-        } catch (Exception ex) {
-          log.debug("Unable to apply mtime for {}: {}", target, ex.getMessage());
-        }
+        directories.add(target.getParent());
+        files.put(target, entry);
+        declared += Math.max(0L, entry.getSize());
+      }
+      checkExtractedSize(declared, archiveSizeLimit, workspaceSizeLimit);
+      for (Path directory : directories) {
+        Files.createDirectories(directory);
       }
+      return writeEntries(zip, List.copyOf(files.entrySet()), archiveSizeLimit, workspaceSizeLimit);
     } catch (ArchiveDownloadException ex) {
       throw ex;
     } catch (IOException ex) {
       throw new ArchiveDownloadException("Failed to extract repository archive", ex);
     }
-    return written;
+  }
+
+  private long writeEntries(
+      ZipFile zip,
+      List<Map.Entry<Path, ZipEntry>> files,
+      long archiveSizeLimit,
+      long workspaceSizeLimit) {
+    AtomicLong written = new AtomicLong();
+    AtomicInteger next = new AtomicInteger();
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    int workers = Math.max(1, Math.min(archiveExtractThreads(), files.size()));
+    Runnable worker =
+        () -> {
+          ByteBuffer buffer = ByteBuffer.allocate(ARCHIVE_BUFFER_BYTES);
+          int index;
+          while (failure.get() == null && (index = next.getAndIncrement()) < files.size()) {
+            Map.Entry<Path, ZipEntry> file = files.get(index);
+            try {
+              writeEntry(
+                  zip,
+                  file.getValue(),
+                  file.getKey(),
+                  buffer,
+                  written,
+                  archiveSizeLimit,
+                  workspaceSizeLimit);
+            } catch (ArchiveDownloadException ex) {
+              failure.compareAndSet(null, ex);
+            } catch (IOException | RuntimeException ex) {
+              failure.compareAndSet(
+                  null, new ArchiveDownloadException("Failed to extract repository archive", ex));
+            }
+          }
+        };
+    if (workers == 1) {
+      worker.run();
+    } else {
+      try (ExecutorService pool =
+          Executors.newFixedThreadPool(
+              workers, Thread.ofPlatform().name("github-archive-extract-", 0).daemon().factory())) {
+        for (int i = 0; i < workers; i++) {
+          pool.execute(worker);
+        }
+      }
+    }
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+    return written.get();
+  }
+
+  private void writeEntry(
+      ZipFile zip,
+      ZipEntry entry,
+      Path target,
+      ByteBuffer buffer,
+      AtomicLong written,
+      long archiveSizeLimit,
+      long workspaceSizeLimit)
+      throws IOException {
+    try (InputStream in = zip.getInputStream(entry);
+        FileChannel out =
+            FileChannel.open(
+                target,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+      // read straight into the buffer's backing array; no second copy before the channel write
+      byte[] chunk = buffer.array();
+      int read;
+      while ((read = in.read(chunk)) != -1) {
+        checkExtractedSize(written.addAndGet(read), archiveSizeLimit, workspaceSizeLimit);
+        buffer.clear().limit(read);
+        while (buffer.hasRemaining()) {
+          out.write(buffer);
+        }
+      }
+    }
+    try {
+      if (entry.getLastModifiedTime() != null) {
+        Files.setLastModifiedTime(target, entry.getLastModifiedTime());
+      }
+    } catch (Exception ex) {
+      log.debug("Unable to apply mtime for {}: {}", target, ex.getMessage());
+    }
+  }
+
+  private void checkExtractedSize(long extracted, long archiveSizeLimit, long workspaceSizeLimit) {
+    if (archiveSizeLimit > 0 && extracted > archiveSizeLimit) {
+      throw new ArchiveDownloadException(
+          "Archive extracted size exceeds configured limit %d bytes".formatted(archiveSizeLimit));
+    }
+    if (workspaceSizeLimit > 0 && extracted > workspaceSizeLimit) {
+      throw new ArchiveDownloadException(
+          "Workspace size exceeds configured limit %d bytes".formatted(workspaceSizeLimit));
+    }
+  }
+
+  private int archiveExtractThreads() {
+    Integer configured = properties.getArchiveExtractThreads();
+    if (configured != null && configured > 0) {
+      return configured;
+    }
+    return Math.min(Runtime.getRuntime().availableProcessors(), 8);
   }
 
   private void ensurePathWithin(Path root, Path target) {
@@ -3043,7 +3359,10 @@ public class GitHubRepositoryService {
       Duration downloadDuration,
       CheckoutStrategy strategy,
       List<String> keyFiles,
-      Instant fetchedAt) {}
+      Instant fetchedAt,
+      boolean cacheHit,
+      long cacheBytesServed,
+      Duration materializationDuration) {}
 
   record GitFetchOptions(
       CheckoutStrategy strategy,
@@ -3074,7 +3393,10 @@ public class GitHubRepositoryService {
       String resolvedRef,
       String commitSha,
       long downloadedBytes,
-      Instant completedAt) {}
+      Instant completedAt,
+      boolean cacheHit,
+      long cacheBytesServed,
+      Duration materializationDuration) {}
 
   private record ProcessResult(int exitCode, String output) {}
 
@@ -3488,16 +3810,24 @@ public class GitHubRepositoryService {
 
   private record FilteredTree(List<TreeEntry> entries, boolean reachedLimit) {}
 
-  private record CachedTree(TreeData payload, Instant expiresAt) {
+  private record CachedTree(TreeData payload, String commitSha, int weight, Instant expiresAt) {
     boolean isExpired() {
       return Instant.now().isAfter(expiresAt);
     }
+
+    CachedTree revalidated(Instant newExpiry) {
+      return new CachedTree(payload, commitSha, weight, newExpiry);
+    }
   }
 
-  private record CachedFile(FileData payload, Instant expiresAt) {
+  private record CachedFile(FileData payload, String commitSha, int weight, Instant expiresAt) {
     boolean isExpired() {
       return Instant.now().isAfter(expiresAt);
     }
+
+    CachedFile revalidated(Instant newExpiry) {
+      return new CachedFile(payload, commitSha, weight, newExpiry);
+    }
   }
 
   private record TruncatedValue(String value, boolean truncated) {}
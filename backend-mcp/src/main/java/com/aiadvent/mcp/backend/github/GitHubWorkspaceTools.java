@@ -53,7 +53,9 @@ class GitHubWorkspaceTools {
               + "необязательный requestId для трассировки и параметры options: strategy (ARCHIVE_ONLY|ARCHIVE_WITH_FALLBACK_CLONE|CLONE_WITH_SUBMODULES), "
               + "shallowClone (по умолчанию true), includeSubmodules, cloneTimeout/ archiveTimeout (Duration ISO-8601), "
               + "archiveSizeLimit (байты) и detectKeyFiles. Возвращает workspaceId, абсолютный путь, "
-              + "resolvedRef, commitSha, размеры скачивания и список ключевых файлов.")
+              + "resolvedRef, commitSha, размеры скачивания и список ключевых файлов. Если коммит уже есть "
+              + "в локальном зеркале, workspace копируется из него без сети: cacheHit=true, cacheBytesServed "
+              + "и materializationTimeMs показывают объём и время копирования.")
   GitHubRepositoryFetchResponse fetchRepository(GitHubRepositoryFetchRequest request) {
     GitHubTools.RepositoryInput repositoryInput = requireRepository(request);
     GitFetchOptions options = toFetchOptions(request.options());
@@ -74,7 +76,10 @@ class GitHubWorkspaceTools {
         result.downloadDuration() != null ? result.downloadDuration().toMillis() : 0L,
         result.strategy().name().toLowerCase(Locale.ROOT),
         result.keyFiles(),
-        result.fetchedAt());
+        result.fetchedAt(),
+        result.cacheHit(),
+        result.cacheBytesServed(),
+        result.materializationDuration() != null ? result.materializationDuration().toMillis() : 0L);
 
     fetchRegistry.record(
         new GitHubRepositoryFetchRegistry.LastFetchContext(
@@ -436,7 +441,10 @@ class GitHubWorkspaceTools {
       long downloadTimeMs,
       String strategy,
       List<String> keyFiles,
-      Instant fetchedAt) {}
+      Instant fetchedAt,
+      boolean cacheHit,
+      long cacheBytesServed,
+      long materializationTimeMs) {}
 
   record WorkspaceDirectoryInspectorRequest(
       String workspaceId,
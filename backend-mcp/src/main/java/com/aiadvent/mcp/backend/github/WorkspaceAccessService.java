@@ -66,14 +66,15 @@ public class WorkspaceAccessService {
               ? result.downloadDuration().toMillis()
               : Duration.between(startedAt, Instant.now()).toMillis();
       log.info(
-          "gradle_mcp.fetch.completed requestId={} repository={}/{} ref={} downloadedBytes={} workspaceBytes={} durationMs={}",
+          "gradle_mcp.fetch.completed requestId={} repository={}/{} ref={} downloadedBytes={} workspaceBytes={} durationMs={} cacheHit={}",
           normalizedRequestId,
           repositoryRef.owner(),
           repositoryRef.name(),
           repositoryRef.ref(),
           result.downloadedBytes(),
           result.workspaceSizeBytes(),
-          durationMs);
+          durationMs,
+          result.cacheHit());
       return result;
     } catch (RuntimeException exception) {
       log.warn(
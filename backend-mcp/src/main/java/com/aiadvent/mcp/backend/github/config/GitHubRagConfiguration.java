@@ -3,6 +3,7 @@ package com.aiadvent.mcp.backend.github.config;
 import com.aiadvent.mcp.backend.config.GitHubRagProperties;
 import com.aiadvent.mcp.backend.github.rag.HeuristicRepoRagSearchReranker;
 import com.aiadvent.mcp.backend.github.rag.RepoRagSearchReranker;
+import com.aiadvent.mcp.backend.github.rag.RepoRagSnippetCompressionPool;
 import com.aiadvent.mcp.backend.github.rag.RepoRagSymbolService;
 import com.aiadvent.mcp.backend.github.rag.RepoRagToolConfiguration;
 import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagDocumentMapper;
@@ -57,9 +58,15 @@ public class GitHubRagConfiguration {
           ObjectProvider<ChatClient.Builder> snippetCompressorBuilder,
       RepoRagDocumentRepository documentRepository,
       RepoRagDocumentMapper documentMapper,
-      RepoRagSymbolService symbolService) {
+      RepoRagSymbolService symbolService,
+      RepoRagSnippetCompressionPool compressionPool) {
     return new HeuristicRepoRagSearchReranker(
-        properties, snippetCompressorBuilder, documentRepository, documentMapper, symbolService);
+        properties,
+        snippetCompressorBuilder,
+        documentRepository,
+        documentMapper,
+        symbolService,
+        compressionPool);
   }
 
   @Bean(name = "repoRagQueryTransformerChatClientBuilder")
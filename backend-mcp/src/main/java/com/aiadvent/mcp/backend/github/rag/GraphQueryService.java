@@ -136,30 +136,123 @@ public class GraphQueryService {
         return new GraphNeighbors(List.of(), List.of());
       }
       Record record = result.next();
-      Path path = record.get("p").asPath();
-      Set<String> seen = new LinkedHashSet<>();
-      List<GraphNode> nodes = new ArrayList<>();
-      List<GraphEdge> edges = new ArrayList<>();
-      Map<Long, String> idToFqn = new LinkedHashMap<>();
-      for (Node node : path.nodes()) {
-        GraphNode gn = toNode(node);
-        if (gn != null) {
-          idToFqn.put(node.id(), gn.fqn());
-          if (seen.add(gn.fqn())) {
-            nodes.add(gn);
+      return toNeighbors(record.get("p").asPath());
+    }
+  }
+
+  /**
+   * Batched variant of {@link #neighbors}: one {@code UNWIND} query returns up to {@code
+   * limitPerSymbol} neighbors for every requested symbol. Symbols without a node are absent from
+   * the result.
+   */
+  public Map<SymbolRef, GraphNeighbors> neighborsBatch(
+      List<SymbolRef> symbols, Direction direction, Set<String> relations, int limitPerSymbol) {
+    if (CollectionUtils.isEmpty(symbols)) {
+      return Map.of();
+    }
+    int safeLimit = Math.max(1, Math.min(64, limitPerSymbol > 0 ? limitPerSymbol : 16));
+    Set<String> relationFilter =
+        CollectionUtils.isEmpty(relations) ? Set.of() : new LinkedHashSet<>(relations);
+    List<Map<String, Object>> symbolParams =
+        symbols.stream()
+            .distinct()
+            .map(symbol -> Map.<String, Object>of("namespace", symbol.namespace(), "fqn", symbol.fqn()))
+            .toList();
+    SessionConfig config =
+        SessionConfig.builder().withDatabase(graphProperties.getDatabase()).build();
+    try (Session session = driver.session(config)) {
+      String pattern =
+          switch (direction != null ? direction : Direction.OUTGOING) {
+            case OUTGOING -> "(s)-[r]->(t)";
+            case INCOMING -> "(t)-[r]->(s)";
+            case BOTH -> "(s)-[r]-(t)";
+          };
+      Map<String, Object> params = new LinkedHashMap<>();
+      params.put("symbols", symbolParams);
+      params.put("limit", safeLimit);
+      params.put("relations", relationFilter.isEmpty() ? List.of() : List.copyOf(relationFilter));
+      String query =
+          """
+          UNWIND $symbols AS symbol
+          MATCH (s:Symbol {namespace:symbol.namespace, fqn:symbol.fqn})
+          CALL {
+            WITH s
+            MATCH %s
+            WHERE $relations = [] OR type(r) IN $relations
+            RETURN t, r
+            LIMIT $limit
           }
-        }
+          RETURN symbol.namespace AS namespace, symbol.fqn AS fqn, s AS source, t AS target,
+                 type(r) AS relation, r.chunkHash AS chunkHash, r.chunkIndex AS chunkIndex
+          """
+              .formatted(pattern);
+      Result result = session.run(query, params);
+      Map<SymbolRef, NeighborsBuilder> builders = new LinkedHashMap<>();
+      while (result.hasNext()) {
+        Record record = result.next();
+        SymbolRef key =
+            new SymbolRef(record.get("namespace").asString(), record.get("fqn").asString());
+        GraphNode srcNode = toNode(record.get("source").asNode());
+        GraphNode tgtNode = toNode(record.get("target").asNode());
+        Integer chunkIndex = record.get("chunkIndex").isNull() ? null : record.get("chunkIndex").asInt();
+        String chunkHash = record.get("chunkHash").isNull() ? null : record.get("chunkHash").asString();
+        builders
+            .computeIfAbsent(key, ignored -> new NeighborsBuilder())
+            .add(srcNode, tgtNode, record.get("relation").asString(), chunkHash, chunkIndex);
       }
-      for (Relationship rel : path.relationships()) {
-        String from = idToFqn.get(rel.startNodeId());
-        String to = idToFqn.get(rel.endNodeId());
-        Integer chunkIndex = rel.get("chunkIndex").isNull() ? null : rel.get("chunkIndex").asInt();
-        String chunkHash = rel.get("chunkHash").isNull() ? null : rel.get("chunkHash").asString();
-        if (StringUtils.hasText(from) && StringUtils.hasText(to)) {
-          edges.add(new GraphEdge(from, to, rel.type(), chunkHash, chunkIndex));
-        }
+      Map<SymbolRef, GraphNeighbors> neighbors = new LinkedHashMap<>();
+      builders.forEach((key, builder) -> neighbors.put(key, builder.build()));
+      return neighbors;
+    }
+  }
+
+  /** Batched variant of {@link #shortestPath}: one {@code UNWIND} query for all requested pairs. */
+  public Map<PathRequest, GraphNeighbors> shortestPaths(
+      List<PathRequest> requests, Set<String> relations, int maxDepth) {
+    if (CollectionUtils.isEmpty(requests)) {
+      return Map.of();
+    }
+    int depth = Math.max(1, Math.min(8, maxDepth <= 0 ? 4 : maxDepth));
+    Set<String> relationFilter =
+        CollectionUtils.isEmpty(relations) ? Set.of() : new LinkedHashSet<>(relations);
+    List<Map<String, Object>> pairParams =
+        requests.stream()
+            .distinct()
+            .map(
+                request ->
+                    Map.<String, Object>of(
+                        "namespace", request.namespace(),
+                        "source", request.sourceFqn(),
+                        "target", request.targetFqn()))
+            .toList();
+    SessionConfig config =
+        SessionConfig.builder().withDatabase(graphProperties.getDatabase()).build();
+    try (Session session = driver.session(config)) {
+      Map<String, Object> params = new LinkedHashMap<>();
+      params.put("pairs", pairParams);
+      params.put("relations", relationFilter.isEmpty() ? List.of() : List.copyOf(relationFilter));
+      String query =
+          """
+          UNWIND $pairs AS pair
+          MATCH (a:Symbol {namespace:pair.namespace, fqn:pair.source})
+          MATCH (b:Symbol {namespace:pair.namespace, fqn:pair.target})
+          MATCH p=shortestPath((a)-[r*..%d]-(b))
+          WHERE $relations = [] OR ALL(rel IN relationships(p) WHERE type(rel) IN $relations)
+          RETURN pair.namespace AS namespace, pair.source AS source, pair.target AS target, p
+          """
+              .formatted(depth);
+      Result result = session.run(query, params);
+      Map<PathRequest, GraphNeighbors> paths = new LinkedHashMap<>();
+      while (result.hasNext()) {
+        Record record = result.next();
+        PathRequest key =
+            new PathRequest(
+                record.get("namespace").asString(),
+                record.get("source").asString(),
+                record.get("target").asString());
+        paths.putIfAbsent(key, toNeighbors(record.get("p").asPath()));
       }
-      return new GraphNeighbors(List.copyOf(nodes), List.copyOf(edges));
+      return paths;
     }
   }
 
@@ -183,6 +276,32 @@ public class GraphQueryService {
     }
   }
 
+  private GraphNeighbors toNeighbors(Path path) {
+    Set<String> seen = new LinkedHashSet<>();
+    List<GraphNode> nodes = new ArrayList<>();
+    List<GraphEdge> edges = new ArrayList<>();
+    Map<Long, String> idToFqn = new LinkedHashMap<>();
+    for (Node node : path.nodes()) {
+      GraphNode gn = toNode(node);
+      if (gn != null) {
+        idToFqn.put(node.id(), gn.fqn());
+        if (seen.add(gn.fqn())) {
+          nodes.add(gn);
+        }
+      }
+    }
+    for (Relationship rel : path.relationships()) {
+      String from = idToFqn.get(rel.startNodeId());
+      String to = idToFqn.get(rel.endNodeId());
+      Integer chunkIndex = rel.get("chunkIndex").isNull() ? null : rel.get("chunkIndex").asInt();
+      String chunkHash = rel.get("chunkHash").isNull() ? null : rel.get("chunkHash").asString();
+      if (StringUtils.hasText(from) && StringUtils.hasText(to)) {
+        edges.add(new GraphEdge(from, to, rel.type(), chunkHash, chunkIndex));
+      }
+    }
+    return new GraphNeighbors(List.copyOf(nodes), List.copyOf(edges));
+  }
+
   private GraphNode toNode(Node node) {
     if (node == null) {
       return null;
@@ -214,4 +333,35 @@ public class GraphQueryService {
       String from, String to, String relation, String chunkHash, Integer chunkIndex) {}
 
   public record GraphNeighbors(List<GraphNode> nodes, List<GraphEdge> edges) {}
+
+  public record SymbolRef(String namespace, String fqn) {}
+
+  public record PathRequest(String namespace, String sourceFqn, String targetFqn) {}
+
+  private static final class NeighborsBuilder {
+    private final List<GraphNode> nodes = new ArrayList<>();
+    private final List<GraphEdge> edges = new ArrayList<>();
+    private final Set<String> seen = new LinkedHashSet<>();
+
+    void add(
+        GraphNode srcNode,
+        GraphNode tgtNode,
+        String relation,
+        String chunkHash,
+        Integer chunkIndex) {
+      if (srcNode != null && seen.add(srcNode.fqn())) {
+        nodes.add(srcNode);
+      }
+      if (tgtNode != null && seen.add(tgtNode.fqn())) {
+        nodes.add(tgtNode);
+      }
+      if (srcNode != null && tgtNode != null) {
+        edges.add(new GraphEdge(srcNode.fqn(), tgtNode.fqn(), relation, chunkHash, chunkIndex));
+      }
+    }
+
+    GraphNeighbors build() {
+      return new GraphNeighbors(List.copyOf(nodes), List.copyOf(edges));
+    }
+  }
 }
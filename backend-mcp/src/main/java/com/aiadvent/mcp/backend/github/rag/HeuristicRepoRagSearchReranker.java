@@ -12,6 +12,7 @@ import com.aiadvent.mcp.backend.github.rag.postprocessing.RepoRagPostProcessingR
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.ai.chat.client.ChatClient;
@@ -27,18 +28,21 @@ public class HeuristicRepoRagSearchReranker implements RepoRagSearchReranker {
   private final RepoRagDocumentRepository documentRepository;
   private final RepoRagDocumentMapper documentMapper;
   private final RepoRagSymbolService symbolService;
+  private final RepoRagSnippetCompressionPool compressionPool;
 
   public HeuristicRepoRagSearchReranker(
       GitHubRagProperties properties,
       ObjectProvider<ChatClient.Builder> snippetCompressorBuilderProvider,
       RepoRagDocumentRepository documentRepository,
       RepoRagDocumentMapper documentMapper,
-      RepoRagSymbolService symbolService) {
+      RepoRagSymbolService symbolService,
+      RepoRagSnippetCompressionPool compressionPool) {
     this.properties = properties;
     this.snippetCompressorBuilderProvider = snippetCompressorBuilderProvider;
     this.documentRepository = documentRepository;
     this.documentMapper = documentMapper;
     this.symbolService = symbolService;
+    this.compressionPool = compressionPool;
   }
 
   @Override
@@ -51,11 +55,18 @@ public class HeuristicRepoRagSearchReranker implements RepoRagSearchReranker {
     boolean changed = false;
     List<String> modules = new ArrayList<>();
     for (NamedProcessor processor : buildProcessors(request)) {
+      long started = System.nanoTime();
       List<Document> updated = processor.delegate().process(query, current);
       if (hasChanged(current, updated)) {
         changed = true;
         modules.add(processor.name());
       }
+      if (processor.delegate() instanceof NeighborChunkDocumentPostProcessor) {
+        modules.add(
+            "latency.neighbor-expand:"
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)
+                + "ms");
+      }
       current = updated;
     }
     return new PostProcessingResult(current, changed, modules);
@@ -105,6 +116,7 @@ public class HeuristicRepoRagSearchReranker implements RepoRagSearchReranker {
               "post.llm-compression",
               new LlmSnippetCompressionPostProcessor(
                   snippetCompressorBuilderProvider.getObject(),
+                  compressionPool,
                   request.maxSnippetLines(),
                   request.locale(),
                   true,
@@ -0,0 +1,478 @@
+package com.aiadvent.mcp.backend.github.rag;
+
+import com.aiadvent.mcp.backend.config.GitHubRagProperties;
+import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagVectorStoreAdapter;
+import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagVectorStoreAdapter.ChunkDiffResult;
+import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagVectorStoreAdapter.EmbeddedFile;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gathers chunks from many files into token-budgeted embedding requests. A file is written to the
+ * vector store only after every one of its chunks has been embedded, so its previous chunk set is
+ * swapped out atomically even when the file spans several batches.
+ *
+ * <p>Chunks are embedded as {@link MetadataMode#EMBED}-formatted content, the same input the
+ * vector store builds when it embeds documents itself. The indexer keeps per-run and positional
+ * metadata out of that input, so vectors are reused through {@link RepoRagEmbeddingCache} under its
+ * content hash across runs and namespaces.
+ */
+@Component
+public class RepoRagEmbeddingBatcher {
+
+  private static final Logger log = LoggerFactory.getLogger(RepoRagEmbeddingBatcher.class);
+
+  private final EmbeddingModel embeddingModel;
+  private final RepoRagVectorStoreAdapter vectorStoreAdapter;
+  private final GitHubRagProperties properties;
+  @Nullable private final RepoRagEmbeddingCache embeddingCache;
+  private final ScheduledExecutorService deadlineScheduler;
+
+  public RepoRagEmbeddingBatcher(
+      EmbeddingModel embeddingModel,
+      RepoRagVectorStoreAdapter vectorStoreAdapter,
+      GitHubRagProperties properties) {
+    this(embeddingModel, vectorStoreAdapter, properties, null);
+  }
+
+  @Autowired
+  public RepoRagEmbeddingBatcher(
+      EmbeddingModel embeddingModel,
+      RepoRagVectorStoreAdapter vectorStoreAdapter,
+      GitHubRagProperties properties,
+      @Nullable RepoRagEmbeddingCache embeddingCache) {
+    this.embeddingModel = embeddingModel;
+    this.vectorStoreAdapter = vectorStoreAdapter;
+    this.properties = properties;
+    this.embeddingCache = embeddingCache;
+    this.deadlineScheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "repo-rag-embed-flush");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  public boolean isEnabled() {
+    return properties.getEmbedding().getBatch().isEnabled();
+  }
+
+  public Session openSession(String namespace) {
+    return new Session(namespace, properties.getEmbedding().getBatch());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    deadlineScheduler.shutdownNow();
+  }
+
+  static int estimateTokens(String text) {
+    if (text == null || text.isEmpty()) {
+      return 1;
+    }
+    return Math.max(1, text.length() / 4);
+  }
+
+  /** Receives the outcome of a submitted file exactly once. */
+  public interface FileListener {
+    void onStored(String filePath, int chunkCount);
+
+    void onFailed(String filePath, RuntimeException error);
+  }
+
+  public record BatchStats(
+      long batches,
+      long items,
+      long cacheHits,
+      long rowsWritten,
+      long rowsDeleted,
+      long rowsKept,
+      long embedMs,
+      long writeMs) {}
+
+  /** Batching scope of one index run; closing it flushes and waits for in-flight batches. */
+  public final class Session implements AutoCloseable {
+    private final String namespace;
+    private final int maxBatchTokens;
+    private final int maxBatchItems;
+    private final long flushDeadlineNanos;
+    private final boolean chunkDiff;
+    private final Object lock = new Object();
+    private final Phaser inFlight = new Phaser(1);
+    private final ScheduledFuture<?> deadlineTask;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder items = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder rowsDeleted = new LongAdder();
+    private final LongAdder rowsKept = new LongAdder();
+    private final LongAdder embedNanos = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private List<Item> buffer = new ArrayList<>();
+    private int bufferedTokens;
+    private long oldestItemNanos;
+    private boolean closed;
+
+    private Session(String namespace, GitHubRagProperties.Batch config) {
+      this.namespace = namespace;
+      this.maxBatchTokens = Math.max(1, config.getMaxBatchTokens());
+      this.maxBatchItems = Math.max(1, config.getMaxBatchItems());
+      this.chunkDiff = properties.getIndexing().isChunkDiffEnabled();
+      Duration deadline = config.getFlushDeadline();
+      long deadlineMs =
+          deadline != null && !deadline.isNegative() && !deadline.isZero()
+              ? deadline.toMillis()
+              : 500L;
+      this.flushDeadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+      long period = Math.max(10L, deadlineMs / 2);
+      this.deadlineTask =
+          deadlineScheduler.scheduleWithFixedDelay(
+              this::flushExpired, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the documents of one file. May embed and write full batches on the calling thread,
+     * which is what throttles producers when the embedding provider falls behind.
+     */
+    public void submit(String filePath, List<Document> documents, FileListener listener) {
+      Objects.requireNonNull(listener, "listener");
+      if (documents == null || documents.isEmpty()) {
+        listener.onStored(filePath, 0);
+        return;
+      }
+      PendingFile file = new PendingFile(filePath, documents, listener);
+      boolean[] alreadyStored = matchStoredChunks(filePath, documents);
+      String[] inputs = new String[documents.size()];
+      String[] cacheKeys = new String[documents.size()];
+      for (int i = 0; i < documents.size(); i++) {
+        if (alreadyStored == null || !alreadyStored[i]) {
+          inputs[i] = embeddingInput(documents.get(i));
+          cacheKeys[i] = contentHash(inputs[i]);
+        }
+      }
+      Map<String, float[]> cached = lookupCached(cacheKeys);
+      List<List<Item>> ready = new ArrayList<>();
+      boolean completedWithoutEmbedding = false;
+      synchronized (lock) {
+        if (closed) {
+          throw new IllegalStateException("Embedding batch session is closed");
+        }
+        for (int i = 0; i < documents.size(); i++) {
+          if (alreadyStored != null && alreadyStored[i]) {
+            completedWithoutEmbedding = file.accept(i, null);
+            continue;
+          }
+          String text = inputs[i];
+          float[] hit = cached.get(cacheKeys[i]);
+          if (hit != null) {
+            cacheHits.increment();
+            embeddingCache.recordSaved(text.getBytes(StandardCharsets.UTF_8).length);
+            completedWithoutEmbedding = file.accept(i, hit);
+            continue;
+          }
+          int tokens = estimateTokens(text);
+          if (!buffer.isEmpty()
+              && (bufferedTokens + tokens > maxBatchTokens || buffer.size() >= maxBatchItems)) {
+            ready.add(drainLocked());
+          }
+          if (buffer.isEmpty()) {
+            oldestItemNanos = System.nanoTime();
+          }
+          buffer.add(new Item(file, i, text, cacheKeys[i]));
+          bufferedTokens += tokens;
+        }
+        if (bufferedTokens >= maxBatchTokens || buffer.size() >= maxBatchItems) {
+          ready.add(drainLocked());
+        }
+      }
+      if (completedWithoutEmbedding) {
+        write(List.of(file));
+      }
+      for (List<Item> batch : ready) {
+        process(batch);
+      }
+    }
+
+    public void flush() {
+      List<Item> batch;
+      synchronized (lock) {
+        if (buffer.isEmpty()) {
+          return;
+        }
+        batch = drainLocked();
+      }
+      process(batch);
+    }
+
+    public BatchStats stats() {
+      return new BatchStats(
+          batches.sum(),
+          items.sum(),
+          cacheHits.sum(),
+          rowsWritten.sum(),
+          rowsDeleted.sum(),
+          rowsKept.sum(),
+          TimeUnit.NANOSECONDS.toMillis(embedNanos.sum()),
+          TimeUnit.NANOSECONDS.toMillis(writeNanos.sum()));
+    }
+
+    @Override
+    public void close() {
+      deadlineTask.cancel(false);
+      List<Item> batch = null;
+      synchronized (lock) {
+        closed = true;
+        if (!buffer.isEmpty()) {
+          batch = drainLocked();
+        }
+      }
+      if (batch != null) {
+        process(batch);
+      }
+      inFlight.arriveAndAwaitAdvance();
+    }
+
+    private void flushExpired() {
+      List<Item> batch;
+      synchronized (lock) {
+        if (closed
+            || buffer.isEmpty()
+            || System.nanoTime() - oldestItemNanos < flushDeadlineNanos) {
+          return;
+        }
+        batch = drainLocked();
+      }
+      try {
+        process(batch);
+      } catch (RuntimeException ex) {
+        log.warn("Deadline flush failed (namespace={}): {}", namespace, ex.getMessage());
+      }
+    }
+
+    /** Must be called under {@code lock}; the batch stays registered until processed. */
+    private List<Item> drainLocked() {
+      List<Item> batch = buffer;
+      buffer = new ArrayList<>();
+      bufferedTokens = 0;
+      inFlight.register();
+      return batch;
+    }
+
+    private void process(List<Item> batch) {
+      try {
+        List<float[]> vectors;
+        long embedStarted = System.nanoTime();
+        try {
+          List<String> texts = new ArrayList<>(batch.size());
+          for (Item item : batch) {
+            texts.add(item.text());
+          }
+          vectors = embeddingModel.embed(texts);
+          if (vectors == null || vectors.size() != batch.size()) {
+            throw new IllegalStateException(
+                "Embedding model returned "
+                    + (vectors == null ? 0 : vectors.size())
+                    + " vectors for "
+                    + batch.size()
+                    + " inputs");
+          }
+        } catch (RuntimeException ex) {
+          Set<PendingFile> failed = new LinkedHashSet<>();
+          for (Item item : batch) {
+            failed.add(item.file());
+          }
+          failed.forEach(file -> file.fail(ex));
+          return;
+        } finally {
+          embedNanos.add(System.nanoTime() - embedStarted);
+        }
+        batches.increment();
+        items.add(batch.size());
+        storeInCache(batch, vectors);
+
+        List<PendingFile> completed = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+          Item item = batch.get(i);
+          if (item.file().accept(item.index(), vectors.get(i))) {
+            completed.add(item.file());
+          }
+        }
+        write(completed);
+      } finally {
+        inFlight.arriveAndDeregister();
+      }
+    }
+
+    /**
+     * In chunk-diff mode marks documents whose {@code chunk_hash} is already stored for the file;
+     * those rows are kept by the adapter and need no embedding. Returns {@code null} otherwise.
+     */
+    @Nullable
+    private boolean[] matchStoredChunks(String filePath, List<Document> documents) {
+      if (!chunkDiff) {
+        return null;
+      }
+      Map<String, Integer> storedCounts = new HashMap<>();
+      try {
+        for (String hash : vectorStoreAdapter.listChunkHashes(namespace, filePath)) {
+          storedCounts.merge(hash, 1, Integer::sum);
+        }
+      } catch (RuntimeException ex) {
+        log.debug("Unable to load stored chunk hashes for {}: {}", filePath, ex.getMessage());
+        return null;
+      }
+      boolean[] matched = new boolean[documents.size()];
+      for (int i = 0; i < documents.size(); i++) {
+        String chunkHash = chunkHash(documents.get(i));
+        if (chunkHash != null && storedCounts.getOrDefault(chunkHash, 0) > 0) {
+          storedCounts.merge(chunkHash, -1, Integer::sum);
+          matched[i] = true;
+        }
+      }
+      return matched;
+    }
+
+    private Map<String, float[]> lookupCached(String[] cacheKeys) {
+      if (embeddingCache == null || !embeddingCache.isEnabled()) {
+        return Map.of();
+      }
+      List<String> keys = new ArrayList<>(cacheKeys.length);
+      for (String key : cacheKeys) {
+        if (key != null) {
+          keys.add(key);
+        }
+      }
+      return embeddingCache.getAll(keys);
+    }
+
+    private void storeInCache(List<Item> batch, List<float[]> vectors) {
+      if (embeddingCache == null || !embeddingCache.isEnabled()) {
+        return;
+      }
+      Map<String, float[]> fresh = new HashMap<>();
+      for (int i = 0; i < batch.size(); i++) {
+        fresh.put(batch.get(i).cacheKey(), vectors.get(i));
+      }
+      embeddingCache.putAll(fresh);
+    }
+
+    private void write(List<PendingFile> completed) {
+      if (completed.isEmpty()) {
+        return;
+      }
+      List<EmbeddedFile> files = new ArrayList<>(completed.size());
+      for (PendingFile file : completed) {
+        files.add(file.toEmbeddedFile());
+      }
+      long writeStarted = System.nanoTime();
+      try {
+        ChunkDiffResult result =
+            chunkDiff
+                ? vectorStoreAdapter.applyChunkDiff(namespace, files)
+                : vectorStoreAdapter.replaceFiles(namespace, files);
+        if (result != null) {
+          rowsWritten.add(result.rowsWritten());
+          rowsDeleted.add(result.rowsDeleted());
+          rowsKept.add(result.rowsKept());
+        }
+      } catch (RuntimeException ex) {
+        completed.forEach(file -> file.fail(ex));
+        return;
+      } finally {
+        writeNanos.add(System.nanoTime() - writeStarted);
+      }
+      completed.forEach(PendingFile::stored);
+    }
+  }
+
+  @Nullable
+  private static String chunkHash(Document document) {
+    Object value = document.getMetadata().get("chunk_hash");
+    return value instanceof String hash && !hash.isBlank() ? hash : null;
+  }
+
+  /** The text the vector store itself would send to the model for this document. */
+  static String embeddingInput(Document document) {
+    String input = document.getFormattedContent(MetadataMode.EMBED);
+    return input != null ? input : "";
+  }
+
+  static String contentHash(String input) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(input.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 is not available", ex);
+    }
+  }
+
+  private record Item(PendingFile file, int index, String text, String cacheKey) {}
+
+  private static final class PendingFile {
+    private final String filePath;
+    private final List<Document> documents;
+    private final FileListener listener;
+    private final float[][] vectors;
+    private final AtomicInteger remaining;
+    private final AtomicBoolean finished = new AtomicBoolean(false);
+
+    PendingFile(String filePath, List<Document> documents, FileListener listener) {
+      this.filePath = filePath;
+      this.documents = documents;
+      this.listener = listener;
+      this.vectors = new float[documents.size()][];
+      this.remaining = new AtomicInteger(documents.size());
+    }
+
+    /** Returns {@code true} when this vector completed the file and it is ready to be written. */
+    boolean accept(int index, float[] vector) {
+      vectors[index] = vector;
+      return remaining.decrementAndGet() == 0 && !finished.get();
+    }
+
+    EmbeddedFile toEmbeddedFile() {
+      return new EmbeddedFile(filePath, documents, Arrays.asList(vectors));
+    }
+
+    void stored() {
+      if (finished.compareAndSet(false, true)) {
+        listener.onStored(filePath, documents.size());
+      }
+    }
+
+    void fail(RuntimeException error) {
+      if (finished.compareAndSet(false, true)) {
+        listener.onFailed(filePath, error);
+      }
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package com.aiadvent.mcp.backend.github.rag;
+
+import com.aiadvent.mcp.backend.config.GitHubRagProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Array;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Content-addressed store of chunk embeddings keyed by (model, dimensions, content_hash), where the
+ * content hash covers exactly the text sent to the model. Lookups go through a bounded in-process
+ * L1 first and fall back to {@code repo_rag_embedding_cache}; cache failures are logged and treated
+ * as misses so indexing never depends on the cache being healthy.
+ */
+@Component
+public class RepoRagEmbeddingCache {
+
+  private static final Logger log = LoggerFactory.getLogger(RepoRagEmbeddingCache.class);
+  private static final int MAX_ROWS_PER_STATEMENT = 500;
+  private static final String SELECT_SQL =
+      "SELECT content_hash, embedding FROM repo_rag_embedding_cache"
+          + " WHERE model = ? AND dimensions = ? AND content_hash = ANY(?)";
+  private static final String INSERT_PREFIX =
+      "INSERT INTO repo_rag_embedding_cache (model, dimensions, content_hash, embedding) VALUES ";
+  private static final String INSERT_SUFFIX = " ON CONFLICT DO NOTHING";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final GitHubRagProperties properties;
+  private final Cache<EmbeddingKey, float[]> l1;
+  private final Counter l1Hits;
+  private final Counter l2Hits;
+  private final Counter misses;
+  private final Counter bytesSaved;
+
+  public RepoRagEmbeddingCache(
+      JdbcTemplate jdbcTemplate,
+      GitHubRagProperties properties,
+      @Nullable MeterRegistry meterRegistry) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.properties = properties;
+    GitHubRagProperties.Cache config = properties.getEmbedding().getCache();
+    Duration expireAfterAccess =
+        config.getL1ExpireAfterAccess() != null
+            ? config.getL1ExpireAfterAccess()
+            : Duration.ofMinutes(30);
+    this.l1 =
+        Caffeine.newBuilder()
+            .maximumSize(Math.max(0, config.getL1MaxEntries()))
+            .expireAfterAccess(expireAfterAccess)
+            .build();
+    MeterRegistry registry = meterRegistry != null ? meterRegistry : new SimpleMeterRegistry();
+    this.l1Hits = registry.counter("repo_rag_embedding_cache_hits_total", "tier", "l1");
+    this.l2Hits = registry.counter("repo_rag_embedding_cache_hits_total", "tier", "l2");
+    this.misses = registry.counter("repo_rag_embedding_cache_misses_total");
+    this.bytesSaved = registry.counter("repo_rag_embedding_cache_bytes_saved_total");
+  }
+
+  public boolean isEnabled() {
+    return properties.getEmbedding().getCache().isEnabled();
+  }
+
+  /**
+   * Returns cached vectors for the given content hashes; hashes without a cached vector are absent
+   * from the result.
+   */
+  public Map<String, float[]> getAll(Collection<String> contentHashes) {
+    Map<String, float[]> found = new HashMap<>();
+    if (contentHashes == null || contentHashes.isEmpty()) {
+      return found;
+    }
+    String model = model();
+    int dimensions = dimensions();
+    Set<String> remaining = new LinkedHashSet<>();
+    for (String hash : contentHashes) {
+      if (!StringUtils.hasText(hash)) {
+        continue;
+      }
+      float[] vector = l1.getIfPresent(new EmbeddingKey(model, dimensions, hash));
+      if (vector != null) {
+        found.put(hash, vector);
+        l1Hits.increment();
+      } else {
+        remaining.add(hash);
+      }
+    }
+    if (!remaining.isEmpty()) {
+      Map<String, float[]> stored = loadStored(model, dimensions, remaining);
+      stored.forEach(
+          (hash, vector) -> {
+            l1.put(new EmbeddingKey(model, dimensions, hash), vector);
+            found.put(hash, vector);
+          });
+      l2Hits.increment(stored.size());
+      misses.increment(remaining.size() - stored.size());
+    }
+    return found;
+  }
+
+  /** Stores freshly computed vectors in both tiers; existing rows are left untouched. */
+  public void putAll(Map<String, float[]> vectorsByHash) {
+    if (vectorsByHash == null || vectorsByHash.isEmpty()) {
+      return;
+    }
+    String model = model();
+    int dimensions = dimensions();
+    List<Map.Entry<String, float[]>> entries = new ArrayList<>();
+    for (Map.Entry<String, float[]> entry : vectorsByHash.entrySet()) {
+      if (!StringUtils.hasText(entry.getKey()) || entry.getValue() == null) {
+        continue;
+      }
+      l1.put(new EmbeddingKey(model, dimensions, entry.getKey()), entry.getValue());
+      entries.add(entry);
+    }
+    try {
+      for (int from = 0; from < entries.size(); from += MAX_ROWS_PER_STATEMENT) {
+        int to = Math.min(entries.size(), from + MAX_ROWS_PER_STATEMENT);
+        insert(model, dimensions, entries.subList(from, to));
+      }
+    } catch (DataAccessException ex) {
+      log.warn("Failed to persist embedding cache entries: {}", ex.getMessage());
+    }
+  }
+
+  /** Records the input that did not have to be sent to the embedding model thanks to a hit. */
+  public void recordSaved(long textBytes) {
+    if (textBytes > 0) {
+      bytesSaved.increment(textBytes);
+    }
+  }
+
+  private Map<String, float[]> loadStored(String model, int dimensions, Set<String> hashes) {
+    Map<String, float[]> stored = new HashMap<>();
+    try {
+      jdbcTemplate.query(
+          SELECT_SQL,
+          ps -> {
+            ps.setString(1, model);
+            ps.setInt(2, dimensions);
+            Array array = ps.getConnection().createArrayOf("text", hashes.toArray(String[]::new));
+            ps.setArray(3, array);
+          },
+          rs -> {
+            float[] vector = decode(rs.getBytes("embedding"));
+            if (vector.length == dimensions) {
+              stored.put(rs.getString("content_hash"), vector);
+            }
+          });
+    } catch (DataAccessException ex) {
+      log.warn("Embedding cache lookup failed, embedding all chunks: {}", ex.getMessage());
+      stored.clear();
+    }
+    return stored;
+  }
+
+  private void insert(String model, int dimensions, List<Map.Entry<String, float[]>> entries) {
+    if (entries.isEmpty()) {
+      return;
+    }
+    StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+    for (int i = 0; i < entries.size(); i++) {
+      sql.append(i > 0 ? ", (?, ?, ?, ?)" : "(?, ?, ?, ?)");
+    }
+    sql.append(INSERT_SUFFIX);
+    jdbcTemplate.update(
+        sql.toString(),
+        ps -> {
+          int index = 1;
+          for (Map.Entry<String, float[]> entry : entries) {
+            ps.setString(index++, model);
+            ps.setInt(index++, dimensions);
+            ps.setString(index++, entry.getKey());
+            ps.setBytes(index++, encode(entry.getValue()));
+          }
+        });
+  }
+
+  private String model() {
+    String model = properties.getEmbedding().getModel();
+    return StringUtils.hasText(model) ? model : "default";
+  }
+
+  private int dimensions() {
+    return properties.getEmbedding().getDimensions();
+  }
+
+  static byte[] encode(float[] vector) {
+    ByteBuffer buffer =
+        ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.asFloatBuffer().put(vector);
+    return buffer.array();
+  }
+
+  static float[] decode(byte[] bytes) {
+    if (bytes == null) {
+      return new float[0];
+    }
+    float[] vector = new float[bytes.length / Float.BYTES];
+    ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+    return vector;
+  }
+
+  private record EmbeddingKey(String model, int dimensions, String contentHash) {}
+}
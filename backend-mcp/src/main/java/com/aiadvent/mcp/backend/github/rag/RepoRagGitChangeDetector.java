@@ -0,0 +1,174 @@
+package com.aiadvent.mcp.backend.github.rag;
+
+import com.aiadvent.mcp.backend.config.GitHubRagProperties;
+import com.aiadvent.mcp.backend.github.rag.RepoRagIndexService.IncrementalScope;
+import com.aiadvent.mcp.backend.github.workspace.TempWorkspaceService;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Works out which paths changed between the last indexed commit of a namespace and the commit
+ * checked out in a workspace, so a re-index can touch only those files. Any doubt about the
+ * workspace (no git metadata, local edits, missing base commit in a shallow clone, too many
+ * changes) yields a fallback reason instead of a scope, and the caller walks the full tree.
+ */
+@Component
+public class RepoRagGitChangeDetector {
+
+  private static final Logger log = LoggerFactory.getLogger(RepoRagGitChangeDetector.class);
+  private static final Pattern SHA_PATTERN = Pattern.compile("^[0-9a-fA-F]{7,64}$");
+
+  private final TempWorkspaceService workspaceService;
+  private final GitHubRagProperties properties;
+
+  public RepoRagGitChangeDetector(
+      TempWorkspaceService workspaceService, GitHubRagProperties properties) {
+    this.workspaceService = workspaceService;
+    this.properties = properties;
+  }
+
+  public Detection detect(String workspaceId, String baseCommitSha, String targetCommitSha) {
+    GitHubRagProperties.Indexing indexing = properties.getIndexing();
+    if (!indexing.isIncrementalEnabled()) {
+      return Detection.fallback("incremental indexing disabled");
+    }
+    if (!isSha(baseCommitSha)) {
+      return Detection.fallback("no previously indexed commit");
+    }
+    if (!isSha(targetCommitSha)) {
+      return Detection.fallback("target commit unknown");
+    }
+    Optional<Path> root =
+        workspaceService.findWorkspace(workspaceId).map(TempWorkspaceService.Workspace::path);
+    if (root.isEmpty()) {
+      return Detection.fallback("workspace not found");
+    }
+    Path workspace = root.get();
+    if (!Files.exists(workspace.resolve(".git"))) {
+      return Detection.fallback("workspace is not a git checkout");
+    }
+    Duration timeout = indexing.getIncrementalGitTimeout();
+    try {
+      GitOutput head = runGit(workspace, timeout, "git", "rev-parse", "HEAD");
+      if (head.exitCode() != 0 || !sameCommit(head.output().trim(), targetCommitSha)) {
+        return Detection.fallback("workspace HEAD does not match target commit");
+      }
+      GitOutput status =
+          runGit(workspace, timeout, "git", "status", "--porcelain", "--untracked-files=normal");
+      if (status.exitCode() != 0 || !status.output().isBlank()) {
+        return Detection.fallback("workspace has local changes");
+      }
+      GitOutput base =
+          runGit(workspace, timeout, "git", "cat-file", "-e", baseCommitSha + "^{commit}");
+      if (base.exitCode() != 0) {
+        return Detection.fallback("base commit is not available in the checkout");
+      }
+      GitOutput diff =
+          runGit(
+              workspace,
+              timeout,
+              "git",
+              "diff",
+              "--name-status",
+              "--no-renames",
+              "-z",
+              baseCommitSha,
+              targetCommitSha);
+      if (diff.exitCode() != 0) {
+        return Detection.fallback("git diff failed");
+      }
+      IncrementalScope scope = parseNameStatus(baseCommitSha, diff.output());
+      int limit = indexing.getIncrementalMaxChangedFiles();
+      int changed = scope.changedPaths().size() + scope.deletedPaths().size();
+      if (limit > 0 && changed > limit) {
+        return Detection.fallback(changed + " changed paths exceed the incremental limit");
+      }
+      return new Detection(scope, null);
+    } catch (IOException ex) {
+      log.debug("git change detection failed for {}: {}", workspaceId, ex.getMessage());
+      return Detection.fallback("git unavailable: " + ex.getMessage());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return Detection.fallback("interrupted");
+    }
+  }
+
+  static IncrementalScope parseNameStatus(String baseCommitSha, String output) {
+    Set<String> changed = new LinkedHashSet<>();
+    Set<String> deleted = new LinkedHashSet<>();
+    int added = 0;
+    String[] tokens = output.split("\0");
+    for (int i = 0; i + 1 < tokens.length; i += 2) {
+      String status = tokens[i].trim();
+      String path = tokens[i + 1];
+      if (status.isEmpty() || path.isEmpty()) {
+        continue;
+      }
+      switch (Character.toUpperCase(status.charAt(0))) {
+        case 'D' -> deleted.add(path);
+        case 'A' -> {
+          changed.add(path);
+          added++;
+        }
+        default -> changed.add(path);
+      }
+    }
+    return new IncrementalScope(baseCommitSha, Set.copyOf(changed), Set.copyOf(deleted), added);
+  }
+
+  private boolean isSha(String value) {
+    return StringUtils.hasText(value) && SHA_PATTERN.matcher(value.trim()).matches();
+  }
+
+  private boolean sameCommit(String head, String target) {
+    String left = head.toLowerCase(Locale.ROOT);
+    String right = target.trim().toLowerCase(Locale.ROOT);
+    return left.startsWith(right) || right.startsWith(left);
+  }
+
+  private GitOutput runGit(Path workspace, Duration timeout, String... command)
+      throws IOException, InterruptedException {
+    ProcessBuilder builder = new ProcessBuilder(command);
+    builder.directory(workspace.toFile());
+    builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+    builder.environment().put("GIT_TERMINAL_PROMPT", "0");
+    builder.environment().putIfAbsent("LC_ALL", "C");
+    Process process = builder.start();
+    byte[] stdout;
+    try (var in = process.getInputStream()) {
+      stdout = in.readAllBytes();
+    }
+    long timeoutMs = timeout != null && !timeout.isNegative() ? timeout.toMillis() : 30_000L;
+    if (!process.waitFor(timeoutMs, TimeUnit.MILLISECONDS)) {
+      process.destroyForcibly();
+      throw new IOException(String.join(" ", command) + " timed out");
+    }
+    return new GitOutput(process.exitValue(), new String(stdout, StandardCharsets.UTF_8));
+  }
+
+  /** Either an incremental scope or the reason why the full walk has to be used. */
+  public record Detection(IncrementalScope scope, String fallbackReason) {
+    static Detection fallback(String reason) {
+      return new Detection(null, reason);
+    }
+
+    public boolean incremental() {
+      return scope != null;
+    }
+  }
+
+  private record GitOutput(int exitCode, String output) {}
+}
@@ -0,0 +1,296 @@
+package com.aiadvent.mcp.backend.github.rag;
+
+import com.aiadvent.mcp.backend.config.GitHubRagProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.lang.Nullable;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Graph lens for search results: attaches {@code graph_neighbors} and {@code graph_path} of the
+ * top symbols. Neighbors and paths of all symbols are fetched with two batched Cypher queries on a
+ * virtual thread, so the lens overlaps answer generation; a lens that misses {@code
+ * github.rag.graph.lens-timeout} is skipped and the documents are returned unchanged.
+ */
+final class RepoRagGraphLens {
+
+  private static final Logger log = LoggerFactory.getLogger(RepoRagGraphLens.class);
+  private static final int REPO_BUDGET = 5;
+  private static final int NEIGHBOR_LIMIT = 12;
+  private static final int PATH_DEPTH = 6;
+
+  private final GraphQueryService graphQueryService;
+  private final GitHubRagProperties properties;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final Timer latency;
+  private final Counter timeouts;
+  private final Counter failures;
+
+  RepoRagGraphLens(
+      @Nullable GraphQueryService graphQueryService,
+      GitHubRagProperties properties,
+      @Nullable MeterRegistry meterRegistry) {
+    this.graphQueryService = graphQueryService;
+    this.properties = properties;
+    MeterRegistry registry = meterRegistry != null ? meterRegistry : new SimpleMeterRegistry();
+    this.latency = registry.timer("repo_rag_graph_lens_seconds");
+    this.timeouts = registry.counter("repo_rag_graph_lens_skipped_total", "reason", "timeout");
+    this.failures = registry.counter("repo_rag_graph_lens_skipped_total", "reason", "error");
+  }
+
+  /** Starts the lens for the first documents of a single AST-ready namespace. */
+  Pending start(String namespace, List<Document> documents, boolean namespaceAstReady) {
+    if (!isEnabled() || !namespaceAstReady || CollectionUtils.isEmpty(documents)) {
+      return new Pending(documents, null, 0L);
+    }
+    List<Candidate> candidates = new ArrayList<>();
+    int budget = Math.min(REPO_BUDGET, documents.size());
+    for (int i = 0; i < budget; i++) {
+      String symbolFqn = asString(metadataValue(documents.get(i), "symbol_fqn"));
+      if (StringUtils.hasText(symbolFqn)) {
+        candidates.add(
+            new Candidate(i, new GraphQueryService.SymbolRef(namespace, symbolFqn.trim())));
+      }
+    }
+    return submit(documents, candidates, candidates.size());
+  }
+
+  /**
+   * Starts the lens for global search, where every document carries its own namespace. At most
+   * {@code budget} documents with a non-empty neighborhood are enriched, in result order.
+   */
+  Pending startAcrossNamespaces(List<Document> documents, int budget) {
+    if (!isEnabled() || CollectionUtils.isEmpty(documents)) {
+      return new Pending(documents, null, 0L);
+    }
+    int maxBudget = Math.max(0, Math.min(budget > 0 ? budget : REPO_BUDGET, documents.size()));
+    List<Candidate> candidates = new ArrayList<>();
+    for (int i = 0; i < documents.size(); i++) {
+      Document document = documents.get(i);
+      String namespace = asString(metadataValue(document, "namespace"));
+      String symbolFqn = asString(metadataValue(document, "symbol_fqn"));
+      Integer astVersion = asInteger(metadataValue(document, "ast_version"));
+      boolean namespaceAstReady =
+          astVersion != null && astVersion >= RepoRagIndexService.AST_VERSION;
+      if (StringUtils.hasText(namespace) && StringUtils.hasText(symbolFqn) && namespaceAstReady) {
+        candidates.add(new Candidate(i, new GraphQueryService.SymbolRef(namespace, symbolFqn)));
+      }
+    }
+    return submit(documents, candidates, maxBudget);
+  }
+
+  private boolean isEnabled() {
+    return graphQueryService != null && properties.getGraph().isEnabled();
+  }
+
+  private Pending submit(List<Document> documents, List<Candidate> candidates, int maxApplied) {
+    if (candidates.isEmpty() || maxApplied <= 0) {
+      return new Pending(documents, null, 0L);
+    }
+    Duration timeout = properties.getGraph().getLensTimeout();
+    long deadline = System.nanoTime() + timeout.toNanos();
+    Future<LensResult> future =
+        executor.submit(() -> latency.record(() -> enrich(documents, candidates, maxApplied)));
+    return new Pending(documents, future, deadline);
+  }
+
+  private LensResult enrich(List<Document> documents, List<Candidate> candidates, int maxApplied) {
+    Map<GraphQueryService.SymbolRef, GraphQueryService.GraphNeighbors> neighbors =
+        graphQueryService.neighborsBatch(
+            candidates.stream().map(Candidate::symbol).toList(),
+            GraphQueryService.Direction.OUTGOING,
+            Set.of(),
+            NEIGHBOR_LIMIT);
+    Map<Integer, GraphQueryService.GraphNeighbors> appliedByIndex = new LinkedHashMap<>();
+    Map<Integer, GraphQueryService.PathRequest> pathByIndex = new LinkedHashMap<>();
+    for (Candidate candidate : candidates) {
+      if (appliedByIndex.size() >= maxApplied) {
+        break;
+      }
+      GraphQueryService.GraphNeighbors found = neighbors.get(candidate.symbol());
+      if (found == null || (found.nodes().isEmpty() && found.edges().isEmpty())) {
+        continue;
+      }
+      appliedByIndex.put(candidate.index(), found);
+      found.edges().stream()
+          .map(GraphQueryService.GraphEdge::to)
+          .filter(StringUtils::hasText)
+          .findFirst()
+          .ifPresent(
+              target ->
+                  pathByIndex.put(
+                      candidate.index(),
+                      new GraphQueryService.PathRequest(
+                          candidate.symbol().namespace(), candidate.symbol().fqn(), target)));
+    }
+    if (appliedByIndex.isEmpty()) {
+      return new LensResult(documents, false, false);
+    }
+    Map<GraphQueryService.PathRequest, GraphQueryService.GraphNeighbors> paths = Map.of();
+    if (!pathByIndex.isEmpty()) {
+      try {
+        paths =
+            graphQueryService.shortestPaths(
+                List.copyOf(pathByIndex.values()), Set.of(), PATH_DEPTH);
+      } catch (RuntimeException ex) {
+        // ignore path failures
+        log.debug("Graph lens path lookup failed: {}", ex.getMessage());
+      }
+    }
+    List<Document> enriched = new ArrayList<>(documents.size());
+    for (int i = 0; i < documents.size(); i++) {
+      Document document = documents.get(i);
+      Map<String, Object> metadata =
+          document.getMetadata() != null
+              ? new LinkedHashMap<>(document.getMetadata())
+              : new LinkedHashMap<>();
+      GraphQueryService.GraphNeighbors found = appliedByIndex.get(i);
+      if (found != null) {
+        metadata.put("graph_neighbors", graphPayload(found));
+        GraphQueryService.PathRequest pathRequest = pathByIndex.get(i);
+        GraphQueryService.GraphNeighbors path = pathRequest != null ? paths.get(pathRequest) : null;
+        if (path != null
+            && (!CollectionUtils.isEmpty(path.nodes()) || !CollectionUtils.isEmpty(path.edges()))) {
+          metadata.put("graph_path", graphPayload(path));
+        }
+      }
+      enriched.add(cloneDocument(document, metadata));
+    }
+    return new LensResult(List.copyOf(enriched), true, false);
+  }
+
+  private Document cloneDocument(Document source, Map<String, Object> metadata) {
+    return Document.builder()
+        .id(source.getId())
+        .text(source.getText())
+        .metadata(metadata)
+        .score(source.getScore())
+        .build();
+  }
+
+  private Map<String, Object> graphPayload(GraphQueryService.GraphNeighbors neighbors) {
+    Map<String, Object> payload = new LinkedHashMap<>();
+    payload.put(
+        "nodes",
+        neighbors.nodes().stream()
+            .map(
+                node -> {
+                  Map<String, Object> map = new LinkedHashMap<>();
+                  map.put("fqn", node.fqn());
+                  map.put("file_path", node.filePath());
+                  map.put("kind", node.kind());
+                  map.put("visibility", node.visibility());
+                  map.put("line_start", node.lineStart());
+                  map.put("line_end", node.lineEnd());
+                  return map;
+                })
+            .toList());
+    payload.put(
+        "edges",
+        neighbors.edges().stream()
+            .map(
+                edge -> {
+                  Map<String, Object> map = new LinkedHashMap<>();
+                  map.put("from", edge.from());
+                  map.put("to", edge.to());
+                  map.put("relation", edge.relation());
+                  map.put("chunk_hash", edge.chunkHash());
+                  map.put("chunk_index", edge.chunkIndex());
+                  return map;
+                })
+            .toList());
+    return payload;
+  }
+
+  private static Object metadataValue(Document document, String key) {
+    Map<String, Object> metadata = document.getMetadata();
+    return metadata != null ? metadata.get(key) : null;
+  }
+
+  private static String asString(Object value) {
+    if (value == null) {
+      return null;
+    }
+    if (value instanceof String str) {
+      return str;
+    }
+    return value.toString();
+  }
+
+  private static Integer asInteger(Object value) {
+    if (value instanceof Integer i) {
+      return i;
+    }
+    if (value instanceof Number n) {
+      return n.intValue();
+    }
+    if (value instanceof String str) {
+      try {
+        return Integer.parseInt(str.trim());
+      } catch (NumberFormatException ignore) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /** A started lens; {@link #await} waits at most until the lens deadline. */
+  final class Pending {
+    private final List<Document> documents;
+    private final Future<LensResult> future;
+    private final long deadlineNanos;
+
+    private Pending(List<Document> documents, @Nullable Future<LensResult> future, long deadlineNanos) {
+      this.documents = documents;
+      this.future = future;
+      this.deadlineNanos = deadlineNanos;
+    }
+
+    LensResult await() {
+      if (future == null) {
+        return new LensResult(documents, false, false);
+      }
+      try {
+        return future.get(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch (TimeoutException ex) {
+        future.cancel(true);
+        timeouts.increment();
+        log.debug("Graph lens skipped: exceeded {}", properties.getGraph().getLensTimeout());
+      } catch (ExecutionException ex) {
+        // Не блокируем выдачу, просто пропускаем графовую линзу
+        failures.increment();
+        log.debug("Graph lens skipped: {}", ex.getCause() != null ? ex.getCause().getMessage() : ex);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        future.cancel(true);
+      }
+      return new LensResult(documents, false, true);
+    }
+  }
+
+  /**
+   * {@code dropped} is set when the lens was started but timed out or failed, so the documents are
+   * the un-enriched input.
+   */
+  record LensResult(List<Document> documents, boolean applied, boolean dropped) {}
+
+  private record Candidate(int index, GraphQueryService.SymbolRef symbol) {}
+}
@@ -4,6 +4,7 @@ import com.aiadvent.mcp.backend.config.GitHubRagProperties;
 import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagIndexJobEntity;
 import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagIndexJobRepository;
 import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagJobStatus;
+import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagNamespaceStateEntity;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.micrometer.core.instrument.Counter;
@@ -12,40 +13,69 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
+/**
+ * Durable index queue backed by {@code repo_rag_index_job}. Jobs survive restarts, are claimed with
+ * {@code FOR UPDATE SKIP LOCKED} so several MCP instances can share the work, and a running job
+ * keeps a lease that its instance renews; jobs of a crashed instance are re-queued once the lease
+ * expires. Jobs for the same namespace coalesce: only the newest queued commit is indexed and at
+ * most one job per namespace runs at a time.
+ */
 @Component
 public class RepoRagIndexScheduler {
 
   private static final Logger log = LoggerFactory.getLogger(RepoRagIndexScheduler.class);
+  private static final String INDEX_MODE_FULL = "FULL";
+  private static final String INDEX_MODE_INCREMENTAL = "INCREMENTAL";
 
   private final RepoRagIndexJobRepository jobRepository;
   private final RepoRagIndexService indexService;
   private final RepoRagNamespaceStateService namespaceStateService;
   private final GitHubRagProperties properties;
   private final ObjectMapper objectMapper;
-  private final ScheduledExecutorService executor;
-  private final Map<UUID, RepoRagWorkRequest> workRequests = new ConcurrentHashMap<>();
+  private final TransactionTemplate transactionTemplate;
+  @Nullable private final RepoRagGitChangeDetector changeDetector;
+  private final ScheduledExecutorService poller;
+  private final ExecutorService workers;
+  private final Semaphore workerSlots;
+  private final Set<UUID> activeJobs = ConcurrentHashMap.newKeySet();
+  private final String workerId;
+  private final AtomicBoolean started = new AtomicBoolean();
   private final AtomicInteger queued = new AtomicInteger();
   private final Timer indexDuration;
   private final Counter indexFailures;
   private final Counter embeddingsTotal;
+  private final Counter coalescedTotal;
 
   public RepoRagIndexScheduler(
       RepoRagIndexJobRepository jobRepository,
@@ -53,14 +83,22 @@ public class RepoRagIndexScheduler {
       RepoRagNamespaceStateService namespaceStateService,
       GitHubRagProperties properties,
       ObjectMapper objectMapper,
-      @Nullable MeterRegistry meterRegistry) {
+      PlatformTransactionManager transactionManager,
+      @Nullable MeterRegistry meterRegistry,
+      @Nullable RepoRagGitChangeDetector changeDetector) {
     this.jobRepository = jobRepository;
+    this.changeDetector = changeDetector;
     this.indexService = indexService;
     this.namespaceStateService = namespaceStateService;
     this.properties = properties;
     this.objectMapper = objectMapper;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
     int poolSize = Math.max(1, properties.getMaxConcurrency());
-    this.executor = new ScheduledThreadPoolExecutor(poolSize, new WorkerFactory());
+    this.workerSlots = new Semaphore(poolSize);
+    this.workers = Executors.newFixedThreadPool(poolSize, new WorkerFactory("repo-rag-indexer-"));
+    this.poller =
+        new ScheduledThreadPoolExecutor(1, new WorkerFactory("repo-rag-queue-poller-"));
+    this.workerId = resolveWorkerId();
     MeterRegistry registry = meterRegistry;
     if (registry == null) {
       registry = new SimpleMeterRegistry();
@@ -69,6 +107,21 @@ public class RepoRagIndexScheduler {
     this.indexDuration = registry.timer("repo_rag_index_duration");
     this.indexFailures = registry.counter("repo_rag_index_fail_total");
     this.embeddingsTotal = registry.counter("repo_rag_embeddings_total");
+    this.coalescedTotal = registry.counter("repo_rag_index_coalesced_total");
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (!started.compareAndSet(false, true)) {
+      return;
+    }
+    GitHubRagProperties.Queue queue = properties.getQueue();
+    long pollMs = Math.max(100, queue.getPollInterval().toMillis());
+    long heartbeatMs = Math.max(1_000, queue.getLeaseDuration().toMillis() / 3);
+    poller.scheduleWithFixedDelay(this::dispatchSafely, 0, pollMs, TimeUnit.MILLISECONDS);
+    poller.scheduleWithFixedDelay(
+        this::renewLeasesSafely, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    log.info("Repo RAG index queue started (workerId={}, poll={}ms)", workerId, pollMs);
   }
 
   public void scheduleIndexing(
@@ -82,64 +135,180 @@ public class RepoRagIndexScheduler {
     if (!StringUtils.hasText(repoOwner) || !StringUtils.hasText(repoName)) {
       return;
     }
+    Instant now = Instant.now();
     RepoRagIndexJobEntity job = new RepoRagIndexJobEntity();
     job.setRepoOwner(normalize(repoOwner));
     job.setRepoName(normalize(repoName));
+    job.setNamespace(buildNamespace(repoOwner, repoName));
+    job.setWorkspaceId(workspaceId);
+    job.setSourceRef(sourceRef);
+    job.setCommitSha(commitSha);
+    job.setWorkspaceSizeBytes(workspaceSizeBytes);
+    job.setFetchedAt(fetchedAt);
     job.setStatus(RepoRagJobStatus.QUEUED);
     job.setMaxAttempts(properties.getRetry().getMaxAttempts());
-    job.setQueuedAt(Instant.now());
+    job.setQueuedAt(now);
+    job.setAvailableAt(now);
     jobRepository.save(job);
 
-    RepoRagWorkRequest request =
-        new RepoRagWorkRequest(
-            job.getId(),
-            buildNamespace(repoOwner, repoName),
-            normalize(repoOwner),
-            normalize(repoName),
-            workspaceId,
-            sourceRef,
-            commitSha,
-            workspaceSizeBytes,
-            fetchedAt);
+    Integer superseded =
+        transactionTemplate.execute(
+            status ->
+                jobRepository.supersedeQueued(
+                    job.getNamespace(), job.getId(), job.getQueuedAt(), Instant.now()));
+    if (superseded != null && superseded > 0) {
+      coalescedTotal.increment(superseded);
+    }
+
     namespaceStateService.markPending(
-        request.namespace(),
-        request.repoOwner(),
-        request.repoName(),
-        request.sourceRef(),
-        request.commitSha(),
-        request.workspaceId(),
-        request.fetchedAt(),
+        job.getNamespace(),
+        job.getRepoOwner(),
+        job.getRepoName(),
+        sourceRef,
+        commitSha,
+        workspaceId,
+        fetchedAt,
         job,
-        request.workspaceSizeBytes());
-    workRequests.put(job.getId(), request);
-    queued.incrementAndGet();
-    scheduleExecution(request, Duration.ZERO);
+        workspaceSizeBytes);
     log.info(
-        "Queued repo RAG indexing job {} for {}/{} (workspaceId={})",
+        "Queued repo RAG indexing job {} for {}/{} (workspaceId={}, coalesced={})",
         job.getId(),
         repoOwner,
         repoName,
-        workspaceId);
+        workspaceId,
+        superseded != null ? superseded : 0);
+    signal();
+  }
+
+  private void signal() {
+    if (!started.get()) {
+      return;
+    }
+    try {
+      poller.execute(this::dispatchSafely);
+    } catch (RejectedExecutionException ex) {
+      log.debug("Repo RAG queue poller is shut down; job will be picked up later");
+    }
+  }
+
+  /** Runs on the single poller thread, so claims from this instance never race each other. */
+  private void dispatchSafely() {
+    try {
+      dispatch();
+    } catch (Exception ex) {
+      log.warn("Repo RAG queue poll failed: {}", ex.getMessage());
+    }
   }
 
-  private void scheduleExecution(RepoRagWorkRequest request, Duration delay) {
-    long delayMs = Math.max(0, delay.toMillis());
-    executor.schedule(() -> runJob(request), delayMs, TimeUnit.MILLISECONDS);
+  private void dispatch() {
+    Integer requeued =
+        transactionTemplate.execute(status -> jobRepository.requeueExpired(Instant.now()));
+    if (requeued != null && requeued > 0) {
+      log.warn("Re-queued {} repo RAG jobs whose lease expired", requeued);
+    }
+    while (workerSlots.tryAcquire()) {
+      Optional<UUID> claimed;
+      try {
+        claimed = claimNext();
+      } catch (RuntimeException ex) {
+        workerSlots.release();
+        throw ex;
+      }
+      if (claimed.isEmpty()) {
+        workerSlots.release();
+        break;
+      }
+      UUID jobId = claimed.get();
+      activeJobs.add(jobId);
+      try {
+        workers.execute(() -> runClaimed(jobId));
+      } catch (RejectedExecutionException ex) {
+        activeJobs.remove(jobId);
+        workerSlots.release();
+        break;
+      }
+    }
+    long depth = jobRepository.countByStatus(RepoRagJobStatus.QUEUED);
+    queued.set((int) Math.min(Integer.MAX_VALUE, depth));
+  }
+
+  private Optional<UUID> claimNext() {
+    Instant now = Instant.now();
+    Instant leaseUntil = now.plus(properties.getQueue().getLeaseDuration());
+    return transactionTemplate.execute(
+        status ->
+            jobRepository
+                .lockNextJob(now)
+                .filter(job -> namespaceFree(job.getNamespace(), now))
+                .map(
+                    job -> {
+                      jobRepository.claim(job.getId(), workerId, leaseUntil, now);
+                      int superseded =
+                          jobRepository.supersedeQueued(
+                              job.getNamespace(), job.getId(), job.getQueuedAt(), now);
+                      if (superseded > 0) {
+                        coalescedTotal.increment(superseded);
+                      }
+                      return job.getId();
+                    }));
+  }
+
+  /**
+   * The snapshot {@code lockNextJob} ran on may predate a claim another worker committed for the
+   * same namespace (e.g. on a job queued right before it). The advisory lock serializes claimers of
+   * the namespace, and the re-check that follows sees every claim committed before it.
+   */
+  private boolean namespaceFree(String namespace, Instant now) {
+    if (jobRepository.tryLockNamespace(namespace)
+        && !jobRepository.hasLiveRunningJob(namespace, now)) {
+      return true;
+    }
+    log.debug("Repo RAG namespace {} is being claimed by another worker, skipping", namespace);
+    return false;
+  }
+
+  private void runClaimed(UUID jobId) {
+    try {
+      runJob(jobId);
+    } finally {
+      activeJobs.remove(jobId);
+      workerSlots.release();
+      signal();
+    }
+  }
+
+  private void renewLeasesSafely() {
+    if (activeJobs.isEmpty()) {
+      return;
+    }
+    try {
+      List<UUID> ids = new ArrayList<>(activeJobs);
+      Instant leaseUntil = Instant.now().plus(properties.getQueue().getLeaseDuration());
+      transactionTemplate.executeWithoutResult(
+          status -> jobRepository.renewLeases(ids, workerId, leaseUntil));
+    } catch (Exception ex) {
+      log.warn("Failed to renew repo RAG job leases: {}", ex.getMessage());
+    }
   }
 
-  private void runJob(RepoRagWorkRequest request) {
-    queued.updateAndGet(value -> Math.max(0, value - 1));
-    Optional<RepoRagIndexJobEntity> optionalJob = jobRepository.findById(request.jobId());
+  private void runJob(UUID jobId) {
+    Optional<RepoRagIndexJobEntity> optionalJob = jobRepository.findById(jobId);
     if (optionalJob.isEmpty()) {
-      workRequests.remove(request.jobId());
       return;
     }
 
     RepoRagIndexJobEntity job = optionalJob.get();
+    if (job.getStatus() != RepoRagJobStatus.RUNNING || !workerId.equals(job.getLockedBy())) {
+      log.debug("Repo RAG job {} is no longer owned by {}", jobId, workerId);
+      return;
+    }
+    RepoRagWorkRequest request = RepoRagWorkRequest.from(job);
     try {
-      job.setStatus(RepoRagJobStatus.RUNNING);
-      job.setStartedAt(Instant.now());
-      job.setAttempt(job.getAttempt() + 1);
+      Optional<RepoRagNamespaceStateEntity> previousState =
+          namespaceStateService.findByNamespace(request.namespace());
+      RepoRagIndexService.IncrementalScope incremental =
+          resolveIncrementalScope(request, previousState.orElse(null));
+      job.setIndexMode(incremental != null ? INDEX_MODE_INCREMENTAL : INDEX_MODE_FULL);
       jobRepository.save(job);
 
       RepoRagIndexService.IndexRequest indexRequest =
@@ -151,7 +320,8 @@ public class RepoRagIndexScheduler {
               request.sourceRef(),
               request.commitSha(),
               request.workspaceSizeBytes(),
-              request.fetchedAt());
+              request.fetchedAt(),
+              incremental);
 
       boolean graphSyncEnabled = indexService.isGraphSyncEnabled();
       log.info(
@@ -165,7 +335,8 @@ public class RepoRagIndexScheduler {
       }
 
       Instant started = Instant.now();
-      RepoRagIndexService.IndexResult result = indexService.indexWorkspace(indexRequest);
+      RepoRagIndexService.IndexResult result =
+          indexService.indexWorkspace(indexRequest, progress -> recordProgress(job, progress));
       Duration duration = Duration.between(started, Instant.now());
 
       job.setStatus(RepoRagJobStatus.SUCCEEDED);
@@ -174,21 +345,50 @@ public class RepoRagIndexScheduler {
       job.setChunksTotal(result.chunksProcessed());
       long filesTotal = result.filesProcessed() + result.filesSkipped() + result.filesDeleted();
       job.setFilesTotal(filesTotal);
+      long namespaceFilesTotal = filesTotal;
+      long namespaceChunksTotal = result.chunksProcessed();
+      if (incremental != null && previousState.isPresent()) {
+        // Only the diff was visited; carry the untouched part of the namespace forward.
+        RepoRagNamespaceStateEntity previous = previousState.get();
+        namespaceFilesTotal =
+            Math.max(
+                0, previous.getFilesTotal() + incremental.addedFiles() - result.filesDeleted());
+        namespaceChunksTotal =
+            Math.max(
+                0,
+                previous.getChunksTotal()
+                    + result.rowStats().rowsWritten()
+                    - result.rowStats().rowsDeleted());
+      }
       job.setCompletedAt(Instant.now());
       job.setFilesSkipped(result.filesSkipped());
+      job.setStageTimings(objectMapper.valueToTree(result.stageTimings()));
+      job.setRowsWritten(result.rowStats().rowsWritten());
+      job.setRowsDeleted(result.rowStats().rowsDeleted());
+      job.setRowsKept(result.rowStats().rowsKept());
       job.setLastError(null);
       jobRepository.save(job);
+      // Failed files have no file state yet; an incremental diff from this commit would skip them.
+      String indexedCommitSha = result.filesFailed() > 0 ? null : request.commitSha();
+      if (indexedCommitSha == null) {
+        log.warn(
+            "Repo RAG job {}: {} files failed, next run for {} will walk the whole tree",
+            job.getId(),
+            result.filesFailed(),
+            request.namespace());
+      }
       namespaceStateService.markReady(
           request.namespace(),
           request.repoOwner(),
           request.repoName(),
           request.sourceRef(),
           request.commitSha(),
+          indexedCommitSha,
           request.workspaceId(),
           request.fetchedAt(),
           job,
-          filesTotal,
-          result.chunksProcessed(),
+          namespaceFilesTotal,
+          namespaceChunksTotal,
           result.filesSkipped(),
           request.workspaceSizeBytes(),
           result.astReady(),
@@ -202,7 +402,7 @@ public class RepoRagIndexScheduler {
             graphSync.attempted(),
             graphSync.succeeded(),
             graphSync.errorMessage());
-        if (graphSync.shouldMarkReady()) {
+        if (graphSync.shouldMarkReady() || (incremental != null && !graphSync.attempted())) {
           namespaceStateService.markGraphSyncSucceeded(
               request.namespace(), RepoRagIndexService.AST_VERSION);
         } else {
@@ -221,8 +421,13 @@ public class RepoRagIndexScheduler {
 
       embeddingsTotal.increment(result.chunksProcessed());
       indexDuration.record(duration);
-      workRequests.remove(request.jobId());
 
+      log.info(
+          "Repo RAG job {} vector rows: written={}, deleted={}, kept={}",
+          job.getId(),
+          result.rowStats().rowsWritten(),
+          result.rowStats().rowsDeleted(),
+          result.rowStats().rowsKept());
       if (!result.warnings().isEmpty()) {
         log.info(
             "Repo RAG job {} completed with warnings: {}", job.getId(), result.warnings());
@@ -232,12 +437,63 @@ public class RepoRagIndexScheduler {
     }
   }
 
+  /**
+   * Returns the changed paths since the last fully indexed commit when the workspace allows it, or
+   * {@code null} to fall back to a full walk.
+   */
+  @Nullable
+  private RepoRagIndexService.IncrementalScope resolveIncrementalScope(
+      RepoRagWorkRequest request, @Nullable RepoRagNamespaceStateEntity previousState) {
+    if (changeDetector == null || previousState == null) {
+      return null;
+    }
+    int astSchemaVersion = previousState.getAstSchemaVersion();
+    if (astSchemaVersion != 0 && astSchemaVersion != RepoRagIndexService.AST_VERSION) {
+      log.info(
+          "Full re-index for {}: AST schema changed ({} -> {})",
+          request.namespace(),
+          astSchemaVersion,
+          RepoRagIndexService.AST_VERSION);
+      return null;
+    }
+    RepoRagGitChangeDetector.Detection detection =
+        changeDetector.detect(
+            request.workspaceId(), previousState.getIndexedCommitSha(), request.commitSha());
+    if (!detection.incremental()) {
+      log.info(
+          "Full re-index for {} (workspaceId={}): {}",
+          request.namespace(),
+          request.workspaceId(),
+          detection.fallbackReason());
+      return null;
+    }
+    RepoRagIndexService.IncrementalScope scope = detection.scope();
+    log.info(
+        "Incremental re-index for {} from {} to {}: {} changed, {} deleted",
+        request.namespace(),
+        scope.baseCommitSha(),
+        request.commitSha(),
+        scope.changedPaths().size(),
+        scope.deletedPaths().size());
+    return scope;
+  }
+
+  private void recordProgress(
+      RepoRagIndexJobEntity job, RepoRagIndexService.IndexProgress progress) {
+    synchronized (job) {
+      job.setFilesTotal(progress.filesDiscovered());
+      job.setFilesProcessed(progress.filesProcessed());
+      job.setFilesSkipped(progress.filesSkipped());
+      job.setChunksProcessed(progress.chunksProcessed());
+      job.setChunksTotal(progress.chunksProcessed());
+      job.setStageTimings(objectMapper.valueToTree(progress.stageTimings()));
+      jobRepository.save(job);
+    }
+  }
+
   private void handleFailure(RepoRagWorkRequest request, RepoRagIndexJobEntity job, Exception ex) {
     indexFailures.increment();
-    job.setStatus(RepoRagJobStatus.FAILED);
     job.setLastError(buildErrorPayload(ex));
-    job.setCompletedAt(Instant.now());
-    jobRepository.save(job);
 
     if (indexService.isGraphSyncEnabled()) {
       namespaceStateService.markGraphSyncFailed(
@@ -249,6 +505,9 @@ public class RepoRagIndexScheduler {
       Duration initial = properties.getRetry().getInitialBackoff();
       int attempt = job.getAttempt();
       Duration delay = initial.multipliedBy((long) Math.pow(2, Math.max(0, attempt - 1)));
+      job.setStatus(RepoRagJobStatus.QUEUED);
+      job.setAvailableAt(Instant.now().plus(delay));
+      jobRepository.save(job);
       log.warn(
           "Repo RAG job {} failed (attempt {}/{}). Retrying in {}. Error: {}",
           job.getId(),
@@ -256,10 +515,10 @@ public class RepoRagIndexScheduler {
           job.getMaxAttempts(),
           delay,
           ex.getMessage());
-      queued.incrementAndGet();
-      scheduleExecution(request, delay);
     } else {
-      workRequests.remove(request.jobId());
+      job.setStatus(RepoRagJobStatus.FAILED);
+      job.setCompletedAt(Instant.now());
+      jobRepository.save(job);
       log.error(
           "Repo RAG job {} failed permanently after {} attempts: {}",
           job.getId(),
@@ -291,18 +550,35 @@ public class RepoRagIndexScheduler {
     return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
   }
 
+  private String resolveWorkerId() {
+    String host;
+    try {
+      host = InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException ex) {
+      host = "repo-rag";
+    }
+    return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+  }
+
   @PreDestroy
   public void shutdown() {
-    executor.shutdown();
+    // Jobs still running here keep their lease until it expires and are then re-queued.
+    poller.shutdownNow();
+    workers.shutdown();
   }
 
   private static class WorkerFactory implements ThreadFactory {
+    private final String prefix;
     private final AtomicInteger counter = new AtomicInteger();
 
+    WorkerFactory(String prefix) {
+      this.prefix = prefix;
+    }
+
     @Override
     public Thread newThread(Runnable r) {
       Thread thread = new Thread(r);
-      thread.setName("repo-rag-indexer-" + counter.incrementAndGet());
+      thread.setName(prefix + counter.incrementAndGet());
       thread.setDaemon(true);
       return thread;
     }
@@ -317,5 +593,19 @@ public class RepoRagIndexScheduler {
       String sourceRef,
       String commitSha,
       long workspaceSizeBytes,
-      Instant fetchedAt) {}
+      Instant fetchedAt) {
+
+    static RepoRagWorkRequest from(RepoRagIndexJobEntity job) {
+      return new RepoRagWorkRequest(
+          job.getId(),
+          job.getNamespace(),
+          job.getRepoOwner(),
+          job.getRepoName(),
+          job.getWorkspaceId(),
+          job.getSourceRef(),
+          job.getCommitSha(),
+          job.getWorkspaceSizeBytes(),
+          job.getFetchedAt());
+    }
+  }
 }
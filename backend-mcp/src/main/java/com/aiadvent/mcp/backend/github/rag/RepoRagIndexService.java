@@ -20,6 +20,7 @@ import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
@@ -27,21 +28,31 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.ContentFormatter;
+import org.springframework.ai.document.DefaultContentFormatter;
 import org.springframework.ai.document.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -53,8 +64,34 @@ public class RepoRagIndexService {
 
   private static final Logger log = LoggerFactory.getLogger(RepoRagIndexService.class);
   private static final int MAX_WARNINGS = 20;
+  private static final int MAX_IN_FLIGHT_FILES = 4096;
+  private static final int STATE_LOOKUP_BATCH = 1000;
   public static final int METADATA_SCHEMA_VERSION = 2;
   public static final int AST_VERSION = 2;
+  /**
+   * Metadata that changes with the fetch, the namespace or the chunk position rather than with the
+   * chunk itself; it is kept out of the embedded text so identical chunks embed identically.
+   */
+  static final List<String> VOLATILE_EMBED_METADATA_KEYS =
+      List.of(
+          "namespace",
+          "repo_owner",
+          "repo_name",
+          "chunk_index",
+          "line_start",
+          "line_end",
+          "chunk_hash",
+          "overlap_lines",
+          "span_hash",
+          "metadata_schema_version",
+          "ast_version",
+          "ast_available",
+          "source_ref",
+          "fetched_at");
+  private static final ContentFormatter EMBED_CONTENT_FORMATTER =
+      DefaultContentFormatter.builder()
+          .withExcludedEmbedMetadataKeys(VOLATILE_EMBED_METADATA_KEYS)
+          .build();
   private static final Set<String> BINARY_EXTENSIONS =
       Set.of(
           "png",
@@ -82,6 +119,9 @@ public class RepoRagIndexService {
   private final SymbolGraphWriter symbolGraphWriter;
   private final GraphSyncService graphSyncService;
   private final GitHubRagProperties properties;
+  @Nullable private final RepoRagEmbeddingBatcher embeddingBatcher;
+  private final ExecutorService parseExecutor;
+  private final ExecutorService persistExecutor;
 
   public RepoRagIndexService(
       TempWorkspaceService workspaceService,
@@ -92,6 +132,29 @@ public class RepoRagIndexService {
       AstFileContextFactory astFileContextFactory,
       SymbolGraphWriter symbolGraphWriter,
       GraphSyncService graphSyncService) {
+    this(
+        workspaceService,
+        vectorStoreAdapter,
+        fileStateRepository,
+        chunker,
+        properties,
+        astFileContextFactory,
+        symbolGraphWriter,
+        graphSyncService,
+        null);
+  }
+
+  @Autowired
+  public RepoRagIndexService(
+      TempWorkspaceService workspaceService,
+      RepoRagVectorStoreAdapter vectorStoreAdapter,
+      RepoRagFileStateRepository fileStateRepository,
+      RepoRagChunker chunker,
+      GitHubRagProperties properties,
+      AstFileContextFactory astFileContextFactory,
+      SymbolGraphWriter symbolGraphWriter,
+      GraphSyncService graphSyncService,
+      @Nullable RepoRagEmbeddingBatcher embeddingBatcher) {
     this.workspaceService = workspaceService;
     this.vectorStoreAdapter = vectorStoreAdapter;
     this.fileStateRepository = fileStateRepository;
@@ -100,9 +163,21 @@ public class RepoRagIndexService {
     this.astFileContextFactory = astFileContextFactory;
     this.symbolGraphWriter = symbolGraphWriter;
     this.graphSyncService = graphSyncService;
+    this.embeddingBatcher = embeddingBatcher;
+    GitHubRagProperties.Indexing indexing = properties.getIndexing();
+    this.parseExecutor =
+        Executors.newFixedThreadPool(
+            indexing.resolveParseConcurrency(), new StageThreadFactory("repo-rag-parse-"));
+    this.persistExecutor =
+        Executors.newFixedThreadPool(
+            Math.max(1, indexing.getEmbedConcurrency()), new StageThreadFactory("repo-rag-embed-"));
   }
 
   public IndexResult indexWorkspace(IndexRequest request) {
+    return indexWorkspace(request, IndexProgressListener.NOOP);
+  }
+
+  public IndexResult indexWorkspace(IndexRequest request, IndexProgressListener progressListener) {
     Path root =
         workspaceService
             .findWorkspace(request.workspaceId())
@@ -113,177 +188,16 @@ public class RepoRagIndexService {
                         "Unknown workspaceId: " + request.workspaceId()))
             .toAbsolutePath()
             .normalize();
+    IndexRun run =
+        new IndexRun(
+            request, root, progressListener != null ? progressListener : IndexProgressListener.NOOP);
+    return run.execute();
+  }
 
-    AtomicLong files = new AtomicLong();
-    AtomicLong chunks = new AtomicLong();
-    AtomicLong filesSkipped = new AtomicLong();
-    AtomicLong filesDeleted = new AtomicLong();
-    AtomicBoolean astReady = new AtomicBoolean(false);
-    AtomicInteger astFiles = new AtomicInteger();
-    List<String> warnings = new ArrayList<>();
-    GraphSyncTracker graphSyncTracker = new GraphSyncTracker(isGraphSyncEnabled());
-    Map<String, RepoRagFileStateEntity> stateByPath =
-        fileStateRepository.findByNamespace(request.namespace()).stream()
-            .collect(Collectors.toMap(RepoRagFileStateEntity::getFilePath, Function.identity()));
-    Set<String> stalePaths = new HashSet<>(vectorStoreAdapter.listFilePaths(request.namespace()));
-    stalePaths.addAll(stateByPath.keySet());
-
-    try {
-      Files.walkFileTree(
-          root,
-          new SimpleFileVisitor<>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
-                throws IOException {
-              Path relative = root.relativize(dir.toAbsolutePath().normalize());
-              if (relative.toString().isEmpty()) {
-                return FileVisitResult.CONTINUE;
-              }
-              String dirName = dir.getFileName().toString();
-              if (shouldSkipDirectory(dirName)) {
-                return FileVisitResult.SKIP_SUBTREE;
-              }
-              return FileVisitResult.CONTINUE;
-            }
-
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
-                throws IOException {
-              if (!attrs.isRegularFile() || Files.isHidden(file) || Files.isSymbolicLink(file)) {
-                return FileVisitResult.CONTINUE;
-              }
-              Path relative = root.relativize(file.toAbsolutePath().normalize());
-              String relativePath = relative.toString().replace('\\', '/');
-              stalePaths.remove(relativePath);
-              if (isBinaryFile(file)) {
-                appendWarning(warnings, "Skipped binary file " + relativePath);
-                return FileVisitResult.CONTINUE;
-              }
-
-              byte[] rawBytes;
-              try {
-                rawBytes = Files.readAllBytes(file);
-              } catch (IOException ex) {
-                appendWarning(
-                    warnings, "Skipped file (unable to read) " + relativePath + ": " + ex.getMessage());
-                log.warn("Failed to read {}: {}", relativePath, ex.getMessage());
-                return FileVisitResult.CONTINUE;
-              }
-
-              String fileHash = hashBytes(rawBytes);
-              RepoRagFileStateEntity existingState = stateByPath.get(relativePath);
-              if (existingState != null && fileHash.equals(existingState.getFileHash())) {
-                filesSkipped.incrementAndGet();
-                return FileVisitResult.CONTINUE;
-              }
-
-              String content;
-              try {
-                content = decodeUtf8(rawBytes);
-              } catch (CharacterCodingException ex) {
-                appendWarning(
-                    warnings, "Skipped non-text file " + relativePath + ": " + ex.getMessage());
-                log.warn("Failed to decode {}: {}", relativePath, ex.getMessage());
-                return FileVisitResult.CONTINUE;
-              }
-
-              String language = detectLanguage(file);
-              ChunkableFile chunkableFile =
-                  ChunkableFile.from(
-                      file,
-                      relativePath,
-                      language,
-                      content,
-                      astFileContextFactory.supplier(file, relativePath, language, content));
-
-              List<Chunk> fileChunks;
-              try {
-                fileChunks = chunker.chunk(chunkableFile);
-              } catch (RuntimeException ex) {
-                appendWarning(
-                    warnings,
-                    "Skipped file (chunking failed) " + relativePath + ": " + ex.getMessage());
-                log.warn("Failed to chunk {}: {}", relativePath, ex.getMessage());
-                return FileVisitResult.CONTINUE;
-              }
-
-              boolean fileHasAst =
-                  fileChunks.stream().anyMatch(chunk -> chunk.astMetadata() != null);
-              if (fileHasAst) {
-                astFiles.incrementAndGet();
-                if (astReady.compareAndSet(false, true)) {
-                  log.info(
-                      "AST metadata detected for file {} (namespace={})",
-                      relativePath,
-                      request.namespace());
-                }
-              }
-
-              List<Document> fileDocuments =
-                  buildDocuments(fileChunks, relativePath, request);
-
-              boolean hasChunks = !fileDocuments.isEmpty();
-              try {
-                if (hasChunks) {
-                  vectorStoreAdapter.replaceFile(
-                      request.namespace(), relativePath, fileDocuments);
-                  upsertFileState(
-                      request.namespace(),
-                      relativePath,
-                      fileHash,
-                      fileDocuments.size(),
-                      stateByPath);
-                  syncSymbolGraphs(
-                      request.namespace(), relativePath, fileChunks, warnings, graphSyncTracker);
-                  files.incrementAndGet();
-                  chunks.addAndGet(fileDocuments.size());
-                } else {
-                  vectorStoreAdapter.deleteFile(request.namespace(), relativePath);
-                  deleteFileState(request.namespace(), relativePath, stateByPath);
-                  deleteSymbolGraphs(
-                      request.namespace(), relativePath, warnings, graphSyncTracker);
-                  filesDeleted.incrementAndGet();
-                }
-                stalePaths.remove(relativePath);
-              } catch (RuntimeException ex) {
-                appendWarning(
-                    warnings,
-                    "Failed to store chunks for " + relativePath + ": " + ex.getMessage());
-                log.warn("Failed to store chunks for {}: {}", relativePath, ex.getMessage());
-              }
-              return FileVisitResult.CONTINUE;
-            }
-          });
-      for (String stalePath : stalePaths) {
-        vectorStoreAdapter.deleteFile(request.namespace(), stalePath);
-        deleteFileState(request.namespace(), stalePath, stateByPath);
-        deleteSymbolGraphs(request.namespace(), stalePath, warnings, graphSyncTracker);
-        filesDeleted.incrementAndGet();
-      }
-      log.info(
-          "Indexed repo {} with {} files and {} chunks (namespace={}, astFiles={})",
-          request.repoOwner(),
-          files.get(),
-          chunks.get(),
-          request.namespace(),
-          astFiles.get());
-      if (!astReady.get()) {
-        log.warn(
-            "AST metadata was not produced for namespace {} during this run; call graph will remain disabled",
-            request.namespace());
-      }
-    } catch (IOException ex) {
-      throw new IllegalStateException("Failed to index workspace " + request.workspaceId(), ex);
-    }
-
-    return new IndexResult(
-        files.get(),
-        chunks.get(),
-        filesSkipped.get(),
-        filesDeleted.get(),
-        List.copyOf(warnings),
-        astReady.get(),
-        graphSyncTracker.result());
+  @PreDestroy
+  public void shutdown() {
+    parseExecutor.shutdownNow();
+    persistExecutor.shutdownNow();
   }
 
   private List<Document> buildDocuments(
@@ -362,6 +276,7 @@ public class RepoRagIndexService {
               .text(chunk.text())
               .metadata(metadata)
               .build();
+      document.setContentFormatter(EMBED_CONTENT_FORMATTER);
       documents.add(document);
     }
     return documents;
@@ -520,10 +435,12 @@ public class RepoRagIndexService {
   }
 
   private void appendWarning(List<String> warnings, String warning) {
-    if (warnings.size() >= MAX_WARNINGS) {
-      return;
+    synchronized (warnings) {
+      if (warnings.size() >= MAX_WARNINGS) {
+        return;
+      }
+      warnings.add(warning);
     }
-    warnings.add(warning);
   }
 
   private String detectLanguage(Path file) {
@@ -591,7 +508,37 @@ public class RepoRagIndexService {
       String sourceRef,
       String commitSha,
       long workspaceSizeBytes,
-      Instant fetchedAt) {}
+      Instant fetchedAt,
+      @Nullable IncrementalScope incremental) {
+
+    public IndexRequest(
+        String repoOwner,
+        String repoName,
+        String workspaceId,
+        String namespace,
+        String sourceRef,
+        String commitSha,
+        long workspaceSizeBytes,
+        Instant fetchedAt) {
+      this(
+          repoOwner,
+          repoName,
+          workspaceId,
+          namespace,
+          sourceRef,
+          commitSha,
+          workspaceSizeBytes,
+          fetchedAt,
+          null);
+    }
+  }
+
+  /**
+   * Paths changed since {@code baseCommitSha}, the last commit fully indexed for the namespace.
+   * When present the run visits only these paths instead of walking the workspace.
+   */
+  public record IncrementalScope(
+      String baseCommitSha, Set<String> changedPaths, Set<String> deletedPaths, int addedFiles) {}
 
   public boolean isGraphSyncEnabled() {
     return graphSyncService != null && properties.getGraph().isEnabled();
@@ -602,9 +549,46 @@ public class RepoRagIndexService {
       long chunksProcessed,
       long filesSkipped,
       long filesDeleted,
+      long filesFailed,
       List<String> warnings,
       boolean astReady,
-      GraphSyncResult graphSync) {}
+      GraphSyncResult graphSync,
+      StageTimings stageTimings,
+      RowStats rowStats) {}
+
+  /**
+   * Vector store rows touched by a run: inserted, deleted, and kept in place (chunk-diff mode only).
+   */
+  public record RowStats(long rowsWritten, long rowsDeleted, long rowsKept) {}
+
+  /** Snapshot of a running index job, emitted periodically from the pipeline stages. */
+  public record IndexProgress(
+      long filesDiscovered,
+      long filesProcessed,
+      long filesSkipped,
+      long filesDeleted,
+      long chunksProcessed,
+      StageTimings stageTimings) {}
+
+  /**
+   * Per-stage timings in milliseconds. Stage values are summed across worker threads, so with
+   * parallel stages they may exceed {@code wallMs}.
+   */
+  public record StageTimings(
+      long wallMs,
+      long discoveryMs,
+      long readMs,
+      long parseMs,
+      long embedMs,
+      long graphMs,
+      long backpressureWaitMs) {}
+
+  @FunctionalInterface
+  public interface IndexProgressListener {
+    IndexProgressListener NOOP = progress -> {};
+
+    void onProgress(IndexProgress progress);
+  }
 
   public record GraphSyncResult(
       boolean enabled, boolean attempted, boolean succeeded, @Nullable String errorMessage) {
@@ -613,6 +597,510 @@ public class RepoRagIndexService {
     }
   }
 
+  /**
+   * One indexing pass over a workspace. The calling thread walks the tree and feeds a bounded
+   * parse stage (read → hash → decode → chunk); parsed files are handed to a separate persistence
+   * stage (embed → replaceFile → graph sync). Both hand-offs are guarded by semaphores, so a slow
+   * embedding provider stalls parsing and, in turn, discovery instead of buffering the whole repo.
+   * When embedding batching is enabled the persistence stage only enqueues chunks; files are
+   * recorded once {@link RepoRagEmbeddingBatcher} has written them.
+   */
+  private final class IndexRun {
+    private final IndexRequest request;
+    private final Path root;
+    private final IndexProgressListener progressListener;
+    private final AtomicLong filesDiscovered = new AtomicLong();
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+    private final AtomicLong filesSkipped = new AtomicLong();
+    private final AtomicLong filesDeleted = new AtomicLong();
+    private final AtomicLong filesFailed = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong rowsDeleted = new AtomicLong();
+    private final AtomicLong rowsKept = new AtomicLong();
+    private final AtomicBoolean astReady = new AtomicBoolean(false);
+    private final AtomicInteger astFiles = new AtomicInteger();
+    private final List<String> warnings = new ArrayList<>();
+    private final GraphSyncTracker graphSyncTracker = new GraphSyncTracker(isGraphSyncEnabled());
+    private final Map<String, RepoRagFileStateEntity> stateByPath = new ConcurrentHashMap<>();
+    private final Set<String> stalePaths = ConcurrentHashMap.newKeySet();
+    private final StageClock clock = new StageClock();
+    private final Semaphore parsePermits;
+    private final Semaphore persistPermits;
+    private final Phaser pending = new Phaser(1);
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final AtomicLong lastProgressNanos = new AtomicLong(System.nanoTime());
+    private final long progressIntervalNanos;
+    private final long startedNanos = System.nanoTime();
+    @Nullable private final RepoRagEmbeddingBatcher.Session batchSession;
+
+    IndexRun(IndexRequest request, Path root, IndexProgressListener progressListener) {
+      this.request = request;
+      this.root = root;
+      this.progressListener = progressListener;
+      GitHubRagProperties.Indexing indexing = properties.getIndexing();
+      int capacity = Math.max(1, Math.min(indexing.getQueueCapacity(), MAX_IN_FLIGHT_FILES));
+      this.parsePermits = new Semaphore(capacity);
+      this.persistPermits = new Semaphore(capacity);
+      this.progressIntervalNanos =
+          indexing.getProgressInterval() != null ? indexing.getProgressInterval().toNanos() : 0L;
+      IncrementalScope incremental = request.incremental();
+      if (incremental != null) {
+        List<String> touched = new ArrayList<>(incremental.changedPaths());
+        touched.addAll(incremental.deletedPaths());
+        for (int from = 0; from < touched.size(); from += STATE_LOOKUP_BATCH) {
+          int to = Math.min(touched.size(), from + STATE_LOOKUP_BATCH);
+          List<String> slice = touched.subList(from, to);
+          for (RepoRagFileStateEntity state :
+              fileStateRepository.findByNamespaceAndFilePathIn(request.namespace(), slice)) {
+            stateByPath.put(state.getFilePath(), state);
+          }
+        }
+        stalePaths.addAll(incremental.deletedPaths());
+      } else {
+        for (RepoRagFileStateEntity state :
+            fileStateRepository.findByNamespace(request.namespace())) {
+          stateByPath.put(state.getFilePath(), state);
+        }
+        stalePaths.addAll(vectorStoreAdapter.listFilePaths(request.namespace()));
+        stalePaths.addAll(stateByPath.keySet());
+      }
+      this.batchSession =
+          embeddingBatcher != null && embeddingBatcher.isEnabled()
+              ? embeddingBatcher.openSession(request.namespace())
+              : null;
+    }
+
+    IndexResult execute() {
+      long discoveryStarted = System.nanoTime();
+      try {
+        if (request.incremental() != null) {
+          discoverChangedPaths(request.incremental());
+        } else {
+          Files.walkFileTree(root, new DiscoveryVisitor());
+        }
+      } catch (IOException ex) {
+        failure.compareAndSet(
+            null,
+            new IllegalStateException("Failed to index workspace " + request.workspaceId(), ex));
+      } catch (RuntimeException ex) {
+        failure.compareAndSet(null, ex);
+      }
+      clock.discovery.add(System.nanoTime() - discoveryStarted);
+      pending.arriveAndAwaitAdvance();
+      closeBatchSession();
+      RuntimeException stageFailure = failure.get();
+      if (stageFailure != null) {
+        throw stageFailure;
+      }
+
+      for (String stalePath : stalePaths) {
+        rowsDeleted.addAndGet(vectorStoreAdapter.deleteFile(request.namespace(), stalePath));
+        deleteFileState(request.namespace(), stalePath, stateByPath);
+        deleteSymbolGraphs(request.namespace(), stalePath, warnings, graphSyncTracker);
+        filesDeleted.incrementAndGet();
+      }
+      StageTimings timings = clock.snapshot(System.nanoTime() - startedNanos);
+      log.info(
+          "Indexed repo {} with {} files and {} chunks (namespace={}, astFiles={}, timings={})",
+          request.repoOwner(),
+          files.get(),
+          chunks.get(),
+          request.namespace(),
+          astFiles.get(),
+          timings);
+      if (!astReady.get()) {
+        log.warn(
+            "AST metadata was not produced for namespace {} during this run; call graph will remain disabled",
+            request.namespace());
+      }
+
+      List<String> collectedWarnings;
+      synchronized (warnings) {
+        collectedWarnings = List.copyOf(warnings);
+      }
+      return new IndexResult(
+          files.get(),
+          chunks.get(),
+          filesSkipped.get(),
+          filesDeleted.get(),
+          filesFailed.get(),
+          collectedWarnings,
+          astReady.get(),
+          graphSyncTracker.result(),
+          timings,
+          new RowStats(rowsWritten.get(), rowsDeleted.get(), rowsKept.get()));
+    }
+
+    private void parseFile(Path file, String relativePath) {
+      if (isBinaryFile(file)) {
+        appendWarning(warnings, "Skipped binary file " + relativePath);
+        return;
+      }
+
+      long readStarted = System.nanoTime();
+      byte[] rawBytes;
+      try {
+        rawBytes = Files.readAllBytes(file);
+      } catch (IOException ex) {
+        appendWarning(
+            warnings, "Skipped file (unable to read) " + relativePath + ": " + ex.getMessage());
+        log.warn("Failed to read {}: {}", relativePath, ex.getMessage());
+        filesFailed.incrementAndGet();
+        return;
+      }
+
+      String fileHash = hashBytes(rawBytes);
+      clock.read.add(System.nanoTime() - readStarted);
+      RepoRagFileStateEntity existingState = stateByPath.get(relativePath);
+      if (existingState != null && fileHash.equals(existingState.getFileHash())) {
+        filesSkipped.incrementAndGet();
+        reportProgress();
+        return;
+      }
+
+      long parseStarted = System.nanoTime();
+      String content;
+      try {
+        content = decodeUtf8(rawBytes);
+      } catch (CharacterCodingException ex) {
+        appendWarning(warnings, "Skipped non-text file " + relativePath + ": " + ex.getMessage());
+        log.warn("Failed to decode {}: {}", relativePath, ex.getMessage());
+        return;
+      }
+
+      String language = detectLanguage(file);
+      ChunkableFile chunkableFile =
+          ChunkableFile.from(
+              file,
+              relativePath,
+              language,
+              content,
+              astFileContextFactory.supplier(file, relativePath, language, content, fileHash));
+
+      List<Chunk> fileChunks;
+      try {
+        fileChunks = chunker.chunk(chunkableFile);
+      } catch (RuntimeException ex) {
+        appendWarning(
+            warnings, "Skipped file (chunking failed) " + relativePath + ": " + ex.getMessage());
+        log.warn("Failed to chunk {}: {}", relativePath, ex.getMessage());
+        filesFailed.incrementAndGet();
+        return;
+      }
+
+      boolean fileHasAst = fileChunks.stream().anyMatch(chunk -> chunk.astMetadata() != null);
+      if (fileHasAst) {
+        astFiles.incrementAndGet();
+        if (astReady.compareAndSet(false, true)) {
+          log.info(
+              "AST metadata detected for file {} (namespace={})",
+              relativePath,
+              request.namespace());
+        }
+      }
+
+      List<Document> fileDocuments = buildDocuments(fileChunks, relativePath, request);
+      clock.parse.add(System.nanoTime() - parseStarted);
+
+      if (!acquire(persistPermits)) {
+        return;
+      }
+      submit(
+          persistExecutor,
+          () -> {
+            try {
+              persistFile(relativePath, fileHash, fileChunks, fileDocuments);
+            } finally {
+              persistPermits.release();
+            }
+          });
+    }
+
+    private void persistFile(
+        String relativePath, String fileHash, List<Chunk> fileChunks, List<Document> fileDocuments) {
+      long persistStarted = System.nanoTime();
+      boolean hasChunks = !fileDocuments.isEmpty();
+      try {
+        if (hasChunks && batchSession != null) {
+          batchSession.submit(
+              relativePath,
+              fileDocuments,
+              new RepoRagEmbeddingBatcher.FileListener() {
+                @Override
+                public void onStored(String filePath, int chunkCount) {
+                  completeFile(filePath, fileHash, fileChunks, chunkCount);
+                }
+
+                @Override
+                public void onFailed(String filePath, RuntimeException error) {
+                  appendWarning(
+                      warnings, "Failed to store chunks for " + filePath + ": " + error.getMessage());
+                  log.warn("Failed to store chunks for {}: {}", filePath, error.getMessage());
+                  filesFailed.incrementAndGet();
+                  reportProgress();
+                }
+              });
+          return;
+        }
+        if (hasChunks) {
+          vectorStoreAdapter.replaceFile(request.namespace(), relativePath, fileDocuments);
+          rowsWritten.addAndGet(fileDocuments.size());
+          upsertFileState(
+              request.namespace(), relativePath, fileHash, fileDocuments.size(), stateByPath);
+          long graphStarted = System.nanoTime();
+          clock.embed.add(graphStarted - persistStarted);
+          syncSymbolGraphs(
+              request.namespace(), relativePath, fileChunks, warnings, graphSyncTracker);
+          clock.graph.add(System.nanoTime() - graphStarted);
+          files.incrementAndGet();
+          chunks.addAndGet(fileDocuments.size());
+        } else {
+          rowsDeleted.addAndGet(vectorStoreAdapter.deleteFile(request.namespace(), relativePath));
+          deleteFileState(request.namespace(), relativePath, stateByPath);
+          deleteSymbolGraphs(request.namespace(), relativePath, warnings, graphSyncTracker);
+          clock.embed.add(System.nanoTime() - persistStarted);
+          filesDeleted.incrementAndGet();
+        }
+      } catch (RuntimeException ex) {
+        appendWarning(
+            warnings, "Failed to store chunks for " + relativePath + ": " + ex.getMessage());
+        log.warn("Failed to store chunks for {}: {}", relativePath, ex.getMessage());
+        filesFailed.incrementAndGet();
+      }
+      reportProgress();
+    }
+
+    /** Runs once the batcher has written every chunk of a file to the vector store. */
+    private void completeFile(
+        String relativePath, String fileHash, List<Chunk> fileChunks, int chunkCount) {
+      try {
+        upsertFileState(request.namespace(), relativePath, fileHash, chunkCount, stateByPath);
+        long graphStarted = System.nanoTime();
+        syncSymbolGraphs(request.namespace(), relativePath, fileChunks, warnings, graphSyncTracker);
+        clock.graph.add(System.nanoTime() - graphStarted);
+        files.incrementAndGet();
+        chunks.addAndGet(chunkCount);
+      } catch (RuntimeException ex) {
+        appendWarning(
+            warnings, "Failed to store chunks for " + relativePath + ": " + ex.getMessage());
+        log.warn("Failed to record indexed file {}: {}", relativePath, ex.getMessage());
+        filesFailed.incrementAndGet();
+      }
+      reportProgress();
+    }
+
+    /** Flushes the partially filled embedding batch and waits for batches still in flight. */
+    private void closeBatchSession() {
+      if (batchSession == null) {
+        return;
+      }
+      try {
+        batchSession.close();
+      } catch (RuntimeException ex) {
+        failure.compareAndSet(null, ex);
+      } finally {
+        RepoRagEmbeddingBatcher.BatchStats stats = batchSession.stats();
+        clock.embed.add(TimeUnit.MILLISECONDS.toNanos(stats.embedMs() + stats.writeMs()));
+        rowsWritten.addAndGet(stats.rowsWritten());
+        rowsDeleted.addAndGet(stats.rowsDeleted());
+        rowsKept.addAndGet(stats.rowsKept());
+        log.debug(
+            "Embedding batches flushed (namespace={}, batches={}, chunks={}, cacheHits={})",
+            request.namespace(),
+            stats.batches(),
+            stats.items(),
+            stats.cacheHits());
+      }
+    }
+
+    /**
+     * Incremental discovery: only paths reported by git are visited. A changed path that is gone
+     * from the checkout or now falls under an ignore rule is treated like a deletion.
+     */
+    private void discoverChangedPaths(IncrementalScope incremental) throws IOException {
+      for (String relativePath : incremental.changedPaths()) {
+        if (failure.get() != null) {
+          return;
+        }
+        Path file = root.resolve(relativePath).toAbsolutePath().normalize();
+        if (!file.startsWith(root) || isIgnoredPath(relativePath)) {
+          stalePaths.add(relativePath);
+          continue;
+        }
+        if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS) || Files.isHidden(file)) {
+          stalePaths.add(relativePath);
+          continue;
+        }
+        if (!enqueueParse(file, relativePath)) {
+          return;
+        }
+      }
+    }
+
+    private boolean isIgnoredPath(String relativePath) {
+      String[] segments = relativePath.split("/");
+      for (int i = 0; i < segments.length - 1; i++) {
+        if (shouldSkipDirectory(segments[i])) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean enqueueParse(Path file, String relativePath) {
+      filesDiscovered.incrementAndGet();
+      if (!acquire(parsePermits)) {
+        return false;
+      }
+      submit(
+          parseExecutor,
+          () -> {
+            try {
+              parseFile(file, relativePath);
+            } finally {
+              parsePermits.release();
+            }
+          });
+      return true;
+    }
+
+    private boolean acquire(Semaphore permits) {
+      long waitStarted = System.nanoTime();
+      try {
+        permits.acquire();
+        return true;
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        failure.compareAndSet(
+            null,
+            new IllegalStateException("Indexing interrupted for workspace " + request.workspaceId()));
+        return false;
+      } finally {
+        clock.backpressureWait.add(System.nanoTime() - waitStarted);
+      }
+    }
+
+    private void submit(ExecutorService executor, Runnable task) {
+      pending.register();
+      try {
+        executor.execute(
+            () -> {
+              try {
+                task.run();
+              } catch (RuntimeException ex) {
+                failure.compareAndSet(null, ex);
+                log.warn(
+                    "Indexing stage failed (namespace={}): {}", request.namespace(), ex.getMessage());
+              } finally {
+                pending.arriveAndDeregister();
+              }
+            });
+      } catch (RejectedExecutionException ex) {
+        pending.arriveAndDeregister();
+        throw ex;
+      }
+    }
+
+    private void reportProgress() {
+      long now = System.nanoTime();
+      long last = lastProgressNanos.get();
+      if (now - last < progressIntervalNanos || !lastProgressNanos.compareAndSet(last, now)) {
+        return;
+      }
+      try {
+        progressListener.onProgress(
+            new IndexProgress(
+                filesDiscovered.get(),
+                files.get(),
+                filesSkipped.get(),
+                filesDeleted.get(),
+                chunks.get(),
+                clock.snapshot(now - startedNanos)));
+      } catch (RuntimeException ex) {
+        log.debug(
+            "Failed to report indexing progress (namespace={}): {}",
+            request.namespace(),
+            ex.getMessage());
+      }
+    }
+
+    private final class DiscoveryVisitor extends SimpleFileVisitor<Path> {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        if (failure.get() != null) {
+          return FileVisitResult.TERMINATE;
+        }
+        Path relative = root.relativize(dir.toAbsolutePath().normalize());
+        if (relative.toString().isEmpty()) {
+          return FileVisitResult.CONTINUE;
+        }
+        String dirName = dir.getFileName().toString();
+        if (shouldSkipDirectory(dirName)) {
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        if (failure.get() != null) {
+          return FileVisitResult.TERMINATE;
+        }
+        if (!attrs.isRegularFile() || Files.isHidden(file) || Files.isSymbolicLink(file)) {
+          return FileVisitResult.CONTINUE;
+        }
+        Path relative = root.relativize(file.toAbsolutePath().normalize());
+        String relativePath = relative.toString().replace('\\', '/');
+        stalePaths.remove(relativePath);
+        return enqueueParse(file, relativePath)
+            ? FileVisitResult.CONTINUE
+            : FileVisitResult.TERMINATE;
+      }
+    }
+  }
+
+  private static final class StageClock {
+    private final LongAdder discovery = new LongAdder();
+    private final LongAdder read = new LongAdder();
+    private final LongAdder parse = new LongAdder();
+    private final LongAdder embed = new LongAdder();
+    private final LongAdder graph = new LongAdder();
+    private final LongAdder backpressureWait = new LongAdder();
+
+    StageTimings snapshot(long wallNanos) {
+      return new StageTimings(
+          toMillis(wallNanos),
+          toMillis(discovery.sum()),
+          toMillis(read.sum()),
+          toMillis(parse.sum()),
+          toMillis(embed.sum()),
+          toMillis(graph.sum()),
+          toMillis(backpressureWait.sum()));
+    }
+
+    private static long toMillis(long nanos) {
+      return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+  }
+
+  private static final class StageThreadFactory implements ThreadFactory {
+    private final String prefix;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    StageThreadFactory(String prefix) {
+      this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable);
+      thread.setName(prefix + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
   private static final class GraphSyncTracker {
     private final boolean enabled;
     private boolean attempted;
@@ -623,18 +1111,18 @@ public class RepoRagIndexService {
       this.enabled = enabled;
     }
 
-    boolean isEnabled() {
+    synchronized boolean isEnabled() {
       return enabled;
     }
 
-    void markAttempted() {
+    synchronized void markAttempted() {
       if (!enabled) {
         return;
       }
       attempted = true;
     }
 
-    void markFailure(String message) {
+    synchronized void markFailure(String message) {
       if (!enabled) {
         return;
       }
@@ -645,7 +1133,7 @@ public class RepoRagIndexService {
       }
     }
 
-    GraphSyncResult result() {
+    synchronized GraphSyncResult result() {
       if (!enabled) {
         return new GraphSyncResult(false, false, false, null);
       }
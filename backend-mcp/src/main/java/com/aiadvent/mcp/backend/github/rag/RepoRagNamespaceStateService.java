@@ -9,6 +9,8 @@ import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -16,9 +18,18 @@ import org.springframework.util.StringUtils;
 public class RepoRagNamespaceStateService {
 
   private final RepoRagNamespaceStateRepository repository;
+  private final RepoRagSearchResultCache searchResultCache;
 
   public RepoRagNamespaceStateService(RepoRagNamespaceStateRepository repository) {
+    this(repository, null);
+  }
+
+  @Autowired
+  public RepoRagNamespaceStateService(
+      RepoRagNamespaceStateRepository repository,
+      @Nullable RepoRagSearchResultCache searchResultCache) {
     this.repository = repository;
+    this.searchResultCache = searchResultCache;
   }
 
   @Transactional
@@ -46,8 +57,13 @@ public class RepoRagNamespaceStateService {
     entity.setWorkspaceSizeBytes(workspaceSizeBytes);
     resetGraphState(entity);
     repository.save(entity);
+    invalidateSearchCache(namespace);
   }
 
+  /**
+   * {@code indexedCommitSha} is the base of the next incremental diff; pass {@code null} when some
+   * files of this run failed, so the next run walks the whole tree and retries them.
+   */
   @Transactional
   public void markReady(
       String namespace,
@@ -55,6 +71,7 @@ public class RepoRagNamespaceStateService {
       String repoName,
       String sourceRef,
       String commitSha,
+      @Nullable String indexedCommitSha,
       String workspaceId,
       Instant fetchedAt,
       RepoRagIndexJobEntity job,
@@ -73,6 +90,7 @@ public class RepoRagNamespaceStateService {
     entity.setCommitSha(commitSha);
     entity.setWorkspaceId(workspaceId);
     entity.setFetchedAt(fetchedAt);
+    entity.setIndexedCommitSha(indexedCommitSha);
     entity.setFilesTotal(filesTotal);
     entity.setChunksTotal(chunksTotal);
     entity.setFilesSkipped(filesSkipped);
@@ -90,6 +108,7 @@ public class RepoRagNamespaceStateService {
       entity.setAstReadyAt(null);
     }
     repository.save(entity);
+    invalidateSearchCache(namespace);
   }
 
   @Transactional
@@ -141,6 +160,7 @@ public class RepoRagNamespaceStateService {
               resetGraphState(entity);
               repository.save(entity);
             });
+    invalidateSearchCache(namespace);
   }
 
   public Optional<RepoRagNamespaceStateEntity> findByNamespace(String namespace) {
@@ -184,6 +204,14 @@ public class RepoRagNamespaceStateService {
               mutator.accept(entity);
               repository.save(entity);
             });
+    // graph readiness changes what the graph lens adds to cached responses
+    invalidateSearchCache(namespace);
+  }
+
+  private void invalidateSearchCache(String namespace) {
+    if (searchResultCache != null) {
+      searchResultCache.invalidateNamespace(namespace);
+    }
   }
 
   private String truncate(String value) {
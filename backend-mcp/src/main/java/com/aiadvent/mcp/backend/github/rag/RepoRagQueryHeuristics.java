@@ -45,6 +45,58 @@ final class RepoRagQueryHeuristics {
     return looksLikeIdentifier(identifierToken);
   }
 
+  /**
+   * Cheap "already well-formed" check used to skip LLM query transforms: a single-line question of
+   * a few words whose letters are already written in {@code targetLanguage}.
+   */
+  static boolean isWellFormedQuery(String text, String targetLanguage) {
+    if (!StringUtils.hasText(text)) {
+      return false;
+    }
+    String candidate = text.trim();
+    if (candidate.length() > 300 || candidate.indexOf('\n') >= 0) {
+      return false;
+    }
+    int words = candidate.split("\\s+").length;
+    if (words < 2 || words > 24) {
+      return false;
+    }
+    return !StringUtils.hasText(targetLanguage) || isInLanguage(candidate, targetLanguage);
+  }
+
+  /**
+   * Script-level language guess: true when most letters of {@code text} belong to the script of
+   * {@code language}. Only Cyrillic (ru/uk/be/bg) and Latin (en) targets are recognised; other
+   * languages always return false so the translation step still runs.
+   */
+  static boolean isInLanguage(String text, String language) {
+    if (!StringUtils.hasText(text) || !StringUtils.hasText(language)) {
+      return false;
+    }
+    int cyrillic = 0;
+    int latin = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char ch = text.charAt(i);
+      if (!Character.isLetter(ch)) {
+        continue;
+      }
+      Character.UnicodeScript script = Character.UnicodeScript.of(ch);
+      if (script == Character.UnicodeScript.CYRILLIC) {
+        cyrillic++;
+      } else if (script == Character.UnicodeScript.LATIN) {
+        latin++;
+      }
+    }
+    if (cyrillic + latin == 0) {
+      return false;
+    }
+    return switch (language.trim().toLowerCase(Locale.ROOT)) {
+      case "ru", "russian", "uk", "ukrainian", "be", "bg" -> cyrillic > latin;
+      case "en", "english" -> cyrillic == 0;
+      default -> false;
+    };
+  }
+
   private static boolean isPrefixKeyword(String token) {
     if (!StringUtils.hasText(token)) {
       return false;
@@ -3,9 +3,16 @@ package com.aiadvent.mcp.backend.github.rag;
 import com.aiadvent.mcp.backend.config.GitHubRagProperties;
 import com.aiadvent.mcp.backend.config.GitHubRagProperties.MultiQuery;
 import com.aiadvent.mcp.backend.config.GitHubRagProperties.QueryTransformers;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HexFormat;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -16,6 +23,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
@@ -23,6 +31,7 @@ import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.rag.Query;
 import org.springframework.ai.rag.preretrieval.query.expansion.MultiQueryExpander;
@@ -47,11 +56,23 @@ public class RepoRagRetrievalPipeline {
   private static final String SUB_QUERY_METADATA_KEY = "generatedBySubQuery";
   private static final Set<String> SUPPORTED_HISTORY_ROLES =
       Set.of("system", "user", "assistant");
+  private static final String REWRITE_AND_TRANSLATE_PROMPT =
+      """
+      Given a user query, rewrite it to provide better results when querying a {target}.
+      Remove any irrelevant information, and ensure the query is concise and specific.
+      Write the rewritten query in %s. Keep code identifiers, file paths and API names unchanged.
+
+      Original query:
+      {query}
+
+      Rewritten query:
+      """;
 
   private final VectorStore vectorStore;
   private final GitHubRagProperties properties;
   private final ObjectProvider<ChatClient.Builder> queryTransformerChatClientBuilder;
   private final MultiQueryExecutor multiQueryExecutor;
+  private final Cache<TransformKey, Query> transformCache;
 
   @Autowired
   public RepoRagRetrievalPipeline(
@@ -73,6 +94,14 @@ public class RepoRagRetrievalPipeline {
         Objects.requireNonNull(
             repoRagQueryTransformerChatClientBuilder, "repoRagQueryTransformerChatClientBuilder");
     this.multiQueryExecutor = Objects.requireNonNull(multiQueryExecutor, "multiQueryExecutor");
+    QueryTransformers transformers = properties.getQueryTransformers();
+    Duration cacheTtl =
+        transformers.getCacheTtl() != null ? transformers.getCacheTtl() : Duration.ofMinutes(30);
+    this.transformCache =
+        Caffeine.newBuilder()
+            .maximumSize(Math.max(0, transformers.getCacheMaxEntries()))
+            .expireAfterWrite(cacheTtl)
+            .build();
   }
 
   public PipelineResult execute(PipelineInput input) {
@@ -80,11 +109,22 @@ public class RepoRagRetrievalPipeline {
     Query baseQuery = input.query();
     List<String> appliedModules = new ArrayList<>();
 
+    long started = System.nanoTime();
     Query transformedQuery = applyQueryTransformers(baseQuery, input, appliedModules);
+    started = recordLatency(appliedModules, "query-transform", started);
 
+    // the transformed query is always retrieved, so its search overlaps the multi-query LLM call
+    CompletableFuture<List<Document>> primaryRetrieval = null;
+    if (isMultiQueryRequested(input)) {
+      primaryRetrieval =
+          CompletableFuture.supplyAsync(() -> retrieveDocuments(transformedQuery, input));
+    }
     List<Query> queries = expandQueries(transformedQuery, input, appliedModules);
+    started = recordLatency(appliedModules, "multi-query", started);
     Map<String, AggregatedDocument> dedup = new LinkedHashMap<>();
-    List<QueryRetrievalResult> retrievalResults = retrieveAll(queries, input);
+    List<QueryRetrievalResult> retrievalResults =
+        retrieveAll(queries, input, transformedQuery, primaryRetrieval);
+    recordLatency(appliedModules, "retrieval", started);
     for (QueryRetrievalResult result : retrievalResults) {
       for (Document document : result.documents()) {
         accumulateDocument(dedup, document, result.query(), result.index());
@@ -103,17 +143,39 @@ public class RepoRagRetrievalPipeline {
 
   private Query applyQueryTransformers(
       Query baseQuery, PipelineInput input, List<String> appliedModules) {
-    Query current = baseQuery;
     QueryTransformers transformers = properties.getQueryTransformers();
     if (!transformers.isEnabled()) {
-      return current;
+      return baseQuery;
     }
     String originalText = baseQuery != null ? baseQuery.text() : null;
     boolean codeIdentifierQuery = RepoRagQueryHeuristics.isCodeIdentifier(originalText);
-    ChatClient.Builder builder = queryTransformerChatClientBuilder.getObject();
     boolean allowCompression =
         input.useCompression() == null || Boolean.TRUE.equals(input.useCompression());
-    if (allowCompression && !CollectionUtils.isEmpty(current.history())) {
+    boolean compress = allowCompression && !CollectionUtils.isEmpty(baseQuery.history());
+    String targetLanguage =
+        StringUtils.hasText(input.translateTo())
+            ? input.translateTo()
+            : transformers.getDefaultTargetLanguage();
+    if (!compress
+        && (codeIdentifierQuery
+            || (transformers.isFastPathEnabled()
+                && RepoRagQueryHeuristics.isWellFormedQuery(originalText, targetLanguage)))) {
+      if (!codeIdentifierQuery) {
+        appliedModules.add("query.fast-path");
+      }
+      return baseQuery;
+    }
+
+    TransformKey key = TransformKey.of(baseQuery, targetLanguage, compress);
+    Query cached = transformCache.getIfPresent(key);
+    if (cached != null) {
+      appliedModules.add("query.transform-cache");
+      return cached;
+    }
+
+    Query current = baseQuery;
+    ChatClient.Builder builder = queryTransformerChatClientBuilder.getObject();
+    if (compress) {
       QueryTransformer compression =
           CompressionQueryTransformer.builder()
               .chatClientBuilder(builder.clone())
@@ -126,36 +188,48 @@ public class RepoRagRetrievalPipeline {
     }
 
     if (!codeIdentifierQuery) {
-      QueryTransformer rewrite =
-          RewriteQueryTransformer.builder().chatClientBuilder(builder.clone()).build();
-      Query rewritten = rewrite.transform(current);
+      // rewrite feeds translation, so the two cannot run side by side; when the text is not yet in
+      // the target language both are done by a single rewrite prompt instead of two round-trips
+      boolean translate =
+          StringUtils.hasText(targetLanguage)
+              && !RepoRagQueryHeuristics.isInLanguage(current.text(), targetLanguage);
+      RewriteQueryTransformer.Builder rewriteBuilder =
+          RewriteQueryTransformer.builder().chatClientBuilder(builder.clone());
+      if (translate) {
+        rewriteBuilder.promptTemplate(
+            new PromptTemplate(
+                REWRITE_AND_TRANSLATE_PROMPT.formatted(sanitizeLanguage(targetLanguage))));
+      }
+      Query rewritten = rewriteBuilder.build().transform(current);
       if (!Objects.equals(rewritten.text(), current.text())) {
         appliedModules.add("query.rewrite");
+        if (translate) {
+          appliedModules.add("query.translation");
+        }
       }
       current = rewritten;
     }
-
-    String targetLanguage =
-        StringUtils.hasText(input.translateTo())
-            ? input.translateTo()
-            : transformers.getDefaultTargetLanguage();
-    if (!codeIdentifierQuery && StringUtils.hasText(targetLanguage)) {
-      TranslationQueryTransformer translation =
-          TranslationQueryTransformer.builder()
-              .chatClientBuilder(builder.clone())
-              .targetLanguage(targetLanguage)
-              .build();
-      Query translated = translation.transform(current);
-      if (!Objects.equals(translated.text(), current.text())) {
-        appliedModules.add("query.translation");
-      }
-      current = translated;
-    }
+    transformCache.put(key, current);
     return current;
   }
 
-  private List<Query> expandQueries(
-      Query query, PipelineInput input, List<String> appliedModules) {
+  private static String sanitizeLanguage(String language) {
+    String sanitized = language.replaceAll("[^\\p{L}\\p{N} _-]", "").trim();
+    return sanitized.isEmpty() ? "English" : sanitized;
+  }
+
+  private static long recordLatency(List<String> appliedModules, String stage, long startedNanos) {
+    long now = System.nanoTime();
+    appliedModules.add(
+        "latency." + stage + ":" + TimeUnit.NANOSECONDS.toMillis(now - startedNanos) + "ms");
+    return now;
+  }
+
+  private boolean isMultiQueryRequested(PipelineInput input) {
+    return expansionCount(input) > 1;
+  }
+
+  private int expansionCount(PipelineInput input) {
     MultiQuery multiQueryProperties = properties.getMultiQuery();
     boolean enabled = multiQueryProperties.isEnabled();
     boolean requestEnabled =
@@ -164,7 +238,7 @@ public class RepoRagRetrievalPipeline {
         input.multiQueryOptions() != null && Boolean.FALSE.equals(input.multiQueryOptions().enabled());
 
     if ((!enabled && !requestEnabled) || requestDisabled) {
-      return List.of(query);
+      return 1;
     }
 
     int requestedCount =
@@ -176,7 +250,12 @@ public class RepoRagRetrievalPipeline {
       maxAllowed =
           Math.min(maxAllowed, Math.max(1, input.multiQueryOptions().maxQueries()));
     }
-    int count = Math.max(1, Math.min(requestedCount, maxAllowed));
+    return Math.max(1, Math.min(requestedCount, maxAllowed));
+  }
+
+  private List<Query> expandQueries(
+      Query query, PipelineInput input, List<String> appliedModules) {
+    int count = expansionCount(input);
     if (count <= 1) {
       return List.of(query);
     }
@@ -199,19 +278,36 @@ public class RepoRagRetrievalPipeline {
     return retriever.retrieve(query);
   }
 
-  private List<QueryRetrievalResult> retrieveAll(List<Query> queries, PipelineInput input) {
-    if (queries.size() <= 1) {
+  private List<QueryRetrievalResult> retrieveAll(
+      List<Query> queries,
+      PipelineInput input,
+      Query primaryQuery,
+      CompletableFuture<List<Document>> primaryRetrieval) {
+    if (queries.size() <= 1 && primaryRetrieval == null) {
       Query single = queries.get(0);
       return List.of(new QueryRetrievalResult(0, single, retrieveDocuments(single, input)));
     }
+    boolean primaryUsed = false;
     List<CompletableFuture<QueryRetrievalResult>> futures = new ArrayList<>(queries.size());
     for (int i = 0; i < queries.size(); i++) {
       int index = i;
       Query query = queries.get(i);
+      if (primaryRetrieval != null
+          && !primaryUsed
+          && Objects.equals(query.text(), primaryQuery.text())) {
+        primaryUsed = true;
+        futures.add(
+            primaryRetrieval.thenApply(
+                documents -> new QueryRetrievalResult(index, query, documents)));
+        continue;
+      }
       futures.add(
           CompletableFuture.supplyAsync(
               () -> new QueryRetrievalResult(index, query, retrieveDocuments(query, input))));
     }
+    if (primaryRetrieval != null && !primaryUsed) {
+      primaryRetrieval.cancel(false);
+    }
     List<QueryRetrievalResult> results = new ArrayList<>(queries.size());
     for (CompletableFuture<QueryRetrievalResult> future : futures) {
       try {
@@ -373,6 +469,35 @@ public class RepoRagRetrievalPipeline {
 
   private record QueryRetrievalResult(int index, Query query, List<Document> documents) {}
 
+  /** Transform cache key: digest of the conversation history, query text and target language. */
+  private record TransformKey(
+      String historyDigest, String text, String targetLanguage, boolean compress) {
+
+    static TransformKey of(Query query, String targetLanguage, boolean compress) {
+      String digest = "";
+      if (compress) {
+        try {
+          MessageDigest sha = MessageDigest.getInstance("SHA-256");
+          for (Message message : query.history()) {
+            sha.update(message.getMessageType().getValue().getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+            String text = message.getText();
+            sha.update((text != null ? text : "").getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+          }
+          digest = HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException ex) {
+          throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+      }
+      return new TransformKey(
+          digest,
+          query.text(),
+          targetLanguage != null ? targetLanguage.trim().toLowerCase(Locale.ROOT) : "",
+          compress);
+    }
+  }
+
   interface MultiQueryExecutor {
     List<Query> expand(Query baseQuery, int count, ChatClient.Builder builder);
   }
@@ -0,0 +1,265 @@
+package com.aiadvent.mcp.backend.github.rag;
+
+import com.aiadvent.mcp.backend.config.GitHubRagProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+/**
+ * Caches {@code repo.rag_search} responses per (namespace, indexed commit, normalized query, plan,
+ * conversation). A namespace only changes when indexing records a new state, so entries never go
+ * stale on their own; {@link #invalidateNamespace} drops them once the namespace state is written.
+ * The optional semantic tier serves paraphrases whose query embedding is close enough to an
+ * already cached query of the same scope.
+ */
+@Component
+public class RepoRagSearchResultCache {
+
+  private static final Logger log = LoggerFactory.getLogger(RepoRagSearchResultCache.class);
+
+  private final GitHubRagProperties.SearchCache config;
+  private final EmbeddingModel embeddingModel;
+  private final Cache<ExactKey, RepoRagSearchService.SearchResponse> responses;
+  private final Cache<Scope, SemanticBucket> semanticBuckets;
+  private final Counter exactHits;
+  private final Counter semanticHits;
+  private final Counter misses;
+  private final Counter invalidations;
+
+  public RepoRagSearchResultCache(
+      GitHubRagProperties properties,
+      @Nullable EmbeddingModel embeddingModel,
+      @Nullable MeterRegistry meterRegistry) {
+    this.config = properties.getSearchCache();
+    this.embeddingModel = embeddingModel;
+    Duration ttl = config.getTtl() != null ? config.getTtl() : Duration.ofMinutes(30);
+    long maxEntries = Math.max(0, config.getMaxEntries());
+    this.responses = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttl).build();
+    this.semanticBuckets =
+        Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttl).build();
+    MeterRegistry registry = meterRegistry != null ? meterRegistry : new SimpleMeterRegistry();
+    this.exactHits = registry.counter("repo_rag_search_cache_hits_total", "tier", "exact");
+    this.semanticHits = registry.counter("repo_rag_search_cache_hits_total", "tier", "semantic");
+    this.misses = registry.counter("repo_rag_search_cache_misses_total");
+    this.invalidations = registry.counter("repo_rag_search_cache_invalidations_total");
+  }
+
+  public boolean isEnabled() {
+    return config.isEnabled() && config.getMaxEntries() > 0;
+  }
+
+  /**
+   * Looks the query up in the exact tier, then in the semantic tier. The returned lookup is passed
+   * back to {@link #store} on a miss so the query embedding is computed at most once.
+   */
+  public Lookup lookup(Scope scope, String rawQuery) {
+    String normalizedQuery = normalizeQuery(rawQuery);
+    RepoRagSearchService.SearchResponse exact =
+        responses.getIfPresent(new ExactKey(scope, normalizedQuery));
+    if (exact != null) {
+      exactHits.increment();
+      return new Lookup(scope, normalizedQuery, null, exact, "exact");
+    }
+    float[] embedding = null;
+    if (isSemanticEnabled()) {
+      embedding = embed(normalizedQuery);
+      SemanticBucket bucket = semanticBuckets.getIfPresent(scope);
+      if (embedding != null && bucket != null) {
+        String closest = bucket.closest(embedding, config.getSemanticThreshold());
+        RepoRagSearchService.SearchResponse similar =
+            closest != null ? responses.getIfPresent(new ExactKey(scope, closest)) : null;
+        if (similar != null) {
+          semanticHits.increment();
+          return new Lookup(scope, normalizedQuery, embedding, similar, "semantic");
+        }
+      }
+    }
+    misses.increment();
+    return new Lookup(scope, normalizedQuery, embedding, null, null);
+  }
+
+  public void store(Lookup lookup, RepoRagSearchService.SearchResponse response) {
+    if (lookup == null || response == null) {
+      return;
+    }
+    responses.put(new ExactKey(lookup.scope(), lookup.normalizedQuery()), response);
+    if (lookup.embedding() != null) {
+      semanticBuckets
+          .get(
+              lookup.scope(),
+              scope -> new SemanticBucket(Math.max(1, config.getSemanticMaxEntriesPerScope())))
+          .add(lookup.normalizedQuery(), lookup.embedding());
+    }
+  }
+
+  /**
+   * Drops every entry of {@code namespace}. Inside a transaction the eviction runs after commit so
+   * a search racing the state update cannot repopulate the cache with pre-commit results.
+   */
+  public void invalidateNamespace(String namespace) {
+    if (!StringUtils.hasText(namespace)) {
+      return;
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              evict(namespace);
+            }
+          });
+    } else {
+      evict(namespace);
+    }
+  }
+
+  private void evict(String namespace) {
+    responses.asMap().keySet().removeIf(key -> namespace.equals(key.scope().namespace()));
+    semanticBuckets.asMap().keySet().removeIf(scope -> namespace.equals(scope.namespace()));
+    invalidations.increment();
+  }
+
+  private boolean isSemanticEnabled() {
+    return config.isSemanticEnabled() && embeddingModel != null;
+  }
+
+  @Nullable
+  private float[] embed(String text) {
+    try {
+      return embeddingModel.embed(text);
+    } catch (RuntimeException ex) {
+      log.debug("Semantic search cache lookup skipped: {}", ex.getMessage());
+      return null;
+    }
+  }
+
+  static String normalizeQuery(String query) {
+    if (query == null) {
+      return "";
+    }
+    return query.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+  }
+
+  /** SHA-256 over the conversation turns and previous reply; empty when there is no context. */
+  static String conversationDigest(
+      List<RepoRagSearchConversationTurn> history, String previousAssistantReply) {
+    boolean noHistory = history == null || history.isEmpty();
+    if (noHistory && !StringUtils.hasText(previousAssistantReply)) {
+      return "";
+    }
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      if (!noHistory) {
+        for (RepoRagSearchConversationTurn turn : history) {
+          update(digest, turn.normalizedRole());
+          update(digest, turn.content());
+        }
+      }
+      update(digest, previousAssistantReply);
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 is not available", ex);
+    }
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    digest.update((value != null ? value : "").getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  /** Everything except the query text that determines a search response. */
+  public record Scope(
+      String namespace,
+      String indexedCommitSha,
+      RagParameterGuard.ResolvedSearchPlan plan,
+      RepoRagResponseChannel responseChannel,
+      String conversationDigest) {
+
+    public Scope {
+      Objects.requireNonNull(namespace, "namespace");
+      indexedCommitSha = indexedCommitSha != null ? indexedCommitSha : "";
+      conversationDigest = conversationDigest != null ? conversationDigest : "";
+    }
+  }
+
+  public record Lookup(
+      Scope scope,
+      String normalizedQuery,
+      float[] embedding,
+      RepoRagSearchService.SearchResponse response,
+      String tier) {}
+
+  private record ExactKey(Scope scope, String normalizedQuery) {}
+
+  private static final class SemanticBucket {
+    private final int capacity;
+    private final Deque<SemanticEntry> entries = new ArrayDeque<>();
+
+    private SemanticBucket(int capacity) {
+      this.capacity = capacity;
+    }
+
+    synchronized void add(String normalizedQuery, float[] embedding) {
+      entries.removeIf(entry -> entry.query().equals(normalizedQuery));
+      entries.addFirst(new SemanticEntry(normalizedQuery, embedding, norm(embedding)));
+      while (entries.size() > capacity) {
+        entries.removeLast();
+      }
+    }
+
+    @Nullable
+    synchronized String closest(float[] embedding, double threshold) {
+      double queryNorm = norm(embedding);
+      if (queryNorm == 0d) {
+        return null;
+      }
+      String best = null;
+      double bestScore = threshold;
+      for (SemanticEntry entry : entries) {
+        if (entry.embedding().length != embedding.length || entry.norm() == 0d) {
+          continue;
+        }
+        double dot = 0d;
+        for (int i = 0; i < embedding.length; i++) {
+          dot += (double) embedding[i] * entry.embedding()[i];
+        }
+        double cosine = dot / (queryNorm * entry.norm());
+        if (cosine >= bestScore) {
+          bestScore = cosine;
+          best = entry.query();
+        }
+      }
+      return best;
+    }
+
+    private static double norm(float[] vector) {
+      double sum = 0d;
+      for (float value : vector) {
+        sum += (double) value * value;
+      }
+      return Math.sqrt(sum);
+    }
+  }
+
+  private record SemanticEntry(String query, float[] embedding, double norm) {}
+}
@@ -3,20 +3,20 @@ package com.aiadvent.mcp.backend.github.rag;
 import com.aiadvent.mcp.backend.config.GitHubRagProperties;
 import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagNamespaceStateEntity;
 import com.aiadvent.mcp.backend.github.rag.postprocessing.RepoRagPostProcessingRequest;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.rag.Query;
 import org.springframework.ai.vectorstore.filter.Filter;
 import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
@@ -29,7 +29,8 @@ public class RepoRagSearchService {
   private final RepoRagSearchReranker reranker;
   private final RepoRagGenerationService generationService;
   private final RepoRagNamespaceStateService namespaceStateService;
-  private final GraphQueryService graphQueryService;
+  private final RepoRagGraphLens graphLens;
+  private final RepoRagSearchResultCache resultCache;
   private final FilterExpressionTextParser filterExpressionParser = new FilterExpressionTextParser();
 
   public RepoRagSearchService(
@@ -39,13 +40,53 @@ public class RepoRagSearchService {
       RepoRagGenerationService generationService,
       RepoRagNamespaceStateService namespaceStateService,
       @org.springframework.lang.Nullable GraphQueryService graphQueryService) {
+    this(
+        properties,
+        retrievalPipeline,
+        reranker,
+        generationService,
+        namespaceStateService,
+        graphQueryService,
+        null);
+  }
+
+  public RepoRagSearchService(
+      GitHubRagProperties properties,
+      RepoRagRetrievalPipeline retrievalPipeline,
+      RepoRagSearchReranker reranker,
+      RepoRagGenerationService generationService,
+      RepoRagNamespaceStateService namespaceStateService,
+      @org.springframework.lang.Nullable GraphQueryService graphQueryService,
+      @org.springframework.lang.Nullable RepoRagSearchResultCache resultCache) {
+    this(
+        properties,
+        retrievalPipeline,
+        reranker,
+        generationService,
+        namespaceStateService,
+        graphQueryService,
+        resultCache,
+        null);
+  }
+
+  @Autowired
+  public RepoRagSearchService(
+      GitHubRagProperties properties,
+      RepoRagRetrievalPipeline retrievalPipeline,
+      RepoRagSearchReranker reranker,
+      RepoRagGenerationService generationService,
+      RepoRagNamespaceStateService namespaceStateService,
+      @org.springframework.lang.Nullable GraphQueryService graphQueryService,
+      @org.springframework.lang.Nullable RepoRagSearchResultCache resultCache,
+      @org.springframework.lang.Nullable MeterRegistry meterRegistry) {
     this.properties = Objects.requireNonNull(properties, "properties");
     this.retrievalPipeline = Objects.requireNonNull(retrievalPipeline, "retrievalPipeline");
     this.reranker = Objects.requireNonNull(reranker, "reranker");
     this.generationService = Objects.requireNonNull(generationService, "generationService");
     this.namespaceStateService =
         Objects.requireNonNull(namespaceStateService, "namespaceStateService");
-    this.graphQueryService = graphQueryService;
+    this.graphLens = new RepoRagGraphLens(graphQueryService, properties, meterRegistry);
+    this.resultCache = resultCache;
   }
 
   public SearchResponse search(SearchCommand command) {
@@ -66,6 +107,22 @@ public class RepoRagSearchService {
               .formatted(command.repoOwner(), command.repoName()));
     }
     String namespace = state.getNamespace();
+    RepoRagSearchResultCache.Lookup cacheLookup = null;
+    if (resultCache != null && resultCache.isEnabled()) {
+      cacheLookup =
+          resultCache.lookup(
+              new RepoRagSearchResultCache.Scope(
+                  namespace,
+                  state.getIndexedCommitSha(),
+                  plan,
+                  command.responseChannel(),
+                  RepoRagSearchResultCache.conversationDigest(
+                      command.history(), command.previousAssistantReply())),
+              command.rawQuery());
+      if (cacheLookup.response() != null) {
+        return withCacheModule(cacheLookup.response(), cacheLookup.tier());
+      }
+    }
     boolean namespaceAstReady = isNamespaceAstReady(state);
     List<String> serviceWarnings = new ArrayList<>();
 
@@ -120,12 +177,12 @@ public class RepoRagSearchService {
       }
     }
 
+    // the graph lens runs alongside generation and is dropped if it misses its time budget
+    RepoRagGraphLens.Pending pendingLens =
+        graphLens.start(state.getNamespace(), finalAttempt.documents(), namespaceAstReady);
     RepoRagGenerationService.GenerationResult generationResult =
         generateResult(command, finalAttempt);
-
-    GraphLensResult lensResult =
-        applyGraphLens(
-            state.getNamespace(), finalAttempt.documents(), namespaceAstReady);
+    RepoRagGraphLens.LensResult lensResult = pendingLens.await();
 
     List<String> allModules = new ArrayList<>(finalAttempt.appliedModules());
     if (lensResult.applied()) {
@@ -142,18 +199,41 @@ public class RepoRagSearchService {
 
     List<SearchMatch> matches = toMatches(lensResult.documents());
     boolean noResults = matches.isEmpty();
+    SearchResponse response =
+        new SearchResponse(
+            matches,
+            finalAttempt.rerankApplied(),
+            generationResult.rawAugmentedPrompt(),
+            generationResult.summaryAugmentedPrompt(),
+            generationResult.contextMissing(),
+            noResults,
+            generationResult.noResultsReason(),
+            List.copyOf(allModules),
+            serviceWarnings.isEmpty() ? List.of() : List.copyOf(serviceWarnings),
+            generationResult.summary(),
+            generationResult.rawAnswer());
+    // a response whose lens was dropped is degraded; the next identical query gets another try
+    if (cacheLookup != null && !lensResult.dropped()) {
+      resultCache.store(cacheLookup, response);
+    }
+    return response;
+  }
+
+  private SearchResponse withCacheModule(SearchResponse cached, String tier) {
+    List<String> modules = new ArrayList<>(cached.appliedModules());
+    modules.add("cache:" + tier);
     return new SearchResponse(
-        matches,
-        finalAttempt.rerankApplied(),
-        generationResult.rawAugmentedPrompt(),
-        generationResult.summaryAugmentedPrompt(),
-        generationResult.contextMissing(),
-        noResults,
-        generationResult.noResultsReason(),
-        allModules,
-        serviceWarnings.isEmpty() ? List.of() : List.copyOf(serviceWarnings),
-        generationResult.summary(),
-        generationResult.rawAnswer());
+        cached.matches(),
+        cached.rerankApplied(),
+        cached.augmentedPrompt(),
+        cached.instructions(),
+        cached.contextMissing(),
+        cached.noResults(),
+        cached.noResultsReason(),
+        modules,
+        cached.warnings(),
+        cached.summary(),
+        cached.rawAnswer());
   }
 
   public SearchResponse searchGlobal(GlobalSearchCommand command) {
@@ -194,19 +274,19 @@ public class RepoRagSearchService {
     List<String> appliedModules = new ArrayList<>(pipelineResult.appliedModules());
     appliedModules.addAll(postProcessingResult.appliedModules());
 
-    GraphLensResult lensResult =
-        applyGraphLensAcrossNamespaces(postProcessingResult.documents(), 5);
-    if (lensResult.applied()) {
-      appliedModules.add("graph.lens");
-    }
-
+    RepoRagGraphLens.Pending pendingLens =
+        graphLens.startAcrossNamespaces(postProcessingResult.documents(), 5);
     RepoRagGenerationService.GenerationResult generationResult =
         generateResult(
             finalQuery,
-            lensResult.documents(),
+            postProcessingResult.documents(),
             safeDisplay(command.displayRepoOwner()),
             safeDisplay(command.displayRepoName()),
             command.responseChannel());
+    RepoRagGraphLens.LensResult lensResult = pendingLens.await();
+    if (lensResult.applied()) {
+      appliedModules.add("graph.lens");
+    }
 
     List<String> allModules = new ArrayList<>(appliedModules);
     allModules.addAll(generationResult.appliedModules());
@@ -470,196 +550,6 @@ public class RepoRagSearchService {
     return matches;
   }
 
-  private GraphLensResult applyGraphLens(
-      String namespace, List<Document> documents, boolean namespaceAstReady) {
-    if (graphQueryService == null
-        || !properties.getGraph().isEnabled()
-        || !namespaceAstReady
-        || CollectionUtils.isEmpty(documents)) {
-      return new GraphLensResult(documents, false);
-    }
-    List<Document> enriched = new ArrayList<>(documents.size());
-    boolean applied = false;
-    int budget = Math.min(5, documents.size());
-    for (int i = 0; i < documents.size(); i++) {
-      Document document = documents.get(i);
-      Map<String, Object> metadata =
-          document.getMetadata() != null
-              ? new LinkedHashMap<>(document.getMetadata())
-              : new LinkedHashMap<>();
-      if (i < budget) {
-        Object symbolValue = metadata.get("symbol_fqn");
-        String symbolFqn =
-            symbolValue instanceof String str && StringUtils.hasText(str) ? str.trim() : null;
-        if (StringUtils.hasText(symbolFqn)) {
-          try {
-            GraphQueryService.GraphNeighbors neighbors =
-                graphQueryService.neighbors(
-                    namespace,
-                    symbolFqn,
-                    GraphQueryService.Direction.OUTGOING,
-                    Set.of(),
-                    12);
-            if (!neighbors.nodes().isEmpty() || !neighbors.edges().isEmpty()) {
-              metadata.put("graph_neighbors", graphPayload(neighbors));
-              addGraphPath(namespace, symbolFqn, neighbors, metadata);
-              applied = true;
-            }
-          } catch (RuntimeException ex) {
-            // Не блокируем выдачу, просто пропускаем графовую линзу
-          }
-        }
-      }
-      enriched.add(cloneDocument(document, metadata));
-    }
-    return new GraphLensResult(List.copyOf(enriched), applied);
-  }
-
-  private GraphLensResult applyGraphLensAcrossNamespaces(List<Document> documents, int budget) {
-    if (graphQueryService == null || !properties.getGraph().isEnabled() || CollectionUtils.isEmpty(documents)) {
-      return new GraphLensResult(documents, false);
-    }
-    int maxBudget = Math.max(0, Math.min(budget > 0 ? budget : 5, documents.size()));
-    List<Document> enriched = new ArrayList<>(documents.size());
-    boolean applied = false;
-    int used = 0;
-    for (Document document : documents) {
-      Map<String, Object> metadata =
-          document.getMetadata() != null
-              ? new LinkedHashMap<>(document.getMetadata())
-              : new LinkedHashMap<>();
-      if (used < maxBudget) {
-        String namespace = asString(metadata.get("namespace"));
-        String symbolFqn = asString(metadata.get("symbol_fqn"));
-        Integer astVersion = asInteger(metadata.get("ast_version"));
-        boolean namespaceAstReady =
-            astVersion != null && astVersion >= RepoRagIndexService.AST_VERSION;
-        if (StringUtils.hasText(namespace) && StringUtils.hasText(symbolFqn) && namespaceAstReady) {
-          try {
-            GraphQueryService.GraphNeighbors neighbors =
-                graphQueryService.neighbors(
-                    namespace,
-                    symbolFqn,
-                    GraphQueryService.Direction.OUTGOING,
-                    Set.of(),
-                    12);
-            if (!neighbors.nodes().isEmpty() || !neighbors.edges().isEmpty()) {
-              metadata.put("graph_neighbors", graphPayload(neighbors));
-              addGraphPath(namespace, symbolFqn, neighbors, metadata);
-              applied = true;
-              used++;
-            }
-          } catch (RuntimeException ex) {
-            // fallback silently
-          }
-        }
-      }
-      enriched.add(cloneDocument(document, metadata));
-    }
-    return new GraphLensResult(List.copyOf(enriched), applied);
-  }
-
-  private Document cloneDocument(Document source, Map<String, Object> metadata) {
-    return Document.builder()
-        .id(source.getId())
-        .text(source.getText())
-        .metadata(metadata)
-        .score(source.getScore())
-        .build();
-  }
-
-  private record GraphLensResult(List<Document> documents, boolean applied) {}
-
-  private Map<String, Object> graphPayload(GraphQueryService.GraphNeighbors neighbors) {
-    Map<String, Object> payload = new LinkedHashMap<>();
-    payload.put(
-        "nodes",
-        neighbors.nodes().stream()
-            .map(
-                node -> {
-                  Map<String, Object> map = new LinkedHashMap<>();
-                  map.put("fqn", node.fqn());
-                  map.put("file_path", node.filePath());
-                  map.put("kind", node.kind());
-                  map.put("visibility", node.visibility());
-                  map.put("line_start", node.lineStart());
-                  map.put("line_end", node.lineEnd());
-                  return map;
-                })
-            .toList());
-    payload.put(
-        "edges",
-        neighbors.edges().stream()
-            .map(
-                edge -> {
-                  Map<String, Object> map = new LinkedHashMap<>();
-                  map.put("from", edge.from());
-                  map.put("to", edge.to());
-                  map.put("relation", edge.relation());
-                  map.put("chunk_hash", edge.chunkHash());
-                  map.put("chunk_index", edge.chunkIndex());
-                  return map;
-                })
-            .toList());
-    return payload;
-  }
-
-  private void addGraphPath(
-      String namespace,
-      String sourceSymbol,
-      GraphQueryService.GraphNeighbors neighbors,
-      Map<String, Object> metadata) {
-    if (neighbors == null || CollectionUtils.isEmpty(neighbors.edges()) || graphQueryService == null) {
-      return;
-    }
-    String target =
-        neighbors.edges().stream()
-            .map(GraphQueryService.GraphEdge::to)
-            .filter(StringUtils::hasText)
-            .findFirst()
-            .orElse(null);
-    if (!StringUtils.hasText(target)) {
-      return;
-    }
-    try {
-      GraphQueryService.GraphNeighbors path =
-          graphQueryService.shortestPath(namespace, sourceSymbol, target, Set.of(), 6);
-      if (path != null
-          && (!CollectionUtils.isEmpty(path.nodes()) || !CollectionUtils.isEmpty(path.edges()))) {
-        metadata.put("graph_path", graphPayload(path));
-      }
-    } catch (RuntimeException ex) {
-      // ignore path failures
-    }
-  }
-
-  private String asString(Object value) {
-    if (value == null) {
-      return null;
-    }
-    if (value instanceof String str) {
-      return str;
-    }
-    return value.toString();
-  }
-
-  private Integer asInteger(Object value) {
-    if (value instanceof Integer i) {
-      return i;
-    }
-    if (value instanceof Number n) {
-      return n.intValue();
-    }
-    if (value instanceof String str) {
-      try {
-        return Integer.parseInt(str.trim());
-      } catch (NumberFormatException ignore) {
-        return null;
-      }
-    }
-    return null;
-  }
-
   private Filter.Expression buildFilterExpression(String namespace) {
     String expressionText = "namespace == '%s'".formatted(escapeLiteral(namespace));
     try {
@@ -0,0 +1,169 @@
+package com.aiadvent.mcp.backend.github.rag;
+
+import com.aiadvent.mcp.backend.config.GitHubRagProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Shared runtime for LLM snippet compression: a process-wide permit pool that caps concurrent
+ * model calls across all {@code repo.rag_search} requests, virtual threads to run them on, and a
+ * bounded cache of compressed snippets keyed by (chunk_hash, normalized query, model, shape).
+ */
+@Component
+public class RepoRagSnippetCompressionPool {
+
+  private final GitHubRagProperties.PostProcessing config;
+  private final Semaphore globalPermits;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final Cache<CompressionKey, String> cache;
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter timeouts;
+
+  public RepoRagSnippetCompressionPool(
+      GitHubRagProperties properties, @Nullable MeterRegistry meterRegistry) {
+    this.config = properties.getPostProcessing();
+    this.globalPermits = new Semaphore(Math.max(1, config.getLlmCompressionGlobalConcurrency()));
+    Duration ttl =
+        config.getLlmCompressionCacheTtl() != null
+            ? config.getLlmCompressionCacheTtl()
+            : Duration.ofHours(6);
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumSize(Math.max(0, config.getLlmCompressionCacheMaxEntries()))
+            .expireAfterWrite(ttl)
+            .build();
+    MeterRegistry registry = meterRegistry != null ? meterRegistry : new SimpleMeterRegistry();
+    this.hits = registry.counter("repo_rag_compression_cache_hits_total");
+    this.misses = registry.counter("repo_rag_compression_cache_misses_total");
+    this.timeouts = registry.counter("repo_rag_compression_timeouts_total");
+  }
+
+  public int requestConcurrency() {
+    return Math.max(1, config.getLlmCompressionRequestConcurrency());
+  }
+
+  public Duration timeout() {
+    Duration timeout = config.getLlmCompressionTimeout();
+    return timeout != null && !timeout.isNegative() && !timeout.isZero()
+        ? timeout
+        : Duration.ofSeconds(8);
+  }
+
+  public String model() {
+    return config.getLlmCompressionModel();
+  }
+
+  @Nullable
+  public String cached(CompressionKey key) {
+    String compressed = cache.getIfPresent(key);
+    if (compressed != null) {
+      hits.increment();
+    }
+    return compressed;
+  }
+
+  /**
+   * Runs {@code call} once a request permit and a global permit are free and caches a non-blank
+   * result. A call that has not started by {@code deadlineNanos} is skipped and completes with
+   * {@code null}; a call that already started runs to the end so its result still lands in the
+   * cache.
+   */
+  public CompletableFuture<String> compress(
+      CompressionKey key, Semaphore requestPermits, long deadlineNanos, Supplier<String> call) {
+    misses.increment();
+    return CompletableFuture.supplyAsync(
+        () -> {
+          if (!acquire(requestPermits, deadlineNanos)) {
+            return null;
+          }
+          try {
+            if (!acquire(globalPermits, deadlineNanos)) {
+              return null;
+            }
+            try {
+              String compressed = call.get();
+              if (StringUtils.hasText(compressed)) {
+                cache.put(key, compressed);
+              }
+              return compressed;
+            } finally {
+              globalPermits.release();
+            }
+          } finally {
+            requestPermits.release();
+          }
+        },
+        executor);
+  }
+
+  public void recordTimeouts(int count) {
+    if (count > 0) {
+      timeouts.increment(count);
+    }
+  }
+
+  private boolean acquire(Semaphore permits, long deadlineNanos) {
+    long remaining = deadlineNanos - System.nanoTime();
+    if (remaining <= 0) {
+      return false;
+    }
+    try {
+      return permits.tryAcquire(remaining, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  public static CompressionKey key(
+      String chunkHash, String snippet, String query, String model, int maxLines, String locale) {
+    String contentKey = StringUtils.hasText(chunkHash) ? chunkHash : sha256(snippet);
+    return new CompressionKey(
+        contentKey, normalizeQuery(query), model != null ? model : "", maxLines, locale);
+  }
+
+  static String normalizeQuery(String query) {
+    if (query == null) {
+      return "";
+    }
+    return query.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+  }
+
+  private static String sha256(String value) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] hash = digest.digest((value != null ? value : "").getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(hash);
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 is not available", ex);
+    }
+  }
+
+  public record CompressionKey(
+      String chunkHash, String query, String model, int maxLines, String locale) {}
+}
@@ -121,6 +121,9 @@ public class RepoRagStatusService {
   }
 
   private Progress computeProgress(RepoRagIndexJobEntity job) {
+    if (job.getStatus() == RepoRagJobStatus.RUNNING && job.getFilesTotal() > 0) {
+      return computeFileProgress(job);
+    }
     double processed = Math.max(1, job.getChunksProcessed());
     double total = Math.max(processed, job.getChunksTotal());
     double percentage = Math.min(1.0, processed / total);
@@ -140,6 +143,23 @@ public class RepoRagStatusService {
     return new Progress(percentage, etaSeconds);
   }
 
+  /**
+   * The pipelined indexer reports discovered/processed files while it runs; the chunk total is
+   * only known at the end, so running jobs are measured in files.
+   */
+  private Progress computeFileProgress(RepoRagIndexJobEntity job) {
+    long done = job.getFilesProcessed() + job.getFilesSkipped();
+    double percentage = Math.min(1.0, (double) done / job.getFilesTotal());
+    Long etaSeconds = null;
+    if (job.getStartedAt() != null && done > 0) {
+      Duration elapsed = Duration.between(job.getStartedAt(), Instant.now());
+      double rate = done / (double) Math.max(1, elapsed.getSeconds());
+      long remaining = Math.max(0, job.getFilesTotal() - done);
+      etaSeconds = Math.round(remaining / rate);
+    }
+    return new Progress(percentage, etaSeconds);
+  }
+
   private String normalize(String value) {
     return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
   }
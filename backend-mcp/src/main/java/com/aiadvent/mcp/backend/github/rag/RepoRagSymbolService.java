@@ -9,6 +9,10 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -72,6 +76,45 @@ public class RepoRagSymbolService {
     return incomingCache.get(key, ignored -> fetchIncoming(namespace, symbolFqn));
   }
 
+  /**
+   * Batched variant of {@link #findCallGraphNeighbors(String, String)}: cached symbols are served
+   * from memory, the rest are resolved with a single graph or repository query. The result is keyed
+   * by the requested symbol and contains an entry (possibly empty) for every non-blank symbol.
+   */
+  public Map<String, List<SymbolNeighbor>> findCallGraphNeighborsBatch(
+      String namespace, Collection<String> symbolFqns) {
+    if (!hasText(namespace) || symbolFqns == null || symbolFqns.isEmpty()) {
+      return Map.of();
+    }
+    Map<String, List<SymbolNeighbor>> result = new LinkedHashMap<>();
+    Set<String> pending = new LinkedHashSet<>();
+    for (String symbolFqn : symbolFqns) {
+      if (!hasText(symbolFqn) || result.containsKey(symbolFqn) || !pending.add(symbolFqn)) {
+        continue;
+      }
+      incomingRequests.increment();
+      List<SymbolNeighbor> cached = incomingCache.getIfPresent(cacheKey(namespace, symbolFqn));
+      if (cached != null) {
+        pending.remove(symbolFqn);
+        result.put(symbolFqn, cached);
+      }
+    }
+    if (pending.isEmpty()) {
+      return result;
+    }
+    Map<String, List<SymbolNeighbor>> fetched =
+        isGraphEnabled()
+            ? fetchGraphNeighbors(namespace, pending)
+            : fetchIncoming(namespace, pending);
+    for (String symbolFqn : pending) {
+      String key = cacheKey(namespace, symbolFqn);
+      List<SymbolNeighbor> neighbors = fetched.getOrDefault(key, List.of());
+      incomingCache.put(key, neighbors);
+      result.put(symbolFqn, neighbors);
+    }
+    return result;
+  }
+
   public Optional<SymbolDefinition> findSymbolDefinition(String namespace, String symbolFqn) {
     if (!hasText(namespace) || !hasText(symbolFqn)) {
       return Optional.empty();
@@ -108,17 +151,33 @@ public class RepoRagSymbolService {
   }
 
   private List<SymbolNeighbor> fetchGraphNeighbors(String namespace, String symbolFqn) {
-    GraphQueryService.GraphNeighbors neighbors =
+    return toSymbolNeighbors(
         graphQueryService.neighbors(
             namespace,
             symbolFqn,
             GraphQueryService.Direction.OUTGOING,
             Set.of(),
-            24);
+            24));
+  }
+
+  private Map<String, List<SymbolNeighbor>> fetchGraphNeighbors(
+      String namespace, Collection<String> symbolFqns) {
+    List<GraphQueryService.SymbolRef> refs =
+        symbolFqns.stream().map(fqn -> new GraphQueryService.SymbolRef(namespace, fqn)).toList();
+    Map<GraphQueryService.SymbolRef, GraphQueryService.GraphNeighbors> batch =
+        graphQueryService.neighborsBatch(refs, GraphQueryService.Direction.OUTGOING, Set.of(), 24);
+    Map<String, List<SymbolNeighbor>> converted = new LinkedHashMap<>();
+    batch.forEach(
+        (ref, neighbors) ->
+            converted.put(cacheKey(namespace, ref.fqn()), toSymbolNeighbors(neighbors)));
+    return converted;
+  }
+
+  private List<SymbolNeighbor> toSymbolNeighbors(GraphQueryService.GraphNeighbors neighbors) {
     Map<String, GraphQueryService.GraphNode> nodeByFqn =
         neighbors.nodes().stream()
             .collect(java.util.stream.Collectors.toMap(GraphQueryService.GraphNode::fqn, node -> node, (a, b) -> a));
-    List<SymbolNeighbor> converted = new java.util.ArrayList<>();
+    List<SymbolNeighbor> converted = new ArrayList<>();
     for (GraphQueryService.GraphEdge edge : neighbors.edges()) {
       GraphQueryService.GraphNode target = nodeByFqn.get(edge.to());
       String filePath = target != null ? target.filePath() : null;
@@ -172,6 +231,25 @@ public class RepoRagSymbolService {
         });
   }
 
+  private Map<String, List<SymbolNeighbor>> fetchIncoming(
+      String namespace, Collection<String> symbolFqns) {
+    return withThrottle(
+        () -> {
+          List<String> normalized = symbolFqns.stream().map(this::normalizeSymbol).distinct().toList();
+          Map<String, List<SymbolNeighbor>> grouped = new LinkedHashMap<>();
+          for (RepoRagSymbolGraphEntity caller :
+              repository.findByNamespaceAndReferencedSymbolFqnIn(namespace, normalized)) {
+            grouped
+                .computeIfAbsent(
+                    cacheKey(namespace, caller.getReferencedSymbolFqn()),
+                    ignored -> new ArrayList<>())
+                .add(toNeighbor(caller));
+          }
+          grouped.replaceAll((key, neighbors) -> List.copyOf(neighbors));
+          return grouped;
+        });
+  }
+
   private List<SymbolNeighbor> fetchOutgoing(String namespace, String symbolFqn) {
     return withThrottle(
         () -> {
@@ -1,12 +1,26 @@
 package com.aiadvent.mcp.backend.github.rag.ast;
 
+import com.aiadvent.mcp.backend.config.GitHubRagProperties;
+import com.aiadvent.mcp.backend.github.rag.RepoRagIndexService;
 import com.aiadvent.mcp.backend.github.rag.chunking.AstFileContext;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
@@ -17,40 +31,95 @@ public class AstFileContextFactory {
 
   private final TreeSitterParser parser;
   private final TreeSitterAnalyzer analyzer;
+  @Nullable private final Cache<AstCacheKey, Optional<AstFileContext>> cache;
+  private final Counter cacheHits;
+  private final Counter cacheMisses;
 
   public AstFileContextFactory(
       TreeSitterParser parser,
       TreeSitterAnalyzer analyzer) {
+    this(parser, analyzer, null, null);
+  }
+
+  @Autowired
+  public AstFileContextFactory(
+      TreeSitterParser parser,
+      TreeSitterAnalyzer analyzer,
+      @Nullable GitHubRagProperties properties,
+      @Nullable MeterRegistry meterRegistry) {
     this.parser = parser;
     this.analyzer = analyzer;
+    GitHubRagProperties.Ast ast = properties != null ? properties.getAst() : null;
+    this.cache =
+        ast != null && ast.isCacheEnabled() && ast.getCacheMaxEntries() > 0
+            ? Caffeine.newBuilder().maximumSize(ast.getCacheMaxEntries()).build()
+            : null;
+    MeterRegistry registry = meterRegistry != null ? meterRegistry : new SimpleMeterRegistry();
+    this.cacheHits = registry.counter("repo_rag_ast_cache_hits_total");
+    this.cacheMisses = registry.counter("repo_rag_ast_cache_misses_total");
   }
 
   public Supplier<AstFileContext> supplier(
       Path absolutePath, String relativePath, String language, String content) {
+    return supplier(absolutePath, relativePath, language, content, null);
+  }
+
+  /**
+   * Same as {@link #supplier(Path, String, String, String)} but lets the caller pass the content
+   * hash it already computed, so cache lookups do not hash the file a second time.
+   */
+  public Supplier<AstFileContext> supplier(
+      Path absolutePath,
+      String relativePath,
+      String language,
+      String content,
+      @Nullable String contentHash) {
     Objects.requireNonNull(absolutePath, "absolutePath");
-    return () -> create(absolutePath, relativePath, language, content);
+    return () -> create(relativePath, language, content, contentHash);
   }
 
   public AstFileContext create(Path absolutePath, String relativePath, String language, String content) {
+    return create(relativePath, language, content, null);
+  }
+
+  private AstFileContext create(
+      String relativePath, String language, String content, @Nullable String contentHash) {
     if (!StringUtils.hasText(language)) {
       log.debug("AST fallback: language missing for file {}", relativePath);
       return null;
     }
+    boolean nativeEnabled;
     if (analyzer == null) {
-      return parser.parse(content, language, relativePath, true).orElse(null);
-    }
-    if (!analyzer.isEnabled() || !analyzer.supportsLanguage(language)) {
+      nativeEnabled = true;
+    } else if (!analyzer.isEnabled() || !analyzer.supportsLanguage(language)) {
       log.debug(
           "AST fallback: Tree-sitter disabled or unsupported language {} for {}",
           language,
           relativePath);
-      return parser.parse(content, language, relativePath, false).orElse(null);
+      nativeEnabled = false;
+    } else {
+      nativeEnabled = analyzer.isNativeEnabled() && analyzer.ensureLanguageLoaded(language);
+    }
+    if (cache == null || content == null) {
+      return parser.parse(content, language, relativePath, nativeEnabled).orElse(null);
     }
-    boolean nativeEnabled = false;
-    if (analyzer.isNativeEnabled()) {
-      nativeEnabled = analyzer.ensureLanguageLoaded(language);
+    // Symbols depend on the path (FQNs, test detection) as well as on the content.
+    AstCacheKey key =
+        new AstCacheKey(
+            contentHash != null ? contentHash : sha256(content),
+            language.toLowerCase(Locale.ROOT),
+            relativePath,
+            nativeEnabled,
+            RepoRagIndexService.AST_VERSION);
+    Optional<AstFileContext> cached = cache.getIfPresent(key);
+    if (cached != null) {
+      cacheHits.increment();
+      return cached.orElse(null);
     }
-    return parser.parse(content, language, relativePath, nativeEnabled).orElse(null);
+    cacheMisses.increment();
+    Optional<AstFileContext> parsed = parser.parse(content, language, relativePath, nativeEnabled);
+    cache.put(key, parsed);
+    return parsed.orElse(null);
   }
 
   public Optional<AstFileContext> optional(
@@ -58,4 +127,19 @@ public class AstFileContextFactory {
     return Optional.ofNullable(create(absolutePath, relativePath, language, content));
   }
 
+  private static String sha256(String content) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 algorithm is not available", ex);
+    }
+  }
+
+  private record AstCacheKey(
+      String contentHash,
+      String language,
+      String relativePath,
+      boolean nativeEnabled,
+      int astVersion) {}
 }
@@ -1,16 +1,19 @@
 package com.aiadvent.mcp.backend.github.rag.ast;
 
+import com.aiadvent.mcp.backend.config.GitHubRagProperties;
 import com.aiadvent.mcp.backend.github.rag.chunking.AstFileContext;
 import com.aiadvent.mcp.backend.github.rag.chunking.AstSymbolMetadata;
 import com.aiadvent.mcp.backend.github.rag.ast.TreeSitterQueryRegistry.LanguageQueries;
 import io.github.treesitter.jtreesitter.InputEncoding;
 import io.github.treesitter.jtreesitter.Node;
-import io.github.treesitter.jtreesitter.Parser;
 import io.github.treesitter.jtreesitter.Tree;
 import io.github.treesitter.jtreesitter.Query;
 import io.github.treesitter.jtreesitter.QueryCapture;
 import io.github.treesitter.jtreesitter.QueryCursor;
 import io.github.treesitter.jtreesitter.QueryMatch;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -22,12 +25,14 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
@@ -43,15 +48,37 @@ public class TreeSitterParser {
   private final TreeSitterLibraryLoader libraryLoader;
   private final LanguageRegistry languageRegistry;
   private final TreeSitterQueryRegistry queryRegistry;
+  private final TreeSitterParserPool parserPool;
+  private final MeterRegistry meterRegistry;
 
-  @Autowired
   public TreeSitterParser(
       TreeSitterLibraryLoader libraryLoader,
       LanguageRegistry languageRegistry,
       TreeSitterQueryRegistry queryRegistry) {
+    this(libraryLoader, languageRegistry, queryRegistry, new GitHubRagProperties(), null);
+  }
+
+  @Autowired
+  public TreeSitterParser(
+      TreeSitterLibraryLoader libraryLoader,
+      LanguageRegistry languageRegistry,
+      TreeSitterQueryRegistry queryRegistry,
+      GitHubRagProperties properties,
+      @Nullable MeterRegistry meterRegistry) {
     this.libraryLoader = libraryLoader;
     this.languageRegistry = languageRegistry;
     this.queryRegistry = queryRegistry;
+    this.meterRegistry = meterRegistry != null ? meterRegistry : new SimpleMeterRegistry();
+    int poolSize = properties.getAst().getParserPoolSize();
+    if (poolSize <= 0) {
+      poolSize = properties.getIndexing().resolveParseConcurrency();
+    }
+    this.parserPool = new TreeSitterParserPool(poolSize, this.meterRegistry);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    parserPool.close();
   }
 
   private static final Pattern CALL_PATTERN = Pattern.compile("\\b([A-Za-z_][\\w$]*)\\s*\\(");
@@ -766,27 +793,45 @@ public class TreeSitterParser {
     if (lang.isEmpty()) {
       return Optional.empty();
     }
-    try (Parser parser = new Parser(lang.get())) {
-      Optional<Tree> tree = parser.parse(content, InputEncoding.UTF_8);
+    String languageId = language.trim().toLowerCase(Locale.ROOT);
+    long started = System.nanoTime();
+    try (TreeSitterParserPool.Lease lease = parserPool.borrow(languageId, lang.get())) {
+      Optional<Tree> tree;
+      try {
+        tree = lease.parser().parse(content, InputEncoding.UTF_8);
+      } catch (RuntimeException ex) {
+        lease.invalidate();
+        throw ex;
+      }
       if (tree.isEmpty()) {
         return Optional.empty();
       }
-      Tree parsedTree = tree.get();
-      if (parsedTree.getRootNode() == null || parsedTree.getRootNode().hasError()) {
+      try (Tree parsedTree = tree.get()) {
+        Node rootNode = parsedTree.getRootNode();
+        if (rootNode == null || rootNode.hasError()) {
+          return Optional.empty();
+        }
+        meterRegistry
+            .counter("repo_rag_ast_nodes_visited_total", "language", languageId)
+            .increment(rootNode.getDescendantCount());
+        NativeAstExtractor extractor =
+            new NativeAstExtractor(
+                rootNode,
+                content,
+                language,
+                relativePath,
+                detectPackage(content.split("\\n", -1)),
+                queries);
+        AstFileContext nativeContext = extractor.extract();
+        if (nativeContext != null
+            && nativeContext.symbols() != null
+            && !nativeContext.symbols().isEmpty()) {
+          return Optional.of(nativeContext);
+        }
         return Optional.empty();
       }
-      NativeAstExtractor extractor =
-          new NativeAstExtractor(
-              parsedTree.getRootNode(),
-              content,
-              language,
-              relativePath,
-              detectPackage(content.split("\\n", -1)),
-              queries);
-      AstFileContext nativeContext = extractor.extract();
-      if (nativeContext != null && nativeContext.symbols() != null && !nativeContext.symbols().isEmpty()) {
-        return Optional.of(nativeContext);
-      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
       return Optional.empty();
     } catch (RuntimeException ex) {
       log.debug(
@@ -795,6 +840,10 @@ public class TreeSitterParser {
           language,
           ex.getMessage());
       return Optional.empty();
+    } finally {
+      meterRegistry
+          .timer("repo_rag_ast_parse_duration", "language", languageId)
+          .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
     }
   }
 
@@ -833,26 +882,30 @@ public class TreeSitterParser {
 
     AstFileContext extract() {
       List<SymbolBuilder> builders = new ArrayList<>();
-      if (queries.symbols().isPresent()) {
-        builders.addAll(extractSymbolsViaQueries(root, queries.symbols().get()));
+      if (queries.symbols().isPresent() && queries.combined().isPresent()) {
+        extractSinglePass(root, queries.combined().get(), builders);
+        if (builders.isEmpty()) {
+          return null;
+        }
       } else {
-        Deque<String> containerStack = new ArrayDeque<>();
-        walk(root, builders, containerStack);
-      }
-      if (builders.isEmpty()) {
-        return null;
-      }
-      if (queries.calls().isPresent()) {
-        enrichCallsWithQueries(root, queries.calls().get(), builders);
-      }
-      if (queries.heritage().isPresent()) {
-        Map<String, SymbolBuilder> byName =
-            builders.stream()
-                .collect(java.util.stream.Collectors.toMap(b -> b.name, b -> b, (a, b) -> a, java.util.LinkedHashMap::new));
-        enrichHeritageWithQueries(root, queries.heritage().get(), byName);
-      }
-      if (queries.fields().isPresent()) {
-        enrichFieldsWithQueries(root, queries.fields().get(), builders);
+        if (queries.symbols().isPresent()) {
+          builders.addAll(extractSymbolsViaQueries(root, queries.symbols().get()));
+        } else {
+          Deque<String> containerStack = new ArrayDeque<>();
+          walk(root, builders, containerStack);
+        }
+        if (builders.isEmpty()) {
+          return null;
+        }
+        if (queries.calls().isPresent()) {
+          enrichCallsWithQueries(root, queries.calls().get(), builders);
+        }
+        if (queries.heritage().isPresent()) {
+          enrichHeritageWithQueries(root, queries.heritage().get(), indexByName(builders));
+        }
+        if (queries.fields().isPresent()) {
+          enrichFieldsWithQueries(root, queries.fields().get(), builders);
+        }
       }
       TreeSitterParser.this.assignParents(builders, packageName);
       normalizeReferences(builders, importIndex, packageName);
@@ -896,150 +949,219 @@ public class TreeSitterParser {
       return new AstFileContext(List.copyOf(result));
     }
 
+    /**
+     * Runs the combined query once. Symbol matches are turned into builders straight away; call,
+     * heritage and field matches need the complete symbol list to find their owner, so they are
+     * buffered and applied after the traversal while the cursor (and its nodes) is still open.
+     */
+    private void extractSinglePass(Node rootNode, Query combinedQuery, List<SymbolBuilder> builders) {
+      List<QueryMatch> calls = new ArrayList<>();
+      List<QueryMatch> heritage = new ArrayList<>();
+      List<QueryMatch> fields = new ArrayList<>();
+      try (QueryCursor cursor = new QueryCursor(combinedQuery);
+          Stream<QueryMatch> matches = cursor.findMatches(rootNode)) {
+        matches.forEach(
+            match -> {
+              String category = captureCategory(match);
+              if (category == null) {
+                return;
+              }
+              switch (category) {
+                case "symbol" -> {
+                  SymbolBuilder builder = symbolFromMatch(match);
+                  if (builder != null) {
+                    builders.add(builder);
+                  }
+                }
+                case "call" -> calls.add(match);
+                case "heritage" -> heritage.add(match);
+                case "field" -> fields.add(match);
+                default -> {}
+              }
+            });
+        if (builders.isEmpty()) {
+          return;
+        }
+        calls.forEach(match -> applyCall(match, builders));
+        if (!heritage.isEmpty()) {
+          Map<String, SymbolBuilder> byName = indexByName(builders);
+          heritage.forEach(match -> applyHeritage(match, byName));
+        }
+        fields.forEach(match -> applyField(match, builders));
+      }
+    }
+
+    private String captureCategory(QueryMatch match) {
+      for (QueryCapture capture : match.captures()) {
+        String name = capture.name();
+        int dot = name.indexOf('.');
+        if (dot > 0) {
+          return name.substring(0, dot);
+        }
+      }
+      return null;
+    }
+
+    private Map<String, SymbolBuilder> indexByName(List<SymbolBuilder> builders) {
+      return builders.stream()
+          .collect(
+              java.util.stream.Collectors.toMap(
+                  b -> b.name, b -> b, (a, b) -> a, java.util.LinkedHashMap::new));
+    }
+
     private List<SymbolBuilder> extractSymbolsViaQueries(Node rootNode, Query symbolsQuery) {
       List<SymbolBuilder> builders = new ArrayList<>();
       try (QueryCursor cursor = new QueryCursor(symbolsQuery);
           Stream<QueryMatch> matches = cursor.findMatches(rootNode)) {
         matches.forEach(
             match -> {
-                  Node decl = null;
-                  Node nameNode = null;
-                  Node paramsNode = null;
-                  for (QueryCapture capture : match.captures()) {
-                    String capName = capture.name();
-                    if ("symbol.decl".equals(capName)) {
-                      decl = capture.node();
-                    } else if ("symbol.name".equals(capName)) {
-                      nameNode = capture.node();
-                    } else if ("symbol.params".equals(capName)) {
-                      paramsNode = capture.node();
-                    }
-                  }
-                  if (decl == null || nameNode == null) {
-                    return;
-                  }
-                  String name = cleanupIdentifier(nameNode.getText());
-                  if (!StringUtils.hasText(name)) {
-                    return;
-                  }
-                  SymbolBuilder builder = new SymbolBuilder();
-                  builder.name = name;
-                  builder.kind = deriveKind(decl.getType());
-                  builder.signature = buildSignature(name, paramsNode);
-                  builder.startLine = decl.getStartPoint().row() + 1;
-                  builder.endLine = decl.getEndPoint().row() + 1;
-                  builder.docstring = findDocstring(builder.startLine);
-                  builder.visibility = inferVisibility(decl.getText());
-                  builder.imports = imports;
-                  builder.isTest = isTestSymbol(relativePath, name);
-                  builder.callsOut = new LinkedHashSet<>();
-                  builder.implementsTypes = new LinkedHashSet<>();
-                  builder.readsFields = new LinkedHashSet<>();
-                  builder.usesTypes = new LinkedHashSet<>();
-                  builder.callsIn = List.of();
-                  builder.parentFqn = null;
-                  builder.symbolFqn =
-                      buildFqn(
-                          packageName, null, builder.name, isContainer(builder.kind), builder.signature);
-                  builders.add(builder);
-                  builder.usesTypes.addAll(extractTypesFromSignature(builder.signature));
-                });
+              SymbolBuilder builder = symbolFromMatch(match);
+              if (builder != null) {
+                builders.add(builder);
+              }
+            });
       }
       return builders;
     }
 
+    private SymbolBuilder symbolFromMatch(QueryMatch match) {
+      Node decl = null;
+      Node nameNode = null;
+      Node paramsNode = null;
+      for (QueryCapture capture : match.captures()) {
+        String capName = capture.name();
+        if ("symbol.decl".equals(capName)) {
+          decl = capture.node();
+        } else if ("symbol.name".equals(capName)) {
+          nameNode = capture.node();
+        } else if ("symbol.params".equals(capName)) {
+          paramsNode = capture.node();
+        }
+      }
+      if (decl == null || nameNode == null) {
+        return null;
+      }
+      String name = cleanupIdentifier(nameNode.getText());
+      if (!StringUtils.hasText(name)) {
+        return null;
+      }
+      SymbolBuilder builder = new SymbolBuilder();
+      builder.name = name;
+      builder.kind = deriveKind(decl.getType());
+      builder.signature = buildSignature(name, paramsNode);
+      builder.startLine = decl.getStartPoint().row() + 1;
+      builder.endLine = decl.getEndPoint().row() + 1;
+      builder.docstring = findDocstring(builder.startLine);
+      builder.visibility = inferVisibility(decl.getText());
+      builder.imports = imports;
+      builder.isTest = isTestSymbol(relativePath, name);
+      builder.callsOut = new LinkedHashSet<>();
+      builder.implementsTypes = new LinkedHashSet<>();
+      builder.readsFields = new LinkedHashSet<>();
+      builder.usesTypes = new LinkedHashSet<>();
+      builder.callsIn = List.of();
+      builder.parentFqn = null;
+      builder.symbolFqn =
+          buildFqn(packageName, null, builder.name, isContainer(builder.kind), builder.signature);
+      builder.usesTypes.addAll(extractTypesFromSignature(builder.signature));
+      return builder;
+    }
+
     private void enrichCallsWithQueries(Node rootNode, Query callsQuery, List<SymbolBuilder> builders) {
       try (QueryCursor cursor = new QueryCursor(callsQuery);
           Stream<QueryMatch> matches = cursor.findMatches(rootNode)) {
-        matches.forEach(
-            match -> {
-                  Node callNode = null;
-                  Node nameNode = null;
-                  for (QueryCapture capture : match.captures()) {
-                    String capName = capture.name();
-                    if ("call.expr".equals(capName)) {
-                      callNode = capture.node();
-                    } else if ("call.name".equals(capName)) {
-                      nameNode = capture.node();
-                    }
-                  }
-                  if (callNode == null || nameNode == null) {
-                    return;
-                  }
-                  String name = cleanupIdentifier(nameNode.getText());
-                  SymbolBuilder owner = findOwner(builders, callNode);
-                  if (owner != null && StringUtils.hasText(name)) {
-                    String resolved =
-                        TreeSitterParser.this.resolveReference(name, builders, importIndex, packageName);
-                    if (StringUtils.hasText(resolved)) {
-                      owner.callsOut.add(resolved);
-                    }
-                  }
-                });
+        matches.forEach(match -> applyCall(match, builders));
+      }
+    }
+
+    private void applyCall(QueryMatch match, List<SymbolBuilder> builders) {
+      Node callNode = null;
+      Node nameNode = null;
+      for (QueryCapture capture : match.captures()) {
+        String capName = capture.name();
+        if ("call.expr".equals(capName)) {
+          callNode = capture.node();
+        } else if ("call.name".equals(capName)) {
+          nameNode = capture.node();
+        }
+      }
+      if (callNode == null || nameNode == null) {
+        return;
+      }
+      String name = cleanupIdentifier(nameNode.getText());
+      SymbolBuilder owner = findOwner(builders, callNode);
+      if (owner != null && StringUtils.hasText(name)) {
+        String resolved =
+            TreeSitterParser.this.resolveReference(name, builders, importIndex, packageName);
+        if (StringUtils.hasText(resolved)) {
+          owner.callsOut.add(resolved);
+        }
       }
     }
 
     private void enrichHeritageWithQueries(Node rootNode, Query heritageQuery, Map<String, SymbolBuilder> byName) {
       try (QueryCursor cursor = new QueryCursor(heritageQuery);
           Stream<QueryMatch> matches = cursor.findMatches(rootNode)) {
-        matches.forEach(
-            match -> {
-                  Node childNode = null;
-                  Node baseNode = null;
-                  for (QueryCapture capture : match.captures()) {
-                    String capName = capture.name();
-                    if ("heritage.child".equals(capName)) {
-                      childNode = capture.node();
-                    } else if ("heritage.base".equals(capName)) {
-                      baseNode = capture.node();
-                    }
-                  }
-                  if (childNode == null || baseNode == null) {
-                    return;
-                  }
-                  String child = cleanupIdentifier(childNode.getText());
-                  String base = cleanupIdentifier(baseNode.getText());
-                  SymbolBuilder builder = byName.get(child);
-                  if (builder != null && StringUtils.hasText(base)) {
-                    String resolved =
-                        TreeSitterParser.this.resolveReference(
-                            base, byName.values().stream().toList(), importIndex, packageName);
-                    if (StringUtils.hasText(resolved)) {
-                      builder.implementsTypes.add(resolved);
-                    }
-                  }
-                });
+        matches.forEach(match -> applyHeritage(match, byName));
+      }
+    }
+
+    private void applyHeritage(QueryMatch match, Map<String, SymbolBuilder> byName) {
+      Node childNode = null;
+      Node baseNode = null;
+      for (QueryCapture capture : match.captures()) {
+        String capName = capture.name();
+        if ("heritage.child".equals(capName)) {
+          childNode = capture.node();
+        } else if ("heritage.base".equals(capName)) {
+          baseNode = capture.node();
+        }
+      }
+      if (childNode == null || baseNode == null) {
+        return;
+      }
+      String child = cleanupIdentifier(childNode.getText());
+      String base = cleanupIdentifier(baseNode.getText());
+      SymbolBuilder builder = byName.get(child);
+      if (builder != null && StringUtils.hasText(base)) {
+        String resolved =
+            TreeSitterParser.this.resolveReference(
+                base, byName.values().stream().toList(), importIndex, packageName);
+        if (StringUtils.hasText(resolved)) {
+          builder.implementsTypes.add(resolved);
+        }
       }
     }
 
     private void enrichFieldsWithQueries(Node rootNode, Query fieldsQuery, List<SymbolBuilder> builders) {
       try (QueryCursor cursor = new QueryCursor(fieldsQuery);
           Stream<QueryMatch> matches = cursor.findMatches(rootNode)) {
-        matches.forEach(
-            match -> {
-                  Node accessNode = null;
-                  Node fieldNode = null;
-                  for (QueryCapture capture : match.captures()) {
-                    String capName = capture.name();
-                    if ("field.access".equals(capName)) {
-                      accessNode = capture.node();
-                    } else if ("field.name".equals(capName)) {
-                      fieldNode = capture.node();
-                    }
-                  }
-                  if (accessNode == null || fieldNode == null) {
-                    return;
-                  }
-                  String field = cleanupIdentifier(fieldNode.getText());
-                  SymbolBuilder owner = findOwner(builders, accessNode);
-                  if (owner != null && StringUtils.hasText(field)) {
-                    String resolved =
-                        TreeSitterParser.this.resolveReference(field, builders, importIndex, packageName);
-                    if (StringUtils.hasText(resolved)) {
-                      owner.readsFields.add(resolved);
-                    }
-                  }
-                });
+        matches.forEach(match -> applyField(match, builders));
+      }
+    }
+
+    private void applyField(QueryMatch match, List<SymbolBuilder> builders) {
+      Node accessNode = null;
+      Node fieldNode = null;
+      for (QueryCapture capture : match.captures()) {
+        String capName = capture.name();
+        if ("field.access".equals(capName)) {
+          accessNode = capture.node();
+        } else if ("field.name".equals(capName)) {
+          fieldNode = capture.node();
+        }
+      }
+      if (accessNode == null || fieldNode == null) {
+        return;
+      }
+      String field = cleanupIdentifier(fieldNode.getText());
+      SymbolBuilder owner = findOwner(builders, accessNode);
+      if (owner != null && StringUtils.hasText(field)) {
+        String resolved =
+            TreeSitterParser.this.resolveReference(field, builders, importIndex, packageName);
+        if (StringUtils.hasText(resolved)) {
+          owner.readsFields.add(resolved);
+        }
       }
     }
 
@@ -0,0 +1,135 @@
+package com.aiadvent.mcp.backend.github.rag.ast;
+
+import io.github.treesitter.jtreesitter.Language;
+import io.github.treesitter.jtreesitter.Parser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded per-language pool of Tree-sitter parsers. A native parser is not thread-safe, so each
+ * borrower gets exclusive use until the lease is closed; parse threads beyond the pool size wait
+ * for a parser instead of allocating a new one per file. A permit stands for one lease, so a
+ * discarded parser frees its slot and wakes a waiter, who then creates a replacement.
+ */
+final class TreeSitterParserPool implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(TreeSitterParserPool.class);
+
+  private final int maxPerLanguage;
+  private final MeterRegistry meterRegistry;
+  private final Map<String, LanguagePool> pools = new ConcurrentHashMap<>();
+
+  TreeSitterParserPool(int maxPerLanguage, MeterRegistry meterRegistry) {
+    this.maxPerLanguage = Math.max(1, maxPerLanguage);
+    this.meterRegistry = meterRegistry;
+  }
+
+  Lease borrow(String languageId, Language language) throws InterruptedException {
+    LanguagePool pool = pools.computeIfAbsent(languageId, id -> new LanguagePool(id, language));
+    return pool.borrow();
+  }
+
+  @Override
+  public void close() {
+    pools.values().forEach(LanguagePool::drain);
+    pools.clear();
+  }
+
+  final class LanguagePool {
+    private final Language language;
+    private final BlockingQueue<Parser> idle;
+    private final Semaphore permits;
+    private final Timer waitTimer;
+
+    LanguagePool(String languageId, Language language) {
+      this.language = language;
+      this.idle = new ArrayBlockingQueue<>(maxPerLanguage);
+      this.permits = new Semaphore(maxPerLanguage, true);
+      this.waitTimer =
+          meterRegistry.timer("repo_rag_ast_parser_pool_wait", "language", languageId);
+    }
+
+    Lease borrow() throws InterruptedException {
+      long started = System.nanoTime();
+      permits.acquire();
+      waitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+      Parser parser = idle.poll();
+      if (parser == null) {
+        try {
+          parser = new Parser(language);
+        } catch (RuntimeException ex) {
+          permits.release();
+          throw ex;
+        }
+      }
+      return new Lease(this, parser);
+    }
+
+    void release(Parser parser, boolean broken) {
+      try {
+        if (!broken) {
+          try {
+            parser.reset();
+            if (idle.offer(parser)) {
+              return;
+            }
+          } catch (RuntimeException ex) {
+            log.debug("Discarding Tree-sitter parser after reset failure: {}", ex.getMessage());
+          }
+        }
+        closeQuietly(parser);
+      } finally {
+        permits.release();
+      }
+    }
+
+    void drain() {
+      Parser parser;
+      while ((parser = idle.poll()) != null) {
+        closeQuietly(parser);
+      }
+    }
+  }
+
+  /** Exclusive use of a pooled parser; closing returns it to the pool. */
+  static final class Lease implements AutoCloseable {
+    private final LanguagePool pool;
+    private final Parser parser;
+    private boolean broken;
+
+    private Lease(LanguagePool pool, Parser parser) {
+      this.pool = pool;
+      this.parser = parser;
+    }
+
+    Parser parser() {
+      return parser;
+    }
+
+    /** Drops the parser instead of reusing it, e.g. after a native failure. */
+    void invalidate() {
+      broken = true;
+    }
+
+    @Override
+    public void close() {
+      pool.release(parser, broken);
+    }
+  }
+
+  private static void closeQuietly(Parser parser) {
+    try {
+      parser.close();
+    } catch (RuntimeException ex) {
+      log.debug("Failed to close Tree-sitter parser: {}", ex.getMessage());
+    }
+  }
+}
@@ -5,6 +5,9 @@ import io.github.treesitter.jtreesitter.Query;
 import io.github.treesitter.jtreesitter.QueryError;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
@@ -22,37 +25,74 @@ public class TreeSitterQueryRegistry {
 
   private static final Logger log = LoggerFactory.getLogger(TreeSitterQueryRegistry.class);
 
-  public record LanguageQueries(Optional<Query> symbols, Optional<Query> calls, Optional<Query> heritage, Optional<Query> fields) {}
+  private static final List<String> QUERY_FILES =
+      List.of("symbols.scm", "calls.scm", "heritage.scm", "fields.scm");
+
+  /**
+   * Per-language queries. {@code combined} concatenates every available query file so a single
+   * cursor pass yields symbol, call, heritage and field captures; it is empty when the combined
+   * source does not compile, in which case callers run the individual queries.
+   */
+  public record LanguageQueries(
+      Optional<Query> symbols,
+      Optional<Query> calls,
+      Optional<Query> heritage,
+      Optional<Query> fields,
+      Optional<Query> combined) {}
 
   private final Map<String, LanguageQueries> cache = new ConcurrentHashMap<>();
 
   public LanguageQueries queries(Language language, String languageId) {
-    return cache.computeIfAbsent(
-        languageId,
-        key -> new LanguageQueries(
-            loadQuery(language, key, "symbols.scm"),
-            loadQuery(language, key, "calls.scm"),
-            loadQuery(language, key, "heritage.scm"),
-            loadQuery(language, key, "fields.scm")));
+    return cache.computeIfAbsent(languageId, key -> load(language, key));
   }
 
   public static LanguageQueries empty() {
-    return new LanguageQueries(Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty());
+    return new LanguageQueries(
+        Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty());
+  }
+
+  private LanguageQueries load(Language language, String languageId) {
+    Map<String, String> sources = new LinkedHashMap<>();
+    for (String fileName : QUERY_FILES) {
+      readSource(languageId, fileName).ifPresent(source -> sources.put(fileName, source));
+    }
+    Optional<Query> combined =
+        sources.isEmpty()
+            ? Optional.empty()
+            : compile(language, languageId, "combined", String.join("\n", sources.values()));
+    return new LanguageQueries(
+        compile(language, languageId, "symbols.scm", sources.get("symbols.scm")),
+        compile(language, languageId, "calls.scm", sources.get("calls.scm")),
+        compile(language, languageId, "heritage.scm", sources.get("heritage.scm")),
+        compile(language, languageId, "fields.scm", sources.get("fields.scm")),
+        combined);
   }
 
-  private Optional<Query> loadQuery(Language language, String languageId, String fileName) {
+  private Optional<String> readSource(String languageId, String fileName) {
     String path = "treesitter/queries/" + languageId + "/" + fileName;
     ClassPathResource resource = new ClassPathResource(path);
     if (!resource.exists()) {
       return Optional.empty();
     }
     try (InputStream input = resource.getInputStream()) {
-      String source = new String(input.readAllBytes());
+      return Optional.of(new String(input.readAllBytes(), StandardCharsets.UTF_8));
+    } catch (IOException ex) {
+      log.warn("Failed to load Tree-sitter query {} for {}: {}", fileName, languageId, ex.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  private Optional<Query> compile(
+      Language language, String languageId, String fileName, String source) {
+    if (source == null) {
+      return Optional.empty();
+    }
+    try {
       return Optional.of(new Query(language, source));
     } catch (QueryError ex) {
       log.warn("Failed to load Tree-sitter query {} for {}: {}", fileName, languageId, ex.getMessage());
       return Optional.empty();
-    } catch (IOException | RuntimeException ex) {
+    } catch (RuntimeException ex) {
       log.warn("Failed to load Tree-sitter query {} for {}: {}", fileName, languageId, ex.getMessage());
       return Optional.empty();
     }
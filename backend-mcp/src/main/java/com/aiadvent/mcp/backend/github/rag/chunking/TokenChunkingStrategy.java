@@ -14,6 +14,14 @@ public class TokenChunkingStrategy implements ChunkingStrategy {
 
   private static final EncodingRegistry REGISTRY = Encodings.newLazyEncodingRegistry();
   private static final Encoding ENCODING = REGISTRY.getEncoding(EncodingType.CL100K_BASE);
+  /** Covers the cl100k vocabulary including special tokens; larger ids are decoded on demand. */
+  private static final int TOKEN_LENGTH_CACHE_SIZE = 1 << 17;
+  /** UTF-8 byte length per token id, 0 while unknown; races only ever write the same value. */
+  private static final int[] TOKEN_BYTE_LENGTHS = new int[TOKEN_LENGTH_CACHE_SIZE];
+  /** Offset buffers above this many tokens are not kept by the indexing thread after use. */
+  private static final int MAX_RETAINED_OFFSETS = 1 << 20;
+  private static final ThreadLocal<int[]> OFFSET_BUFFER =
+      ThreadLocal.withInitial(() -> new int[4096]);
 
   @Override
   public List<Chunk> chunk(ChunkingContext context) {
@@ -22,28 +30,48 @@ public class TokenChunkingStrategy implements ChunkingStrategy {
       return List.of();
     }
     TokenParameters params = parameters(context);
-    List<Integer> tokens = ENCODING.encode(content).boxed();
-    if (tokens.isEmpty()) {
+    IntArrayList tokens = ENCODING.encode(content);
+    int tokenCount = tokens.size();
+    if (tokenCount == 0) {
       return List.of();
     }
+    int[] charOffsets = offsetBuffer(tokenCount + 1);
+    try {
+      computeCharOffsets(content, tokens, charOffsets);
+      return buildChunks(context, content, params, charOffsets, tokenCount);
+    } finally {
+      if (charOffsets.length > MAX_RETAINED_OFFSETS) {
+        OFFSET_BUFFER.remove();
+      }
+    }
+  }
+
+  private List<Chunk> buildChunks(
+      ChunkingContext context,
+      String content,
+      TokenParameters params,
+      int[] charOffsets,
+      int tokenCount) {
     int overlapTokens = Math.min(params.overlapTokens(), Math.max(0, params.chunkSize() - 1));
     int step = Math.max(1, params.chunkSize() - overlapTokens);
     List<Chunk> chunks = new ArrayList<>();
     int produced = 0;
     int start = 0;
-    int lastStartIndex = -1;
     int previousEndLine = 0;
 
-    while (start < tokens.size() && produced < params.maxChunks()) {
-      int end = Math.min(tokens.size(), start + params.chunkSize());
-      List<Integer> slice = tokens.subList(start, end);
-      String chunkText = decode(slice).trim();
-      if (chunkText.length() >= params.minChars()) {
-        int charStart = findNextOccurrence(content, chunkText, lastStartIndex + 1);
-        if (charStart < 0) {
-          break;
-        }
-        int charEnd = Math.min(content.length(), charStart + chunkText.length());
+    while (start < tokenCount && produced < params.maxChunks()) {
+      int end = Math.min(tokenCount, start + params.chunkSize());
+      int charStart = charOffsets[start];
+      int charEnd = charOffsets[end];
+      // Same trimming rule as String#trim, applied to the span instead of a copied string.
+      while (charStart < charEnd && content.charAt(charStart) <= ' ') {
+        charStart++;
+      }
+      while (charEnd > charStart && content.charAt(charEnd - 1) <= ' ') {
+        charEnd--;
+      }
+      if (charEnd - charStart >= params.minChars()) {
+        String chunkText = content.substring(charStart, charEnd);
         LineIndex.LineRange range = context.file().lineIndex().rangeForSpan(charStart, charEnd);
         int overlapLines = previousEndLine > 0 ? Math.max(0, previousEndLine - range.start() + 1) : 0;
         AstSymbolMetadata astMetadata =
@@ -60,11 +88,10 @@ public class TokenChunkingStrategy implements ChunkingStrategy {
         if (chunk != null) {
           chunks.add(chunk);
           produced++;
-          lastStartIndex = charStart;
           previousEndLine = range.end();
         }
       }
-      if (end >= tokens.size()) {
+      if (end >= tokenCount) {
         break;
       }
       start += step;
@@ -72,6 +99,91 @@ public class TokenChunkingStrategy implements ChunkingStrategy {
     return chunks;
   }
 
+  /**
+   * Fills {@code charOffsets[i]} with the char index where token {@code i} starts (and
+   * {@code charOffsets[n]} with the content length). cl100k is byte-level BPE, so tokens are
+   * measured in UTF-8 bytes and mapped back by walking the content once; a boundary that falls
+   * inside a multi-byte character snaps to the start of that character.
+   */
+  static void computeCharOffsets(String content, IntArrayList tokens, int[] charOffsets) {
+    int tokenCount = tokens.size();
+    int length = content.length();
+    long byteTarget = 0;
+    long bytePos = 0;
+    int charPos = 0;
+    for (int i = 0; i < tokenCount; i++) {
+      while (charPos < length) {
+        int width = utf8Width(content, charPos);
+        int bytes = utf8Bytes(content, charPos, width);
+        if (bytePos + bytes > byteTarget) {
+          break;
+        }
+        bytePos += bytes;
+        charPos += width;
+      }
+      charOffsets[i] = charPos;
+      byteTarget += tokenByteLength(tokens.get(i));
+    }
+    charOffsets[tokenCount] = length;
+  }
+
+  /** Number of chars (1 or 2) that form the code point at {@code index}. */
+  private static int utf8Width(String content, int index) {
+    char c = content.charAt(index);
+    if (Character.isHighSurrogate(c)
+        && index + 1 < content.length()
+        && Character.isLowSurrogate(content.charAt(index + 1))) {
+      return 2;
+    }
+    return 1;
+  }
+
+  private static int utf8Bytes(String content, int index, int width) {
+    if (width == 2) {
+      return 4;
+    }
+    char c = content.charAt(index);
+    if (c < 0x80) {
+      return 1;
+    }
+    if (c < 0x800) {
+      return 2;
+    }
+    if (Character.isSurrogate(c)) {
+      // Unpaired surrogates are encoded as '?' by String#getBytes(UTF_8).
+      return 1;
+    }
+    return 3;
+  }
+
+  private static int tokenByteLength(int token) {
+    if (token >= 0 && token < TOKEN_LENGTH_CACHE_SIZE) {
+      int cached = TOKEN_BYTE_LENGTHS[token];
+      if (cached > 0) {
+        return cached;
+      }
+      int computed = decodeByteLength(token);
+      TOKEN_BYTE_LENGTHS[token] = computed;
+      return computed;
+    }
+    return decodeByteLength(token);
+  }
+
+  private static int decodeByteLength(int token) {
+    IntArrayList single = new IntArrayList(1);
+    single.add(token);
+    return ENCODING.decodeBytes(single).length;
+  }
+
+  private static int[] offsetBuffer(int size) {
+    int[] buffer = OFFSET_BUFFER.get();
+    if (buffer.length < size) {
+      buffer = new int[Math.max(size, buffer.length * 2)];
+      OFFSET_BUFFER.set(buffer);
+    }
+    return buffer;
+  }
+
   private TokenParameters parameters(ChunkingContext context) {
     GitHubRagProperties.Chunking chunking = context.config();
     int minChars = Math.max(chunking.getToken().getMinChunkChars(), chunking.getToken().getMinChunkLengthToEmbed());
@@ -92,21 +204,5 @@ public class TokenChunkingStrategy implements ChunkingStrategy {
         chunking.getToken().getMaxNumChunks());
   }
 
-  private int findNextOccurrence(String content, String chunkText, int fromIndex) {
-    if (!StringUtils.hasText(chunkText)) {
-      return -1;
-    }
-    return content.indexOf(chunkText, Math.max(0, fromIndex));
-  }
-
-  private String decode(List<Integer> tokens) {
-    if (tokens.isEmpty()) {
-      return "";
-    }
-    IntArrayList list = new IntArrayList(tokens.size());
-    tokens.forEach(list::add);
-    return ENCODING.decode(list);
-  }
-
   private record TokenParameters(int chunkSize, int overlapTokens, int minChars, int maxChunks) {}
 }
@@ -33,8 +33,24 @@ public interface RepoRagDocumentRepository
       @Param("filePath") String filePath,
       @Param("chunkIndexes") Collection<Integer> chunkIndexes);
 
+  /**
+   * Set-based variant for several anchors at once: returns the cross product of {@code filePaths}
+   * and {@code chunkIndexes}, callers keep only the (file, index) pairs they asked for.
+   */
+  @Query(
+      "select d from RepoRagDocumentEntity d where d.namespace = :namespace and d.filePath in :filePaths and d.chunkIndex in :chunkIndexes")
+  List<RepoRagDocumentEntity> findByNamespaceAndFilePathInAndChunkIndexIn(
+      @Param("namespace") String namespace,
+      @Param("filePaths") Collection<String> filePaths,
+      @Param("chunkIndexes") Collection<Integer> chunkIndexes);
+
   List<RepoRagDocumentEntity> findByNamespaceAndFilePath(String namespace, String filePath);
 
+  @Query(
+      "select d from RepoRagDocumentEntity d where d.namespace = :namespace and d.filePath in :filePaths")
+  List<RepoRagDocumentEntity> findByNamespaceAndFilePathIn(
+      @Param("namespace") String namespace, @Param("filePaths") Collection<String> filePaths);
+
   @Query(
       "select d from RepoRagDocumentEntity d where d.namespace = :namespace and d.chunkHash in :hashes")
   List<RepoRagDocumentEntity> findByNamespaceAndChunkHashIn(
@@ -1,5 +1,6 @@
 package com.aiadvent.mcp.backend.github.rag.persistence;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -20,6 +21,11 @@ public interface RepoRagFileStateRepository
   Optional<RepoRagFileStateEntity> findByNamespaceAndFilePath(
       @Param("namespace") String namespace, @Param("filePath") String filePath);
 
+  @Query(
+      "select f from RepoRagFileStateEntity f where f.namespace = :namespace and f.filePath in :filePaths")
+  List<RepoRagFileStateEntity> findByNamespaceAndFilePathIn(
+      @Param("namespace") String namespace, @Param("filePaths") Collection<String> filePaths);
+
   @Modifying
   @Transactional
   @Query(
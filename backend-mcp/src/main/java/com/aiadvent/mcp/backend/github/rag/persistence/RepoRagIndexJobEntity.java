@@ -65,10 +65,54 @@ public class RepoRagIndexJobEntity {
   @Column(name = "chunks_processed", nullable = false)
   private long chunksProcessed = 0;
 
+  @Column(name = "index_mode", length = 16)
+  private String indexMode;
+
+  @Column(name = "rows_written", nullable = false)
+  private long rowsWritten = 0;
+
+  @Column(name = "rows_deleted", nullable = false)
+  private long rowsDeleted = 0;
+
+  @Column(name = "rows_kept", nullable = false)
+  private long rowsKept = 0;
+
+  @Column(name = "namespace", length = 256)
+  private String namespace;
+
+  @Column(name = "workspace_id", length = 128)
+  private String workspaceId;
+
+  @Column(name = "source_ref", length = 256)
+  private String sourceRef;
+
+  @Column(name = "commit_sha", length = 64)
+  private String commitSha;
+
+  @Column(name = "workspace_size_bytes", nullable = false)
+  private long workspaceSizeBytes = 0;
+
+  @Column(name = "fetched_at")
+  private Instant fetchedAt;
+
+  @Column(name = "available_at")
+  private Instant availableAt;
+
+  /** Owned by the queue's claim/heartbeat statements; entity saves never overwrite the lease. */
+  @Column(name = "locked_by", length = 128, insertable = false, updatable = false)
+  private String lockedBy;
+
+  @Column(name = "lease_expires_at", insertable = false, updatable = false)
+  private Instant leaseExpiresAt;
+
   @JdbcTypeCode(SqlTypes.JSON)
   @Column(name = "last_error", columnDefinition = "jsonb")
   private JsonNode lastError;
 
+  @JdbcTypeCode(SqlTypes.JSON)
+  @Column(name = "stage_timings", columnDefinition = "jsonb")
+  private JsonNode stageTimings;
+
   @Column(name = "created_at", nullable = false, updatable = false)
   private Instant createdAt;
 
@@ -191,6 +235,46 @@ public class RepoRagIndexJobEntity {
     this.lastError = lastError;
   }
 
+  public String getIndexMode() {
+    return indexMode;
+  }
+
+  public void setIndexMode(String indexMode) {
+    this.indexMode = indexMode;
+  }
+
+  public long getRowsWritten() {
+    return rowsWritten;
+  }
+
+  public void setRowsWritten(long rowsWritten) {
+    this.rowsWritten = rowsWritten;
+  }
+
+  public long getRowsDeleted() {
+    return rowsDeleted;
+  }
+
+  public void setRowsDeleted(long rowsDeleted) {
+    this.rowsDeleted = rowsDeleted;
+  }
+
+  public long getRowsKept() {
+    return rowsKept;
+  }
+
+  public void setRowsKept(long rowsKept) {
+    this.rowsKept = rowsKept;
+  }
+
+  public JsonNode getStageTimings() {
+    return stageTimings;
+  }
+
+  public void setStageTimings(JsonNode stageTimings) {
+    this.stageTimings = stageTimings;
+  }
+
   public Instant getCreatedAt() {
     return createdAt;
   }
@@ -199,6 +283,70 @@ public class RepoRagIndexJobEntity {
     return updatedAt;
   }
 
+  public String getNamespace() {
+    return namespace;
+  }
+
+  public void setNamespace(String namespace) {
+    this.namespace = namespace;
+  }
+
+  public String getWorkspaceId() {
+    return workspaceId;
+  }
+
+  public void setWorkspaceId(String workspaceId) {
+    this.workspaceId = workspaceId;
+  }
+
+  public String getSourceRef() {
+    return sourceRef;
+  }
+
+  public void setSourceRef(String sourceRef) {
+    this.sourceRef = sourceRef;
+  }
+
+  public String getCommitSha() {
+    return commitSha;
+  }
+
+  public void setCommitSha(String commitSha) {
+    this.commitSha = commitSha;
+  }
+
+  public long getWorkspaceSizeBytes() {
+    return workspaceSizeBytes;
+  }
+
+  public void setWorkspaceSizeBytes(long workspaceSizeBytes) {
+    this.workspaceSizeBytes = workspaceSizeBytes;
+  }
+
+  public Instant getFetchedAt() {
+    return fetchedAt;
+  }
+
+  public void setFetchedAt(Instant fetchedAt) {
+    this.fetchedAt = fetchedAt;
+  }
+
+  public Instant getAvailableAt() {
+    return availableAt;
+  }
+
+  public void setAvailableAt(Instant availableAt) {
+    this.availableAt = availableAt;
+  }
+
+  public String getLockedBy() {
+    return lockedBy;
+  }
+
+  public Instant getLeaseExpiresAt() {
+    return leaseExpiresAt;
+  }
+
   @PrePersist
   void onCreate() {
     Instant now = Instant.now();
@@ -207,6 +355,9 @@ public class RepoRagIndexJobEntity {
     if (this.queuedAt == null) {
       this.queuedAt = now;
     }
+    if (this.availableAt == null) {
+      this.availableAt = this.queuedAt;
+    }
   }
 
   @PreUpdate
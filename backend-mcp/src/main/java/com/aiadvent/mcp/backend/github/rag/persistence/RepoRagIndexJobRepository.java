@@ -1,9 +1,14 @@
 package com.aiadvent.mcp.backend.github.rag.persistence;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface RepoRagIndexJobRepository
     extends JpaRepository<RepoRagIndexJobEntity, UUID> {
@@ -12,4 +17,134 @@ public interface RepoRagIndexJobRepository
       String repoOwner, String repoName);
 
   List<RepoRagIndexJobEntity> findByStatusIn(List<RepoRagJobStatus> statuses);
+
+  long countByStatus(RepoRagJobStatus status);
+
+  /**
+   * Locks the next job a worker may start. Only the newest queued job of a namespace is eligible,
+   * namespaces with a live running job are skipped, and namespaces that were served least recently
+   * go first so one large repository cannot monopolise the workers.
+   */
+  @Query(
+      value =
+          """
+          SELECT j.*
+          FROM repo_rag_index_job j
+          WHERE j.status = 'QUEUED'
+            AND j.namespace IS NOT NULL
+            AND (j.available_at IS NULL OR j.available_at <= :now)
+            AND NOT EXISTS (
+              SELECT 1 FROM repo_rag_index_job r
+              WHERE r.namespace = j.namespace
+                AND r.status = 'RUNNING'
+                AND r.lease_expires_at >= :now)
+            AND NOT EXISTS (
+              SELECT 1 FROM repo_rag_index_job n
+              WHERE n.namespace = j.namespace
+                AND n.status = 'QUEUED'
+                AND n.queued_at > j.queued_at)
+          ORDER BY (
+              SELECT max(s.started_at) FROM repo_rag_index_job s
+              WHERE s.namespace = j.namespace) NULLS FIRST,
+            j.queued_at
+          LIMIT 1
+          FOR UPDATE OF j SKIP LOCKED
+          """,
+      nativeQuery = true)
+  Optional<RepoRagIndexJobEntity> lockNextJob(@Param("now") Instant now);
+
+  /**
+   * Serializes claimers of one namespace until the surrounding transaction ends. Returns
+   * {@code false} while another worker is claiming a job of the same namespace.
+   */
+  @Query(
+      value =
+          "SELECT pg_try_advisory_xact_lock(hashtext('repo_rag_index_job'), hashtext(:namespace))",
+      nativeQuery = true)
+  boolean tryLockNamespace(@Param("namespace") String namespace);
+
+  /** Runs as its own statement, so it sees claims committed after {@code lockNextJob} started. */
+  @Query(
+      value =
+          """
+          SELECT EXISTS (
+            SELECT 1 FROM repo_rag_index_job
+            WHERE namespace = :namespace
+              AND status = 'RUNNING'
+              AND lease_expires_at >= :now)
+          """,
+      nativeQuery = true)
+  boolean hasLiveRunningJob(@Param("namespace") String namespace, @Param("now") Instant now);
+
+  @Modifying(clearAutomatically = true)
+  @Query(
+      value =
+          """
+          UPDATE repo_rag_index_job
+          SET status = 'RUNNING',
+              locked_by = :workerId,
+              lease_expires_at = :leaseUntil,
+              started_at = :now,
+              completed_at = NULL,
+              attempt = attempt + 1,
+              updated_at = :now
+          WHERE id = :id
+          """,
+      nativeQuery = true)
+  int claim(
+      @Param("id") UUID id,
+      @Param("workerId") String workerId,
+      @Param("leaseUntil") Instant leaseUntil,
+      @Param("now") Instant now);
+
+  /** Marks older queued jobs of the namespace as superseded by {@code keepId}. */
+  @Modifying(clearAutomatically = true)
+  @Query(
+      value =
+          """
+          UPDATE repo_rag_index_job
+          SET status = 'SUPERSEDED', completed_at = :now, updated_at = :now
+          WHERE namespace = :namespace
+            AND status = 'QUEUED'
+            AND id <> :keepId
+            AND queued_at <= :queuedAt
+          """,
+      nativeQuery = true)
+  int supersedeQueued(
+      @Param("namespace") String namespace,
+      @Param("keepId") UUID keepId,
+      @Param("queuedAt") Instant queuedAt,
+      @Param("now") Instant now);
+
+  @Modifying
+  @Query(
+      value =
+          """
+          UPDATE repo_rag_index_job
+          SET lease_expires_at = :leaseUntil
+          WHERE id IN (:ids) AND locked_by = :workerId AND status = 'RUNNING'
+          """,
+      nativeQuery = true)
+  int renewLeases(
+      @Param("ids") Collection<UUID> ids,
+      @Param("workerId") String workerId,
+      @Param("leaseUntil") Instant leaseUntil);
+
+  /**
+   * Returns jobs whose worker stopped heartbeating to the queue; jobs that already used all their
+   * attempts are failed instead.
+   */
+  @Modifying
+  @Query(
+      value =
+          """
+          UPDATE repo_rag_index_job
+          SET status = CASE WHEN attempt >= max_attempts THEN 'FAILED' ELSE 'QUEUED' END,
+              completed_at = CASE WHEN attempt >= max_attempts THEN :now ELSE NULL END,
+              available_at = :now,
+              updated_at = :now
+          WHERE status = 'RUNNING' AND lease_expires_at < :now
+          """,
+      nativeQuery = true)
+  int requeueExpired(@Param("now") Instant now);
 }
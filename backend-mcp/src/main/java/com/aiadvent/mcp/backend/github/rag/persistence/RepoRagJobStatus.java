@@ -4,7 +4,9 @@ public enum RepoRagJobStatus {
   QUEUED,
   RUNNING,
   SUCCEEDED,
-  FAILED;
+  FAILED,
+  /** Replaced by a newer job for the same namespace before it started. */
+  SUPERSEDED;
 
   public static RepoRagJobStatus fromValue(String value) {
     if (value == null) {
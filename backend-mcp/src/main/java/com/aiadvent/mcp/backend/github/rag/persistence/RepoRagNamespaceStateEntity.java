@@ -37,6 +37,9 @@ public class RepoRagNamespaceStateEntity {
   @Column(name = "commit_sha", length = 64)
   private String commitSha;
 
+  @Column(name = "indexed_commit_sha", length = 64)
+  private String indexedCommitSha;
+
   @Column(name = "workspace_id", length = 64)
   private String workspaceId;
 
@@ -133,6 +136,14 @@ public class RepoRagNamespaceStateEntity {
     this.commitSha = commitSha;
   }
 
+  public String getIndexedCommitSha() {
+    return indexedCommitSha;
+  }
+
+  public void setIndexedCommitSha(String indexedCommitSha) {
+    this.indexedCommitSha = indexedCommitSha;
+  }
+
   public String getWorkspaceId() {
     return workspaceId;
   }
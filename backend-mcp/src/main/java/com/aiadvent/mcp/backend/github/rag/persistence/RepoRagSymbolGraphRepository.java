@@ -1,5 +1,6 @@
 package com.aiadvent.mcp.backend.github.rag.persistence;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -12,5 +13,8 @@ public interface RepoRagSymbolGraphRepository
   List<RepoRagSymbolGraphEntity> findByNamespaceAndReferencedSymbolFqn(
       String namespace, String referencedSymbolFqn);
 
+  List<RepoRagSymbolGraphEntity> findByNamespaceAndReferencedSymbolFqnIn(
+      String namespace, Collection<String> referencedSymbolFqns);
+
   void deleteByNamespaceAndFilePath(String namespace, String filePath);
 }
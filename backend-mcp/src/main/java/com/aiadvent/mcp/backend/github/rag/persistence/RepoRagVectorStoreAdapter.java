@@ -1,27 +1,70 @@
 package com.aiadvent.mcp.backend.github.rag.persistence;
 
+import com.aiadvent.mcp.backend.config.GitHubRagProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
 
 @Component
 public class RepoRagVectorStoreAdapter {
 
+  private static final String TABLE_NAME = "repo_rag_vector_store";
+  private static final String INSERT_PREFIX =
+      "INSERT INTO " + TABLE_NAME + " (id, content, metadata, embedding) VALUES ";
+  private static final String INSERT_ROW = "(?, ?, ?::jsonb, ?::vector)";
+  private static final String DELETE_FILES_SQL =
+      "DELETE FROM " + TABLE_NAME + " WHERE namespace = ? AND file_path = ANY(?)";
+  private static final String SELECT_FILE_CHUNKS_SQL =
+      "SELECT id, chunk_hash, chunk_index, metadata ->> 'span_hash' AS span_hash,"
+          + " metadata::text AS metadata FROM "
+          + TABLE_NAME
+          + " WHERE namespace = ? AND file_path = ? FOR UPDATE";
+  private static final String SELECT_FILE_HASHES_SQL =
+      "SELECT chunk_hash FROM " + TABLE_NAME + " WHERE namespace = ? AND file_path = ?";
+  private static final String DELETE_IDS_SQL = "DELETE FROM " + TABLE_NAME + " WHERE id = ANY(?)";
+  private static final String UPDATE_METADATA_SQL =
+      "UPDATE " + TABLE_NAME + " SET metadata = ?::jsonb WHERE id = ?";
+
   private final VectorStore vectorStore;
   private final RepoRagDocumentRepository documentRepository;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectMapper objectMapper;
+  private final GitHubRagProperties properties;
 
   public RepoRagVectorStoreAdapter(
       @Qualifier("repoRagVectorStore") VectorStore vectorStore,
-      RepoRagDocumentRepository documentRepository) {
+      RepoRagDocumentRepository documentRepository,
+      JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      ObjectMapper objectMapper,
+      GitHubRagProperties properties) {
     this.vectorStore = vectorStore;
     this.documentRepository = documentRepository;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.objectMapper = objectMapper;
+    this.properties = properties;
   }
 
   public void addDocuments(List<Document> documents) {
@@ -48,11 +91,281 @@ public class RepoRagVectorStoreAdapter {
     addDocuments(documents);
   }
 
-  public void deleteFile(String namespace, String filePath) {
+  /**
+   * Swaps the stored chunks of several files for documents that were already embedded. All files
+   * are replaced in one transaction: a single delete followed by multi-row inserts, so readers
+   * either see the old chunk set of a file or the complete new one.
+   */
+  public ChunkDiffResult replaceFiles(String namespace, List<EmbeddedFile> files) {
+    if (CollectionUtils.isEmpty(files)) {
+      return ChunkDiffResult.EMPTY;
+    }
+    List<EmbeddedRow> rows = new ArrayList<>();
+    String[] paths = new String[files.size()];
+    for (int i = 0; i < files.size(); i++) {
+      EmbeddedFile file = files.get(i);
+      if (file.documents().size() != file.embeddings().size()) {
+        throw new IllegalArgumentException(
+            "Embeddings count does not match documents for " + file.filePath());
+      }
+      paths[i] = file.filePath();
+      for (int j = 0; j < file.documents().size(); j++) {
+        rows.add(new EmbeddedRow(file.documents().get(j), file.embeddings().get(j)));
+      }
+    }
+    int rowsPerStatement = Math.max(1, properties.getEmbedding().getBatch().getInsertBatchRows());
+    return transactionTemplate.execute(
+        status -> {
+          int deleted =
+              jdbcTemplate.update(
+                  DELETE_FILES_SQL,
+                  ps -> {
+                    ps.setString(1, namespace);
+                    Array array = ps.getConnection().createArrayOf("text", paths);
+                    ps.setArray(2, array);
+                  });
+          for (int from = 0; from < rows.size(); from += rowsPerStatement) {
+            insertRows(rows.subList(from, Math.min(rows.size(), from + rowsPerStatement)));
+          }
+          return new ChunkDiffResult(rows.size(), deleted, 0);
+        });
+  }
+
+  /**
+   * Reconciles the stored chunks of each file with its new chunk set instead of swapping the whole
+   * file. Rows whose {@code chunk_hash} survives are kept (their metadata is rewritten whenever it
+   * differs from the new chunk's: a move, fresh AST symbols or a new source ref), removed chunks
+   * are deleted and only new chunks are inserted. Documents may
+   * carry a {@code null} embedding when the caller expects them to match a stored row; such a
+   * document that ends up without a match borrows the vector of a same-hash sibling in the file.
+   */
+  public ChunkDiffResult applyChunkDiff(String namespace, List<EmbeddedFile> files) {
+    if (CollectionUtils.isEmpty(files)) {
+      return ChunkDiffResult.EMPTY;
+    }
+    int rowsPerStatement = Math.max(1, properties.getEmbedding().getBatch().getInsertBatchRows());
+    return transactionTemplate.execute(
+        status -> {
+          ChunkDiffResult total = ChunkDiffResult.EMPTY;
+          for (EmbeddedFile file : files) {
+            total = total.plus(diffFile(namespace, file, rowsPerStatement));
+          }
+          return total;
+        });
+  }
+
+  /** Chunk hashes currently stored for the file, with duplicates preserved. */
+  public List<String> listChunkHashes(String namespace, String filePath) {
+    return jdbcTemplate.queryForList(SELECT_FILE_HASHES_SQL, String.class, namespace, filePath);
+  }
+
+  public int deleteFile(String namespace, String filePath) {
     List<UUID> ids = documentRepository.findIdsByNamespaceAndFilePath(namespace, filePath);
     if (ids.isEmpty()) {
-      return;
+      return 0;
     }
     vectorStore.delete(ids.stream().map(UUID::toString).collect(Collectors.toList()));
+    return ids.size();
+  }
+
+  private ChunkDiffResult diffFile(String namespace, EmbeddedFile file, int rowsPerStatement) {
+    List<Document> documents = file.documents();
+    if (documents.size() != file.embeddings().size()) {
+      throw new IllegalArgumentException(
+          "Embeddings count does not match documents for " + file.filePath());
+    }
+    List<StoredChunk> stored =
+        jdbcTemplate.query(
+            SELECT_FILE_CHUNKS_SQL,
+            (rs, rowNum) ->
+                new StoredChunk(
+                    rs.getObject("id", UUID.class),
+                    rs.getString("chunk_hash"),
+                    rs.getInt("chunk_index"),
+                    rs.getString("span_hash"),
+                    rs.getString("metadata")),
+            namespace,
+            file.filePath());
+
+    StoredChunk[] matches = new StoredChunk[documents.size()];
+    Map<String, List<StoredChunk>> unmatchedByHash = new HashMap<>();
+    for (StoredChunk chunk : stored) {
+      unmatchedByHash.computeIfAbsent(chunk.chunkHash(), key -> new ArrayList<>()).add(chunk);
+    }
+    // Same hash at the same index first, then same span, then any leftover row with that hash.
+    for (int pass = 0; pass < 3; pass++) {
+      for (int i = 0; i < documents.size(); i++) {
+        if (matches[i] != null) {
+          continue;
+        }
+        Map<String, Object> metadata = documents.get(i).getMetadata();
+        List<StoredChunk> candidates = unmatchedByHash.get(stringValue(metadata, "chunk_hash"));
+        if (candidates == null || candidates.isEmpty()) {
+          continue;
+        }
+        int index = intValue(metadata, "chunk_index", i);
+        String spanHash = stringValue(metadata, "span_hash");
+        for (int c = 0; c < candidates.size(); c++) {
+          StoredChunk candidate = candidates.get(c);
+          boolean eligible =
+              switch (pass) {
+                case 0 -> candidate.chunkIndex() == index;
+                case 1 -> Objects.equals(candidate.spanHash(), spanHash);
+                default -> true;
+              };
+          if (eligible) {
+            matches[i] = candidates.remove(c);
+            break;
+          }
+        }
+      }
+    }
+
+    Map<String, float[]> vectorsByHash = new HashMap<>();
+    for (int i = 0; i < documents.size(); i++) {
+      float[] vector = file.embeddings().get(i);
+      if (vector != null) {
+        String chunkHash = stringValue(documents.get(i).getMetadata(), "chunk_hash");
+        vectorsByHash.putIfAbsent(chunkHash, vector);
+      }
+    }
+    List<EmbeddedRow> inserts = new ArrayList<>();
+    List<Object[]> rewritten = new ArrayList<>();
+    long kept = 0;
+    for (int i = 0; i < documents.size(); i++) {
+      Document document = documents.get(i);
+      StoredChunk match = matches[i];
+      if (match != null) {
+        kept++;
+        String metadataJson = toJson(document);
+        if (!sameMetadata(match.metadata(), metadataJson)) {
+          rewritten.add(new Object[] {metadataJson, match.id()});
+        }
+        continue;
+      }
+      float[] vector = file.embeddings().get(i);
+      if (vector == null) {
+        vector = vectorsByHash.get(stringValue(document.getMetadata(), "chunk_hash"));
+      }
+      if (vector == null) {
+        throw new IllegalStateException(
+            "No embedding for new chunk " + document.getId() + " of " + file.filePath());
+      }
+      inserts.add(new EmbeddedRow(document, vector));
+    }
+
+    List<UUID> removed = new ArrayList<>();
+    unmatchedByHash.values().forEach(chunks -> chunks.forEach(chunk -> removed.add(chunk.id())));
+    if (!removed.isEmpty()) {
+      jdbcTemplate.update(
+          DELETE_IDS_SQL,
+          ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", removed.toArray())));
+    }
+    if (!rewritten.isEmpty()) {
+      jdbcTemplate.batchUpdate(UPDATE_METADATA_SQL, rewritten);
+    }
+    for (int from = 0; from < inserts.size(); from += rowsPerStatement) {
+      insertRows(inserts.subList(from, Math.min(inserts.size(), from + rowsPerStatement)));
+    }
+    return new ChunkDiffResult(inserts.size(), removed.size(), kept);
+  }
+
+  /** Compares parsed trees, since jsonb does not keep the key order or spacing it was given. */
+  private boolean sameMetadata(String storedJson, String metadataJson) {
+    if (storedJson == null) {
+      return false;
+    }
+    try {
+      JsonNode stored = objectMapper.readTree(storedJson);
+      return stored.equals(objectMapper.readTree(metadataJson));
+    } catch (JsonProcessingException ex) {
+      return false;
+    }
   }
+
+  private static String stringValue(Map<String, Object> metadata, String key) {
+    Object value = metadata.get(key);
+    return value != null ? value.toString() : null;
+  }
+
+  private static int intValue(Map<String, Object> metadata, String key, int fallback) {
+    Object value = metadata.get(key);
+    if (value instanceof Number number) {
+      return number.intValue();
+    }
+    if (value instanceof String text) {
+      try {
+        return Integer.parseInt(text);
+      } catch (NumberFormatException ignore) {
+        return fallback;
+      }
+    }
+    return fallback;
+  }
+
+  private void insertRows(List<EmbeddedRow> rows) {
+    if (rows.isEmpty()) {
+      return;
+    }
+    StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows.size() * 26);
+    sql.append(INSERT_PREFIX);
+    for (int i = 0; i < rows.size(); i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append(INSERT_ROW);
+    }
+    jdbcTemplate.update(sql.toString(), ps -> bindRows(ps, rows));
+  }
+
+  private void bindRows(PreparedStatement ps, List<EmbeddedRow> rows) throws SQLException {
+    int index = 1;
+    for (EmbeddedRow row : rows) {
+      Document document = row.document();
+      ps.setObject(index++, UUID.fromString(document.getId()));
+      ps.setString(index++, document.getText());
+      ps.setString(index++, toJson(document));
+      ps.setString(index++, toVectorLiteral(row.embedding()));
+    }
+  }
+
+  private String toJson(Document document) {
+    try {
+      return objectMapper.writeValueAsString(document.getMetadata());
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException(
+          "Failed to serialize metadata for document " + document.getId(), ex);
+    }
+  }
+
+  private String toVectorLiteral(float[] embedding) {
+    StringBuilder builder = new StringBuilder(embedding.length * 10 + 2);
+    builder.append('[');
+    for (int i = 0; i < embedding.length; i++) {
+      if (i > 0) {
+        builder.append(',');
+      }
+      builder.append(embedding[i]);
+    }
+    return builder.append(']').toString();
+  }
+
+  public record EmbeddedFile(String filePath, List<Document> documents, List<float[]> embeddings) {}
+
+  /** Row counts of a chunk-level diff: inserted, deleted and kept (including moved) chunks. */
+  public record ChunkDiffResult(long rowsWritten, long rowsDeleted, long rowsKept) {
+    public static final ChunkDiffResult EMPTY = new ChunkDiffResult(0, 0, 0);
+
+    public ChunkDiffResult plus(ChunkDiffResult other) {
+      return new ChunkDiffResult(
+          rowsWritten + other.rowsWritten,
+          rowsDeleted + other.rowsDeleted,
+          rowsKept + other.rowsKept);
+    }
+  }
+
+  private record EmbeddedRow(Document document, float[] embedding) {}
+
+  private record StoredChunk(
+      UUID id, String chunkHash, int chunkIndex, String spanHash, String metadata) {}
 }
@@ -1,8 +1,16 @@
 package com.aiadvent.mcp.backend.github.rag.postprocessing;
 
+import com.aiadvent.mcp.backend.github.rag.RepoRagSnippetCompressionPool;
+import com.aiadvent.mcp.backend.github.rag.RepoRagSnippetCompressionPool.CompressionKey;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
@@ -13,7 +21,10 @@ import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 /**
- * Compresses document snippets with an LLM to remove redundant lines.
+ * Compresses document snippets with an LLM to remove redundant lines. Snippets are compressed
+ * concurrently under the per-request and global limits of {@link RepoRagSnippetCompressionPool};
+ * whatever is not done by the request deadline keeps its original text. Results are cached per
+ * (chunk, query, model), so a repeated question does not reach the model again.
  */
 public class LlmSnippetCompressionPostProcessor implements DocumentPostProcessor {
 
@@ -21,6 +32,7 @@ public class LlmSnippetCompressionPostProcessor implements DocumentPostProcessor
       LoggerFactory.getLogger(LlmSnippetCompressionPostProcessor.class);
 
   private final ChatClient.Builder chatClientBuilder;
+  private final RepoRagSnippetCompressionPool compressionPool;
   private final int maxSnippetLines;
   private final String locale;
   private final boolean enabled;
@@ -28,11 +40,13 @@ public class LlmSnippetCompressionPostProcessor implements DocumentPostProcessor
 
   public LlmSnippetCompressionPostProcessor(
       ChatClient.Builder chatClientBuilder,
+      RepoRagSnippetCompressionPool compressionPool,
       int maxSnippetLines,
       String locale,
       boolean enabled,
       int maxCompressedDocuments) {
     this.chatClientBuilder = chatClientBuilder;
+    this.compressionPool = compressionPool;
     this.maxSnippetLines = maxSnippetLines;
     this.locale = locale != null ? locale : "ru";
     this.enabled = enabled;
@@ -44,35 +58,97 @@ public class LlmSnippetCompressionPostProcessor implements DocumentPostProcessor
     if (!enabled || CollectionUtils.isEmpty(documents)) {
       return documents;
     }
-    ChatClient chatClient = chatClientBuilder.clone().build();
-    List<Document> result = new ArrayList<>(documents.size());
-    for (int i = 0; i < documents.size(); i++) {
+    Map<Integer, String> compressedByIndex = new LinkedHashMap<>();
+    Map<Integer, CompletableFuture<String>> pending = new LinkedHashMap<>();
+    ChatClient chatClient = null;
+    long deadline = System.nanoTime() + compressionPool.timeout().toNanos();
+    Semaphore requestPermits = new Semaphore(compressionPool.requestConcurrency());
+    int limit = Math.min(documents.size(), maxCompressedDocuments);
+    for (int i = 0; i < limit; i++) {
       Document document = documents.get(i);
-      if (i >= maxCompressedDocuments || !needsCompression(document)) {
-        result.add(document);
+      if (!needsCompression(document)) {
         continue;
       }
-      try {
-        String compressed = compress(chatClient, query, document);
-        if (StringUtils.hasText(compressed)) {
-          result.add(
-              Document.builder()
-                  .id(document.getId())
-                  .text(compressed)
-                  .metadata(document.getMetadata())
-                  .score(document.getScore())
-                  .build());
-        } else {
-          result.add(document);
-        }
-      } catch (RuntimeException ex) {
-        log.debug("Snippet compression failed: {}", ex.getMessage());
+      CompressionKey key =
+          RepoRagSnippetCompressionPool.key(
+              chunkHash(document),
+              document.getText(),
+              query.text(),
+              compressionPool.model(),
+              maxSnippetLines,
+              locale);
+      String cached = compressionPool.cached(key);
+      if (cached != null) {
+        compressedByIndex.put(i, cached);
+        continue;
+      }
+      if (chatClient == null) {
+        chatClient = chatClientBuilder.clone().build();
+      }
+      ChatClient client = chatClient;
+      pending.put(
+          i,
+          compressionPool.compress(
+              key, requestPermits, deadline, () -> compress(client, query, document)));
+    }
+    int timedOut = 0;
+    for (Map.Entry<Integer, CompletableFuture<String>> entry : pending.entrySet()) {
+      String compressed = await(entry.getValue(), deadline);
+      if (compressed == null && !entry.getValue().isDone()) {
+        timedOut++;
+      }
+      if (compressed != null) {
+        compressedByIndex.put(entry.getKey(), compressed);
+      }
+    }
+    if (timedOut > 0) {
+      compressionPool.recordTimeouts(timedOut);
+      log.debug("Snippet compression deadline reached, {} snippet(s) left uncompressed", timedOut);
+    }
+    if (compressedByIndex.isEmpty()) {
+      return documents;
+    }
+    List<Document> result = new ArrayList<>(documents.size());
+    for (int i = 0; i < documents.size(); i++) {
+      Document document = documents.get(i);
+      String compressed = compressedByIndex.get(i);
+      if (StringUtils.hasText(compressed)) {
+        result.add(
+            Document.builder()
+                .id(document.getId())
+                .text(compressed)
+                .metadata(document.getMetadata())
+                .score(document.getScore())
+                .build());
+      } else {
         result.add(document);
       }
     }
     return List.copyOf(result);
   }
 
+  private String await(CompletableFuture<String> future, long deadline) {
+    try {
+      long remaining = Math.max(0L, deadline - System.nanoTime());
+      return future.get(remaining, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException ex) {
+      // a started call keeps running and still fills the cache for the next request
+      return null;
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+      log.debug("Snippet compression failed: {}", cause.getMessage());
+      return null;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  private String chunkHash(Document document) {
+    Object value = document.getMetadata() != null ? document.getMetadata().get("chunk_hash") : null;
+    return value != null ? value.toString() : null;
+  }
+
   private boolean needsCompression(Document document) {
     return document.getText() != null && document.getText().lines().count() > maxSnippetLines;
   }
@@ -8,7 +8,9 @@ import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagDocumentRepository
 import com.fasterxml.jackson.databind.JsonNode;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -24,7 +26,8 @@ import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 /**
- * Expands the document list with neighbor chunks without hitting the vector store again.
+ * Expands the document list with neighbor chunks without hitting the vector store again. Neighbors
+ * of all anchors are loaded with set-based queries before the per-anchor budget is applied.
  */
 public class NeighborChunkDocumentPostProcessor implements DocumentPostProcessor {
 
@@ -64,6 +67,7 @@ public class NeighborChunkDocumentPostProcessor implements DocumentPostProcessor
         || CollectionUtils.isEmpty(documents)) {
       return documents;
     }
+    NeighborIndex index = prefetch(documents);
     Set<String> seenHashes = collectChunkHashes(documents);
     List<Document> result = new ArrayList<>();
     int inserted = 0;
@@ -73,7 +77,7 @@ public class NeighborChunkDocumentPostProcessor implements DocumentPostProcessor
         continue;
       }
       List<Document> neighbors =
-          findNeighbors(document, seenHashes, neighborLimit - inserted);
+          findNeighbors(document, index, seenHashes, neighborLimit - inserted);
       if (neighbors.isEmpty()) {
         continue;
       }
@@ -92,19 +96,147 @@ public class NeighborChunkDocumentPostProcessor implements DocumentPostProcessor
     return inserted > 0 ? List.copyOf(result) : documents;
   }
 
+  /**
+   * Plans what every anchor needs and loads it with one set-based query per namespace, so the
+   * per-anchor expansion below only reads from memory.
+   */
+  private NeighborIndex prefetch(List<Document> anchors) {
+    NeighborIndex index = new NeighborIndex();
+    switch (strategy) {
+      case LINEAR -> prefetchLinear(anchors, index);
+      case PARENT_SYMBOL -> prefetchParentSymbol(anchors, index);
+      case CALL_GRAPH -> {
+        if (callGraphAllowed) {
+          prefetchCallGraph(anchors, index);
+        }
+      }
+      case OFF -> {}
+    }
+    return index;
+  }
+
+  private void prefetchLinear(List<Document> anchors, NeighborIndex index) {
+    if (neighborRadius <= 0) {
+      return;
+    }
+    Map<String, Set<String>> filePathsByNamespace = new LinkedHashMap<>();
+    Map<String, Set<Integer>> indexesByNamespace = new LinkedHashMap<>();
+    for (Document anchor : anchors) {
+      String namespace = extractNamespace(anchor);
+      String filePath = extractFilePath(anchor);
+      Integer chunkIndex = extractChunkIndex(anchor);
+      if (!StringUtils.hasText(namespace) || !StringUtils.hasText(filePath) || chunkIndex == null) {
+        continue;
+      }
+      filePathsByNamespace.computeIfAbsent(namespace, key -> new LinkedHashSet<>()).add(filePath);
+      indexesByNamespace
+          .computeIfAbsent(namespace, key -> new LinkedHashSet<>())
+          .addAll(linearIndexes(chunkIndex));
+    }
+    filePathsByNamespace.forEach(
+        (namespace, filePaths) -> {
+          List<RepoRagDocumentEntity> entities =
+              documentRepository.findByNamespaceAndFilePathInAndChunkIndexIn(
+                  namespace, filePaths, indexesByNamespace.get(namespace));
+          if (entities == null) {
+            return;
+          }
+          for (RepoRagDocumentEntity entity : entities) {
+            index.byChunk.putIfAbsent(
+                new ChunkKey(namespace, entity.getFilePath(), entity.getChunkIndex()), entity);
+          }
+        });
+  }
+
+  private void prefetchParentSymbol(List<Document> anchors, NeighborIndex index) {
+    Map<String, Set<String>> filePathsByNamespace = new LinkedHashMap<>();
+    for (Document anchor : anchors) {
+      String namespace = extractNamespace(anchor);
+      String filePath = extractFilePath(anchor);
+      if (!StringUtils.hasText(namespace)
+          || !StringUtils.hasText(filePath)
+          || !StringUtils.hasText(resolveParentSymbol(anchor))) {
+        continue;
+      }
+      filePathsByNamespace.computeIfAbsent(namespace, key -> new LinkedHashSet<>()).add(filePath);
+    }
+    filePathsByNamespace.forEach(
+        (namespace, filePaths) -> {
+          List<RepoRagDocumentEntity> entities =
+              documentRepository.findByNamespaceAndFilePathIn(namespace, filePaths);
+          if (entities == null) {
+            return;
+          }
+          for (RepoRagDocumentEntity entity : entities) {
+            index
+                .byFile
+                .computeIfAbsent(
+                    new FileKey(namespace, entity.getFilePath()), key -> new ArrayList<>())
+                .add(entity);
+          }
+        });
+  }
+
+  private void prefetchCallGraph(List<Document> anchors, NeighborIndex index) {
+    Map<String, Set<String>> symbolsByNamespace = new LinkedHashMap<>();
+    for (Document anchor : anchors) {
+      String namespace = extractNamespace(anchor);
+      String symbol = extractSymbolFqn(anchor);
+      if (!StringUtils.hasText(namespace) || !StringUtils.hasText(symbol)) {
+        continue;
+      }
+      symbolsByNamespace.computeIfAbsent(namespace, key -> new LinkedHashSet<>()).add(symbol);
+    }
+    Map<String, Set<String>> hashesByNamespace = new LinkedHashMap<>();
+    symbolsByNamespace.forEach(
+        (namespace, symbols) -> {
+          Map<String, List<SymbolNeighbor>> referencesBySymbol =
+              symbolService.findCallGraphNeighborsBatch(namespace, symbols);
+          for (String symbol : symbols) {
+            List<SymbolNeighbor> references =
+                referencesBySymbol != null ? referencesBySymbol.get(symbol) : null;
+            index.references.put(
+                new SymbolKey(namespace, symbol), references != null ? references : List.of());
+            if (references == null) {
+              continue;
+            }
+            for (SymbolNeighbor reference : references) {
+              if (StringUtils.hasText(reference.chunkHash())) {
+                hashesByNamespace
+                    .computeIfAbsent(namespace, ignored -> new LinkedHashSet<>())
+                    .add(reference.chunkHash());
+              }
+            }
+          }
+        });
+    hashesByNamespace.forEach(
+        (namespace, hashes) -> {
+          List<RepoRagDocumentEntity> entities =
+              documentRepository.findByNamespaceAndChunkHashIn(namespace, new ArrayList<>(hashes));
+          if (entities == null) {
+            return;
+          }
+          for (RepoRagDocumentEntity entity : entities) {
+            index.byHash.putIfAbsent(new ChunkHashKey(namespace, entity.getChunkHash()), entity);
+          }
+        });
+  }
+
   private List<Document> findNeighbors(
-      Document anchor, Set<String> seenHashes, int remainingBudget) {
+      Document anchor, NeighborIndex index, Set<String> seenHashes, int remainingBudget) {
     return switch (strategy) {
-      case LINEAR -> expandLinear(anchor, seenHashes, remainingBudget);
-      case PARENT_SYMBOL -> expandParentSymbol(anchor, seenHashes, remainingBudget);
+      case LINEAR -> expandLinear(anchor, index, seenHashes, remainingBudget);
+      case PARENT_SYMBOL -> expandParentSymbol(anchor, index, seenHashes, remainingBudget);
       case CALL_GRAPH ->
-          callGraphAllowed ? expandCallGraph(anchor, seenHashes, remainingBudget) : List.of();
+          callGraphAllowed
+              ? expandCallGraph(anchor, index, seenHashes, remainingBudget)
+              : List.of();
       case OFF -> List.of();
     };
   }
 
   private List<Document> expandLinear(
-      Document anchor, Set<String> seenHashes, int remainingBudget) {
+      Document anchor, NeighborIndex index, Set<String> seenHashes, int remainingBudget) {
     if (neighborRadius <= 0) {
       return List.of();
     }
@@ -114,39 +246,40 @@ public class NeighborChunkDocumentPostProcessor implements DocumentPostProcessor
     if (!StringUtils.hasText(namespace) || !StringUtils.hasText(filePath) || chunkIndex == null) {
       return List.of();
     }
-    List<Integer> orderedIndexes = new ArrayList<>();
-    for (int offset = 1; offset <= neighborRadius; offset++) {
-      if (chunkIndex - offset >= 0) {
-        orderedIndexes.add(chunkIndex - offset);
-      }
-      orderedIndexes.add(chunkIndex + offset);
-    }
     return loadChunkIndexNeighbors(
         namespace,
         filePath,
-        orderedIndexes,
+        linearIndexes(chunkIndex),
+        index,
         seenHashes,
         remainingBudget,
         extractSpanHash(anchor),
         anchor.getScore());
   }
 
+  private List<Integer> linearIndexes(int chunkIndex) {
+    List<Integer> orderedIndexes = new ArrayList<>();
+    for (int offset = 1; offset <= neighborRadius; offset++) {
+      if (chunkIndex - offset >= 0) {
+        orderedIndexes.add(chunkIndex - offset);
+      }
+      orderedIndexes.add(chunkIndex + offset);
+    }
+    return orderedIndexes;
+  }
+
   private List<Document> expandParentSymbol(
-      Document anchor, Set<String> seenHashes, int remainingBudget) {
+      Document anchor, NeighborIndex index, Set<String> seenHashes, int remainingBudget) {
     String namespace = extractNamespace(anchor);
     String filePath = extractFilePath(anchor);
-    String candidateSymbol = extractSymbolFqn(anchor);
-    if (!StringUtils.hasText(candidateSymbol)) {
-      candidateSymbol = extractParentSymbol(anchor);
-    }
+    String candidateSymbol = resolveParentSymbol(anchor);
     if (!StringUtils.hasText(namespace)
         || !StringUtils.hasText(filePath)
         || !StringUtils.hasText(candidateSymbol)) {
       return List.of();
     }
     final String symbol = candidateSymbol;
-    List<RepoRagDocumentEntity> entities =
-        documentRepository.findByNamespaceAndFilePath(namespace, filePath);
+    List<RepoRagDocumentEntity> entities = index.byFile.get(new FileKey(namespace, filePath));
     if (CollectionUtils.isEmpty(entities)) {
       log.debug(
           "No parent-symbol neighbors found (namespace={}, file={})",
@@ -167,6 +300,14 @@ public class NeighborChunkDocumentPostProcessor implements DocumentPostProcessor
         anchor.getScore());
   }
 
+  private String resolveParentSymbol(Document anchor) {
+    String candidateSymbol = extractSymbolFqn(anchor);
+    if (!StringUtils.hasText(candidateSymbol)) {
+      candidateSymbol = extractParentSymbol(anchor);
+    }
+    return candidateSymbol;
+  }
+
   private boolean symbolMatches(RepoRagDocumentEntity entity, String target) {
     JsonNode metadata = entity.getMetadata();
     if (metadata == null || metadata.isNull()) {
@@ -181,7 +322,7 @@ public class NeighborChunkDocumentPostProcessor implements DocumentPostProcessor
   }
 
   private List<Document> expandCallGraph(
-      Document anchor, Set<String> seenHashes, int remainingBudget) {
+      Document anchor, NeighborIndex index, Set<String> seenHashes, int remainingBudget) {
     String namespace = extractNamespace(anchor);
     String symbol = extractSymbolFqn(anchor);
     if (!StringUtils.hasText(namespace) || !StringUtils.hasText(symbol)) {
@@ -193,8 +334,7 @@ public class NeighborChunkDocumentPostProcessor implements DocumentPostProcessor
           namespace);
       return List.of();
     }
-    List<SymbolNeighbor> references =
-        symbolService.findCallGraphNeighbors(namespace, symbol);
+    List<SymbolNeighbor> references = index.references.get(new SymbolKey(namespace, symbol));
     if (CollectionUtils.isEmpty(references)) {
       log.debug(
           "Call graph neighbors not available for namespace={}, symbol={}",
@@ -205,6 +345,7 @@ public class NeighborChunkDocumentPostProcessor implements DocumentPostProcessor
     return loadChunkHashNeighbors(
         namespace,
         references,
+        index,
         seenHashes,
         remainingBudget,
         extractSpanHash(anchor),
@@ -214,6 +355,7 @@ public class NeighborChunkDocumentPostProcessor implements DocumentPostProcessor
   private List<Document> loadChunkHashNeighbors(
       String namespace,
       List<SymbolNeighbor> orderedNeighbors,
+      NeighborIndex index,
       Set<String> seenHashes,
       int remainingBudget,
       String anchorSpanHash,
@@ -230,22 +372,12 @@ public class NeighborChunkDocumentPostProcessor implements DocumentPostProcessor
     }
     List<String> orderedHashes =
         filtered.stream().map(SymbolNeighbor::chunkHash).distinct().toList();
-    List<RepoRagDocumentEntity> entities =
-        documentRepository.findByNamespaceAndChunkHashIn(namespace, orderedHashes);
-    if (CollectionUtils.isEmpty(entities)) {
-      log.debug(
-          "No call-graph neighbors fetched for namespace={}, hashes={}", namespace, orderedHashes);
-      return List.of();
-    }
-    Map<String, RepoRagDocumentEntity> byHash =
-        entities.stream()
-            .collect(Collectors.toMap(RepoRagDocumentEntity::getChunkHash, entity -> entity));
     Map<String, SymbolNeighbor> neighborByHash =
         filtered.stream()
             .collect(Collectors.toMap(SymbolNeighbor::chunkHash, n -> n, (a, b) -> a));
     List<Document> ordered = new ArrayList<>();
     for (String hash : orderedHashes) {
-      RepoRagDocumentEntity entity = byHash.get(hash);
+      RepoRagDocumentEntity entity = index.byHash.get(new ChunkHashKey(namespace, hash));
       if (entity == null) {
         continue;
       }
@@ -267,6 +399,10 @@ public class NeighborChunkDocumentPostProcessor implements DocumentPostProcessor
         break;
       }
     }
+    if (ordered.isEmpty()) {
+      log.debug(
+          "No call-graph neighbors fetched for namespace={}, hashes={}", namespace, orderedHashes);
+    }
     return ordered;
   }
 
@@ -274,6 +410,7 @@ public class NeighborChunkDocumentPostProcessor implements DocumentPostProcessor
       String namespace,
       String filePath,
       List<Integer> orderedIndexes,
+      NeighborIndex index,
       Set<String> seenHashes,
       int remainingBudget,
       String anchorSpanHash,
@@ -281,26 +418,10 @@ public class NeighborChunkDocumentPostProcessor implements DocumentPostProcessor
     if (CollectionUtils.isEmpty(orderedIndexes)) {
       return List.of();
     }
-    List<Integer> uniqueIndexes =
-        orderedIndexes.stream().distinct().collect(Collectors.toList());
-    List<RepoRagDocumentEntity> entities =
-        documentRepository.findByNamespaceAndFilePathAndChunkIndexIn(
-            namespace, filePath, uniqueIndexes);
-    if (CollectionUtils.isEmpty(entities)) {
-      log.debug(
-          "No linear neighbors fetched for namespace={}, file={}, indexes={}",
-          namespace,
-          filePath,
-          uniqueIndexes);
-      return List.of();
-    }
-    Map<Integer, RepoRagDocumentEntity> byIndex =
-        entities.stream()
-            .collect(Collectors.toMap(
-                RepoRagDocumentEntity::getChunkIndex, entity -> entity, (a, b) -> a));
     List<Document> ordered = new ArrayList<>();
-    for (Integer index : orderedIndexes) {
-      RepoRagDocumentEntity entity = byIndex.get(index);
+    for (Integer chunkIndex : orderedIndexes) {
+      RepoRagDocumentEntity entity =
+          index.byChunk.get(new ChunkKey(namespace, filePath, chunkIndex));
       if (entity == null) {
         continue;
       }
@@ -316,6 +437,13 @@ public class NeighborChunkDocumentPostProcessor implements DocumentPostProcessor
         break;
       }
     }
+    if (ordered.isEmpty()) {
+      log.debug(
+          "No linear neighbors fetched for namespace={}, file={}, indexes={}",
+          namespace,
+          filePath,
+          orderedIndexes);
+    }
     return ordered;
   }
 
@@ -443,4 +571,20 @@ public class NeighborChunkDocumentPostProcessor implements DocumentPostProcessor
     }
     return null;
   }
+
+  /** Entities loaded up front for all anchors of one {@link #process} call. */
+  private static final class NeighborIndex {
+    private final Map<ChunkKey, RepoRagDocumentEntity> byChunk = new HashMap<>();
+    private final Map<FileKey, List<RepoRagDocumentEntity>> byFile = new HashMap<>();
+    private final Map<SymbolKey, List<SymbolNeighbor>> references = new HashMap<>();
+    private final Map<ChunkHashKey, RepoRagDocumentEntity> byHash = new HashMap<>();
+  }
+
+  private record ChunkKey(String namespace, String filePath, Integer chunkIndex) {}
+
+  private record FileKey(String namespace, String filePath) {}
+
+  private record SymbolKey(String namespace, String symbolFqn) {}
+
+  private record ChunkHashKey(String namespace, String chunkHash) {}
 }
@@ -117,4 +117,30 @@ class RepoAnalysisServiceTest {
     assertThat(Files.exists(mdReport)).isTrue();
     assertThat(second.summary().totalFindings()).isZero();
   }
+
+  @Test
+  void recoversActiveStateFromJournal() throws IOException {
+    Files.writeString(workspacePath.resolve("src/main/Large.java"), "// line\n".repeat(400));
+    ScanNextSegmentRequest request =
+        new ScanNextSegmentRequest("a2", "ws1", null, false, null, null);
+
+    service.scanNextSegment(request);
+    service.scanNextSegment(request);
+
+    assertThat(Files.exists(properties.stateRootPath().resolve("a2.journal"))).isTrue();
+    RepoAnalysisState live = stateStore.load("a2").orElseThrow();
+    RepoAnalysisState recovered = new RepoAnalysisStateStore(properties).load("a2").orElseThrow();
+
+    assertThat(recovered.getProcessedSegments()).isEqualTo(2);
+    assertThat(recovered.getJournalSequence()).isEqualTo(live.getJournalSequence());
+    assertThat(cursors(recovered.getPending())).isEqualTo(cursors(live.getPending()));
+    assertThat(cursors(recovered.getProcessed())).isEqualTo(cursors(live.getProcessed()));
+  }
+
+  private List<String> cursors(List<RepoAnalysisState.FileCursor> cursors) {
+    return cursors.stream()
+        .map(cursor -> cursor.getPath() + "@" + cursor.getOffset())
+        .sorted()
+        .toList();
+  }
 }
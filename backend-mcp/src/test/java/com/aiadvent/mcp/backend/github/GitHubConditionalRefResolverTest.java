@@ -0,0 +1,79 @@
+package com.aiadvent.mcp.backend.github;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.aiadvent.mcp.backend.config.GitHubBackendProperties;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GitHubConditionalRefResolverTest {
+
+  private static final String SHA = "0123456789abcdef0123456789abcdef01234567";
+
+  private HttpServer server;
+  private final List<String> requests = new CopyOnWriteArrayList<>();
+  private GitHubConditionalRefResolver resolver;
+  private SimpleMeterRegistry registry;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext(
+        "/repos/owner/app/commits/",
+        exchange -> {
+          String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+          requests.add(exchange.getRequestURI().getPath() + "|" + ifNoneMatch);
+          if ("\"etag-1\"".equals(ifNoneMatch)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+          }
+          byte[] body = SHA.getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().add("ETag", "\"etag-1\"");
+          exchange.sendResponseHeaders(200, body.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+          }
+        });
+    server.start();
+    GitHubBackendProperties properties = new GitHubBackendProperties();
+    properties.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+    registry = new SimpleMeterRegistry();
+    resolver = new GitHubConditionalRefResolver(properties, () -> "token", registry);
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+  }
+
+  @Test
+  void revalidatesWithEtagAndReusesShaOnNotModified() {
+    assertThat(resolver.resolve("owner/app", "heads/main", Duration.ZERO)).isEqualTo(SHA);
+    assertThat(resolver.resolve("owner/app", "heads/main", Duration.ZERO)).isEqualTo(SHA);
+
+    assertThat(requests)
+        .containsExactly("/repos/owner/app/commits/main|null", "/repos/owner/app/commits/main|\"etag-1\"");
+    assertThat(registry.counter("github_conditional_requests_total", "result", "not_modified").count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void skipsRequestsWhileFreshAndForCommitShas() {
+    resolver.resolve("owner/app", "main", Duration.ofMinutes(5));
+    resolver.resolve("owner/app", "main", Duration.ofMinutes(5));
+
+    assertThat(resolver.resolve("owner/app", SHA.toUpperCase(), Duration.ZERO)).isEqualTo(SHA);
+    assertThat(requests).hasSize(1);
+  }
+}
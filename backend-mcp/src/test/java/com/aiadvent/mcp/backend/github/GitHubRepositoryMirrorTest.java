@@ -0,0 +1,77 @@
+package com.aiadvent.mcp.backend.github;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.aiadvent.mcp.backend.config.GitHubBackendProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GitHubRepositoryMirrorTest {
+
+  private static final String SHA_1 = "0123456789abcdef0123456789abcdef01234567";
+  private static final String SHA_2 = "89abcdef0123456789abcdef0123456789abcdef";
+
+  @TempDir Path tempDir;
+
+  @Test
+  void materializesStoredCommitAsIndependentWritableCopy() throws IOException {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    GitHubRepositoryMirror mirror = mirror(1024, registry);
+    Path source = workspace("source", "class App {}");
+    Files.writeString(source.resolve(".workspace.json"), "{}");
+
+    assertThat(mirror.materialize("owner/app", SHA_1, tempDir.resolve("miss"))).isEmpty();
+    mirror.store("owner/app", SHA_1, source, 12);
+
+    Path target = Files.createDirectories(tempDir.resolve("target"));
+    GitHubRepositoryMirror.Materialization materialization =
+        mirror.materialize("Owner/App", SHA_1.toUpperCase(), target).orElseThrow();
+
+    assertThat(materialization.bytesServed()).isEqualTo(12);
+    assertThat(target.resolve("src/App.java")).hasContent("class App {}");
+    assertThat(target.resolve(".workspace.json")).doesNotExist();
+
+    Files.writeString(target.resolve("src/App.java"), "class Changed {}");
+    Path second = Files.createDirectories(tempDir.resolve("second"));
+    mirror.materialize("owner/app", SHA_1, second).orElseThrow();
+    assertThat(second.resolve("src/App.java")).hasContent("class App {}");
+
+    assertThat(registry.counter("github_repository_mirror_requests_total", "result", "hit").count())
+        .isEqualTo(2.0);
+    assertThat(registry.counter("github_repository_mirror_requests_total", "result", "miss").count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedCommitOverByteBudget() throws IOException {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    GitHubRepositoryMirror mirror = mirror(20, registry);
+
+    mirror.store("owner/app", SHA_1, workspace("first", "one"), 12);
+    mirror.store("owner/app", SHA_2, workspace("second", "two"), 12);
+
+    assertThat(mirror.materialize("owner/app", SHA_1, tempDir.resolve("a"))).isEmpty();
+    assertThat(mirror.materialize("owner/app", SHA_2, tempDir.resolve("b"))).isPresent();
+    assertThat(registry.counter("github_repository_mirror_evictions_total").count()).isEqualTo(1.0);
+    assertThat(registry.get("github_repository_mirror_bytes").gauge().value()).isEqualTo(12.0);
+  }
+
+  private GitHubRepositoryMirror mirror(long maxBytes, SimpleMeterRegistry registry) {
+    GitHubBackendProperties properties = new GitHubBackendProperties();
+    properties.setMirrorRoot(tempDir.resolve("mirror").toString());
+    properties.setMirrorMaxBytes(maxBytes);
+    return new GitHubRepositoryMirror(properties, Set.of(".workspace.json"), registry);
+  }
+
+  private Path workspace(String name, String content) throws IOException {
+    Path root = Files.createDirectories(tempDir.resolve(name).resolve("src"));
+    Files.writeString(root.resolve("App.java"), content, StandardCharsets.UTF_8);
+    return root.getParent();
+  }
+}
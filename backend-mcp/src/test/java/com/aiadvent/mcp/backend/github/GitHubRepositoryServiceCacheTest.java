@@ -0,0 +1,226 @@
+package com.aiadvent.mcp.backend.github;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.aiadvent.mcp.backend.config.GitHubBackendProperties;
+import com.aiadvent.mcp.backend.github.GitHubRepositoryService.ListRepositoryTreeInput;
+import com.aiadvent.mcp.backend.github.GitHubRepositoryService.ListRepositoryTreeResult;
+import com.aiadvent.mcp.backend.github.GitHubRepositoryService.ReadFileInput;
+import com.aiadvent.mcp.backend.github.GitHubRepositoryService.ReadFileResult;
+import com.aiadvent.mcp.backend.github.GitHubRepositoryService.RepositoryRef;
+import com.aiadvent.mcp.backend.github.rag.RepoRagIndexScheduler;
+import com.aiadvent.mcp.backend.github.workspace.TempWorkspaceService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.GHContent;
+import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.GHTree;
+import org.kohsuke.github.GHTreeEntry;
+import org.kohsuke.github.GitHub;
+
+class GitHubRepositoryServiceCacheTest {
+
+  private static final String SHA_1 = "1111111111111111111111111111111111111111";
+  private static final String SHA_2 = "2222222222222222222222222222222222222222";
+  private static final RepositoryRef REPOSITORY = new RepositoryRef("owner", "app", "heads/main");
+
+  private HttpServer server;
+  private final AtomicReference<String> headSha = new AtomicReference<>(SHA_1);
+  private final AtomicInteger fetches = new AtomicInteger();
+  private volatile CountDownLatch fetchStarted = new CountDownLatch(1);
+  private volatile CountDownLatch releaseFetch = new CountDownLatch(0);
+  private GitHubBackendProperties properties;
+  private GitHubClientExecutor executor;
+  private GHRepository repo;
+  private SimpleMeterRegistry registry;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext(
+        "/repos/owner/app/commits/",
+        exchange -> {
+          byte[] body = headSha.get().getBytes(StandardCharsets.UTF_8);
+          exchange.sendResponseHeaders(200, body.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+          }
+        });
+    server.start();
+    properties = new GitHubBackendProperties();
+    properties.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+    registry = new SimpleMeterRegistry();
+
+    GitHub github = mock(GitHub.class);
+    repo = mock(GHRepository.class);
+    when(github.getRepository("owner/app")).thenReturn(repo);
+    when(repo.getFileContent(anyString(), anyString()))
+        .thenAnswer(invocation -> content(invocation.getArgument(0), invocation.getArgument(1)));
+    executor = mock(GitHubClientExecutor.class);
+    when(executor.execute(any()))
+        .thenAnswer(
+            invocation -> {
+              fetches.incrementAndGet();
+              fetchStarted.countDown();
+              releaseFetch.await(5, TimeUnit.SECONDS);
+              return ((Function<GitHub, Object>) invocation.getArgument(0)).apply(github);
+            });
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+  }
+
+  @Test
+  void concurrentTreeMissesShareOneFetch() throws Exception {
+    GHTreeEntry entry = mock(GHTreeEntry.class);
+    when(entry.getPath()).thenReturn("src/App.java");
+    when(entry.getType()).thenReturn("blob");
+    when(entry.getSha()).thenReturn("blob-sha");
+    GHTree tree = mock(GHTree.class);
+    when(tree.getTree()).thenReturn(List.of(entry));
+    when(repo.getTreeRecursive(anyString(), anyInt())).thenReturn(tree);
+    GitHubRepositoryService service = newService();
+    releaseFetch = new CountDownLatch(1);
+
+    ExecutorService callers = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<ListRepositoryTreeResult>> results = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        results.add(
+            callers.submit(
+                () ->
+                    service.listRepositoryTree(
+                        new ListRepositoryTreeInput(REPOSITORY, null, true, null, null))));
+      }
+      assertThat(fetchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+      Thread.sleep(100);
+      releaseFetch.countDown();
+      for (Future<ListRepositoryTreeResult> result : results) {
+        ListRepositoryTreeResult listed = result.get(5, TimeUnit.SECONDS);
+        assertThat(listed.resolvedRef()).isEqualTo(SHA_1);
+        assertThat(listed.entries())
+            .extracting(GitHubRepositoryService.TreeEntry::path)
+            .containsExactly("src/App.java");
+      }
+    } finally {
+      callers.shutdownNow();
+    }
+
+    assertThat(fetches).hasValue(1);
+    verify(repo).getTreeRecursive(eq(SHA_1), anyInt());
+    assertThat(cacheRequests("tree", "miss")).isEqualTo(1.0);
+  }
+
+  @Test
+  void expiredFileIsReusedWhileRefStillPointsAtCachedCommit() throws Exception {
+    properties.setFileCacheTtl(Duration.ofMillis(1));
+    GitHubRepositoryService service = newService();
+
+    ReadFileResult first = service.readFile(new ReadFileInput(REPOSITORY, "README.md"));
+    Thread.sleep(20);
+    ReadFileResult second = service.readFile(new ReadFileInput(REPOSITORY, "README.md"));
+
+    assertThat(second.file()).isEqualTo(first.file());
+    assertThat(fetches).hasValue(1);
+    assertThat(cacheRequests("file", "revalidated")).isEqualTo(1.0);
+  }
+
+  @Test
+  void expiredFileIsRefetchedWhenRefMovesToAnotherCommit() throws Exception {
+    properties.setFileCacheTtl(Duration.ofMillis(1));
+    GitHubRepositoryService service = newService();
+
+    ReadFileResult first = service.readFile(new ReadFileInput(REPOSITORY, "README.md"));
+    headSha.set(SHA_2);
+    Thread.sleep(20);
+    ReadFileResult second = service.readFile(new ReadFileInput(REPOSITORY, "README.md"));
+
+    assertThat(first.file().sha()).isEqualTo("README.md@" + SHA_1);
+    assertThat(second.file().sha()).isEqualTo("README.md@" + SHA_2);
+    assertThat(fetches).hasValue(2);
+    verify(repo).getFileContent("README.md", SHA_2);
+    assertThat(cacheRequests("file", "miss")).isEqualTo(2.0);
+  }
+
+  @Test
+  void fileCacheEvictsByPayloadBytesNotEntryCount() throws Exception {
+    // each 600-byte file weighs ~2.3 KB (base64 + UTF-16 text), so two do not fit into 4 KB
+    properties.setFileCacheMaxBytes(4096L);
+    GitHubRepositoryService service = newService();
+    Cache<?, ?> fileCache = fileCache(service);
+
+    service.readFile(new ReadFileInput(REPOSITORY, "A.md"));
+    service.readFile(new ReadFileInput(REPOSITORY, "B.md"));
+    fileCache.cleanUp();
+
+    assertThat(fileCache.estimatedSize()).isEqualTo(1);
+    assertThat(fileCache.policy().eviction().orElseThrow().weightedSize().orElseThrow())
+        .isLessThanOrEqualTo(4096L);
+
+    service.readFile(new ReadFileInput(REPOSITORY, "A.md"));
+    service.readFile(new ReadFileInput(REPOSITORY, "B.md"));
+    assertThat(fetches.get()).isGreaterThanOrEqualTo(3);
+  }
+
+  private GitHubRepositoryService newService() {
+    return new GitHubRepositoryService(
+        executor,
+        properties,
+        mock(TempWorkspaceService.class),
+        mock(RepoRagIndexScheduler.class),
+        mock(GitHubTokenManager.class),
+        registry);
+  }
+
+  private GHContent content(String path, String ref) throws IOException {
+    byte[] bytes = "a".repeat(600).getBytes(StandardCharsets.UTF_8);
+    GHContent content = mock(GHContent.class);
+    when(content.getPath()).thenReturn(path);
+    when(content.getSha()).thenReturn(path + "@" + ref);
+    when(content.getSize()).thenReturn((long) bytes.length);
+    when(content.getEncoding()).thenReturn("base64");
+    when(content.read()).thenReturn(new ByteArrayInputStream(bytes));
+    return content;
+  }
+
+  private double cacheRequests(String cache, String result) {
+    return registry.counter("github_cache_requests_total", "cache", cache, "result", result).count();
+  }
+
+  private static Cache<?, ?> fileCache(GitHubRepositoryService service) throws Exception {
+    Field field = GitHubRepositoryService.class.getDeclaredField("fileCache");
+    field.setAccessible(true);
+    return (Cache<?, ?>) field.get(service);
+  }
+}
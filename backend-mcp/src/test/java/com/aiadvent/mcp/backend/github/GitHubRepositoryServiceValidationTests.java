@@ -10,18 +10,28 @@ import com.aiadvent.mcp.backend.github.GitHubRepositoryService.CommitFileChange;
 import com.aiadvent.mcp.backend.github.GitHubRepositoryService.RepositoryRef;
 import com.aiadvent.mcp.backend.github.rag.RepoRagIndexScheduler;
 import com.aiadvent.mcp.backend.github.workspace.TempWorkspaceService;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
 
 class GitHubRepositoryServiceValidationTests {
 
   private GitHubRepositoryService service;
 
+  @TempDir Path tempDir;
+
   @BeforeEach
   void setUp() {
     GitHubClientExecutor executor = mock(GitHubClientExecutor.class, Mockito.RETURNS_DEEP_STUBS);
@@ -127,6 +137,73 @@ class GitHubRepositoryServiceValidationTests {
     assertThat(deletions).isEqualTo(7);
   }
 
+  @Test
+  void extractZipArchive_stripsRootFolderAndWritesAllEntriesInParallel() throws Exception {
+    Map<String, String> entries = new LinkedHashMap<>();
+    entries.put("demo-abc123/", null);
+    entries.put("demo-abc123/README.md", "# demo");
+    for (int i = 0; i < 64; i++) {
+      entries.put("demo-abc123/src/pkg" + (i % 4) + "/File" + i + ".java", "class File" + i + " {}");
+    }
+    Path archive = zip(entries);
+    Path workspace = Files.createDirectories(tempDir.resolve("workspace"));
+
+    long written = extract(archive, workspace, 0L);
+
+    assertThat(workspace.resolve("README.md")).hasContent("# demo");
+    assertThat(workspace.resolve("src/pkg3/File63.java")).hasContent("class File63 {}");
+    try (var files = Files.walk(workspace)) {
+      assertThat(files.filter(Files::isRegularFile).count()).isEqualTo(65);
+    }
+    assertThat(written)
+        .isEqualTo(
+            entries.values().stream()
+                .filter(value -> value != null)
+                .mapToLong(value -> value.getBytes(StandardCharsets.UTF_8).length)
+                .sum());
+  }
+
+  @Test
+  void extractZipArchive_rejectsTraversalAndOversizedArchives() throws Exception {
+    Path workspace = Files.createDirectories(tempDir.resolve("workspace"));
+    Map<String, String> traversal = new LinkedHashMap<>();
+    traversal.put("demo-abc123/README.md", "# demo");
+    traversal.put("demo-abc123/../escape.txt", "oops");
+    Path traversalArchive = zip(traversal);
+
+    assertThatThrownBy(() -> extract(traversalArchive, workspace, 0L))
+        .hasMessageContaining("illegal path traversal");
+    assertThat(tempDir.resolve("escape.txt")).doesNotExist();
+
+    Path oversized = zip(Map.of("demo-abc123/big.txt", "x".repeat(4096)));
+    assertThatThrownBy(() -> extract(oversized, workspace, 1024L))
+        .hasMessageContaining("exceeds configured limit 1024 bytes");
+  }
+
+  private Path zip(Map<String, String> entries) throws IOException {
+    Path archive = Files.createTempFile(tempDir, "archive", ".zip");
+    try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))) {
+      for (Map.Entry<String, String> entry : entries.entrySet()) {
+        out.putNextEntry(new ZipEntry(entry.getKey()));
+        if (entry.getValue() != null) {
+          out.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+        out.closeEntry();
+      }
+    }
+    return archive;
+  }
+
+  private long extract(Path archive, Path workspace, long archiveSizeLimit) throws Exception {
+    return invoke(
+        "extractZipArchive",
+        new Class<?>[] {Path.class, Path.class, long.class, long.class},
+        archive,
+        workspace,
+        archiveSizeLimit,
+        0L);
+  }
+
   @SuppressWarnings("unchecked")
   private <T> T invoke(String methodName, Class<?> parameterType, Object argument)
       throws Exception {
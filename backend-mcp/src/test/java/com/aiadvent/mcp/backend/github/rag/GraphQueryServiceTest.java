@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.aiadvent.mcp.backend.config.GitHubRagProperties;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -106,6 +107,28 @@ class GraphQueryServiceTest {
         .contains("com.demo.A#foo", "com.demo.B#bar");
   }
 
+  @Test
+  void returnsNeighborsAndPathsForSeveralSymbolsInOneQuery() {
+    GraphQueryService.SymbolRef caller = new GraphQueryService.SymbolRef(NAMESPACE, "com.demo.A#foo");
+    GraphQueryService.SymbolRef missing =
+        new GraphQueryService.SymbolRef(NAMESPACE, "com.demo.Missing#none");
+
+    Map<GraphQueryService.SymbolRef, GraphQueryService.GraphNeighbors> neighbors =
+        service.neighborsBatch(
+            List.of(caller, missing), GraphQueryService.Direction.OUTGOING, Set.of(), 10);
+
+    assertThat(neighbors).containsOnlyKeys(caller);
+    assertThat(neighbors.get(caller).edges())
+        .extracting(GraphQueryService.GraphEdge::to)
+        .containsExactly("com.demo.B#bar");
+
+    GraphQueryService.PathRequest request =
+        new GraphQueryService.PathRequest(NAMESPACE, "com.demo.A#foo", "com.demo.B#bar");
+    Map<GraphQueryService.PathRequest, GraphQueryService.GraphNeighbors> paths =
+        service.shortestPaths(List.of(request), Set.of("CALLS"), 4);
+    assertThat(paths.get(request).edges()).isNotEmpty();
+  }
+
   @Test
   void returnsDefinition() {
     GraphQueryService.GraphNode node =
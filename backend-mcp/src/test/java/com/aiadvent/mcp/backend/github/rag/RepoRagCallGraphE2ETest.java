@@ -18,6 +18,7 @@ import com.aiadvent.mcp.backend.github.rag.RepoRagResponseChannel;
 import com.aiadvent.mcp.backend.github.rag.RepoRagRetrievalPipeline;
 import com.aiadvent.mcp.backend.github.rag.RepoRagSearchReranker;
 import com.aiadvent.mcp.backend.github.rag.RepoRagSearchService;
+import com.aiadvent.mcp.backend.github.rag.RepoRagSnippetCompressionPool;
 import com.aiadvent.mcp.backend.github.rag.SymbolGraphWriter;
 import com.aiadvent.mcp.backend.github.rag.ast.AstFileContextFactory;
 import com.aiadvent.mcp.backend.github.rag.ast.AstTestSupport;
@@ -51,6 +52,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -78,6 +80,7 @@ class RepoRagCallGraphE2ETest {
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
   private Path workspaceDir;
+  private RepoRagSnippetCompressionPool compressionPool;
 
   @BeforeEach
   void setUpWorkspace() throws IOException {
@@ -89,6 +92,13 @@ class RepoRagCallGraphE2ETest {
     copyDirectory(fixtures, workspaceDir);
   }
 
+  @AfterEach
+  void shutdownCompressionPool() {
+    if (compressionPool != null) {
+      compressionPool.shutdown();
+    }
+  }
+
   @Test
   void fetchIndexAndSearchReturnsCallGraphNeighbors() throws IOException {
     TempWorkspaceService workspaceService = mock(TempWorkspaceService.class);
@@ -192,17 +202,17 @@ class RepoRagCallGraphE2ETest {
     List<RepoRagDocumentEntity> storedEntities = convertDocuments(indexedDocuments);
 
     RepoRagDocumentRepository documentRepository = mock(RepoRagDocumentRepository.class);
-    when(documentRepository.findByNamespaceAndFilePathAndChunkIndexIn(
-            eq(NAMESPACE), anyString(), anyCollection()))
+    when(documentRepository.findByNamespaceAndFilePathInAndChunkIndexIn(
+            eq(NAMESPACE), anyCollection(), anyCollection()))
         .thenAnswer(
             inv ->
                 filterByChunkIndexes(
                     storedEntities,
-                    (String) inv.getArgument(1),
+                    (Collection<String>) inv.getArgument(1),
                     (Collection<Integer>) inv.getArgument(2)));
-    when(documentRepository.findByNamespaceAndFilePath(eq(NAMESPACE), anyString()))
+    when(documentRepository.findByNamespaceAndFilePathIn(eq(NAMESPACE), anyCollection()))
         .thenAnswer(
-            inv -> filterByFile(storedEntities, (String) inv.getArgument(1)));
+            inv -> filterByFile(storedEntities, (Collection<String>) inv.getArgument(1)));
     when(documentRepository.findByNamespaceAndChunkHashIn(eq(NAMESPACE), anyCollection()))
         .thenAnswer(
             inv ->
@@ -239,13 +249,15 @@ class RepoRagCallGraphE2ETest {
     searchProperties.getPostProcessing().getNeighbor().setCallGraphLimit(4);
     searchProperties.getPostProcessing().setLlmCompressionEnabled(false);
 
+    compressionPool = new RepoRagSnippetCompressionPool(searchProperties, null);
     RepoRagSearchReranker reranker =
         new HeuristicRepoRagSearchReranker(
             searchProperties,
             new SingletonObjectProvider<>(ChatClient.builder(new StubChatModel())),
             documentRepository,
             documentMapper,
-            symbolService);
+            symbolService,
+            compressionPool);
 
     RepoRagRetrievalPipeline retrievalPipeline = mock(RepoRagRetrievalPipeline.class);
     Query finalQuery = Query.builder().text("DemoService helper").build();
@@ -313,16 +325,18 @@ class RepoRagCallGraphE2ETest {
   }
 
   private List<RepoRagDocumentEntity> filterByFile(
-      List<RepoRagDocumentEntity> entities, String filePath) {
+      List<RepoRagDocumentEntity> entities, Collection<String> filePaths) {
     return entities.stream()
-        .filter(entity -> entity.getFilePath().equals(filePath))
+        .filter(entity -> filePaths.contains(entity.getFilePath()))
         .collect(Collectors.toList());
   }
 
   private List<RepoRagDocumentEntity> filterByChunkIndexes(
-      List<RepoRagDocumentEntity> entities, String filePath, Collection<Integer> indexes) {
+      List<RepoRagDocumentEntity> entities,
+      Collection<String> filePaths,
+      Collection<Integer> indexes) {
     return entities.stream()
-        .filter(entity -> entity.getFilePath().equals(filePath))
+        .filter(entity -> filePaths.contains(entity.getFilePath()))
         .filter(entity -> indexes.contains(entity.getChunkIndex()))
         .collect(Collectors.toList());
   }
@@ -0,0 +1,290 @@
+package com.aiadvent.mcp.backend.github.rag;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.aiadvent.mcp.backend.config.GitHubRagProperties;
+import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagVectorStoreAdapter;
+import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagVectorStoreAdapter.ChunkDiffResult;
+import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagVectorStoreAdapter.EmbeddedFile;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+
+class RepoRagEmbeddingBatcherTest {
+
+  private static final String NAMESPACE = "repo:owner/repo";
+
+  private EmbeddingModel embeddingModel;
+  private RepoRagVectorStoreAdapter vectorStoreAdapter;
+  private GitHubRagProperties properties;
+  private RepoRagEmbeddingBatcher batcher;
+  private final List<String> stored = new CopyOnWriteArrayList<>();
+  private final List<String> failed = new CopyOnWriteArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    embeddingModel = mock(EmbeddingModel.class);
+    vectorStoreAdapter = mock(RepoRagVectorStoreAdapter.class);
+    properties = new GitHubRagProperties();
+    properties.getEmbedding().getBatch().setMaxBatchItems(4);
+    properties.getEmbedding().getBatch().setMaxBatchTokens(10_000);
+    properties.getEmbedding().getBatch().setFlushDeadline(Duration.ofMinutes(1));
+    properties.getIndexing().setChunkDiffEnabled(false);
+    when(embeddingModel.embed(anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<String> texts = invocation.getArgument(0);
+              List<float[]> vectors = new ArrayList<>(texts.size());
+              for (int i = 0; i < texts.size(); i++) {
+                vectors.add(new float[] {i});
+              }
+              return vectors;
+            });
+    batcher = new RepoRagEmbeddingBatcher(embeddingModel, vectorStoreAdapter, properties);
+  }
+
+  @AfterEach
+  void tearDown() {
+    batcher.shutdown();
+  }
+
+  @Test
+  void packsChunksFromSeveralFilesIntoOneRequest() {
+    try (RepoRagEmbeddingBatcher.Session session = batcher.openSession(NAMESPACE)) {
+      session.submit("a.txt", documents("a.txt", 2), listener());
+      session.submit("b.txt", documents("b.txt", 2), listener());
+    }
+
+    verify(embeddingModel, times(1)).embed(anyList());
+    ArgumentCaptor<List<EmbeddedFile>> captor = ArgumentCaptor.forClass(List.class);
+    verify(vectorStoreAdapter).replaceFiles(eq(NAMESPACE), captor.capture());
+    assertThat(captor.getValue())
+        .extracting(EmbeddedFile::filePath)
+        .containsExactly("a.txt", "b.txt");
+    assertThat(stored).containsExactlyInAnyOrder("a.txt", "b.txt");
+  }
+
+  @Test
+  void writesFileOnlyAfterAllItsChunksAreEmbedded() {
+    try (RepoRagEmbeddingBatcher.Session session = batcher.openSession(NAMESPACE)) {
+      session.submit("big.txt", documents("big.txt", 6), listener());
+
+      verify(embeddingModel, times(1)).embed(anyList());
+      verify(vectorStoreAdapter, never()).replaceFiles(eq(NAMESPACE), anyList());
+      assertThat(stored).isEmpty();
+    }
+
+    verify(embeddingModel, times(2)).embed(anyList());
+    ArgumentCaptor<List<EmbeddedFile>> captor = ArgumentCaptor.forClass(List.class);
+    verify(vectorStoreAdapter).replaceFiles(eq(NAMESPACE), captor.capture());
+    EmbeddedFile file = captor.getValue().get(0);
+    assertThat(file.documents()).hasSize(6);
+    assertThat(file.embeddings()).hasSize(6).doesNotContainNull();
+    assertThat(stored).containsExactly("big.txt");
+  }
+
+  @Test
+  void flushesPartialBatchWhenDeadlineExpires() {
+    properties.getEmbedding().getBatch().setFlushDeadline(Duration.ofMillis(50));
+    try (RepoRagEmbeddingBatcher.Session session = batcher.openSession(NAMESPACE)) {
+      session.submit("slow.txt", documents("slow.txt", 1), listener());
+
+      verify(vectorStoreAdapter, timeout(2_000)).replaceFiles(eq(NAMESPACE), anyList());
+    }
+
+    assertThat(stored).containsExactly("slow.txt");
+  }
+
+  @Test
+  void reportsWriteFailureToEveryFileInTheGroup() {
+    doThrow(new IllegalStateException("db down"))
+        .when(vectorStoreAdapter)
+        .replaceFiles(eq(NAMESPACE), anyList());
+
+    try (RepoRagEmbeddingBatcher.Session session = batcher.openSession(NAMESPACE)) {
+      session.submit("a.txt", documents("a.txt", 1), listener());
+      session.submit("b.txt", documents("b.txt", 1), listener());
+    }
+
+    assertThat(stored).isEmpty();
+    assertThat(failed).containsExactlyInAnyOrder("a.txt", "b.txt");
+  }
+
+  @Test
+  void reusesCachedVectorsAndEmbedsOnlyMisses() {
+    List<Document> documents = documents("a.txt", 2);
+    RepoRagEmbeddingCache cache = mock(RepoRagEmbeddingCache.class);
+    when(cache.isEnabled()).thenReturn(true);
+    when(cache.getAll(anyList())).thenReturn(Map.of(key(documents.get(0)), new float[] {42f}));
+    RepoRagEmbeddingBatcher cachingBatcher =
+        new RepoRagEmbeddingBatcher(embeddingModel, vectorStoreAdapter, properties, cache);
+    try {
+      try (RepoRagEmbeddingBatcher.Session session = cachingBatcher.openSession(NAMESPACE)) {
+        session.submit("a.txt", documents, listener());
+      }
+    } finally {
+      cachingBatcher.shutdown();
+    }
+
+    ArgumentCaptor<List<String>> texts = ArgumentCaptor.forClass(List.class);
+    verify(embeddingModel).embed(texts.capture());
+    assertThat(texts.getValue())
+        .containsExactly(RepoRagEmbeddingBatcher.embeddingInput(documents.get(1)));
+    ArgumentCaptor<Map<String, float[]>> fresh = ArgumentCaptor.forClass(Map.class);
+    verify(cache).putAll(fresh.capture());
+    assertThat(fresh.getValue()).containsOnlyKeys(key(documents.get(1)));
+    ArgumentCaptor<List<EmbeddedFile>> captor = ArgumentCaptor.forClass(List.class);
+    verify(vectorStoreAdapter).replaceFiles(eq(NAMESPACE), captor.capture());
+    assertThat(captor.getValue().get(0).embeddings().get(0)).containsExactly(42f);
+    assertThat(stored).containsExactly("a.txt");
+  }
+
+  @Test
+  void writesFullyCachedFileWithoutCallingTheModel() {
+    List<Document> documents = documents("a.txt", 2);
+    RepoRagEmbeddingCache cache = mock(RepoRagEmbeddingCache.class);
+    when(cache.isEnabled()).thenReturn(true);
+    when(cache.getAll(anyList()))
+        .thenReturn(
+            Map.of(
+                key(documents.get(0)), new float[] {1f}, key(documents.get(1)), new float[] {2f}));
+    RepoRagEmbeddingBatcher cachingBatcher =
+        new RepoRagEmbeddingBatcher(embeddingModel, vectorStoreAdapter, properties, cache);
+    try {
+      try (RepoRagEmbeddingBatcher.Session session = cachingBatcher.openSession(NAMESPACE)) {
+        session.submit("a.txt", documents, listener());
+        assertThat(stored).containsExactly("a.txt");
+      }
+    } finally {
+      cachingBatcher.shutdown();
+    }
+
+    verify(embeddingModel, never()).embed(anyList());
+    verify(vectorStoreAdapter).replaceFiles(eq(NAMESPACE), anyList());
+  }
+
+  @Test
+  void chunkDiffModeEmbedsOnlyChunksMissingFromTheStore() {
+    properties.getIndexing().setChunkDiffEnabled(true);
+    when(vectorStoreAdapter.listChunkHashes(NAMESPACE, "a.txt"))
+        .thenReturn(List.of("hash-a.txt-0", "hash-gone"));
+    when(vectorStoreAdapter.applyChunkDiff(eq(NAMESPACE), anyList()))
+        .thenReturn(new ChunkDiffResult(1, 1, 1));
+
+    List<Document> documents = documents("a.txt", 2);
+    RepoRagEmbeddingBatcher.Session session = batcher.openSession(NAMESPACE);
+    try (session) {
+      session.submit("a.txt", documents, listener());
+    }
+    RepoRagEmbeddingBatcher.BatchStats stats = session.stats();
+
+    ArgumentCaptor<List<String>> texts = ArgumentCaptor.forClass(List.class);
+    verify(embeddingModel).embed(texts.capture());
+    assertThat(texts.getValue())
+        .containsExactly(RepoRagEmbeddingBatcher.embeddingInput(documents.get(1)));
+    ArgumentCaptor<List<EmbeddedFile>> captor = ArgumentCaptor.forClass(List.class);
+    verify(vectorStoreAdapter).applyChunkDiff(eq(NAMESPACE), captor.capture());
+    verify(vectorStoreAdapter, never()).replaceFiles(eq(NAMESPACE), anyList());
+    assertThat(captor.getValue().get(0).embeddings().get(0)).isNull();
+    assertThat(captor.getValue().get(0).embeddings().get(1)).isNotNull();
+    assertThat(stats.rowsWritten()).isEqualTo(1);
+    assertThat(stats.rowsDeleted()).isEqualTo(1);
+    assertThat(stats.rowsKept()).isEqualTo(1);
+    assertThat(stored).containsExactly("a.txt");
+  }
+
+  @Test
+  void batchedAndDirectPathsSendIdenticalTextToTheModel() {
+    List<String> direct = new CopyOnWriteArrayList<>();
+    List<String> batched = new CopyOnWriteArrayList<>();
+    List<Document> documents = documents("a.txt", 3);
+
+    // the unbatched path: the vector store hands documents to EmbeddingModel's own batching
+    recordingModel(direct)
+        .embed(documents, EmbeddingOptions.builder().build(), new TokenCountBatchingStrategy());
+    RepoRagEmbeddingBatcher recordingBatcher =
+        new RepoRagEmbeddingBatcher(recordingModel(batched), vectorStoreAdapter, properties);
+    try {
+      try (RepoRagEmbeddingBatcher.Session session = recordingBatcher.openSession(NAMESPACE)) {
+        session.submit("a.txt", documents, listener());
+      }
+    } finally {
+      recordingBatcher.shutdown();
+    }
+
+    assertThat(batched).hasSize(3).containsExactlyElementsOf(direct);
+    assertThat(stored).containsExactly("a.txt");
+  }
+
+  private EmbeddingModel recordingModel(List<String> sent) {
+    return new EmbeddingModel() {
+      @Override
+      public EmbeddingResponse call(EmbeddingRequest request) {
+        List<Embedding> embeddings = new ArrayList<>();
+        for (String text : request.getInstructions()) {
+          sent.add(text);
+          embeddings.add(new Embedding(new float[] {embeddings.size()}, embeddings.size()));
+        }
+        return new EmbeddingResponse(embeddings);
+      }
+
+      @Override
+      public float[] embed(Document document) {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  private static String key(Document document) {
+    return RepoRagEmbeddingBatcher.contentHash(RepoRagEmbeddingBatcher.embeddingInput(document));
+  }
+
+  private RepoRagEmbeddingBatcher.FileListener listener() {
+    return new RepoRagEmbeddingBatcher.FileListener() {
+      @Override
+      public void onStored(String filePath, int chunkCount) {
+        stored.add(filePath);
+      }
+
+      @Override
+      public void onFailed(String filePath, RuntimeException error) {
+        failed.add(filePath);
+      }
+    };
+  }
+
+  private List<Document> documents(String path, int count) {
+    List<Document> documents = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      documents.add(
+          Document.builder()
+              .text(path + " chunk " + i)
+              .metadata(
+                  Map.of("file_path", path, "chunk_index", i, "chunk_hash", "hash-" + path + "-" + i))
+              .build());
+    }
+    return documents;
+  }
+}
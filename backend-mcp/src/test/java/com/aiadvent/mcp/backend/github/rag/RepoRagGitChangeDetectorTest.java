@@ -0,0 +1,31 @@
+package com.aiadvent.mcp.backend.github.rag;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class RepoRagGitChangeDetectorTest {
+
+  @Test
+  void parsesNullSeparatedNameStatusOutput() {
+    String output = "M\0src/Main.java\0A\0src/New File.java\0D\0old/Gone.java\0T\0bin/tool\0";
+
+    RepoRagIndexService.IncrementalScope scope =
+        RepoRagGitChangeDetector.parseNameStatus("abc1234", output);
+
+    assertThat(scope.baseCommitSha()).isEqualTo("abc1234");
+    assertThat(scope.changedPaths())
+        .containsExactlyInAnyOrder("src/Main.java", "src/New File.java", "bin/tool");
+    assertThat(scope.deletedPaths()).containsExactly("old/Gone.java");
+    assertThat(scope.addedFiles()).isEqualTo(1);
+  }
+
+  @Test
+  void emptyDiffProducesEmptyScope() {
+    RepoRagIndexService.IncrementalScope scope =
+        RepoRagGitChangeDetector.parseNameStatus("abc1234", "");
+
+    assertThat(scope.changedPaths()).isEmpty();
+    assertThat(scope.deletedPaths()).isEmpty();
+  }
+}
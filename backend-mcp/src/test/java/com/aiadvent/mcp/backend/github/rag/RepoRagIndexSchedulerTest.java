@@ -0,0 +1,164 @@
+package com.aiadvent.mcp.backend.github.rag;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.aiadvent.mcp.backend.config.GitHubRagProperties;
+import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagIndexJobEntity;
+import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagIndexJobRepository;
+import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagJobStatus;
+import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagNamespaceStateEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class RepoRagIndexSchedulerTest {
+
+  private static final String NAMESPACE = "repo:owner/repo";
+  private static final String BASE_SHA = "a".repeat(40);
+  private static final String TARGET_SHA = "b".repeat(40);
+
+  private RepoRagIndexJobRepository jobRepository;
+  private RepoRagIndexService indexService;
+  private RepoRagNamespaceStateService namespaceStateService;
+  private RepoRagGitChangeDetector changeDetector;
+  private RepoRagIndexScheduler scheduler;
+
+  @BeforeEach
+  void setUp() {
+    jobRepository = mock(RepoRagIndexJobRepository.class);
+    indexService = mock(RepoRagIndexService.class);
+    namespaceStateService = mock(RepoRagNamespaceStateService.class);
+    changeDetector = mock(RepoRagGitChangeDetector.class);
+    scheduler =
+        new RepoRagIndexScheduler(
+            jobRepository,
+            indexService,
+            namespaceStateService,
+            new GitHubRagProperties(),
+            new ObjectMapper(),
+            mock(PlatformTransactionManager.class),
+            new SimpleMeterRegistry(),
+            changeDetector);
+  }
+
+  @AfterEach
+  void tearDown() {
+    scheduler.shutdown();
+  }
+
+  @Test
+  void runWithFailedFilesDoesNotAdvanceIndexedCommit() {
+    queueIncrementalJob(1);
+
+    scheduler.start();
+
+    verify(namespaceStateService, timeout(5_000))
+        .markReady(
+            eq(NAMESPACE),
+            eq("owner"),
+            eq("repo"),
+            eq("refs/heads/main"),
+            eq(TARGET_SHA),
+            isNull(),
+            eq("ws-1"),
+            any(),
+            any(),
+            anyLong(),
+            anyLong(),
+            anyLong(),
+            anyLong(),
+            anyBoolean(),
+            anyInt());
+  }
+
+  @Test
+  void cleanRunAdvancesIndexedCommit() {
+    queueIncrementalJob(0);
+
+    scheduler.start();
+
+    verify(namespaceStateService, timeout(5_000))
+        .markReady(
+            eq(NAMESPACE),
+            eq("owner"),
+            eq("repo"),
+            eq("refs/heads/main"),
+            eq(TARGET_SHA),
+            eq(TARGET_SHA),
+            eq("ws-1"),
+            any(),
+            any(),
+            anyLong(),
+            anyLong(),
+            anyLong(),
+            anyLong(),
+            anyBoolean(),
+            anyInt());
+  }
+
+  private void queueIncrementalJob(long filesFailed) {
+    UUID jobId = UUID.randomUUID();
+    RepoRagIndexJobEntity job = spy(new RepoRagIndexJobEntity());
+    doReturn(jobId).when(job).getId();
+    job.setNamespace(NAMESPACE);
+    job.setRepoOwner("owner");
+    job.setRepoName("repo");
+    job.setWorkspaceId("ws-1");
+    job.setSourceRef("refs/heads/main");
+    job.setCommitSha(TARGET_SHA);
+    job.setFetchedAt(Instant.now());
+    job.setStatus(RepoRagJobStatus.RUNNING);
+    when(jobRepository.lockNextJob(any())).thenReturn(Optional.of(job), Optional.empty());
+    when(jobRepository.tryLockNamespace(NAMESPACE)).thenReturn(true);
+    when(jobRepository.claim(eq(jobId), any(), any(), any()))
+        .thenAnswer(
+            invocation -> {
+              doReturn(invocation.getArgument(1)).when(job).getLockedBy();
+              return 1;
+            });
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+
+    RepoRagNamespaceStateEntity previous = new RepoRagNamespaceStateEntity();
+    previous.setNamespace(NAMESPACE);
+    previous.setIndexedCommitSha(BASE_SHA);
+    when(namespaceStateService.findByNamespace(NAMESPACE)).thenReturn(Optional.of(previous));
+    when(changeDetector.detect("ws-1", BASE_SHA, TARGET_SHA))
+        .thenReturn(
+            new RepoRagGitChangeDetector.Detection(
+                new RepoRagIndexService.IncrementalScope(
+                    BASE_SHA, Set.of("A.java", "B.java"), Set.of(), 0),
+                null));
+    when(indexService.indexWorkspace(any(), any()))
+        .thenReturn(
+            new RepoRagIndexService.IndexResult(
+                2 - filesFailed,
+                2 - filesFailed,
+                0,
+                0,
+                filesFailed,
+                List.of(),
+                false,
+                new RepoRagIndexService.GraphSyncResult(false, false, false, null),
+                new RepoRagIndexService.StageTimings(0, 0, 0, 0, 0, 0, 0),
+                new RepoRagIndexService.RowStats(2 - filesFailed, 0, 0)));
+  }
+}
@@ -7,6 +7,7 @@ import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -24,11 +25,14 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -204,6 +208,7 @@ class RepoRagIndexServiceTest {
         flakyService.indexWorkspace(request("ws-4"));
 
     assertThat(result.filesProcessed()).isZero();
+    assertThat(result.filesFailed()).isEqualTo(1);
     assertThat(result.warnings()).anyMatch(w -> w.contains("chunking failed"));
 
     verify(vectorStoreAdapter, never()).replaceFile(eq(NAMESPACE), eq("broken.txt"), any());
@@ -264,6 +269,131 @@ class RepoRagIndexServiceTest {
     assertThat(last.getMetadata().get("metadata_schema_version")).isEqualTo(2);
   }
 
+  @Test
+  void embeddingInputIgnoresPerRunAndPositionalMetadata() throws IOException {
+    Files.writeString(tempDir.resolve("Main.java"), "public class Main {}\n");
+    when(vectorStoreAdapter.listFilePaths(NAMESPACE)).thenReturn(mutableSet());
+    when(fileStateRepository.findByNamespace(NAMESPACE)).thenReturn(List.of());
+    when(workspaceService.findWorkspace(anyString()))
+        .thenReturn(Optional.of(workspaceFor(tempDir)));
+
+    service.indexWorkspace(
+        new RepoRagIndexService.IndexRequest(
+            "owner",
+            "repo",
+            "ws-1",
+            NAMESPACE,
+            "refs/heads/main",
+            "sha-1",
+            1024L,
+            Instant.parse("2024-01-01T00:00:00Z")));
+    service.indexWorkspace(
+        new RepoRagIndexService.IndexRequest(
+            "owner",
+            "repo",
+            "ws-2",
+            NAMESPACE,
+            "refs/heads/dev",
+            "sha-2",
+            2048L,
+            Instant.parse("2024-06-01T00:00:00Z")));
+
+    ArgumentCaptor<List<Document>> captor = ArgumentCaptor.forClass(List.class);
+    verify(vectorStoreAdapter, times(2))
+        .replaceFile(eq(NAMESPACE), eq("Main.java"), captor.capture());
+    Document first = captor.getAllValues().get(0).get(0);
+    Document second = captor.getAllValues().get(1).get(0);
+    assertThat(first.getMetadata().get("fetched_at"))
+        .isNotEqualTo(second.getMetadata().get("fetched_at"));
+    String input = RepoRagEmbeddingBatcher.embeddingInput(first);
+    assertThat(input)
+        .isEqualTo(RepoRagEmbeddingBatcher.embeddingInput(second))
+        .contains("public class Main {}", "Main.java")
+        .doesNotContain(NAMESPACE, "fetched_at", "refs/heads", "line_start");
+  }
+
+  @Test
+  void pipelinesManyFilesUnderBackpressureAndReportsProgress() throws IOException {
+    properties.getIndexing().setParseConcurrency(3);
+    properties.getIndexing().setEmbedConcurrency(2);
+    properties.getIndexing().setQueueCapacity(1);
+    properties.getIndexing().setProgressInterval(Duration.ZERO);
+    RepoRagIndexService pipelinedService =
+        new RepoRagIndexService(
+            workspaceService,
+            vectorStoreAdapter,
+            fileStateRepository,
+            chunker,
+            properties,
+            astFileContextFactory,
+            symbolGraphWriter,
+            null);
+    Path srcDir = Files.createDirectory(tempDir.resolve("src"));
+    for (int i = 0; i < 25; i++) {
+      Files.writeString(srcDir.resolve("File" + i + ".java"), "class File" + i + " {}\n");
+    }
+
+    when(vectorStoreAdapter.listFilePaths(NAMESPACE)).thenReturn(mutableSet());
+    when(fileStateRepository.findByNamespace(NAMESPACE)).thenReturn(List.of());
+    when(workspaceService.findWorkspace("ws-pipeline"))
+        .thenReturn(Optional.of(workspaceFor(tempDir)));
+    List<RepoRagIndexService.IndexProgress> progress = new CopyOnWriteArrayList<>();
+
+    RepoRagIndexService.IndexResult result =
+        pipelinedService.indexWorkspace(request("ws-pipeline"), progress::add);
+
+    assertThat(result.filesProcessed()).isEqualTo(25);
+    assertThat(result.chunksProcessed()).isEqualTo(25);
+    assertThat(result.stageTimings()).isNotNull();
+    assertThat(result.stageTimings().wallMs()).isGreaterThanOrEqualTo(0);
+    assertThat(progress).isNotEmpty();
+    assertThat(progress)
+        .allSatisfy(event -> assertThat(event.filesProcessed()).isBetween(0L, 25L));
+    verify(vectorStoreAdapter, times(25)).replaceFile(eq(NAMESPACE), anyString(), anyList());
+    pipelinedService.shutdown();
+  }
+
+  @Test
+  void incrementalRunTouchesOnlyChangedPaths() throws IOException {
+    Files.writeString(tempDir.resolve("Changed.java"), "class Changed {}\n");
+    Files.writeString(tempDir.resolve("Untouched.java"), "class Untouched {}\n");
+    Path ignoredDir = Files.createDirectories(tempDir.resolve("node_modules/lib"));
+    Files.writeString(ignoredDir.resolve("index.js"), "module.exports = {};\n");
+
+    when(fileStateRepository.findByNamespaceAndFilePathIn(eq(NAMESPACE), anyList()))
+        .thenReturn(List.of());
+    when(workspaceService.findWorkspace("ws-1"))
+        .thenReturn(Optional.of(workspaceFor(tempDir)));
+
+    RepoRagIndexService.IncrementalScope scope =
+        new RepoRagIndexService.IncrementalScope(
+            "abc1234",
+            Set.of("Changed.java", "node_modules/lib/index.js", "Missing.java"),
+            Set.of("Removed.java"),
+            1);
+    RepoRagIndexService.IndexResult result =
+        service.indexWorkspace(
+            new RepoRagIndexService.IndexRequest(
+                "owner",
+                "repo",
+                "ws-1",
+                NAMESPACE,
+                "refs/heads/main",
+                "def5678",
+                1024L,
+                Instant.now(),
+                scope));
+
+    assertThat(result.filesProcessed()).isEqualTo(1);
+    verify(vectorStoreAdapter).replaceFile(eq(NAMESPACE), eq("Changed.java"), anyList());
+    verify(vectorStoreAdapter, never()).replaceFile(eq(NAMESPACE), eq("Untouched.java"), anyList());
+    verify(vectorStoreAdapter).deleteFile(NAMESPACE, "Removed.java");
+    verify(vectorStoreAdapter).deleteFile(NAMESPACE, "Missing.java");
+    verify(vectorStoreAdapter).deleteFile(NAMESPACE, "node_modules/lib/index.js");
+    verify(vectorStoreAdapter, never()).listFilePaths(NAMESPACE);
+    verify(fileStateRepository, never()).findByNamespace(NAMESPACE);
+  }
+
   private HashSet<String> mutableSet(String... values) {
     return new HashSet<>(Arrays.asList(values));
   }
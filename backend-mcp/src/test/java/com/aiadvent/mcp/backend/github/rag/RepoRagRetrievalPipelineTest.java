@@ -7,12 +7,19 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 import org.assertj.core.api.InstanceOfAssertFactories;
 import org.junit.jupiter.api.Test;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.rag.Query;
 import org.springframework.ai.vectorstore.SearchRequest;
@@ -144,6 +151,80 @@ class RepoRagRetrievalPipelineTest {
     assertThat(result.documents()).hasSize(1);
   }
 
+  @Test
+  void skipsTransformersForWellFormedQueriesInTargetLanguage() {
+    GitHubRagProperties properties = new GitHubRagProperties();
+    properties.getQueryTransformers().setEnabled(true);
+    properties.getQueryTransformers().setDefaultTargetLanguage("ru");
+
+    StubVectorStore vectorStore =
+        new StubVectorStore(
+            Map.of("как устроен сервис индексации", List.of(document("src/App.java", "hashA", 0.9))));
+
+    RepoRagRetrievalPipeline pipeline =
+        new RepoRagRetrievalPipeline(
+            vectorStore,
+            properties,
+            new StaticObjectProvider<>(new NoopChatClientBuilder()),
+            (query, count, builder) -> List.of(query));
+
+    RepoRagRetrievalPipeline.PipelineResult result =
+        pipeline.execute(input("как устроен сервис индексации"));
+
+    assertThat(result.appliedModules())
+        .contains("query.fast-path")
+        .doesNotContain("query.rewrite", "query.translation")
+        .anyMatch(module -> module.startsWith("latency.query-transform:"))
+        .anyMatch(module -> module.startsWith("latency.retrieval:"));
+    assertThat(result.documents()).hasSize(1);
+  }
+
+  @Test
+  void fusesRewriteWithTranslationAndCachesTransformedQuery() {
+    GitHubRagProperties properties = new GitHubRagProperties();
+    properties.getQueryTransformers().setEnabled(true);
+    properties.getQueryTransformers().setDefaultTargetLanguage("ru");
+    RecordingChatModel model = new RecordingChatModel("как устроена индексация репозитория");
+
+    StubVectorStore vectorStore =
+        new StubVectorStore(
+            Map.of(
+                "как устроена индексация репозитория",
+                List.of(document("src/App.java", "hashA", 0.9))));
+
+    RepoRagRetrievalPipeline pipeline =
+        new RepoRagRetrievalPipeline(
+            vectorStore,
+            properties,
+            new StaticObjectProvider<>(ChatClient.builder(model)),
+            (query, count, builder) -> List.of(query));
+
+    RepoRagRetrievalPipeline.PipelineResult first =
+        pipeline.execute(input("how does repository indexing work"));
+    RepoRagRetrievalPipeline.PipelineResult second =
+        pipeline.execute(input("how does repository indexing work"));
+
+    assertThat(model.prompts).hasSize(1);
+    assertThat(model.prompts.get(0)).contains("Write the rewritten query in ru");
+    assertThat(first.appliedModules()).contains("query.rewrite", "query.translation");
+    assertThat(first.finalQuery().text()).isEqualTo("как устроена индексация репозитория");
+    assertThat(second.appliedModules()).contains("query.transform-cache");
+    assertThat(second.finalQuery().text()).isEqualTo(first.finalQuery().text());
+    assertThat(second.documents()).hasSize(1);
+  }
+
+  private static RepoRagRetrievalPipeline.PipelineInput input(String text) {
+    return new RepoRagRetrievalPipeline.PipelineInput(
+        Query.builder().text(text).build(),
+        null,
+        new RepoRagMultiQueryOptions(false, null, null),
+        5,
+        5,
+        0.0,
+        null,
+        true);
+  }
+
   private static Document document(String path, String chunkHash, double score) {
     return Document.builder()
         .id(path + ":" + chunkHash)
@@ -185,6 +266,26 @@ class RepoRagRetrievalPipelineTest {
     public void delete(Filter.Expression expression) {}
   }
 
+  private static final class RecordingChatModel implements ChatModel {
+    private final String reply;
+    private final List<String> prompts = new CopyOnWriteArrayList<>();
+
+    private RecordingChatModel(String reply) {
+      this.reply = reply;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+      prompts.add(prompt.getContents());
+      return new ChatResponse(List.of(new Generation(new AssistantMessage(reply))));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+      return ChatOptions.builder().build();
+    }
+  }
+
   private static final class StaticObjectProvider<T> implements ObjectProvider<T> {
     private final T instance;
 
@@ -0,0 +1,81 @@
+package com.aiadvent.mcp.backend.github.rag;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.aiadvent.mcp.backend.config.GitHubRagProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+class RepoRagSearchResultCacheTest {
+
+  @Test
+  void servesNormalizedRepeatsAndDropsNamespaceOnInvalidation() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    RepoRagSearchResultCache cache =
+        new RepoRagSearchResultCache(new GitHubRagProperties(), null, registry);
+    RepoRagSearchResultCache.Scope scope = scope("repo:owner/app", "abc123");
+
+    RepoRagSearchResultCache.Lookup miss = cache.lookup(scope, "How is indexing done?");
+    assertThat(miss.response()).isNull();
+    cache.store(miss, response("indexing"));
+
+    RepoRagSearchResultCache.Lookup hit = cache.lookup(scope, "  how is INDEXING   done? ");
+    assertThat(hit.response()).isNotNull();
+    assertThat(hit.tier()).isEqualTo("exact");
+    assertThat(cache.lookup(scope("repo:owner/app", "def456"), "how is indexing done?").response())
+        .isNull();
+
+    cache.invalidateNamespace("repo:owner/app");
+
+    assertThat(cache.lookup(scope, "how is indexing done?").response()).isNull();
+    assertThat(registry.counter("repo_rag_search_cache_hits_total", "tier", "exact").count())
+        .isEqualTo(1.0);
+    assertThat(registry.counter("repo_rag_search_cache_misses_total").count()).isEqualTo(3.0);
+  }
+
+  @Test
+  void semanticTierServesParaphrasesAboveThreshold() {
+    GitHubRagProperties properties = new GitHubRagProperties();
+    properties.getSearchCache().setSemanticEnabled(true);
+    properties.getSearchCache().setSemanticThreshold(0.9);
+    EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+    when(embeddingModel.embed("how is indexing done?")).thenReturn(new float[] {1f, 0f, 0f});
+    when(embeddingModel.embed("how does indexing work?")).thenReturn(new float[] {0.98f, 0.1f, 0f});
+    when(embeddingModel.embed("where are tests?")).thenReturn(new float[] {0f, 1f, 0f});
+    RepoRagSearchResultCache cache =
+        new RepoRagSearchResultCache(properties, embeddingModel, new SimpleMeterRegistry());
+    RepoRagSearchResultCache.Scope scope = scope("repo:owner/app", "abc123");
+
+    cache.store(cache.lookup(scope, "how is indexing done?"), response("indexing"));
+
+    RepoRagSearchResultCache.Lookup paraphrase = cache.lookup(scope, "how does indexing work?");
+    assertThat(paraphrase.tier()).isEqualTo("semantic");
+    assertThat(paraphrase.response().matches().get(0).path()).isEqualTo("indexing");
+    assertThat(cache.lookup(scope, "where are tests?").response()).isNull();
+  }
+
+  private static RepoRagSearchResultCache.Scope scope(String namespace, String commitSha) {
+    return new RepoRagSearchResultCache.Scope(
+        namespace, commitSha, null, RepoRagResponseChannel.BOTH, "");
+  }
+
+  private static RepoRagSearchService.SearchResponse response(String path) {
+    return new RepoRagSearchService.SearchResponse(
+        List.of(new RepoRagSearchService.SearchMatch(path, "snippet", "", 0.9, Map.of())),
+        false,
+        "prompt",
+        "instructions",
+        false,
+        false,
+        null,
+        List.of("profile:balanced"),
+        List.of(),
+        null,
+        null);
+  }
+}
@@ -12,6 +12,8 @@ import static org.mockito.Mockito.when;
 import com.aiadvent.mcp.backend.config.GitHubRagProperties;
 import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagNamespaceStateEntity;
 import com.aiadvent.mcp.backend.github.rag.RepoRagIndexService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
@@ -235,10 +237,19 @@ class RepoRagSearchServiceTest {
         new GraphQueryService.GraphNode("com.demo.Helper#call", "src/Helper.java", "method", "public", 20, 30);
     GraphQueryService.GraphEdge edge =
         new GraphQueryService.GraphEdge("com.demo.Demo#run", "com.demo.Helper#call", "CALLS", "hash", 0);
-    when(graphQueryService.neighbors(any(), any(), any(), any(), anyInt()))
-        .thenReturn(new GraphQueryService.GraphNeighbors(List.of(sourceNode, targetNode), List.of(edge)));
-    when(graphQueryService.shortestPath(any(), any(), any(), any(), anyInt()))
-        .thenReturn(new GraphQueryService.GraphNeighbors(List.of(sourceNode, targetNode), List.of(edge)));
+    GraphQueryService.GraphNeighbors graphNeighbors =
+        new GraphQueryService.GraphNeighbors(List.of(sourceNode, targetNode), List.of(edge));
+    when(graphQueryService.neighborsBatch(any(), any(), any(), anyInt()))
+        .thenReturn(
+            Map.of(
+                new GraphQueryService.SymbolRef("repo:owner/repo", "com.demo.Demo#run"),
+                graphNeighbors));
+    when(graphQueryService.shortestPaths(any(), any(), anyInt()))
+        .thenReturn(
+            Map.of(
+                new GraphQueryService.PathRequest(
+                    "repo:owner/repo", "com.demo.Demo#run", "com.demo.Helper#call"),
+                graphNeighbors));
 
     RepoRagSearchService.SearchCommand command =
         new RepoRagSearchService.SearchCommand(
@@ -291,10 +302,19 @@ class RepoRagSearchServiceTest {
         new GraphQueryService.GraphNode("com.demo.Helper#call", "src/Helper.java", "method", "public", 20, 30);
     GraphQueryService.GraphEdge edge =
         new GraphQueryService.GraphEdge("com.demo.Demo#run", "com.demo.Helper#call", "CALLS", "hash", 0);
-    when(graphQueryService.neighbors(any(), any(), any(), any(), anyInt()))
-        .thenReturn(new GraphQueryService.GraphNeighbors(List.of(sourceNode, targetNode), List.of(edge)));
-    when(graphQueryService.shortestPath(any(), any(), any(), any(), anyInt()))
-        .thenReturn(new GraphQueryService.GraphNeighbors(List.of(sourceNode, targetNode), List.of(edge)));
+    GraphQueryService.GraphNeighbors graphNeighbors =
+        new GraphQueryService.GraphNeighbors(List.of(sourceNode, targetNode), List.of(edge));
+    when(graphQueryService.neighborsBatch(any(), any(), any(), anyInt()))
+        .thenReturn(
+            Map.of(
+                new GraphQueryService.SymbolRef("repo:owner/repo", "com.demo.Demo#run"),
+                graphNeighbors));
+    when(graphQueryService.shortestPaths(any(), any(), anyInt()))
+        .thenReturn(
+            Map.of(
+                new GraphQueryService.PathRequest(
+                    "repo:owner/repo", "com.demo.Demo#run", "com.demo.Helper#call"),
+                graphNeighbors));
 
     RepoRagSearchService.GlobalSearchCommand command =
         new RepoRagSearchService.GlobalSearchCommand(
@@ -312,7 +332,125 @@ class RepoRagSearchServiceTest {
     Map<String, Object> metadata = response.matches().get(0).metadata();
     assertThat(metadata).containsKeys("graph_neighbors", "graph_path");
     assertThat(response.appliedModules()).contains("graph.lens");
-    verify(graphQueryService).neighbors(any(), any(), any(), any(), anyInt());
+    verify(graphQueryService).neighborsBatch(any(), any(), any(), anyInt());
+  }
+
+  @Test
+  void graphLensSkippedWhenItMissesTimeBudget() {
+    properties.getGraph().setEnabled(true);
+    properties.getGraph().setLensTimeout(Duration.ofMillis(50));
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    service =
+        new RepoRagSearchService(
+            properties,
+            pipeline,
+            reranker,
+            generationService,
+            namespaceStateService,
+            graphQueryService,
+            null,
+            registry);
+
+    RepoRagNamespaceStateEntity state = readyState();
+    state.setAstSchemaVersion(RepoRagIndexService.AST_VERSION);
+    state.setAstReadyAt(Instant.now());
+    when(namespaceStateService.findByRepoOwnerAndRepoName("owner", "repo"))
+        .thenReturn(Optional.of(state));
+    Query query = Query.builder().text("raw").history(List.of()).build();
+    Document doc =
+        Document.builder()
+            .id("1")
+            .text("class Demo { void run() { helper(); }}")
+            .metadata(Map.of("language", "java", "symbol_fqn", "com.demo.Demo#run"))
+            .score(0.9)
+            .build();
+    when(pipeline.execute(any()))
+        .thenReturn(
+            new RepoRagRetrievalPipeline.PipelineResult(query, List.of(doc), List.of(), List.of(query)));
+    when(reranker.process(any(), any(), any()))
+        .thenReturn(new RepoRagSearchReranker.PostProcessingResult(List.of(doc), false, List.of()));
+    when(graphQueryService.neighborsBatch(any(), any(), any(), anyInt()))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(2_000);
+              return Map.of();
+            });
+
+    RepoRagSearchService.SearchResponse response =
+        service.search(
+            new RepoRagSearchService.SearchCommand(
+                "owner",
+                "repo",
+                "raw",
+                plan("balanced"),
+                List.of(),
+                null,
+                RepoRagResponseChannel.BOTH));
+
+    assertThat(response.matches()).hasSize(1);
+    assertThat(response.matches().get(0).metadata()).doesNotContainKey("graph_neighbors");
+    assertThat(response.appliedModules()).doesNotContain("graph.lens");
+    assertThat(
+            registry.counter("repo_rag_graph_lens_skipped_total", "reason", "timeout").count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void responseWithDroppedGraphLensIsNotCached() {
+    properties.getGraph().setEnabled(true);
+    properties.getGraph().setLensTimeout(Duration.ofMillis(50));
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    service =
+        new RepoRagSearchService(
+            properties,
+            pipeline,
+            reranker,
+            generationService,
+            namespaceStateService,
+            graphQueryService,
+            new RepoRagSearchResultCache(properties, null, registry),
+            registry);
+
+    RepoRagNamespaceStateEntity state = readyState();
+    state.setAstSchemaVersion(RepoRagIndexService.AST_VERSION);
+    state.setAstReadyAt(Instant.now());
+    when(namespaceStateService.findByRepoOwnerAndRepoName("owner", "repo"))
+        .thenReturn(Optional.of(state));
+    Query query = Query.builder().text("raw").history(List.of()).build();
+    Document doc =
+        Document.builder()
+            .id("1")
+            .text("class Demo { void run() { helper(); }}")
+            .metadata(Map.of("language", "java", "symbol_fqn", "com.demo.Demo#run"))
+            .score(0.9)
+            .build();
+    when(pipeline.execute(any()))
+        .thenReturn(
+            new RepoRagRetrievalPipeline.PipelineResult(query, List.of(doc), List.of(), List.of(query)));
+    when(reranker.process(any(), any(), any()))
+        .thenReturn(new RepoRagSearchReranker.PostProcessingResult(List.of(doc), false, List.of()));
+    when(graphQueryService.neighborsBatch(any(), any(), any(), anyInt()))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(500);
+              return Map.of();
+            });
+    RepoRagSearchService.SearchCommand command =
+        new RepoRagSearchService.SearchCommand(
+            "owner",
+            "repo",
+            "raw",
+            plan("balanced"),
+            List.of(),
+            null,
+            RepoRagResponseChannel.BOTH);
+
+    service.search(command);
+    RepoRagSearchService.SearchResponse second = service.search(command);
+
+    assertThat(second.appliedModules()).noneMatch(module -> module.startsWith("cache:"));
+    verify(pipeline, times(2)).execute(any());
+    assertThat(registry.counter("repo_rag_search_cache_misses_total").count()).isEqualTo(2.0);
   }
 
   private RepoRagNamespaceStateEntity readyState() {
@@ -1,6 +1,9 @@
 package com.aiadvent.mcp.backend.github.rag;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -11,6 +14,7 @@ import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagSymbolGraphEntity;
 import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagSymbolGraphRepository;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -88,4 +92,37 @@ class RepoRagSymbolServiceTest {
     service.findOutgoingEdges("repo:demo", "com.demo.Helper#doWork");
     verify(repository, times(1)).findByNamespaceAndSymbolFqn("repo:demo", "com.demo.Helper#doWork");
   }
+
+  @Test
+  void batchLookupQueriesRepositoryOnceAndCachesEverySymbol() {
+    RepoRagSymbolGraphEntity caller = new RepoRagSymbolGraphEntity();
+    caller.setNamespace("repo:demo");
+    caller.setFilePath("src/App.java");
+    caller.setChunkIndex(4);
+    caller.setChunkHash("hash-4");
+    caller.setRelation("CALLS");
+    caller.setSymbolFqn("com.demo.Service#doWork");
+    caller.setReferencedSymbolFqn("com.demo.Helper#run");
+
+    when(repository.findByNamespaceAndReferencedSymbolFqnIn(
+            "repo:demo", List.of("com.demo.Helper#run", "com.demo.Util#noop")))
+        .thenReturn(List.of(caller));
+
+    Map<String, List<RepoRagSymbolService.SymbolNeighbor>> neighbors =
+        service.findCallGraphNeighborsBatch(
+            "repo:demo", List.of("com.demo.Helper#run", "com.demo.Util#noop"));
+
+    assertThat(neighbors).containsOnlyKeys("com.demo.Helper#run", "com.demo.Util#noop");
+    assertThat(neighbors.get("com.demo.Helper#run"))
+        .extracting(RepoRagSymbolService.SymbolNeighbor::chunkHash)
+        .containsExactly("hash-4");
+    assertThat(neighbors.get("com.demo.Util#noop")).isEmpty();
+
+    service.findCallGraphNeighborsBatch(
+        "repo:demo", List.of("com.demo.Helper#run", "com.demo.Util#noop"));
+    assertThat(service.findCallGraphNeighbors("repo:demo", "com.demo.Util#noop")).isEmpty();
+
+    verify(repository, times(1)).findByNamespaceAndReferencedSymbolFqnIn(anyString(), anyCollection());
+    verify(repository, never()).findByNamespaceAndReferencedSymbolFqn(anyString(), anyString());
+  }
 }
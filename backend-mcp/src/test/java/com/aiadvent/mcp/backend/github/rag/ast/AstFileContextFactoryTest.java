@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import com.aiadvent.mcp.backend.github.rag.chunking.AstFileContext;
 import com.aiadvent.mcp.backend.github.rag.chunking.AstSymbolMetadata;
 import com.aiadvent.mcp.backend.config.GitHubRagProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -101,6 +102,30 @@ class AstFileContextFactoryTest {
             });
   }
 
+  @Test
+  void reusesCachedContextForUnchangedContent() {
+    GitHubRagProperties properties = new GitHubRagProperties();
+    properties.getAst().setEnabled(true);
+    properties.getAst().setNativeEnabled(false);
+    AstTestSupport.AstComponents components = AstTestSupport.astComponents(properties);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    AstFileContextFactory cachingFactory =
+        new AstFileContextFactory(
+            components.parser(), components.analyzer(), properties, registry);
+    String relativePath = "src/main/java/com/example/Demo.java";
+    String content = "package com.example;\npublic class Demo {\n  void run() {}\n}\n";
+
+    AstFileContext first =
+        cachingFactory.create(Path.of("Demo.java"), relativePath, "java", content);
+    AstFileContext second =
+        cachingFactory.create(Path.of("Demo.java"), relativePath, "java", content);
+    cachingFactory.create(Path.of("Demo.java"), relativePath, "java", content + "// edit\n");
+
+    assertThat(second).isSameAs(first);
+    assertThat(registry.counter("repo_rag_ast_cache_hits_total").count()).isEqualTo(1.0);
+    assertThat(registry.counter("repo_rag_ast_cache_misses_total").count()).isEqualTo(2.0);
+  }
+
   @ParameterizedTest
   @MethodSource("fixtureFiles")
   void parsesMiniRepoFixtures(Fixture fixture) throws IOException {
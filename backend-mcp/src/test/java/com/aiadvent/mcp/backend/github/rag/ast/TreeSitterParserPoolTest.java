@@ -0,0 +1,52 @@
+package com.aiadvent.mcp.backend.github.rag.ast;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import io.github.treesitter.jtreesitter.Language;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+class TreeSitterParserPoolTest {
+
+  @Test
+  void invalidatedParserWakesBorrowerWaitingAtCapacity() throws Exception {
+    com.aiadvent.mcp.backend.config.GitHubRagProperties properties =
+        new com.aiadvent.mcp.backend.config.GitHubRagProperties();
+    properties.getAst().setEnabled(true);
+    properties.getAst().setNativeEnabled(true);
+    properties.getAst().setLanguages(java.util.List.of("java"));
+    TreeSitterLibraryLoader loader =
+        new TreeSitterLibraryLoader(properties, new DefaultResourceLoader());
+    assumeTrue(loader.ensureCoreLibraryLoaded(), "libjava-tree-sitter not available");
+    Language java = new LanguageRegistry(loader).language("java").orElse(null);
+    assumeTrue(java != null, "java grammar not available");
+
+    try (TreeSitterParserPool pool = new TreeSitterParserPool(1, new SimpleMeterRegistry())) {
+      TreeSitterParserPool.Lease first = pool.borrow("java", java);
+      CompletableFuture<TreeSitterParserPool.Lease> waiting =
+          CompletableFuture.supplyAsync(
+              () -> {
+                try {
+                  return pool.borrow("java", java);
+                } catch (InterruptedException ex) {
+                  Thread.currentThread().interrupt();
+                  throw new CompletionException(ex);
+                }
+              });
+      Thread.sleep(100);
+      assertThat(waiting).isNotDone();
+
+      first.invalidate();
+      first.close();
+
+      try (TreeSitterParserPool.Lease second = waiting.get(2, TimeUnit.SECONDS)) {
+        assertThat(second.parser()).isNotNull().isNotSameAs(first.parser());
+      }
+    }
+  }
+}
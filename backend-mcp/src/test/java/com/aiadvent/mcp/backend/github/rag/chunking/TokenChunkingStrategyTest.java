@@ -0,0 +1,66 @@
+package com.aiadvent.mcp.backend.github.rag.chunking;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.aiadvent.mcp.backend.config.GitHubRagProperties;
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.IntArrayList;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TokenChunkingStrategyTest {
+
+  private static final Encoding ENCODING =
+      Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+  @Test
+  void mapsTokenBoundariesToCharOffsetsForMultiByteText() {
+    String content = "héllo 👋 мир\n  return café(); // ünïcödé 漢字\n";
+    IntArrayList tokens = ENCODING.encode(content);
+    int[] offsets = new int[tokens.size() + 1];
+
+    TokenChunkingStrategy.computeCharOffsets(content, tokens, offsets);
+
+    assertThat(offsets[0]).isZero();
+    assertThat(offsets[tokens.size()]).isEqualTo(content.length());
+    for (int i = 1; i <= tokens.size(); i++) {
+      assertThat(offsets[i]).isGreaterThanOrEqualTo(offsets[i - 1]);
+      IntArrayList prefix = new IntArrayList(i);
+      for (int j = 0; j < i; j++) {
+        prefix.add(tokens.get(j));
+      }
+      assertThat(ENCODING.decode(prefix)).startsWith(content.substring(0, offsets[i]));
+    }
+  }
+
+  @Test
+  void chunkTextIsTheTrimmedSpanOfTheSource() {
+    GitHubRagProperties properties = new GitHubRagProperties();
+    GitHubRagProperties.Chunking chunking = properties.getChunking();
+    chunking.getToken().setChunkSizeTokens(16);
+    chunking.getToken().setMinChunkChars(1);
+    chunking.getToken().setMinChunkLengthToEmbed(1);
+    chunking.setOverlapTokens(4);
+    StringBuilder source = new StringBuilder();
+    for (int i = 0; i < 40; i++) {
+      source.append("int value").append(i).append(" = compute(").append(i).append(");\n");
+    }
+    String content = source.toString();
+    ChunkableFile file = ChunkableFile.from(Path.of("/tmp/Demo.java"), "Demo.java", "java", content);
+
+    List<Chunk> chunks =
+        new TokenChunkingStrategy()
+            .chunk(new ChunkingContext(file, chunking, GitHubRagProperties.Strategy.TOKEN));
+
+    assertThat(chunks).hasSizeGreaterThan(5);
+    for (Chunk chunk : chunks) {
+      assertThat(chunk.text()).isEqualTo(chunk.text().trim());
+      assertThat(content).contains(chunk.text());
+    }
+    assertThat(chunks.get(0).lineStart()).isEqualTo(1);
+    assertThat(chunks.get(chunks.size() - 1).lineEnd()).isEqualTo(40);
+  }
+}
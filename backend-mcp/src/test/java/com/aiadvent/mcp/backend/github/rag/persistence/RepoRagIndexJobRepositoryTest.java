@@ -0,0 +1,179 @@
+package com.aiadvent.mcp.backend.github.rag.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.aiadvent.mcp.backend.McpApplication;
+import com.aiadvent.mcp.backend.PostgresTestContainer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.EnabledIf;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs the native queue statements against Postgres. Jobs become available a day ahead, so the
+ * scheduler polling with the wall clock in the same context never picks them up.
+ */
+@SpringBootTest(
+    classes = McpApplication.class,
+    webEnvironment = SpringBootTest.WebEnvironment.NONE,
+    properties = "spring.profiles.active=github")
+@EnabledIf(
+    expression = "#{T(com.aiadvent.mcp.backend.PostgresTestContainer).dockerAvailable()}",
+    reason = "Docker is required for Postgres-backed tests",
+    loadContext = false)
+class RepoRagIndexJobRepositoryTest {
+
+  @DynamicPropertySource
+  static void overrideProperties(DynamicPropertyRegistry registry) {
+    PostgresTestContainer.register(registry);
+  }
+
+  @Autowired private RepoRagIndexJobRepository jobRepository;
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  private TransactionTemplate transactionTemplate;
+  private final List<UUID> created = new ArrayList<>();
+  private Instant base;
+
+  @BeforeEach
+  void setUp() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    base = Instant.now().plus(Duration.ofDays(1)).truncatedTo(ChronoUnit.MICROS);
+  }
+
+  @AfterEach
+  void tearDown() {
+    jobRepository.deleteAllById(created);
+  }
+
+  @Test
+  void claimsNewestQueuedJobAndSupersedesOlderOnes() {
+    String namespace = namespace();
+    RepoRagIndexJobEntity older = queue(namespace, base, 5);
+    RepoRagIndexJobEntity newer = queue(namespace, base.plusSeconds(1), 5);
+    Instant now = base.plusSeconds(2);
+
+    UUID claimed =
+        transactionTemplate.execute(
+            status -> {
+              RepoRagIndexJobEntity job = jobRepository.lockNextJob(now).orElseThrow();
+              assertThat(jobRepository.tryLockNamespace(namespace)).isTrue();
+              assertThat(jobRepository.hasLiveRunningJob(namespace, now)).isFalse();
+              jobRepository.claim(job.getId(), "worker-a", now.plusSeconds(60), now);
+              assertThat(
+                      jobRepository.supersedeQueued(namespace, job.getId(), job.getQueuedAt(), now))
+                  .isEqualTo(1);
+              return job.getId();
+            });
+
+    assertThat(claimed).isEqualTo(newer.getId());
+    RepoRagIndexJobEntity running = jobRepository.findById(newer.getId()).orElseThrow();
+    assertThat(running.getStatus()).isEqualTo(RepoRagJobStatus.RUNNING);
+    assertThat(running.getAttempt()).isEqualTo(1);
+    assertThat(running.getLockedBy()).isEqualTo("worker-a");
+    assertThat(jobRepository.findById(older.getId()).orElseThrow().getStatus())
+        .isEqualTo(RepoRagJobStatus.SUPERSEDED);
+    assertThat(jobRepository.hasLiveRunningJob(namespace, now)).isTrue();
+
+    queue(namespace, base.plusSeconds(3), 5);
+    Optional<RepoRagIndexJobEntity> blocked =
+        transactionTemplate.execute(status -> jobRepository.lockNextJob(base.plusSeconds(4)));
+    assertThat(blocked).isEmpty();
+  }
+
+  @Test
+  void namespaceLockIsHeldByOneClaimerUntilItsTransactionEnds() throws Exception {
+    String namespace = namespace();
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Boolean> first =
+        CompletableFuture.supplyAsync(
+            () ->
+                transactionTemplate.execute(
+                    status -> {
+                      boolean acquired = jobRepository.tryLockNamespace(namespace);
+                      locked.countDown();
+                      try {
+                        release.await(5, TimeUnit.SECONDS);
+                      } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                      }
+                      return acquired;
+                    }));
+    assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+    try {
+      assertThat(transactionTemplate.execute(status -> jobRepository.tryLockNamespace(namespace)))
+          .isFalse();
+      assertThat(
+              transactionTemplate.execute(status -> jobRepository.tryLockNamespace(namespace())))
+          .isTrue();
+    } finally {
+      release.countDown();
+    }
+
+    assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(transactionTemplate.execute(status -> jobRepository.tryLockNamespace(namespace)))
+        .isTrue();
+  }
+
+  @Test
+  void requeuesExpiredLeasesAndFailsExhaustedJobs() {
+    RepoRagIndexJobEntity retryable = queue(namespace(), base, 3);
+    RepoRagIndexJobEntity exhausted = queue(namespace(), base, 1);
+    Instant leaseUntil = base.plusSeconds(60);
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          jobRepository.claim(retryable.getId(), "worker-a", leaseUntil, base);
+          jobRepository.claim(exhausted.getId(), "worker-a", leaseUntil, base);
+        });
+
+    Instant afterLease = leaseUntil.plusSeconds(1);
+    assertThat(transactionTemplate.execute(status -> jobRepository.requeueExpired(leaseUntil)))
+        .isZero();
+    assertThat(transactionTemplate.execute(status -> jobRepository.requeueExpired(afterLease)))
+        .isEqualTo(2);
+
+    RepoRagIndexJobEntity requeued = jobRepository.findById(retryable.getId()).orElseThrow();
+    assertThat(requeued.getStatus()).isEqualTo(RepoRagJobStatus.QUEUED);
+    assertThat(requeued.getAvailableAt()).isEqualTo(afterLease);
+    assertThat(requeued.getCompletedAt()).isNull();
+    RepoRagIndexJobEntity failed = jobRepository.findById(exhausted.getId()).orElseThrow();
+    assertThat(failed.getStatus()).isEqualTo(RepoRagJobStatus.FAILED);
+    assertThat(failed.getCompletedAt()).isEqualTo(afterLease);
+  }
+
+  private String namespace() {
+    return "repo:test/" + UUID.randomUUID();
+  }
+
+  private RepoRagIndexJobEntity queue(String namespace, Instant queuedAt, int maxAttempts) {
+    RepoRagIndexJobEntity job = new RepoRagIndexJobEntity();
+    job.setRepoOwner("test");
+    job.setRepoName(namespace.substring(namespace.indexOf('/') + 1));
+    job.setNamespace(namespace);
+    job.setStatus(RepoRagJobStatus.QUEUED);
+    job.setMaxAttempts(maxAttempts);
+    job.setQueuedAt(queuedAt);
+    job.setAvailableAt(queuedAt);
+    RepoRagIndexJobEntity saved = jobRepository.save(job);
+    created.add(saved.getId());
+    return saved;
+  }
+}
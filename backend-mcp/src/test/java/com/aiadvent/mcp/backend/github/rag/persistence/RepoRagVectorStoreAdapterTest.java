@@ -0,0 +1,113 @@
+package com.aiadvent.mcp.backend.github.rag.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.aiadvent.mcp.backend.config.GitHubRagProperties;
+import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagVectorStoreAdapter.ChunkDiffResult;
+import com.aiadvent.mcp.backend.github.rag.persistence.RepoRagVectorStoreAdapter.EmbeddedFile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class RepoRagVectorStoreAdapterTest {
+
+  private static final String NAMESPACE = "repo:owner/repo";
+  private static final String FILE_PATH = "src/App.java";
+
+  private JdbcTemplate jdbcTemplate;
+  private RepoRagVectorStoreAdapter adapter;
+  private final UUID storedId = UUID.randomUUID();
+
+  @BeforeEach
+  void setUp() {
+    jdbcTemplate = mock(JdbcTemplate.class);
+    adapter =
+        new RepoRagVectorStoreAdapter(
+            mock(VectorStore.class),
+            mock(RepoRagDocumentRepository.class),
+            jdbcTemplate,
+            mock(PlatformTransactionManager.class),
+            new ObjectMapper(),
+            new GitHubRagProperties());
+  }
+
+  @Test
+  void rewritesMetadataOfKeptChunkWhenOnlyMetadataChanged() {
+    storedRow(
+        "{\"chunk_hash\": \"h1\", \"chunk_index\": 0, \"span_hash\": \"s1\","
+            + " \"ast_symbols\": [\"Old#run\"]}");
+
+    ChunkDiffResult result = adapter.applyChunkDiff(NAMESPACE, List.of(file(List.of("App#run"))));
+
+    assertThat(result).isEqualTo(new ChunkDiffResult(0, 0, 1));
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate).batchUpdate(anyString(), updates.capture());
+    assertThat(updates.getValue()).hasSize(1);
+    assertThat((String) updates.getValue().get(0)[0]).contains("App#run").doesNotContain("Old#run");
+    assertThat(updates.getValue().get(0)[1]).isEqualTo(storedId);
+  }
+
+  @Test
+  void leavesKeptChunkUntouchedWhenMetadataIsEqual() {
+    storedRow(
+        "{\"span_hash\": \"s1\", \"ast_symbols\": [\"App#run\"], \"chunk_index\": 0,"
+            + " \"chunk_hash\": \"h1\"}");
+
+    ChunkDiffResult result = adapter.applyChunkDiff(NAMESPACE, List.of(file(List.of("App#run"))));
+
+    assertThat(result).isEqualTo(new ChunkDiffResult(0, 0, 1));
+    verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private void storedRow(String metadataJson) {
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(NAMESPACE), eq(FILE_PATH)))
+        .thenAnswer(
+            invocation -> {
+              RowMapper<?> mapper = invocation.getArgument(1);
+              ResultSet rs = mock(ResultSet.class);
+              when(rs.getObject("id", UUID.class)).thenReturn(storedId);
+              when(rs.getString("chunk_hash")).thenReturn("h1");
+              when(rs.getInt("chunk_index")).thenReturn(0);
+              when(rs.getString("span_hash")).thenReturn("s1");
+              when(rs.getString("metadata")).thenReturn(metadataJson);
+              return (List) List.of(mapper.mapRow(rs, 0));
+            });
+  }
+
+  private EmbeddedFile file(List<String> symbols) {
+    Map<String, Object> metadata = new LinkedHashMap<>();
+    metadata.put("chunk_hash", "h1");
+    metadata.put("chunk_index", 0);
+    metadata.put("span_hash", "s1");
+    metadata.put("ast_symbols", symbols);
+    Document document =
+        Document.builder()
+            .id(UUID.randomUUID().toString())
+            .text("class App {}")
+            .metadata(metadata)
+            .build();
+    return new EmbeddedFile(FILE_PATH, List.of(document), Arrays.asList((float[]) null));
+  }
+}
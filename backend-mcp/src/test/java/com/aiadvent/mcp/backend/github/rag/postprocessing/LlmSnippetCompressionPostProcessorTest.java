@@ -0,0 +1,113 @@
+package com.aiadvent.mcp.backend.github.rag.postprocessing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.aiadvent.mcp.backend.config.GitHubRagProperties;
+import com.aiadvent.mcp.backend.github.rag.RepoRagSnippetCompressionPool;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.Query;
+
+class LlmSnippetCompressionPostProcessorTest {
+
+  private RepoRagSnippetCompressionPool pool;
+
+  @AfterEach
+  void tearDown() {
+    if (pool != null) {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void compressesConcurrentlyAndServesRepeatedQueriesFromCache() {
+    SlowChatModel model = new SlowChatModel(Duration.ofMillis(200));
+    LlmSnippetCompressionPostProcessor processor = processor(model, Duration.ofSeconds(5));
+    List<Document> documents = List.of(document("a"), document("b"), document("c"));
+
+    List<Document> first =
+        processor.process(Query.builder().text("How is X built?").build(), documents);
+    List<Document> repeated =
+        processor.process(Query.builder().text("  how is x   BUILT? ").build(), documents);
+
+    assertThat(first).extracting(Document::getText).containsOnly("compressed");
+    assertThat(repeated).extracting(Document::getText).containsOnly("compressed");
+    assertThat(model.calls).hasValue(3);
+    assertThat(model.maxInFlight.get()).isGreaterThan(1);
+  }
+
+  @Test
+  void keepsOriginalSnippetsWhenDeadlinePasses() {
+    SlowChatModel model = new SlowChatModel(Duration.ofSeconds(2));
+    LlmSnippetCompressionPostProcessor processor = processor(model, Duration.ofMillis(100));
+    List<Document> documents = List.of(document("a"), document("b"));
+
+    List<Document> result = processor.process(Query.builder().text("query").build(), documents);
+
+    assertThat(result).isEqualTo(documents);
+  }
+
+  private LlmSnippetCompressionPostProcessor processor(ChatModel model, Duration timeout) {
+    GitHubRagProperties properties = new GitHubRagProperties();
+    properties.getPostProcessing().setLlmCompressionRequestConcurrency(4);
+    properties.getPostProcessing().setLlmCompressionGlobalConcurrency(4);
+    properties.getPostProcessing().setLlmCompressionTimeout(timeout);
+    pool = new RepoRagSnippetCompressionPool(properties, null);
+    return new LlmSnippetCompressionPostProcessor(ChatClient.builder(model), pool, 3, "ru", true, 6);
+  }
+
+  private static Document document(String id) {
+    String text =
+        IntStream.range(0, 10).mapToObj(i -> id + " line " + i).collect(Collectors.joining("\n"));
+    return Document.builder()
+        .id(id)
+        .text(text)
+        .metadata(Map.of("chunk_hash", "hash-" + id))
+        .score(0.5)
+        .build();
+  }
+
+  private static final class SlowChatModel implements ChatModel {
+    private final Duration delay;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private SlowChatModel(Duration delay) {
+      this.delay = delay;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+      calls.incrementAndGet();
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(delay.toMillis());
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      } finally {
+        inFlight.decrementAndGet();
+      }
+      return new ChatResponse(List.of(new Generation(new AssistantMessage("compressed"))));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+      return ChatOptions.builder().build();
+    }
+  }
+}
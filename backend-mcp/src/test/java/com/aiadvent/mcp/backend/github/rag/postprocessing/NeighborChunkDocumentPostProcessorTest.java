@@ -12,6 +12,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -36,8 +37,8 @@ class NeighborChunkDocumentPostProcessorTest {
         buildDocument("repo:demo", "src/App.java", 10, "hash-10", "span-10", 0.92);
     RepoRagDocumentEntity left = entity("repo:demo", "src/App.java", 9, "hash-9");
     RepoRagDocumentEntity right = entity("repo:demo", "src/App.java", 11, "hash-11");
-    when(documentRepository.findByNamespaceAndFilePathAndChunkIndexIn(
-            Mockito.eq("repo:demo"), Mockito.eq("src/App.java"), Mockito.anyCollection()))
+    when(documentRepository.findByNamespaceAndFilePathInAndChunkIndexIn(
+            Mockito.eq("repo:demo"), Mockito.anyCollection(), Mockito.anyCollection()))
         .thenReturn(List.of(left, right));
 
     NeighborChunkDocumentPostProcessor processor =
@@ -63,8 +64,8 @@ class NeighborChunkDocumentPostProcessorTest {
     Document anchor =
         buildDocument("repo:demo", "src/App.java", 5, "hash-5", "span-5", 0.5);
     RepoRagDocumentEntity duplicate = entity("repo:demo", "src/App.java", 4, "hash-5");
-    when(documentRepository.findByNamespaceAndFilePathAndChunkIndexIn(
-            Mockito.eq("repo:demo"), Mockito.eq("src/App.java"), Mockito.anyCollection()))
+    when(documentRepository.findByNamespaceAndFilePathInAndChunkIndexIn(
+            Mockito.eq("repo:demo"), Mockito.anyCollection(), Mockito.anyCollection()))
         .thenReturn(List.of(duplicate));
 
     NeighborChunkDocumentPostProcessor processor =
@@ -81,6 +82,42 @@ class NeighborChunkDocumentPostProcessorTest {
     assertThat(expanded).containsExactly(anchor);
   }
 
+  @Test
+  void loadsNeighborsOfAllAnchorsWithOneQueryAndKeepsBudgetOrder() {
+    Document first = buildDocument("repo:demo", "src/App.java", 10, "hash-10", "span-10", 0.9);
+    Document second = buildDocument("repo:demo", "src/Util.java", 3, "hash-u3", "span-u3", 0.7);
+    when(documentRepository.findByNamespaceAndFilePathInAndChunkIndexIn(
+            Mockito.eq("repo:demo"), Mockito.anyCollection(), Mockito.anyCollection()))
+        .thenReturn(
+            List.of(
+                entity("repo:demo", "src/App.java", 9, "hash-9"),
+                entity("repo:demo", "src/App.java", 11, "hash-11"),
+                entity("repo:demo", "src/App.java", 2, "hash-2"),
+                entity("repo:demo", "src/Util.java", 2, "hash-u2"),
+                entity("repo:demo", "src/Util.java", 4, "hash-u4")));
+
+    NeighborChunkDocumentPostProcessor processor =
+        new NeighborChunkDocumentPostProcessor(
+            documentRepository,
+            documentMapper,
+            symbolService,
+            RepoRagPostProcessingRequest.NeighborStrategy.LINEAR,
+            1,
+            3,
+            true);
+
+    List<Document> expanded = processor.process(null, List.of(first, second));
+
+    assertThat(expanded)
+        .extracting(document -> document.getMetadata().get("chunk_hash"))
+        .containsExactly("hash-10", "hash-9", "hash-11", "hash-u3", "hash-u2");
+    assertThat(expanded.get(4).getMetadata().get("neighborOfSpanHash")).isEqualTo("span-u3");
+    verify(documentRepository, times(1))
+        .findByNamespaceAndFilePathInAndChunkIndexIn(
+            Mockito.eq("repo:demo"), Mockito.anyCollection(), Mockito.anyCollection());
+    verifyNoMoreInteractions(documentRepository);
+  }
+
   @Test
   void usesCallGraphNeighborsFromService() {
     Document anchor = buildDocumentWithExtra(
@@ -92,16 +129,18 @@ class NeighborChunkDocumentPostProcessorTest {
         0.5,
         Map.of("symbol_fqn", "class Demo"));
     RepoRagDocumentEntity referenced = entity("repo:demo", "src/Service.java", 2, "hash-6");
-    when(symbolService.findCallGraphNeighbors("repo:demo", "class Demo"))
+    when(symbolService.findCallGraphNeighborsBatch("repo:demo", Set.of("class Demo")))
         .thenReturn(
-            List.of(
-                new SymbolNeighbor(
-                    "src/Service.java",
-                    2,
-                    "hash-6",
-                    "CALLS",
-                    "com.demo.Service#doWork",
-                    "com.demo.Helper#doWork")));
+            Map.of(
+                "class Demo",
+                List.of(
+                    new SymbolNeighbor(
+                        "src/Service.java",
+                        2,
+                        "hash-6",
+                        "CALLS",
+                        "com.demo.Service#doWork",
+                        "com.demo.Helper#doWork"))));
     when(documentRepository.findByNamespaceAndChunkHashIn("repo:demo", List.of("hash-6")))
         .thenReturn(List.of(referenced));
 
@@ -125,6 +164,47 @@ class NeighborChunkDocumentPostProcessorTest {
         .isEqualTo("com.demo.Helper#doWork");
   }
 
+  @Test
+  void resolvesCallGraphForAllAnchorsWithOneLookupPerNamespace() {
+    Document first =
+        buildDocumentWithExtra(
+            "repo:demo", "src/A.java", 1, "hash-a", "span-a", 0.9, Map.of("symbol_fqn", "A#run"));
+    Document second =
+        buildDocumentWithExtra(
+            "repo:demo", "src/B.java", 1, "hash-b", "span-b", 0.8, Map.of("symbol_fqn", "B#run"));
+    Document third =
+        buildDocumentWithExtra(
+            "repo:demo", "src/A.java", 2, "hash-a2", "span-a2", 0.7, Map.of("symbol_fqn", "A#run"));
+    when(symbolService.findCallGraphNeighborsBatch(Mockito.eq("repo:demo"), Mockito.anyCollection()))
+        .thenReturn(
+            Map.of(
+                "A#run",
+                List.of(new SymbolNeighbor("src/C.java", 3, "hash-c", "CALLS", "A#run", "C#run")),
+                "B#run",
+                List.of()));
+    when(documentRepository.findByNamespaceAndChunkHashIn("repo:demo", List.of("hash-c")))
+        .thenReturn(List.of(entity("repo:demo", "src/C.java", 3, "hash-c")));
+
+    NeighborChunkDocumentPostProcessor processor =
+        new NeighborChunkDocumentPostProcessor(
+            documentRepository,
+            documentMapper,
+            symbolService,
+            RepoRagPostProcessingRequest.NeighborStrategy.CALL_GRAPH,
+            0,
+            4,
+            true);
+
+    List<Document> expanded = processor.process(null, List.of(first, second, third));
+
+    assertThat(expanded).hasSize(4);
+    verify(symbolService, times(1))
+        .findCallGraphNeighborsBatch("repo:demo", Set.of("A#run", "B#run"));
+    verify(symbolService, never()).findCallGraphNeighbors(Mockito.anyString(), Mockito.anyString());
+    verify(documentRepository, times(1))
+        .findByNamespaceAndChunkHashIn(Mockito.eq("repo:demo"), Mockito.anyList());
+  }
+
   @Test
   void callGraphNeighborsDisabledWhenAstNotReady() {
     Document anchor =
@@ -2,6 +2,8 @@ package com.aiadvent.backend.chat.config;
 
 import com.aiadvent.backend.chat.memory.DatabaseChatMemoryRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.memory.ChatMemoryRepository;
@@ -18,9 +20,13 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 public class ChatMemoryConfiguration {
 
   @Bean
-  public ChatMemoryRepository chatMemoryRepository(
-      NamedParameterJdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
-    return new DatabaseChatMemoryRepository(jdbcTemplate, objectMapper);
+  public DatabaseChatMemoryRepository chatMemoryRepository(
+      NamedParameterJdbcTemplate jdbcTemplate,
+      ObjectMapper objectMapper,
+      ChatMemoryProperties properties,
+      ObjectProvider<MeterRegistry> meterRegistry) {
+    return new DatabaseChatMemoryRepository(
+        jdbcTemplate, objectMapper, properties, meterRegistry.getIfAvailable());
   }
 
   @Bean
@@ -1,11 +1,15 @@
 package com.aiadvent.backend.chat.config;
 
 import java.time.Duration;
+import java.util.regex.Pattern;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.StringUtils;
 
 @ConfigurationProperties(prefix = "app.chat.memory")
 public class ChatMemoryProperties {
 
+  private static final Pattern CHANNEL_PATTERN = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
   /**
    * Maximum number of messages stored in the sliding window that is sent to the LLM
    * on each request.
@@ -25,6 +29,15 @@ public class ChatMemoryProperties {
    */
   private Duration cleanupInterval = Duration.ofMinutes(30);
 
+  /**
+   * Stores the window as an append-only log keyed by {@code message_order}: a save inserts only
+   * the new tail and deletes the prefix that fell out of the window instead of rewriting every
+   * row. Disable to fall back to the delete-and-reinsert behaviour.
+   */
+  private boolean appendOnly = true;
+
+  private HotCacheProperties hotCache = new HotCacheProperties();
+
   private SummarizationProperties summarization = new SummarizationProperties();
 
   public int getWindowSize() {
@@ -51,6 +64,22 @@ public class ChatMemoryProperties {
     this.cleanupInterval = cleanupInterval;
   }
 
+  public boolean isAppendOnly() {
+    return appendOnly;
+  }
+
+  public void setAppendOnly(boolean appendOnly) {
+    this.appendOnly = appendOnly;
+  }
+
+  public HotCacheProperties getHotCache() {
+    return hotCache;
+  }
+
+  public void setHotCache(HotCacheProperties hotCache) {
+    this.hotCache = hotCache;
+  }
+
   public SummarizationProperties getSummarization() {
     return summarization;
   }
@@ -59,6 +88,84 @@ public class ChatMemoryProperties {
     this.summarization = summarization;
   }
 
+  public static class HotCacheProperties {
+
+    /**
+     * Keeps the last loaded window of active sessions in process so a regular turn does not read
+     * the database. Only used together with {@code append-only}.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of session windows kept in the cache.
+     */
+    private int maxSessions = 5000;
+
+    /**
+     * Entries expire after this much time without access. Also bounds staleness when
+     * cross-node notifications are disabled.
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    /**
+     * Publishes window changes through Postgres NOTIFY so other backend nodes evict their copy.
+     */
+    private boolean notifyEnabled = true;
+
+    /**
+     * Postgres channel used for invalidation notifications. Must be a plain SQL identifier.
+     */
+    private String notifyChannel = "chat_memory";
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getMaxSessions() {
+      return maxSessions;
+    }
+
+    public void setMaxSessions(int maxSessions) {
+      this.maxSessions = maxSessions;
+    }
+
+    public Duration getTtl() {
+      return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+      this.ttl = ttl;
+    }
+
+    public boolean isNotifyEnabled() {
+      return notifyEnabled;
+    }
+
+    public void setNotifyEnabled(boolean notifyEnabled) {
+      this.notifyEnabled = notifyEnabled;
+    }
+
+    public String getNotifyChannel() {
+      return notifyChannel;
+    }
+
+    public void setNotifyChannel(String notifyChannel) {
+      if (StringUtils.hasText(notifyChannel)) {
+        String normalized = notifyChannel.trim();
+        if (!CHANNEL_PATTERN.matcher(normalized).matches()) {
+          throw new IllegalArgumentException(
+              "app.chat.memory.hot-cache.notify-channel must be a lower-case SQL identifier: "
+                  + notifyChannel);
+        }
+        this.notifyChannel = normalized;
+      }
+    }
+  }
+
   public static class SummarizationProperties {
 
     /**
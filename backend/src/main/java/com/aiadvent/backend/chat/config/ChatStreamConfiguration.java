@@ -0,0 +1,18 @@
+package com.aiadvent.backend.chat.config;
+
+import com.aiadvent.backend.chat.stream.SseFrameCoalescer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ChatStreamProperties.class)
+public class ChatStreamConfiguration {
+
+  @Bean(destroyMethod = "shutdown")
+  public SseFrameCoalescer sseFrameCoalescer(
+      ChatStreamProperties properties, MeterRegistry meterRegistry) {
+    return new SseFrameCoalescer(properties, meterRegistry);
+  }
+}
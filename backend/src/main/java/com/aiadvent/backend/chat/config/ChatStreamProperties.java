@@ -0,0 +1,90 @@
+package com.aiadvent.backend.chat.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.chat.stream")
+public class ChatStreamProperties {
+
+  /**
+   * Merges provider tokens into larger SSE frames. When disabled every token is sent as its own
+   * frame on the provider thread.
+   */
+  private boolean coalesceEnabled = true;
+
+  /**
+   * Maximum time a token waits in the buffer before the frame is flushed. The first token of a
+   * stream is always sent immediately.
+   */
+  private Duration flushInterval = Duration.ofMillis(40);
+
+  /**
+   * Frame size (UTF-8 bytes) that triggers a flush before the interval elapses.
+   */
+  private int maxFrameBytes = 2048;
+
+  /**
+   * Upper bound of text buffered for one stream while the client is not keeping up.
+   */
+  private int maxBufferedBytes = 256 * 1024;
+
+  /**
+   * What to do once a client falls behind by more than {@link #maxBufferedBytes}.
+   */
+  private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.MERGE;
+
+  public boolean isCoalesceEnabled() {
+    return coalesceEnabled;
+  }
+
+  public void setCoalesceEnabled(boolean coalesceEnabled) {
+    this.coalesceEnabled = coalesceEnabled;
+  }
+
+  public Duration getFlushInterval() {
+    return flushInterval;
+  }
+
+  public void setFlushInterval(Duration flushInterval) {
+    if (flushInterval != null && !flushInterval.isNegative() && !flushInterval.isZero()) {
+      this.flushInterval = flushInterval;
+    }
+  }
+
+  public int getMaxFrameBytes() {
+    return maxFrameBytes;
+  }
+
+  public void setMaxFrameBytes(int maxFrameBytes) {
+    this.maxFrameBytes = Math.max(1, maxFrameBytes);
+  }
+
+  public int getMaxBufferedBytes() {
+    return maxBufferedBytes;
+  }
+
+  public void setMaxBufferedBytes(int maxBufferedBytes) {
+    this.maxBufferedBytes = Math.max(1, maxBufferedBytes);
+  }
+
+  public SlowConsumerPolicy getSlowConsumerPolicy() {
+    return slowConsumerPolicy;
+  }
+
+  public void setSlowConsumerPolicy(SlowConsumerPolicy slowConsumerPolicy) {
+    if (slowConsumerPolicy != null) {
+      this.slowConsumerPolicy = slowConsumerPolicy;
+    }
+  }
+
+  public enum SlowConsumerPolicy {
+    /**
+     * Keeps what is buffered, stops sending further token frames and lets the {@code complete}
+     * event deliver the full answer.
+     */
+    MERGE,
+
+    /** Closes the stream and cancels the provider request. */
+    DISCONNECT
+  }
+}
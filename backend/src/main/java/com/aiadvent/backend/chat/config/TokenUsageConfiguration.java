@@ -1,6 +1,7 @@
 package com.aiadvent.backend.chat.config;
 
 import com.aiadvent.backend.chat.token.DefaultTokenUsageEstimator;
+import com.aiadvent.backend.chat.token.LocalTokenUsageCache;
 import com.aiadvent.backend.chat.token.TokenUsageCache;
 import com.aiadvent.backend.chat.token.TokenUsageEstimator;
 import com.aiadvent.backend.chat.token.TokenUsageMetrics;
@@ -43,6 +44,18 @@ public class TokenUsageConfiguration {
       TokenUsageMetrics metrics) {
     TokenUsageProperties.Cache cacheProperties =
         Optional.ofNullable(properties.getCache()).orElseGet(TokenUsageProperties.Cache::new);
+    TokenUsageCache remote = redisCache(cacheProperties, redisTemplateProvider, metrics);
+    if (!cacheProperties.isLocalEnabled()) {
+      return remote;
+    }
+    return new LocalTokenUsageCache(
+        cacheProperties.getLocalMaxEntries(), cacheProperties.getLocalTtl(), remote, metrics);
+  }
+
+  private TokenUsageCache redisCache(
+      TokenUsageProperties.Cache cacheProperties,
+      ObjectProvider<StringRedisTemplate> redisTemplateProvider,
+      TokenUsageMetrics metrics) {
     if (!cacheProperties.isEnabled()) {
       return TokenUsageCache.noOp();
     }
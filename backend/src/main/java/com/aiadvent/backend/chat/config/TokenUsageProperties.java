@@ -58,6 +58,18 @@ public class TokenUsageProperties {
     /** Prefix appended to Redis keys that store cached token counts. */
     private String keyPrefix = "chat:usage";
 
+    /**
+     * Enables the in-process tier in front of Redis. Works without Redis as well, so per-message
+     * counts survive between preflight checks of the same node.
+     */
+    private boolean localEnabled = true;
+
+    /** Maximum number of token counts kept in the in-process tier. */
+    private long localMaxEntries = 50_000;
+
+    /** Entries of the in-process tier expire after this much time without access. */
+    private Duration localTtl = Duration.ofMinutes(30);
+
     public boolean isEnabled() {
       return enabled;
     }
@@ -81,5 +93,29 @@ public class TokenUsageProperties {
     public void setKeyPrefix(String keyPrefix) {
       this.keyPrefix = keyPrefix;
     }
+
+    public boolean isLocalEnabled() {
+      return localEnabled;
+    }
+
+    public void setLocalEnabled(boolean localEnabled) {
+      this.localEnabled = localEnabled;
+    }
+
+    public long getLocalMaxEntries() {
+      return localMaxEntries;
+    }
+
+    public void setLocalMaxEntries(long localMaxEntries) {
+      this.localMaxEntries = localMaxEntries;
+    }
+
+    public Duration getLocalTtl() {
+      return localTtl;
+    }
+
+    public void setLocalTtl(Duration localTtl) {
+      this.localTtl = localTtl;
+    }
   }
 }
@@ -16,6 +16,8 @@ import com.aiadvent.backend.chat.service.ChatResearchToolBindingService;
 import com.aiadvent.backend.chat.service.ChatResearchToolBindingService.ResearchContext;
 import com.aiadvent.backend.chat.service.ChatService;
 import com.aiadvent.backend.chat.service.ConversationContext;
+import com.aiadvent.backend.chat.stream.SseFrameCoalescer;
+import com.aiadvent.backend.chat.stream.SseFrameCoalescer.TokenStream;
 import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.validation.Valid;
 import java.io.IOException;
@@ -52,16 +54,19 @@ public class ChatStreamController {
   private final ChatProviderService chatProviderService;
   private final ChatSummarizationPreflightManager preflightManager;
   private final ChatResearchToolBindingService researchToolBindingService;
+  private final SseFrameCoalescer frameCoalescer;
 
   public ChatStreamController(
       ChatService chatService,
       ChatProviderService chatProviderService,
       ChatSummarizationPreflightManager preflightManager,
-      ChatResearchToolBindingService researchToolBindingService) {
+      ChatResearchToolBindingService researchToolBindingService,
+      SseFrameCoalescer frameCoalescer) {
     this.chatService = chatService;
     this.chatProviderService = chatProviderService;
     this.preflightManager = preflightManager;
     this.researchToolBindingService = researchToolBindingService;
+    this.frameCoalescer = frameCoalescer;
   }
 
   @PostMapping(
@@ -101,6 +106,15 @@ public class ChatStreamController {
         ChatStreamEvent.session(
             context.sessionId(), context.newSession(), selection.providerId(), selection.modelId()));
 
+    AtomicReference<Disposable> subscriptionRef = new AtomicReference<>();
+    TokenStream tokenStream =
+        frameCoalescer.open(
+            emitter,
+            content ->
+                ChatStreamEvent.token(
+                    context.sessionId(), content, selection.providerId(), selection.modelId()),
+            () -> disposeSubscription(subscriptionRef));
+
     StringBuilder assistantResponse = new StringBuilder();
     ChatOptions chatOptions =
         chatProviderService.buildStreamingOptions(selection, resolveOverrides(request.options()));
@@ -123,19 +137,16 @@ public class ChatStreamController {
 
     Flux<ChatResponse> responseFlux = promptSpec.options(chatOptions).stream().chatResponse();
 
-    AtomicReference<Disposable> subscriptionRef = new AtomicReference<>();
-
     Disposable subscription =
         responseFlux.subscribe(
             response ->
                 handleChunk(
                     response,
                     context.sessionId(),
-                    selection,
                     assistantResponse,
                     usageRef,
-                    emitter),
-            error -> handleError(error, context.sessionId(), selection, emitter),
+                    tokenStream),
+            error -> handleError(error, context.sessionId(), selection, emitter, tokenStream),
             () ->
                 handleCompletion(
                     context.sessionId(),
@@ -144,16 +155,21 @@ public class ChatStreamController {
                     assistantResponse,
                     usageRef,
                     emitter,
+                    tokenStream,
                     researchContext));
 
     subscriptionRef.set(subscription);
 
-    emitter.onCompletion(() -> disposeSubscription(subscriptionRef));
+    emitter.onCompletion(
+        () -> {
+          disposeSubscription(subscriptionRef);
+          tokenStream.close();
+        });
+    emitter.onError(error -> tokenStream.close());
     emitter.onTimeout(
         () -> {
           disposeSubscription(subscriptionRef);
-          emit(
-              emitter,
+          tokenStream.finish(
               "error",
               ChatStreamEvent.error(
                   context.sessionId(),
@@ -169,10 +185,9 @@ public class ChatStreamController {
   private void handleChunk(
       ChatResponse response,
       UUID sessionId,
-      ChatProviderSelection selection,
       StringBuilder assistantResponse,
       AtomicReference<Usage> usageRef,
-      SseEmitter emitter) {
+      TokenStream tokenStream) {
     if (response.getResults() != null) {
       response
           .getResults()
@@ -187,11 +202,7 @@ public class ChatStreamController {
                 if (log.isDebugEnabled()) {
                   log.debug("Stream chunk for session {}: {}", sessionId, content);
                 }
-                emit(
-                    emitter,
-                    "token",
-                    ChatStreamEvent.token(
-                        sessionId, content, selection.providerId(), selection.modelId()));
+                tokenStream.append(content);
               });
     }
 
@@ -208,6 +219,7 @@ public class ChatStreamController {
       StringBuilder assistantResponse,
       AtomicReference<Usage> usageRef,
       SseEmitter emitter,
+      TokenStream tokenStream,
       ResearchContext researchContext) {
     String content = assistantResponse.toString();
     Usage usage = usageRef.get();
@@ -228,8 +240,7 @@ public class ChatStreamController {
         selection.modelId(),
         ChatStructuredPayload.empty(),
         usageCost);
-    emit(
-        emitter,
+    tokenStream.finish(
         "complete",
         ChatStreamEvent.complete(
             sessionId,
@@ -246,11 +257,14 @@ public class ChatStreamController {
   }
 
   private void handleError(
-      Throwable error, UUID sessionId, ChatProviderSelection selection, SseEmitter emitter) {
+      Throwable error,
+      UUID sessionId,
+      ChatProviderSelection selection,
+      SseEmitter emitter,
+      TokenStream tokenStream) {
     String message = buildErrorMessage(error);
     logError(sessionId, error);
-    emit(
-        emitter,
+    tokenStream.finish(
         "error",
         ChatStreamEvent.error(sessionId, message, selection.providerId(), selection.modelId()));
     emitter.complete();
@@ -0,0 +1,68 @@
+package com.aiadvent.backend.chat.memory;
+
+import com.aiadvent.backend.chat.config.ChatMemoryProperties;
+import com.aiadvent.backend.flow.persistence.PostgresNotificationListener;
+import jakarta.annotation.PreDestroy;
+import java.util.UUID;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts cached chat memory windows changed by other backend nodes. Notifications written by this
+ * node are skipped: the repository already updated its cache. After every (re)connect the whole
+ * cache is dropped because notifications sent while nobody was listening are lost.
+ */
+@Component
+@Slf4j
+public class ChatMemoryInvalidationListener {
+
+  private final DatabaseChatMemoryRepository repository;
+  private final ChatMemoryProperties properties;
+  private final PostgresNotificationListener listener;
+
+  public ChatMemoryInvalidationListener(
+      DataSource dataSource,
+      DatabaseChatMemoryRepository repository,
+      ChatMemoryProperties properties) {
+    this.repository = repository;
+    this.properties = properties;
+    this.listener =
+        new PostgresNotificationListener(
+            dataSource,
+            properties.getHotCache().getNotifyChannel(),
+            "chat-memory-listener",
+            this::handle,
+            repository::evictAll);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    ChatMemoryProperties.HotCacheProperties hotCache = properties.getHotCache();
+    if (properties.isAppendOnly() && hotCache.isEnabled() && hotCache.isNotifyEnabled()) {
+      listener.start();
+    }
+  }
+
+  @PreDestroy
+  public void stop() {
+    listener.stop();
+  }
+
+  void handle(String payload) {
+    if (payload == null) {
+      return;
+    }
+    int separator = payload.indexOf('|');
+    if (separator <= 0 || payload.substring(0, separator).equals(repository.nodeId())) {
+      return;
+    }
+    try {
+      repository.evict(UUID.fromString(payload.substring(separator + 1)));
+    } catch (IllegalArgumentException ex) {
+      log.debug("Ignoring malformed chat memory notification '{}'", payload);
+    }
+  }
+}
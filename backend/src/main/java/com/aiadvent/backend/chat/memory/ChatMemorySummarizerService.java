@@ -279,24 +279,23 @@ public class ChatMemorySummarizerService {
     if (tokenUsageEstimator == null) {
       return 0;
     }
-    String promptPayload = toPromptPayload(input.messages());
+    // per-message parts let the estimator reuse cached counts and tokenize only new messages
     Estimate estimate =
         tokenUsageEstimator.estimate(
-            new EstimateRequest(
+            EstimateRequest.ofPromptParts(
                 input.targetProviderId(),
                 input.targetModelId(),
                 input.tokenizerOverride(),
-                promptPayload,
-                null));
+                toPromptParts(input.messages())));
     if (estimate == null) {
       return 0;
     }
     return estimate.totalTokens();
   }
 
-  private String toPromptPayload(List<Message> messages) {
+  private List<String> toPromptParts(List<Message> messages) {
     if (messages == null || messages.isEmpty()) {
-      return "";
+      return List.of();
     }
     return messages.stream()
         .map(
@@ -304,7 +303,7 @@ public class ChatMemorySummarizerService {
                 message.getMessageType().name().toLowerCase()
                     + ": "
                     + StringUtils.trimWhitespace(message.getText()))
-        .collect(Collectors.joining("\n"));
+        .toList();
   }
 
   public boolean tryAcquireSlot() {
@@ -423,6 +422,10 @@ public class ChatMemorySummarizerService {
 
     persistSummary(session, summaryText.get(), summaryCount);
     chatMemoryRepository.saveAll(session.getId().toString(), tail);
+    // cached windows carry the summary list, which saveAll alone does not refresh
+    if (chatMemoryRepository instanceof DatabaseChatMemoryRepository databaseRepository) {
+      databaseRepository.invalidate(session.getId());
+    }
     log.info(
         "Summarised chat session {}: messages summarised={}, remaining={}, tokensEstimate={}",
         session.getId(),
@@ -1,13 +1,18 @@
 package com.aiadvent.backend.chat.memory;
 
+import com.aiadvent.backend.chat.config.ChatMemoryProperties;
 import com.aiadvent.backend.chat.memory.model.ChatMemoryMessageMetadata;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -19,13 +24,29 @@ import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.MessageType;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
+/**
+ * JDBC-backed chat memory window.
+ *
+ * <p>In append-only mode {@code message_order} grows monotonically per session: a save compares
+ * the incoming window with the stored one, inserts only the new tail and prunes the prefix that
+ * fell out of the window with one range delete. Reads fetch at most {@code window-size} rows and
+ * are served from a bounded per-session cache that other nodes invalidate through Postgres
+ * NOTIFY, so a regular turn costs one insert and no reads. Windows that cannot be expressed as
+ * "drop a prefix, append a tail" (for example when {@link
+ * org.springframework.ai.chat.memory.MessageWindowChatMemory} keeps an old system message while
+ * trimming) are rewritten in full.
+ */
 @Slf4j
 public class DatabaseChatMemoryRepository implements ChatMemoryRepository {
 
@@ -36,6 +57,14 @@ public class DatabaseChatMemoryRepository implements ChatMemoryRepository {
       WHERE session_id = :sessionId
       ORDER BY message_order ASC
       """;
+  private static final String SELECT_WINDOW_SQL =
+      """
+      SELECT message_order, role, content, metadata
+      FROM chat_memory_message
+      WHERE session_id = :sessionId
+      ORDER BY message_order DESC
+      LIMIT :limit
+      """;
   private static final String SELECT_SUMMARY_SQL =
       """
       SELECT source_start_order, source_end_order, summary_text, token_count, language, metadata
@@ -47,6 +76,9 @@ public class DatabaseChatMemoryRepository implements ChatMemoryRepository {
   private static final String DELETE_SQL =
       "DELETE FROM chat_memory_message WHERE session_id = :sessionId";
 
+  private static final String DELETE_PREFIX_SQL =
+      "DELETE FROM chat_memory_message WHERE session_id = :sessionId AND message_order < :firstKeptOrder";
+
   private static final String INSERT_SQL =
       """
       INSERT INTO chat_memory_message
@@ -61,13 +93,74 @@ public class DatabaseChatMemoryRepository implements ChatMemoryRepository {
   private static final String SELECT_IDS_SQL =
       "SELECT DISTINCT session_id FROM chat_memory_message";
 
+  private static final String NOTIFY_SQL = "SELECT pg_notify(:channel, :payload)";
+
   private final NamedParameterJdbcTemplate jdbcTemplate;
   private final ObjectMapper objectMapper;
+  private final boolean appendOnly;
+  private final int windowSize;
+  @Nullable private final Cache<UUID, Window> windowCache;
+  @Nullable private final String notifyChannel;
+  @Nullable private final MeterRegistry meterRegistry;
+  private final String nodeId = UUID.randomUUID().toString();
 
   public DatabaseChatMemoryRepository(
       NamedParameterJdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+    this(jdbcTemplate, objectMapper, null, null);
+  }
+
+  public DatabaseChatMemoryRepository(
+      NamedParameterJdbcTemplate jdbcTemplate,
+      ObjectMapper objectMapper,
+      @Nullable ChatMemoryProperties properties,
+      @Nullable MeterRegistry meterRegistry) {
     this.jdbcTemplate = jdbcTemplate;
     this.objectMapper = objectMapper;
+    this.meterRegistry = meterRegistry;
+    this.appendOnly = properties != null && properties.isAppendOnly();
+    this.windowSize = properties != null ? Math.max(1, properties.getWindowSize()) : Integer.MAX_VALUE;
+    ChatMemoryProperties.HotCacheProperties hotCache =
+        properties != null ? properties.getHotCache() : null;
+    if (appendOnly && hotCache != null && hotCache.isEnabled()) {
+      this.windowCache =
+          Caffeine.newBuilder()
+              .maximumSize(Math.max(1, hotCache.getMaxSessions()))
+              .expireAfterAccess(hotCache.getTtl())
+              .build();
+      this.notifyChannel = hotCache.isNotifyEnabled() ? hotCache.getNotifyChannel() : null;
+    } else {
+      this.windowCache = null;
+      this.notifyChannel = null;
+    }
+  }
+
+  /** Identifies this repository in invalidation notifications so it can skip its own writes. */
+  String nodeId() {
+    return nodeId;
+  }
+
+  /** Drops the cached window of a session after another node changed it. */
+  public void evict(UUID sessionId) {
+    if (windowCache != null && sessionId != null) {
+      windowCache.invalidate(sessionId);
+    }
+  }
+
+  /**
+   * Drops the cached window of a session on this node and its peers, e.g. after a summary was
+   * written for it.
+   */
+  public void invalidate(UUID sessionId) {
+    if (appendOnly && sessionId != null) {
+      afterWrite(sessionId, null);
+    }
+  }
+
+  /** Drops every cached window, e.g. after invalidation notifications may have been missed. */
+  public void evictAll() {
+    if (windowCache != null) {
+      windowCache.invalidateAll();
+    }
   }
 
   @Override
@@ -90,6 +183,9 @@ public class DatabaseChatMemoryRepository implements ChatMemoryRepository {
     if (sessionId == null) {
       return List.of();
     }
+    if (appendOnly) {
+      return window(sessionId).asMessages();
+    }
 
     List<StoredMessage> storedMessages =
         jdbcTemplate.query(
@@ -125,6 +221,20 @@ public class DatabaseChatMemoryRepository implements ChatMemoryRepository {
     if (sessionId == null) {
       return;
     }
+    if (appendOnly) {
+      try {
+        saveIncrementally(sessionId, messages, window(sessionId));
+      } catch (DuplicateKeyException exception) {
+        // another writer appended to the same session since our window was loaded
+        evict(sessionId);
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+          throw exception;
+        }
+        log.debug("Chat memory window of session {} changed concurrently, reloading", sessionId);
+        saveIncrementally(sessionId, messages, loadWindow(sessionId));
+      }
+      return;
+    }
 
     jdbcTemplate.update(DELETE_SQL, new MapSqlParameterSource("sessionId", sessionId));
 
@@ -151,6 +261,217 @@ public class DatabaseChatMemoryRepository implements ChatMemoryRepository {
       return;
     }
     jdbcTemplate.update(DELETE_SQL, new MapSqlParameterSource("sessionId", sessionId));
+    if (appendOnly) {
+      evict(sessionId);
+      notifyPeers(sessionId);
+    }
+  }
+
+  private Window window(UUID sessionId) {
+    if (windowCache == null) {
+      return loadWindow(sessionId);
+    }
+    Window cached = windowCache.getIfPresent(sessionId);
+    recordCache(cached != null ? "hit" : "miss");
+    if (cached != null) {
+      return cached;
+    }
+    Window loaded = loadWindow(sessionId);
+    windowCache.put(sessionId, loaded);
+    return loaded;
+  }
+
+  private Window loadWindow(UUID sessionId) {
+    MapSqlParameterSource params =
+        new MapSqlParameterSource("sessionId", sessionId).addValue("limit", windowSize);
+    List<StoredMessage> rows =
+        new ArrayList<>(
+            jdbcTemplate.query(
+                SELECT_WINDOW_SQL,
+                params,
+                (rs, rowNum) -> new StoredMessage(rs.getInt("message_order"), mapMessage(rs))));
+    Collections.reverse(rows);
+    int lastOrder = rows.isEmpty() ? 0 : rows.get(rows.size() - 1).messageOrder();
+    List<Message> summaries =
+        findSummaries(sessionId).stream().map(SummaryRow::asMessage).toList();
+    return new Window(summaries, List.copyOf(rows), lastOrder);
+  }
+
+  /**
+   * Applies the incoming window as "drop a stored prefix, append a new tail". The incoming
+   * messages must continue the stored rows in order; otherwise the window is rewritten in full
+   * with orders that keep growing. Summary messages come from {@code chat_memory_summary} and are
+   * never stored as rows.
+   */
+  private void saveIncrementally(UUID sessionId, List<Message> messages, Window current) {
+    List<Message> incoming = new ArrayList<>();
+    if (messages != null) {
+      for (Message message : messages) {
+        if (message != null && !isSummary(message)) {
+          incoming.add(message);
+        }
+      }
+    }
+    List<StoredMessage> stored = current.rows();
+    if (incoming.isEmpty()) {
+      if (!stored.isEmpty()) {
+        jdbcTemplate.update(DELETE_SQL, new MapSqlParameterSource("sessionId", sessionId));
+        recordWrite("rewrite");
+      }
+      afterWrite(sessionId, null);
+      return;
+    }
+
+    int offset = findOverlap(stored, incoming);
+    if (offset < 0) {
+      rewrite(sessionId, incoming, current);
+      return;
+    }
+    int matched = Math.min(incoming.size(), stored.size() - offset);
+    List<Message> appended = incoming.subList(matched, incoming.size());
+    List<StoredMessage> kept = new ArrayList<>(stored.subList(offset, stored.size()));
+
+    if (!appended.isEmpty()) {
+      if (stored.isEmpty()) {
+        ensureSessionExists(sessionId);
+      }
+      List<SqlParameterSource> batch = new ArrayList<>(appended.size());
+      int order = current.lastOrder();
+      for (Message message : appended) {
+        order++;
+        batch.add(toSqlParameters(sessionId, message, order));
+        kept.add(new StoredMessage(order, message));
+      }
+      jdbcTemplate.batchUpdate(INSERT_SQL, batch.toArray(new SqlParameterSource[0]));
+      recordWrite("append");
+    }
+    if (offset > 0) {
+      jdbcTemplate.update(
+          DELETE_PREFIX_SQL,
+          new MapSqlParameterSource("sessionId", sessionId)
+              .addValue("firstKeptOrder", stored.get(offset).messageOrder()));
+      recordWrite("prune");
+    }
+    if (appended.isEmpty() && offset == 0) {
+      return;
+    }
+    // a prune without new messages comes from summarisation, which has just written a summary
+    Window updated =
+        appended.isEmpty()
+            ? null
+            : new Window(current.summaries(), List.copyOf(kept), kept.get(kept.size() - 1).messageOrder());
+    afterWrite(sessionId, updated);
+  }
+
+  private void rewrite(UUID sessionId, List<Message> incoming, Window current) {
+    jdbcTemplate.update(DELETE_SQL, new MapSqlParameterSource("sessionId", sessionId));
+    ensureSessionExists(sessionId);
+    List<SqlParameterSource> batch = new ArrayList<>(incoming.size());
+    int order = current.lastOrder();
+    for (Message message : incoming) {
+      order++;
+      batch.add(toSqlParameters(sessionId, message, order));
+    }
+    jdbcTemplate.batchUpdate(INSERT_SQL, batch.toArray(new SqlParameterSource[0]));
+    recordWrite("rewrite");
+    afterWrite(sessionId, null);
+  }
+
+  /**
+   * Returns the index of the stored row the incoming window starts at, or -1 when the incoming
+   * window does not continue the stored rows. The window is aligned against the end of the stored
+   * rows first, so a tail that repeats an earlier message ("ok", "continue") prunes up to the right
+   * row. Only when no such alignment exists may the window stop before the stored end: the caller
+   * has then not seen rows appended concurrently, and those rows are kept.
+   */
+  private static int findOverlap(List<StoredMessage> stored, List<Message> incoming) {
+    if (stored.isEmpty()) {
+      return 0;
+    }
+    int partial = -1;
+    for (int offset = 0; offset < stored.size(); offset++) {
+      int remaining = stored.size() - offset;
+      int length = Math.min(incoming.size(), remaining);
+      boolean matches = true;
+      for (int i = 0; i < length && matches; i++) {
+        matches = sameMessage(stored.get(offset + i).message(), incoming.get(i));
+      }
+      if (!matches) {
+        continue;
+      }
+      if (length == remaining) {
+        return offset;
+      }
+      if (partial < 0) {
+        partial = offset;
+      }
+    }
+    return partial;
+  }
+
+  private static boolean sameMessage(Message stored, Message incoming) {
+    if (stored == incoming) {
+      return true;
+    }
+    return stored.getMessageType() == incoming.getMessageType()
+        && Objects.equals(stored.getText(), incoming.getText())
+        && Objects.equals(stored.getMetadata(), incoming.getMetadata());
+  }
+
+  private static boolean isSummary(Message message) {
+    Object flag = message.getMetadata() != null ? message.getMetadata().get("summary") : null;
+    if (flag instanceof Boolean booleanValue) {
+      return booleanValue;
+    }
+    return flag != null && Boolean.parseBoolean(flag.toString());
+  }
+
+  private void afterWrite(UUID sessionId, @Nullable Window updated) {
+    if (windowCache != null) {
+      if (updated != null) {
+        windowCache.put(sessionId, updated);
+      } else {
+        windowCache.invalidate(sessionId);
+      }
+      if (TransactionSynchronizationManager.isSynchronizationActive()) {
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+              @Override
+              public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                  evict(sessionId);
+                }
+              }
+            });
+      }
+    }
+    notifyPeers(sessionId);
+  }
+
+  private void notifyPeers(UUID sessionId) {
+    if (notifyChannel == null) {
+      return;
+    }
+    try {
+      jdbcTemplate.queryForList(
+          NOTIFY_SQL,
+          new MapSqlParameterSource("channel", notifyChannel)
+              .addValue("payload", nodeId + "|" + sessionId));
+    } catch (DataAccessException exception) {
+      log.debug("Failed to notify peers about chat memory session {}: {}", sessionId, exception.getMessage());
+    }
+  }
+
+  private void recordCache(String result) {
+    if (meterRegistry != null) {
+      meterRegistry.counter("chat_memory_window_cache", "result", result).increment();
+    }
+  }
+
+  private void recordWrite(String mode) {
+    if (meterRegistry != null) {
+      meterRegistry.counter("chat_memory_window_writes", "mode", mode).increment();
+    }
   }
 
   private Message mapMessage(ResultSet resultSet) throws SQLException {
@@ -232,6 +553,16 @@ public class DatabaseChatMemoryRepository implements ChatMemoryRepository {
 
   private record StoredMessage(int messageOrder, Message message) {}
 
+  private record Window(List<Message> summaries, List<StoredMessage> rows, int lastOrder) {
+
+    List<Message> asMessages() {
+      List<Message> result = new ArrayList<>(summaries.size() + rows.size());
+      result.addAll(summaries);
+      rows.forEach(row -> result.add(row.message()));
+      return result;
+    }
+  }
+
   private final class SummaryRow {
     private final int sourceStartOrder;
     private final int sourceEndOrder;
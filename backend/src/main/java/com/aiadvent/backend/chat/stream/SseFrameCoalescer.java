@@ -0,0 +1,305 @@
+package com.aiadvent.backend.chat.stream;
+
+import com.aiadvent.backend.chat.config.ChatStreamProperties;
+import com.aiadvent.backend.chat.config.ChatStreamProperties.SlowConsumerPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Turns provider tokens into SSE frames. Tokens are buffered per stream and flushed once
+ * {@code flush-interval} elapses or the frame reaches {@code max-frame-bytes}, whichever comes
+ * first; the first token of a stream goes out immediately. Frames are written on virtual threads,
+ * so a slow client never blocks the provider stream: while one frame is being written the next
+ * tokens merge into the following frame, up to {@code max-buffered-bytes}.
+ */
+@Slf4j
+public class SseFrameCoalescer {
+
+  private final ChatStreamProperties properties;
+  private final MeterRegistry meterRegistry;
+  private final ScheduledExecutorService scheduler;
+  private final ExecutorService sendExecutor;
+
+  public SseFrameCoalescer(ChatStreamProperties properties, MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "chat-sse-coalescer");
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.sendExecutor =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("chat-sse-send-", 0).factory());
+  }
+
+  /**
+   * Opens a coalescing stream on top of {@code emitter}. {@code tokenFrame} builds the payload of
+   * a {@code token} event from merged text; {@code onDisconnect} cancels the upstream request when
+   * the client is gone or gets disconnected by the slow-consumer policy.
+   */
+  public TokenStream open(
+      SseEmitter emitter, Function<String, ?> tokenFrame, Runnable onDisconnect) {
+    return new TokenStream(emitter, tokenFrame, onDisconnect);
+  }
+
+  public void shutdown() {
+    scheduler.shutdownNow();
+    sendExecutor.shutdown();
+  }
+
+  static int utf8Length(String text) {
+    int bytes = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        bytes += 1;
+      } else if (c < 0x800) {
+        bytes += 2;
+      } else if (Character.isHighSurrogate(c)) {
+        bytes += 4;
+        i++;
+      } else {
+        bytes += 3;
+      }
+    }
+    return bytes;
+  }
+
+  public final class TokenStream {
+
+    private final SseEmitter emitter;
+    private final Function<String, ?> tokenFrame;
+    private final Runnable onDisconnect;
+    private final Object sendLock = new Object();
+    private final StringBuilder pending = new StringBuilder();
+    private final AtomicInteger frames = new AtomicInteger();
+    private final AtomicBoolean ended = new AtomicBoolean();
+    private int pendingBytes;
+    private int pendingTokens;
+    private long pendingSince;
+    private boolean flushQueued;
+    private boolean firstFrameSent;
+    private boolean degraded;
+    private boolean closed;
+    private ScheduledFuture<?> timer;
+
+    private TokenStream(SseEmitter emitter, Function<String, ?> tokenFrame, Runnable onDisconnect) {
+      this.emitter = emitter;
+      this.tokenFrame = tokenFrame;
+      this.onDisconnect = onDisconnect != null ? onDisconnect : () -> {};
+    }
+
+    public void append(String token) {
+      if (token == null || token.isEmpty()) {
+        return;
+      }
+      if (!properties.isCoalesceEnabled()) {
+        synchronized (sendLock) {
+          long start = System.nanoTime();
+          if (!isClosed() && send("token", tokenFrame.apply(token))) {
+            recordFrame(1, start);
+          }
+        }
+        return;
+      }
+      boolean flushInline = false;
+      boolean submit = false;
+      boolean overflow = false;
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        int bytes = utf8Length(token);
+        if (degraded || pendingBytes + bytes > properties.getMaxBufferedBytes()) {
+          meterRegistry.counter("chat.stream.tokens.dropped").increment();
+          overflow = !degraded;
+          if (overflow) {
+            degraded = true;
+          }
+        } else {
+          if (pendingTokens == 0) {
+            pendingSince = System.nanoTime();
+          }
+          pending.append(token);
+          pendingBytes += bytes;
+          pendingTokens++;
+          if (!flushQueued) {
+            if (!firstFrameSent) {
+              firstFrameSent = true;
+              flushQueued = true;
+              flushInline = true;
+            } else if (pendingBytes >= properties.getMaxFrameBytes()) {
+              flushQueued = true;
+              submit = true;
+            } else if (timer == null) {
+              timer =
+                  scheduler.schedule(
+                      this::onTimer, properties.getFlushInterval().toNanos(), TimeUnit.NANOSECONDS);
+            }
+          }
+        }
+      }
+      if (flushInline) {
+        flush();
+      } else if (submit) {
+        submitFlush();
+      } else if (overflow) {
+        onSlowConsumer();
+      }
+    }
+
+    /**
+     * Flushes buffered tokens and sends a terminal event ({@code complete} or {@code error}).
+     * Further tokens are ignored.
+     */
+    public void finish(String eventName, Object payload) {
+      synchronized (sendLock) {
+        PendingFrame frame;
+        synchronized (this) {
+          if (closed) {
+            return;
+          }
+          closed = true;
+          frame = takePending();
+        }
+        if (frame != null && send("token", tokenFrame.apply(frame.text()))) {
+          recordFrame(frame.tokens(), frame.since());
+        }
+        send(eventName, payload);
+      }
+      recordStreamEnd();
+    }
+
+    /** Drops buffered tokens once the emitter is completed, timed out or failed. */
+    public void close() {
+      synchronized (this) {
+        closed = true;
+        takePending();
+      }
+      recordStreamEnd();
+    }
+
+    private void onTimer() {
+      synchronized (this) {
+        timer = null;
+        if (closed || pendingTokens == 0 || flushQueued) {
+          return;
+        }
+        flushQueued = true;
+      }
+      submitFlush();
+    }
+
+    private void submitFlush() {
+      try {
+        sendExecutor.execute(this::flush);
+      } catch (RejectedExecutionException shuttingDown) {
+        flush();
+      }
+    }
+
+    private void flush() {
+      synchronized (sendLock) {
+        PendingFrame frame;
+        synchronized (this) {
+          flushQueued = false;
+          if (closed) {
+            return;
+          }
+          frame = takePending();
+        }
+        if (frame != null && send("token", tokenFrame.apply(frame.text()))) {
+          recordFrame(frame.tokens(), frame.since());
+        }
+      }
+    }
+
+    /** Must be called while holding the stream monitor. */
+    private PendingFrame takePending() {
+      if (timer != null) {
+        timer.cancel(false);
+        timer = null;
+      }
+      if (pendingTokens == 0) {
+        return null;
+      }
+      PendingFrame frame = new PendingFrame(pending.toString(), pendingTokens, pendingSince);
+      pending.setLength(0);
+      pendingBytes = 0;
+      pendingTokens = 0;
+      return frame;
+    }
+
+    private void onSlowConsumer() {
+      SlowConsumerPolicy policy = properties.getSlowConsumerPolicy();
+      meterRegistry.counter("chat.stream.slow.consumers", "policy", policy.name().toLowerCase()).increment();
+      if (policy == SlowConsumerPolicy.MERGE) {
+        log.debug("SSE client fell behind, token frames suspended until the final event");
+        return;
+      }
+      synchronized (this) {
+        closed = true;
+        takePending();
+      }
+      log.warn("SSE client fell behind by more than {} bytes, closing stream", properties.getMaxBufferedBytes());
+      onDisconnect.run();
+      emitter.completeWithError(new IOException("SSE client is too slow, stream closed"));
+      recordStreamEnd();
+    }
+
+    private boolean send(String eventName, Object payload) {
+      try {
+        emitter.send(SseEmitter.event().name(eventName).data(payload));
+        return true;
+      } catch (IOException | IllegalStateException exception) {
+        log.debug("Failed to send SSE event {}: {}", eventName, exception.getMessage());
+        synchronized (this) {
+          closed = true;
+          takePending();
+        }
+        onDisconnect.run();
+        if (exception instanceof IOException) {
+          emitter.completeWithError(exception);
+        }
+        return false;
+      }
+    }
+
+    private void recordFrame(int tokens, long sinceNanos) {
+      frames.incrementAndGet();
+      meterRegistry.counter("chat.stream.frames").increment();
+      if (tokens > 1) {
+        meterRegistry.counter("chat.stream.tokens.merged").increment(tokens - 1);
+      }
+      meterRegistry
+          .timer("chat.stream.flush.latency")
+          .record(Duration.ofNanos(System.nanoTime() - sinceNanos));
+    }
+
+    private void recordStreamEnd() {
+      if (ended.compareAndSet(false, true)) {
+        meterRegistry.summary("chat.stream.frames.per.stream").record(frames.get());
+      }
+    }
+
+    private synchronized boolean isClosed() {
+      return closed;
+    }
+  }
+
+  private record PendingFrame(String text, int tokens, long since) {}
+}
@@ -5,6 +5,7 @@ import com.knuddels.jtokkit.api.EncodingRegistry;
 import com.knuddels.jtokkit.api.EncodingType;
 import com.knuddels.jtokkit.api.ModelType;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.DigestUtils;
@@ -15,6 +16,7 @@ public class DefaultTokenUsageEstimator implements TokenUsageEstimator {
   private static final Logger log = LoggerFactory.getLogger(DefaultTokenUsageEstimator.class);
   private static final String PROMPT_SEGMENT = "prompt";
   private static final String COMPLETION_SEGMENT = "completion";
+  private static final String PART_SEGMENT = "part";
 
   private final EncodingRegistry encodingRegistry;
   private final TokenUsageCache cache;
@@ -43,7 +45,9 @@ public class DefaultTokenUsageEstimator implements TokenUsageEstimator {
     Encoding encoding = resolveEncoding(tokenizerName);
 
     TokenComputation promptComputation =
-        computeTokenCount(encoding, tokenizerName, PROMPT_SEGMENT, request.prompt());
+        request.promptParts().isEmpty()
+            ? computeTokenCount(encoding, tokenizerName, PROMPT_SEGMENT, request.prompt())
+            : computePartsTokenCount(encoding, tokenizerName, request.promptParts());
     TokenComputation completionComputation =
         computeTokenCount(encoding, tokenizerName, COMPLETION_SEGMENT, request.completion());
 
@@ -70,9 +74,40 @@ public class DefaultTokenUsageEstimator implements TokenUsageEstimator {
         completionComputation.cacheHit());
   }
 
+  /**
+   * Sums cached per-part counts instead of tokenizing the joined prompt. The separator is a
+   * newline, which the BPE pre-tokenizer splits into its own chunk, so for trimmed parts the sum
+   * matches the count of the joined text.
+   */
+  private TokenComputation computePartsTokenCount(
+      Encoding encoding, String tokenizerName, List<String> parts) {
+    int tokens = 0;
+    int counted = 0;
+    boolean allCached = true;
+    for (String part : parts) {
+      if (!StringUtils.hasText(part)) {
+        continue;
+      }
+      TokenComputation computation = computeTokenCount(encoding, tokenizerName, PART_SEGMENT, part);
+      tokens += computation.tokens();
+      allCached &= computation.cacheHit();
+      counted++;
+    }
+    if (counted == 0) {
+      return TokenComputation.EMPTY;
+    }
+    if (counted > 1) {
+      TokenComputation separator =
+          computeTokenCount(
+              encoding, tokenizerName, PART_SEGMENT, EstimateRequest.PART_SEPARATOR);
+      tokens += separator.tokens() * (counted - 1);
+    }
+    return new TokenComputation(tokens, allCached);
+  }
+
   private TokenComputation computeTokenCount(
       Encoding encoding, String tokenizerName, String segment, String text) {
-    if (!StringUtils.hasText(text)) {
+    if (text == null || text.isEmpty()) {
       return TokenComputation.EMPTY;
     }
 
@@ -0,0 +1,61 @@
+package com.aiadvent.backend.chat.token;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import org.springframework.util.StringUtils;
+
+/**
+ * In-process tier in front of another {@link TokenUsageCache} (usually Redis). Hits are served
+ * without a network round trip; misses fall through to the delegate and warm the local tier.
+ */
+public final class LocalTokenUsageCache implements TokenUsageCache {
+
+  private final Cache<String, Integer> local;
+  private final TokenUsageCache delegate;
+  private final TokenUsageMetrics metrics;
+
+  public LocalTokenUsageCache(
+      long maxEntries, Duration ttl, TokenUsageCache delegate, TokenUsageMetrics metrics) {
+    Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(Math.max(1, maxEntries));
+    if (ttl != null && !ttl.isZero() && !ttl.isNegative()) {
+      builder.expireAfterAccess(ttl);
+    }
+    this.local = builder.build();
+    this.delegate = delegate != null ? delegate : TokenUsageCache.noOp();
+    this.metrics = metrics;
+  }
+
+  @Override
+  public Integer get(String key) {
+    if (!StringUtils.hasText(key)) {
+      return null;
+    }
+    Integer cached = local.getIfPresent(key);
+    if (cached != null) {
+      record("hit");
+      return cached;
+    }
+    record("miss");
+    Integer remote = delegate.get(key);
+    if (remote != null) {
+      local.put(key, remote);
+    }
+    return remote;
+  }
+
+  @Override
+  public void put(String key, int value) {
+    if (!StringUtils.hasText(key)) {
+      return;
+    }
+    local.put(key, value);
+    delegate.put(key, value);
+  }
+
+  private void record(String result) {
+    if (metrics != null) {
+      metrics.recordLocalRequest(result);
+    }
+  }
+}
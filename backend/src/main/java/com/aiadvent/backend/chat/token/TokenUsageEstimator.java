@@ -1,22 +1,48 @@
 package com.aiadvent.backend.chat.token;
 
+import java.util.List;
 import org.springframework.util.StringUtils;
 
 public interface TokenUsageEstimator {
 
   Estimate estimate(EstimateRequest request);
 
+  /**
+   * {@code promptParts}, when present, are the independent pieces (e.g. chat messages) that
+   * {@code prompt} was joined from with {@link #PART_SEPARATOR}. Estimators may count and cache
+   * them one by one so a prompt that grows by a message only tokenizes the new message.
+   */
   record EstimateRequest(
-      String providerId, String modelId, String tokenizer, String prompt, String completion) {
+      String providerId,
+      String modelId,
+      String tokenizer,
+      String prompt,
+      String completion,
+      List<String> promptParts) {
+
+    public static final String PART_SEPARATOR = "\n";
 
     public EstimateRequest {
       tokenizer = StringUtils.hasText(tokenizer) ? tokenizer : null;
       prompt = StringUtils.hasText(prompt) ? prompt : null;
       completion = StringUtils.hasText(completion) ? completion : null;
+      promptParts = promptParts != null ? List.copyOf(promptParts) : List.of();
+    }
+
+    public EstimateRequest(
+        String providerId, String modelId, String tokenizer, String prompt, String completion) {
+      this(providerId, modelId, tokenizer, prompt, completion, List.of());
+    }
+
+    public static EstimateRequest ofPromptParts(
+        String providerId, String modelId, String tokenizer, List<String> promptParts) {
+      List<String> parts = promptParts != null ? promptParts : List.of();
+      return new EstimateRequest(
+          providerId, modelId, tokenizer, String.join(PART_SEPARATOR, parts), null, parts);
     }
 
     public EstimateRequest withTokenizer(String newTokenizer) {
-      return new EstimateRequest(providerId, modelId, newTokenizer, prompt, completion);
+      return new EstimateRequest(providerId, modelId, newTokenizer, prompt, completion, promptParts);
     }
   }
 
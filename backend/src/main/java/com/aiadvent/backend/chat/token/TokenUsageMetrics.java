@@ -50,6 +50,10 @@ public class TokenUsageMetrics {
         .record(durationNanos, TimeUnit.NANOSECONDS);
   }
 
+  public void recordLocalRequest(String result) {
+    meterRegistry.counter("chat.token.cache.local.requests", "result", result).increment();
+  }
+
   private Counter counter(String name, String providerId, String modelId) {
     return meterRegistry.counter(name, "provider", providerId, "model", modelId);
   }
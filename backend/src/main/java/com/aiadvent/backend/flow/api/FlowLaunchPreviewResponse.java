@@ -3,6 +3,7 @@ package com.aiadvent.backend.flow.api;
 import com.aiadvent.backend.chat.config.ChatProviderType;
 import com.aiadvent.backend.chat.provider.model.ChatRequestOverrides;
 import com.aiadvent.backend.flow.agent.options.AgentInvocationOptions;
+import com.aiadvent.backend.flow.config.FlowParallelGroup;
 import com.aiadvent.backend.flow.config.FlowStepTransitions;
 import com.aiadvent.backend.flow.config.MemoryReadConfig;
 import com.aiadvent.backend.flow.config.MemoryWriteConfig;
@@ -17,6 +18,7 @@ public record FlowLaunchPreviewResponse(
     String description,
     String startStepId,
     List<Step> steps,
+    List<FlowParallelGroup> parallelGroups,
     CostEstimate totalEstimate) {
 
   public record Step(
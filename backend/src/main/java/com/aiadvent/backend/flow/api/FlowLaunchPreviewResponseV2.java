@@ -1,6 +1,7 @@
 package com.aiadvent.backend.flow.api;
 
 import com.aiadvent.backend.flow.blueprint.FlowBlueprint;
+import com.aiadvent.backend.flow.config.FlowParallelGroup;
 import java.util.List;
 import java.util.UUID;
 
@@ -12,4 +13,5 @@ public record FlowLaunchPreviewResponseV2(
     FlowBlueprint blueprint,
     String startStepId,
     List<FlowLaunchPreviewResponse.Step> steps,
+    List<FlowParallelGroup> parallelGroups,
     FlowLaunchPreviewResponse.CostEstimate totalEstimate) {}
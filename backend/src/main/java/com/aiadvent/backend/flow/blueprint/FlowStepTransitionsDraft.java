@@ -1,14 +1,24 @@
 package com.aiadvent.backend.flow.blueprint;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.util.List;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public record FlowStepTransitionsDraft(
     Success onSuccess,
     Failure onFailure) {
 
+  /**
+   * {@code parallel} fans out to several branch steps at once; {@code next} is then the join step
+   * that runs after {@code joinCount} branches (all when omitted) have completed.
+   */
   @JsonIgnoreProperties(ignoreUnknown = true)
-  public record Success(String next, Boolean complete) {}
+  public record Success(String next, Boolean complete, List<String> parallel, Integer joinCount) {
+
+    public Success(String next, Boolean complete) {
+      this(next, complete, null, null);
+    }
+  }
 
   @JsonIgnoreProperties(ignoreUnknown = true)
   public record Failure(String next, Boolean fail) {}
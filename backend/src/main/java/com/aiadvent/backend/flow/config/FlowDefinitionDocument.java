@@ -1,8 +1,10 @@
 package com.aiadvent.backend.flow.config;
 
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public class FlowDefinitionDocument {
 
@@ -10,13 +12,15 @@ public class FlowDefinitionDocument {
   private final Map<String, FlowStepConfig> stepsById;
   private final List<FlowStepConfig> stepsInOrder;
   private final FlowMemoryConfig memoryConfig;
+  private final Map<String, FlowParallelGroup> parallelGroupsBySource;
+  private final Map<String, FlowParallelGroup> parallelGroupsByBranch;
 
   public FlowDefinitionDocument(
       String startStepId, Map<String, FlowStepConfig> stepsById, FlowMemoryConfig memoryConfig) {
     if (stepsById == null || stepsById.isEmpty()) {
       throw new IllegalArgumentException("Flow definition must contain at least one step");
     }
-    this.stepsById = Collections.unmodifiableMap(new java.util.LinkedHashMap<>(stepsById));
+    this.stepsById = Collections.unmodifiableMap(new LinkedHashMap<>(stepsById));
     this.stepsInOrder = List.copyOf(this.stepsById.values());
     if (startStepId == null || startStepId.isBlank()) {
       this.startStepId = this.stepsById.keySet().iterator().next();
@@ -26,6 +30,25 @@ public class FlowDefinitionDocument {
       this.startStepId = startStepId;
     }
     this.memoryConfig = memoryConfig != null ? memoryConfig : FlowMemoryConfig.empty();
+
+    Map<String, FlowParallelGroup> bySource = new LinkedHashMap<>();
+    Map<String, FlowParallelGroup> byBranch = new LinkedHashMap<>();
+    for (FlowStepConfig step : stepsInOrder) {
+      FlowStepTransitions transitions = step.transitions();
+      if (!transitions.fansOut()) {
+        continue;
+      }
+      FlowParallelGroup group =
+          new FlowParallelGroup(
+              step.id(),
+              transitions.parallel(),
+              transitions.onSuccess(),
+              transitions.joinCount() != null ? transitions.joinCount() : 0);
+      bySource.put(step.id(), group);
+      group.branchStepIds().forEach(branch -> byBranch.putIfAbsent(branch, group));
+    }
+    this.parallelGroupsBySource = Collections.unmodifiableMap(bySource);
+    this.parallelGroupsByBranch = Collections.unmodifiableMap(byBranch);
   }
 
   public String startStepId() {
@@ -47,4 +70,22 @@ public class FlowDefinitionDocument {
   public FlowMemoryConfig memoryConfig() {
     return memoryConfig;
   }
+
+  public List<FlowParallelGroup> parallelGroups() {
+    return List.copyOf(parallelGroupsBySource.values());
+  }
+
+  /** Group fanned out by {@code stepId} when it succeeds. */
+  public Optional<FlowParallelGroup> parallelGroup(String stepId) {
+    return Optional.ofNullable(parallelGroupsBySource.get(stepId));
+  }
+
+  /** Group that {@code stepId} runs in as a branch. */
+  public Optional<FlowParallelGroup> parallelGroupOfBranch(String stepId) {
+    return Optional.ofNullable(parallelGroupsByBranch.get(stepId));
+  }
+
+  public boolean hasParallelGroups() {
+    return !parallelGroupsBySource.isEmpty();
+  }
 }
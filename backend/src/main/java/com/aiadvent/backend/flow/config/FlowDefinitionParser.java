@@ -21,10 +21,14 @@ import com.aiadvent.backend.flow.domain.FlowInteractionType;
 import com.aiadvent.backend.flow.validation.FlowInteractionSchemaValidator;
 import com.fasterxml.jackson.databind.JsonNode;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import org.springframework.stereotype.Component;
 
@@ -68,6 +72,8 @@ public class FlowDefinitionParser {
               null));
     }
 
+    validateParallelGroups(steps, blueprint.startStepId());
+
     FlowMemoryConfig memoryConfig = parseMemoryConfig(blueprint.memory());
 
     return new FlowDefinitionDocument(blueprint.startStepId(), steps, memoryConfig);
@@ -274,10 +280,14 @@ public class FlowDefinitionParser {
     }
     String onSuccess = null;
     boolean completeOnSuccess = false;
+    List<String> parallel = List.of();
+    Integer joinCount = null;
     FlowStepTransitionsDraft.Success success = draft.onSuccess();
     if (success != null) {
       onSuccess = normalize(success.next());
       completeOnSuccess = Boolean.TRUE.equals(success.complete());
+      parallel = normalizeList(success.parallel());
+      joinCount = success.joinCount();
     }
 
     String onFailure = null;
@@ -288,7 +298,132 @@ public class FlowDefinitionParser {
       failOnFailure = failure.fail() == null ? true : failure.fail();
     }
 
-    return new FlowStepTransitions(onSuccess, completeOnSuccess, onFailure, failOnFailure);
+    if (!parallel.isEmpty() && completeOnSuccess) {
+      throw FlowBlueprintParsingException.single(
+          issue(
+              FlowBlueprintIssueCodes.PARALLEL_BRANCH_INVALID,
+              "Step '" + stepId + "' cannot both complete the flow and start parallel branches",
+              stepFieldPath(stepId, "transitions"),
+              stepId));
+    }
+
+    return new FlowStepTransitions(
+        onSuccess, completeOnSuccess, onFailure, failOnFailure, parallel, joinCount);
+  }
+
+  /**
+   * A fan-out needs at least two distinct existing branches. Branch steps are entered only through
+   * their fan-out and always hand over to the join, so they may not define transitions of their
+   * own, pause for user input or belong to a second group.
+   */
+  private void validateParallelGroups(Map<String, FlowStepConfig> steps, String startStepId) {
+    List<FlowValidationIssue> issues = new ArrayList<>();
+    Map<String, String> sourceByBranch = new HashMap<>();
+    for (FlowStepConfig step : steps.values()) {
+      FlowStepTransitions transitions = step.transitions();
+      if (!transitions.fansOut()) {
+        continue;
+      }
+      String path = stepFieldPath(step.id(), "transitions");
+      List<String> branches = transitions.parallel();
+      Set<String> distinct = new HashSet<>(branches);
+      if (distinct.size() < 2 || distinct.size() != branches.size()) {
+        issues.add(
+            issue(
+                FlowBlueprintIssueCodes.PARALLEL_BRANCH_INVALID,
+                "Step '" + step.id() + "' must fan out to at least two distinct steps",
+                path,
+                step.id()));
+      }
+      Integer joinCount = transitions.joinCount();
+      if (joinCount != null && (joinCount < 1 || joinCount > branches.size())) {
+        issues.add(
+            issue(
+                FlowBlueprintIssueCodes.PARALLEL_BRANCH_INVALID,
+                "Step '%s' joinCount must be between 1 and %d".formatted(step.id(), branches.size()),
+                path,
+                step.id()));
+      }
+      for (String branch : branches) {
+        if (!steps.containsKey(branch)) {
+          issues.add(
+              issue(
+                  FlowBlueprintIssueCodes.TRANSITION_TARGET_INVALID,
+                  "Step '%s' references unknown parallel step '%s'".formatted(step.id(), branch),
+                  path,
+                  step.id()));
+        } else if (branch.equals(step.id()) || branch.equals(transitions.onSuccess())) {
+          issues.add(
+              issue(
+                  FlowBlueprintIssueCodes.PARALLEL_BRANCH_INVALID,
+                  "Step '%s' cannot use '%s' as both branch and source or join"
+                      .formatted(step.id(), branch),
+                  path,
+                  step.id()));
+        } else {
+          String previous = sourceByBranch.putIfAbsent(branch, step.id());
+          if (previous != null && !previous.equals(step.id())) {
+            issues.add(
+                issue(
+                    FlowBlueprintIssueCodes.PARALLEL_BRANCH_INVALID,
+                    "Step '%s' is a branch of both '%s' and '%s'"
+                        .formatted(branch, previous, step.id()),
+                    stepFieldPath(branch, null),
+                    branch));
+          }
+        }
+      }
+    }
+
+    for (FlowStepConfig step : steps.values()) {
+      FlowStepTransitions transitions = step.transitions();
+      for (String target : new String[] {transitions.onSuccess(), transitions.onFailure()}) {
+        if (target != null && sourceByBranch.containsKey(target)) {
+          issues.add(
+              issue(
+                  FlowBlueprintIssueCodes.PARALLEL_BRANCH_INVALID,
+                  "Step '%s' cannot transition to parallel branch '%s'"
+                      .formatted(step.id(), target),
+                  stepFieldPath(step.id(), "transitions"),
+                  step.id()));
+        }
+      }
+      if (!sourceByBranch.containsKey(step.id())) {
+        continue;
+      }
+      boolean ownTransitions =
+          transitions.fansOut()
+              || transitions.onSuccess() != null
+              || transitions.onFailure() != null
+              || !transitions.failFlowOnFailure();
+      if (step.id().equals(startStepId) || ownTransitions || step.interaction() != null) {
+        issues.add(
+            issue(
+                FlowBlueprintIssueCodes.PARALLEL_BRANCH_INVALID,
+                "Parallel branch '%s' cannot be the start step, define transitions or wait for user input"
+                    .formatted(step.id()),
+                stepFieldPath(step.id(), null),
+                step.id()));
+      }
+    }
+
+    if (!issues.isEmpty()) {
+      throw new FlowBlueprintParsingException(issues);
+    }
+  }
+
+  private List<String> normalizeList(List<String> values) {
+    if (values == null || values.isEmpty()) {
+      return List.of();
+    }
+    List<String> normalized = new ArrayList<>(values.size());
+    for (String value : values) {
+      String trimmed = normalize(value);
+      if (trimmed != null) {
+        normalized.add(trimmed);
+      }
+    }
+    return List.copyOf(normalized);
   }
 
   private FlowMemoryConfig parseMemoryConfig(FlowBlueprintMemory memory) {
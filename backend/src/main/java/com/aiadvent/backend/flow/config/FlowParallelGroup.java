@@ -0,0 +1,23 @@
+package com.aiadvent.backend.flow.config;
+
+import java.util.List;
+
+/**
+ * Branches started together when {@code sourceStepId} succeeds. The join step (or flow completion
+ * when {@code joinStepId} is {@code null}) follows once {@code requiredBranches} of them completed.
+ */
+public record FlowParallelGroup(
+    String sourceStepId, List<String> branchStepIds, String joinStepId, int requiredBranches) {
+
+  public FlowParallelGroup {
+    branchStepIds = branchStepIds != null ? List.copyOf(branchStepIds) : List.of();
+    requiredBranches =
+        requiredBranches <= 0 || requiredBranches > branchStepIds.size()
+            ? branchStepIds.size()
+            : requiredBranches;
+  }
+
+  public boolean waitsForAll() {
+    return requiredBranches == branchStepIds.size();
+  }
+}
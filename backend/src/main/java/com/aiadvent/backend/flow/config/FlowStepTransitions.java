@@ -1,13 +1,32 @@
 package com.aiadvent.backend.flow.config;
 
+import java.util.List;
+
 public record FlowStepTransitions(
-    String onSuccess, boolean completeOnSuccess, String onFailure, boolean failFlowOnFailure) {
+    String onSuccess,
+    boolean completeOnSuccess,
+    String onFailure,
+    boolean failFlowOnFailure,
+    List<String> parallel,
+    Integer joinCount) {
 
   public FlowStepTransitions {
-    completeOnSuccess = completeOnSuccess || (onSuccess == null || onSuccess.isBlank());
+    parallel = parallel != null ? List.copyOf(parallel) : List.of();
+    completeOnSuccess =
+        parallel.isEmpty() && (completeOnSuccess || (onSuccess == null || onSuccess.isBlank()));
+  }
+
+  public FlowStepTransitions(
+      String onSuccess, boolean completeOnSuccess, String onFailure, boolean failFlowOnFailure) {
+    this(onSuccess, completeOnSuccess, onFailure, failFlowOnFailure, null, null);
   }
 
   public static FlowStepTransitions defaults() {
     return new FlowStepTransitions(null, true, null, true);
   }
+
+  /** Whether a successful step starts its {@link #parallel} branches instead of one next step. */
+  public boolean fansOut() {
+    return !parallel.isEmpty();
+  }
 }
@@ -0,0 +1,121 @@
+package com.aiadvent.backend.flow.config;
+
+import java.time.Duration;
+import java.util.regex.Pattern;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+@Component
+@ConfigurationProperties(prefix = "app.flow.stream")
+public class FlowStreamProperties {
+
+  private static final Pattern CHANNEL_PATTERN = Pattern.compile("^[a-z_][a-z0-9_]{0,62}$");
+
+  /**
+   * Sends `pg_notify` when flow events are written and listens on the same channel, so SSE
+   * subscribers connected to other backend nodes are woken up as well.
+   */
+  private boolean notifyEnabled = true;
+
+  private String notifyChannel = "flow_event";
+
+  /** Number of recent events kept per session to serve reconnects without hitting the DB. */
+  private int replayCapacity = 256;
+
+  private int dispatcherThreads = 2;
+
+  /**
+   * Updates waiting to be written to one SSE connection. A subscriber that falls this far behind
+   * is closed instead of holding memory; the client reconnects with {@code Last-Event-ID}.
+   */
+  private int subscriberQueueCapacity = 64;
+
+  private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+  /**
+   * Sessions with subscribers are re-read at least this often, covering state-only changes and
+   * notifications lost while the LISTEN connection was down.
+   */
+  private Duration resyncInterval = Duration.ofSeconds(30);
+
+  /** How long the replay buffer of a session outlives its last subscriber. */
+  private Duration idleRetention = Duration.ofMinutes(5);
+
+  public boolean isNotifyEnabled() {
+    return notifyEnabled;
+  }
+
+  public void setNotifyEnabled(boolean notifyEnabled) {
+    this.notifyEnabled = notifyEnabled;
+  }
+
+  public String getNotifyChannel() {
+    return notifyChannel;
+  }
+
+  public void setNotifyChannel(String notifyChannel) {
+    if (StringUtils.hasText(notifyChannel)) {
+      String normalized = notifyChannel.trim();
+      if (!CHANNEL_PATTERN.matcher(normalized).matches()) {
+        throw new IllegalArgumentException(
+            "app.flow.stream.notify-channel must be a lower-case SQL identifier: " + notifyChannel);
+      }
+      this.notifyChannel = normalized;
+    }
+  }
+
+  public int getReplayCapacity() {
+    return replayCapacity;
+  }
+
+  public void setReplayCapacity(int replayCapacity) {
+    this.replayCapacity = Math.max(0, replayCapacity);
+  }
+
+  public int getDispatcherThreads() {
+    return dispatcherThreads;
+  }
+
+  public void setDispatcherThreads(int dispatcherThreads) {
+    this.dispatcherThreads = Math.max(1, dispatcherThreads);
+  }
+
+  public int getSubscriberQueueCapacity() {
+    return subscriberQueueCapacity;
+  }
+
+  public void setSubscriberQueueCapacity(int subscriberQueueCapacity) {
+    this.subscriberQueueCapacity = Math.max(1, subscriberQueueCapacity);
+  }
+
+  public Duration getHeartbeatInterval() {
+    return heartbeatInterval;
+  }
+
+  public void setHeartbeatInterval(Duration heartbeatInterval) {
+    if (heartbeatInterval != null && !heartbeatInterval.isNegative() && !heartbeatInterval.isZero()) {
+      this.heartbeatInterval = heartbeatInterval;
+    }
+  }
+
+  public Duration getResyncInterval() {
+    return resyncInterval;
+  }
+
+  public void setResyncInterval(Duration resyncInterval) {
+    if (resyncInterval != null && !resyncInterval.isNegative() && !resyncInterval.isZero()) {
+      this.resyncInterval = resyncInterval;
+    }
+  }
+
+  public Duration getIdleRetention() {
+    return idleRetention;
+  }
+
+  public void setIdleRetention(Duration idleRetention) {
+    if (idleRetention != null && !idleRetention.isNegative()) {
+      this.idleRetention = idleRetention;
+    }
+  }
+}
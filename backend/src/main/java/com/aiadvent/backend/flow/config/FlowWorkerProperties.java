@@ -10,11 +10,25 @@ import org.springframework.validation.annotation.Validated;
 public class FlowWorkerProperties {
 
   private boolean enabled = true;
-  private Duration pollDelay = Duration.ofMillis(500);
+
+  /**
+   * Fallback poll interval. Inserts wake workers via LISTEN/NOTIFY on {@code flow_job}, so the
+   * poll mostly picks up jobs whose {@code scheduled_at} has just passed.
+   */
+  private Duration pollDelay = Duration.ofSeconds(2);
 
   @Min(1)
   private int maxConcurrency = 1;
 
+  /** Upper bound of jobs claimed by one statement; the free concurrency slots cap it as well. */
+  @Min(1)
+  private int batchSize = 10;
+
+  /** A RUNNING job whose lock is older than this and no longer row-locked is claimed again. */
+  private Duration staleLockTimeout = Duration.ofMinutes(10);
+
+  private boolean notifyEnabled = true;
+
   private String workerIdPrefix;
 
   public boolean isEnabled() {
@@ -43,6 +57,32 @@ public class FlowWorkerProperties {
     this.maxConcurrency = Math.max(1, maxConcurrency);
   }
 
+  public int getBatchSize() {
+    return Math.max(1, batchSize);
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  public Duration getStaleLockTimeout() {
+    return staleLockTimeout;
+  }
+
+  public void setStaleLockTimeout(Duration staleLockTimeout) {
+    if (staleLockTimeout != null && !staleLockTimeout.isNegative() && !staleLockTimeout.isZero()) {
+      this.staleLockTimeout = staleLockTimeout;
+    }
+  }
+
+  public boolean isNotifyEnabled() {
+    return notifyEnabled;
+  }
+
+  public void setNotifyEnabled(boolean notifyEnabled) {
+    this.notifyEnabled = notifyEnabled;
+  }
+
   public String getWorkerIdPrefix() {
     return workerIdPrefix;
   }
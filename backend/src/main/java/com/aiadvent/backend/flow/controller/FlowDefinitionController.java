@@ -249,6 +249,7 @@ public class FlowDefinitionController {
         payload.description(),
         payload.startStepId(),
         List.copyOf(payload.steps()),
+        payload.parallelGroups(),
         payload.totalEstimate());
   }
 
@@ -261,6 +262,7 @@ public class FlowDefinitionController {
         payload.blueprint(),
         payload.startStepId(),
         List.copyOf(payload.steps()),
+        payload.parallelGroups(),
         payload.totalEstimate());
   }
 
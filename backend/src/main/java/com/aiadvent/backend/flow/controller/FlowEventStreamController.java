@@ -1,21 +1,19 @@
 package com.aiadvent.backend.flow.controller;
 
-import com.aiadvent.backend.flow.service.FlowStatusService;
 import com.aiadvent.backend.flow.service.FlowStatusService.FlowStatusResponse;
+import com.aiadvent.backend.flow.stream.FlowEventBus;
 import io.micrometer.core.instrument.MeterRegistry;
 import java.io.IOException;
-import java.time.Duration;
-import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
@@ -24,63 +22,88 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 public class FlowEventStreamController {
 
   private static final Logger log = LoggerFactory.getLogger(FlowEventStreamController.class);
-  private static final Duration STREAM_POLL_TIMEOUT = Duration.ofSeconds(5);
 
-  private final FlowStatusService flowStatusService;
+  private final FlowEventBus flowEventBus;
   private final MeterRegistry meterRegistry;
-  private final ExecutorService executor = Executors.newCachedThreadPool();
 
-  public FlowEventStreamController(FlowStatusService flowStatusService, MeterRegistry meterRegistry) {
-    this.flowStatusService = flowStatusService;
+  public FlowEventStreamController(FlowEventBus flowEventBus, MeterRegistry meterRegistry) {
+    this.flowEventBus = flowEventBus;
     this.meterRegistry = meterRegistry;
   }
 
+  /**
+   * Streams session updates pushed by {@link FlowEventBus}. Every {@code flow} frame carries its
+   * {@code nextSinceEventId} as the SSE id, so a browser reconnect resumes via
+   * {@code Last-Event-ID}; clients can also pass {@code sinceEventId} explicitly.
+   */
   @GetMapping(value = "/{sessionId}/events/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-  public SseEmitter stream(@PathVariable UUID sessionId) {
+  public SseEmitter stream(
+      @PathVariable UUID sessionId,
+      @RequestParam(name = "sinceEventId", required = false) Long sinceEventId,
+      @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
     SseEmitter emitter = new SseEmitter(0L);
     meterRegistry.counter("flow.stream.connections").increment();
-    CompletableFuture.runAsync(() -> streamLoop(sessionId, emitter), executor)
-        .exceptionally(
-            throwable -> {
-              emitter.completeWithError(throwable);
-              return null;
-            });
+    FlowEventBus.Subscription subscription =
+        flowEventBus.subscribe(
+            sessionId, resolveSince(sinceEventId, lastEventId), new EmitterListener(sessionId, emitter));
+    emitter.onCompletion(subscription::close);
+    emitter.onTimeout(subscription::close);
+    emitter.onError(error -> subscription.close());
     return emitter;
   }
 
-  private void streamLoop(UUID sessionId, SseEmitter emitter) {
-    Long sinceEventId = null;
-    Long stateVersion = null;
-    boolean active = true;
+  private static Long resolveSince(Long sinceEventId, String lastEventId) {
+    if (sinceEventId != null) {
+      return sinceEventId;
+    }
+    if (StringUtils.hasText(lastEventId)) {
+      try {
+        return Long.parseLong(lastEventId.trim());
+      } catch (NumberFormatException ignored) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  private final class EmitterListener implements FlowEventBus.FlowEventListener {
 
-    try {
-      while (active) {
-        Optional<FlowStatusResponse> response =
-            flowStatusService.pollSession(sessionId, sinceEventId, stateVersion, STREAM_POLL_TIMEOUT);
+    private final UUID sessionId;
+    private final SseEmitter emitter;
 
-        if (response.isPresent()) {
-          FlowStatusResponse payload = response.get();
-          emitter.send(SseEmitter.event().name("flow").data(payload));
-          if (meterRegistry != null) {
-            meterRegistry
-                .counter("flow.events.delivered", "channel", "sse")
-                .increment(payload.events().size());
-          }
-          sinceEventId = payload.nextSinceEventId();
-          stateVersion = payload.state().stateVersion();
+    private EmitterListener(UUID sessionId, SseEmitter emitter) {
+      this.sessionId = sessionId;
+      this.emitter = emitter;
+    }
 
-          if (payload.state().status().name().endsWith("ED")) {
-            active = false;
-          }
-        } else {
-          emitter.send(SseEmitter.event().name("heartbeat").data("keep-alive"));
-        }
+    @Override
+    public void onUpdate(FlowStatusResponse payload) throws IOException {
+      emitter.send(
+          SseEmitter.event()
+              .id(Long.toString(payload.nextSinceEventId()))
+              .name("flow")
+              .data(payload));
+      meterRegistry
+          .counter("flow.events.delivered", "channel", "sse")
+          .increment(payload.events().size());
+    }
+
+    @Override
+    public void onHeartbeat() throws IOException {
+      emitter.send(SseEmitter.event().name("heartbeat").data("keep-alive"));
+    }
+
+    @Override
+    public void onClose(Throwable error) {
+      if (error == null) {
+        emitter.complete();
+        return;
+      }
+      if (error instanceof IOException) {
+        log.debug("SSE stream closed for session {}", sessionId, error);
+        meterRegistry.counter("flow.stream.reconnects").increment();
       }
-      emitter.complete();
-    } catch (IOException exception) {
-      log.debug("SSE stream closed for session {}", sessionId, exception);
-      meterRegistry.counter("flow.stream.reconnects").increment();
-      emitter.completeWithError(exception);
+      emitter.completeWithError(error);
     }
   }
 }
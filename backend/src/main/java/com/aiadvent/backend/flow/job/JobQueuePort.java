@@ -3,7 +3,9 @@ package com.aiadvent.backend.flow.job;
 import com.aiadvent.backend.flow.domain.FlowJob;
 import com.aiadvent.backend.flow.domain.FlowSession;
 import com.aiadvent.backend.flow.domain.FlowStepExecution;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 public interface JobQueuePort {
@@ -16,5 +18,16 @@ public interface JobQueuePort {
 
   Optional<FlowJob> lockNextPending(String workerId, Instant now);
 
+  /** Marks up to {@code limit} runnable jobs as {@code RUNNING} for the worker and returns them. */
+  List<FlowJob> claimPending(String workerId, Instant now, Duration staleLockTimeout, int limit);
+
+  /**
+   * Row-locks a job previously claimed by the worker for the surrounding transaction; empty when
+   * the claim was lost (e.g. taken over as stale).
+   */
+  Optional<FlowJob> lockClaimed(Long jobId, String workerId);
+
+  long countReady(Instant now);
+
   FlowJob save(FlowJob job);
 }
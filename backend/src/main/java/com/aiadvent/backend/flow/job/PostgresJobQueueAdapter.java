@@ -7,7 +7,9 @@ import com.aiadvent.backend.flow.domain.FlowStepExecution;
 import com.aiadvent.backend.flow.persistence.FlowJobRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -53,6 +55,28 @@ public class PostgresJobQueueAdapter implements JobQueuePort {
     return jobOptional;
   }
 
+  @Override
+  @Transactional
+  public List<FlowJob> claimPending(
+      String workerId, Instant now, Duration staleLockTimeout, int limit) {
+    if (limit <= 0) {
+      return List.of();
+    }
+    return flowJobRepository.claimJobs(workerId, now, now.minus(staleLockTimeout), limit);
+  }
+
+  @Override
+  @Transactional
+  public Optional<FlowJob> lockClaimed(Long jobId, String workerId) {
+    return flowJobRepository.lockClaimedJob(jobId, workerId);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public long countReady(Instant now) {
+    return flowJobRepository.countReadyJobs(now);
+  }
+
   @Override
   @Transactional
   public FlowJob save(FlowJob job) {
@@ -525,22 +525,21 @@ public class FlowMemorySummarizerService {
     if (tokenUsageEstimator == null || messages.isEmpty()) {
       return 0;
     }
-    String prompt = messagesToPrompt(messages);
     Estimate estimate =
         tokenUsageEstimator.estimate(
-            new EstimateRequest(providerId, modelId, tokenizerOverride, prompt, null));
+            EstimateRequest.ofPromptParts(
+                providerId, modelId, tokenizerOverride, messagesToPromptParts(messages)));
     return estimate != null ? estimate.totalTokens() : 0;
   }
 
-  private String messagesToPrompt(List<Message> messages) {
+  private List<String> messagesToPromptParts(List<Message> messages) {
     return messages.stream()
         .map(
             message ->
                 message.getMessageType().name().toLowerCase()
                     + ": "
                     + StringUtils.trimWhitespace(message.getText()))
-        .reduce((left, right) -> left + "\n" + right)
-        .orElse("");
+        .toList();
   }
 
   private String resolveTokenizer(String providerId, String modelId) {
@@ -35,4 +35,61 @@ public interface FlowJobRepository extends JpaRepository<FlowJob, Long> {
   default Optional<FlowJob> lockNextJob(FlowJobStatus status, Instant now) {
     return lockNextJob(status.name(), now);
   }
+
+  /**
+   * Claims up to {@code limit} runnable jobs in one statement. Besides pending jobs it takes over
+   * {@code RUNNING} jobs whose lock is older than {@code staleBefore}: a live worker keeps its
+   * job row locked while processing, so {@code SKIP LOCKED} only lets through jobs whose worker
+   * died after claiming them.
+   */
+  @Query(
+      value =
+          """
+          WITH picked AS (
+            SELECT fj.id
+            FROM flow_job fj
+            JOIN flow_session fs ON fs.id = fj.flow_session_id
+            WHERE fs.status = 'RUNNING'
+              AND ((fj.status = 'PENDING' AND (fj.scheduled_at IS NULL OR fj.scheduled_at <= :now))
+                OR (fj.status = 'RUNNING' AND fj.locked_at < :staleBefore))
+            ORDER BY fj.scheduled_at NULLS FIRST, fj.id
+            LIMIT :limit
+            FOR UPDATE OF fj SKIP LOCKED
+          )
+          UPDATE flow_job j
+          SET status = 'RUNNING', locked_at = :now, locked_by = :workerId, updated_at = :now
+          FROM picked
+          WHERE j.id = picked.id
+          RETURNING j.*
+          """,
+      nativeQuery = true)
+  List<FlowJob> claimJobs(
+      @Param("workerId") String workerId,
+      @Param("now") Instant now,
+      @Param("staleBefore") Instant staleBefore,
+      @Param("limit") int limit);
+
+  @Query(
+      value =
+          """
+          SELECT fj.*
+          FROM flow_job fj
+          WHERE fj.id = :id
+            AND fj.status = 'RUNNING'
+            AND fj.locked_by = :workerId
+          FOR UPDATE SKIP LOCKED
+          """,
+      nativeQuery = true)
+  Optional<FlowJob> lockClaimedJob(@Param("id") Long id, @Param("workerId") String workerId);
+
+  @Query(
+      value =
+          """
+          SELECT count(*)
+          FROM flow_job fj
+          WHERE fj.status = 'PENDING'
+            AND (fj.scheduled_at IS NULL OR fj.scheduled_at <= :now)
+          """,
+      nativeQuery = true)
+  long countReadyJobs(@Param("now") Instant now);
 }
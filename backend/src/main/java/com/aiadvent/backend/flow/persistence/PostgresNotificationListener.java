@@ -0,0 +1,118 @@
+package com.aiadvent.backend.flow.persistence;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background thread that keeps one pooled connection in {@code LISTEN <channel>} mode and hands
+ * every notification payload to a callback. The connection is re-established with exponential
+ * backoff; {@code onConnected} runs after each (re)connect so callers can catch up on anything
+ * sent while nobody was listening.
+ */
+public final class PostgresNotificationListener {
+
+  private static final Logger log = LoggerFactory.getLogger(PostgresNotificationListener.class);
+  private static final int RECEIVE_TIMEOUT_MS = 1_000;
+  private static final long INITIAL_BACKOFF_MS = 1_000L;
+  private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+  private final DataSource dataSource;
+  private final String channel;
+  private final String threadName;
+  private final Consumer<String> onNotification;
+  private final Runnable onConnected;
+  private volatile boolean running;
+  private volatile Thread thread;
+
+  /** {@code channel} is used verbatim in {@code LISTEN} and must be a validated identifier. */
+  public PostgresNotificationListener(
+      DataSource dataSource,
+      String channel,
+      String threadName,
+      Consumer<String> onNotification,
+      Runnable onConnected) {
+    this.dataSource = dataSource;
+    this.channel = channel;
+    this.threadName = threadName;
+    this.onNotification = onNotification;
+    this.onConnected = onConnected != null ? onConnected : () -> {};
+  }
+
+  public synchronized void start() {
+    if (running) {
+      return;
+    }
+    running = true;
+    Thread listener = new Thread(this::listenLoop, threadName);
+    listener.setDaemon(true);
+    thread = listener;
+    listener.start();
+  }
+
+  public synchronized void stop() {
+    running = false;
+    Thread listener = thread;
+    thread = null;
+    if (listener != null) {
+      listener.interrupt();
+    }
+  }
+
+  private void listenLoop() {
+    long backoffMs = INITIAL_BACKOFF_MS;
+    while (running) {
+      try (Connection connection = dataSource.getConnection()) {
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("LISTEN " + channel);
+        }
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        log.info("Listening for Postgres notifications on '{}'", channel);
+        backoffMs = INITIAL_BACKOFF_MS;
+        runQuietly(onConnected);
+        while (running) {
+          PGNotification[] notifications = pgConnection.getNotifications(RECEIVE_TIMEOUT_MS);
+          if (notifications == null) {
+            continue;
+          }
+          for (PGNotification notification : notifications) {
+            String payload = notification.getParameter();
+            runQuietly(() -> onNotification.accept(payload));
+          }
+        }
+      } catch (SQLException ex) {
+        if (!running) {
+          return;
+        }
+        log.warn(
+            "LISTEN connection for '{}' failed, retrying in {} ms: {}",
+            channel,
+            backoffMs,
+            ex.getMessage());
+        try {
+          Thread.sleep(backoffMs);
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF.toMillis());
+      }
+    }
+  }
+
+  private void runQuietly(Runnable action) {
+    try {
+      action.run();
+    } catch (RuntimeException ex) {
+      log.warn("Notification handler for '{}' failed: {}", channel, ex.getMessage());
+    }
+  }
+}
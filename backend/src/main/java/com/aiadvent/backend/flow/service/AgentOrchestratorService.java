@@ -5,6 +5,7 @@ import com.aiadvent.backend.chat.provider.model.UsageCostEstimate;
 import com.aiadvent.backend.flow.agent.options.AgentInvocationOptions;
 import com.aiadvent.backend.flow.blueprint.FlowBlueprintCompiler;
 import com.aiadvent.backend.flow.config.FlowDefinitionDocument;
+import com.aiadvent.backend.flow.config.FlowParallelGroup;
 import com.aiadvent.backend.flow.config.FlowStepConfig;
 import com.aiadvent.backend.flow.config.FlowStepTransitions;
 import com.aiadvent.backend.flow.config.MemoryReadConfig;
@@ -38,6 +39,7 @@ import com.aiadvent.backend.flow.memory.FlowMemoryChannels;
 import com.aiadvent.backend.flow.memory.FlowMemoryMetadata;
 import com.aiadvent.backend.flow.memory.FlowMemoryService;
 import com.aiadvent.backend.flow.memory.FlowMemorySourceType;
+import com.aiadvent.backend.flow.stream.FlowEventBus;
 import com.aiadvent.backend.flow.telemetry.FlowTelemetryService;
 import com.aiadvent.backend.flow.persistence.AgentVersionRepository;
 import com.aiadvent.backend.flow.persistence.FlowEventRepository;
@@ -52,14 +54,21 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import java.time.Instant;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -83,6 +92,8 @@ public class AgentOrchestratorService {
   private final FlowTelemetryService telemetry;
   private final FlowPayloadMapper flowPayloadMapper;
   private final GitHubResolverService gitHubResolverService;
+  private final FlowEventBus flowEventBus;
+  private final EntityManager entityManager;
 
   public AgentOrchestratorService(
       FlowDefinitionService flowDefinitionService,
@@ -99,6 +110,43 @@ public class AgentOrchestratorService {
       FlowTelemetryService telemetry,
       FlowPayloadMapper flowPayloadMapper,
       GitHubResolverService gitHubResolverService) {
+    this(
+        flowDefinitionService,
+        flowBlueprintCompiler,
+        flowSessionRepository,
+        flowStepExecutionRepository,
+        flowEventRepository,
+        agentVersionRepository,
+        agentInvocationService,
+        flowMemoryService,
+        flowInteractionService,
+        jobQueuePort,
+        objectMapper,
+        telemetry,
+        flowPayloadMapper,
+        gitHubResolverService,
+        null,
+        null);
+  }
+
+  @Autowired
+  public AgentOrchestratorService(
+      FlowDefinitionService flowDefinitionService,
+      FlowBlueprintCompiler flowBlueprintCompiler,
+      FlowSessionRepository flowSessionRepository,
+      FlowStepExecutionRepository flowStepExecutionRepository,
+      FlowEventRepository flowEventRepository,
+      AgentVersionRepository agentVersionRepository,
+      AgentInvocationService agentInvocationService,
+      FlowMemoryService flowMemoryService,
+      FlowInteractionService flowInteractionService,
+      JobQueuePort jobQueuePort,
+      ObjectMapper objectMapper,
+      FlowTelemetryService telemetry,
+      FlowPayloadMapper flowPayloadMapper,
+      GitHubResolverService gitHubResolverService,
+      @Nullable FlowEventBus flowEventBus,
+      @Nullable EntityManager entityManager) {
     this.flowDefinitionService = flowDefinitionService;
     this.flowBlueprintCompiler = flowBlueprintCompiler;
     this.flowSessionRepository = flowSessionRepository;
@@ -113,6 +161,8 @@ public class AgentOrchestratorService {
     this.telemetry = telemetry;
     this.flowPayloadMapper = flowPayloadMapper;
     this.gitHubResolverService = gitHubResolverService;
+    this.flowEventBus = flowEventBus;
+    this.entityManager = entityManager;
   }
 
   @Transactional
@@ -181,6 +231,17 @@ public class AgentOrchestratorService {
     return jobOptional;
   }
 
+  /**
+   * Runs a job the worker already claimed through {@link JobQueuePort#claimPending}. The job row
+   * stays locked until this transaction ends, which tells other workers the claim is still alive.
+   */
+  @Transactional
+  public Optional<FlowJob> processClaimedJob(Long jobId, String workerId) {
+    Optional<FlowJob> jobOptional = jobQueuePort.lockClaimed(jobId, workerId);
+    jobOptional.ifPresent(this::executeJob);
+    return jobOptional;
+  }
+
   private void executeJob(FlowJob job) {
     FlowJobPayload payload;
     try {
@@ -207,6 +268,14 @@ public class AgentOrchestratorService {
     FlowDefinitionDocument definitionDocument =
         flowBlueprintCompiler.compile(session.getFlowDefinition());
     FlowStepConfig stepConfig = definitionDocument.step(payload.stepId());
+    Optional<FlowParallelGroup> branchGroup =
+        definitionDocument.parallelGroupOfBranch(stepConfig.id());
+    if (branchGroup.isPresent()
+        && !branchGroup.get().waitsForAll()
+        && parallelRound(session, branchGroup.get(), stepExecution).joined()) {
+      skipJoinedBranch(job, session, stepExecution);
+      return;
+    }
     boolean isGitHubResolverStep = gitHubResolverService.supportsStep(stepConfig.id());
 
     AgentVersion agentVersion =
@@ -238,6 +307,7 @@ public class AgentOrchestratorService {
     stepExecution.setPrompt(stepConfig.prompt());
     stepExecution.setInputPayload(inputPayload);
     flowStepExecutionRepository.save(stepExecution);
+    telemetry.stepInputWritten(flowPayloadMapper.serializedSize(inputPayload));
 
     telemetry.stepStarted(session.getId(), stepExecution.getId(), stepExecution.getStepId(), stepExecution.getAttempt());
 
@@ -285,6 +355,7 @@ public class AgentOrchestratorService {
         result = gitHubResolverService.withStructuredContent(result, resolverPayload);
       }
 
+      lockSessionIfParallel(session, definitionDocument);
       JsonNode stepOutput = applyAgentResult(stepExecution, result, session, agentVersion, stepConfig);
 
       if (isGitHubResolverStep && resolverPayload != null) {
@@ -300,8 +371,15 @@ public class AgentOrchestratorService {
       }
 
       FlowStepTransitions transitions = stepConfig.transitions();
+      Optional<FlowParallelGroup> fanOut = definitionDocument.parallelGroup(stepConfig.id());
 
-      if (transitions.completeOnSuccess()) {
+      if (branchGroup.isPresent()) {
+        recordEvent(session, stepExecution, FlowEventType.STEP_COMPLETED, "completed", cloneNode(stepOutput), result.usageCost());
+        completeParallelBranch(session, stepExecution, definitionDocument, branchGroup.get(), result.usageCost());
+      } else if (fanOut.isPresent()) {
+        startParallelBranches(session, stepExecution, definitionDocument, fanOut.get());
+        recordEvent(session, stepExecution, FlowEventType.STEP_COMPLETED, "completed", cloneNode(stepOutput), result.usageCost());
+      } else if (transitions.completeOnSuccess()) {
         session.setStatus(FlowSessionStatus.COMPLETED);
         session.setCompletedAt(Instant.now());
         recordEvent(session, stepExecution, FlowEventType.STEP_COMPLETED, "completed", cloneNode(stepOutput), result.usageCost());
@@ -400,6 +478,9 @@ public class AgentOrchestratorService {
     session.setSharedContext(flowPayloadMapper.applyStepOutput(session, stepExecution, stepOutput));
     session.setStateVersion(session.getStateVersion() + 1);
     flowSessionRepository.save(session);
+    telemetry.stepStateWritten(
+        flowPayloadMapper.serializedSize(stepExecution.getOutputPayload()),
+        flowPayloadMapper.serializedSize(session.getSharedContext()));
 
     List<FlowMemoryVersion> traceUpdates =
         result.memoryUpdates() != null && !result.memoryUpdates().isEmpty() ? result.memoryUpdates() : updates;
@@ -436,6 +517,7 @@ public class AgentOrchestratorService {
       FlowDefinitionDocument document,
       FlowStepConfig config,
       RuntimeException exception) {
+    lockSessionIfParallel(session, document);
     stepExecution.setStatus(FlowStepStatus.FAILED);
     stepExecution.setErrorMessage(exception.getMessage());
     stepExecution.setCompletedAt(Instant.now());
@@ -477,6 +559,14 @@ public class AgentOrchestratorService {
       return;
     }
 
+    Optional<FlowParallelGroup> branchGroup = document.parallelGroupOfBranch(config.id());
+    if (branchGroup.isPresent()
+        && branchFailureTolerated(session, stepExecution, branchGroup.get())) {
+      job.setStatus(FlowJobStatus.COMPLETED);
+      jobQueuePort.save(job);
+      return;
+    }
+
     String failureNext = config.transitions().onFailure();
     boolean failFlowOnFailure = config.transitions().failFlowOnFailure();
 
@@ -548,20 +638,222 @@ public class AgentOrchestratorService {
       FlowDefinitionDocument document,
       FlowStepInputPayload launchContext) {
     FlowStepConfig nextConfig = document.step(nextStepId);
-    AgentVersion nextAgent =
+    enqueueFirstAttempt(session, nextConfig, launchContext, Instant.now());
+    session.setCurrentStepId(nextConfig.id());
+    flowSessionRepository.save(session);
+  }
+
+  private void enqueueFirstAttempt(
+      FlowSession session,
+      FlowStepConfig config,
+      FlowStepInputPayload launchContext,
+      Instant scheduledAt) {
+    AgentVersion agent =
         agentVersionRepository
-            .findById(nextConfig.agentVersionId())
+            .findById(config.agentVersionId())
             .orElseThrow(
                 () ->
                     new IllegalStateException(
-                        "Agent version " + nextConfig.agentVersionId() + " is not found"));
+                        "Agent version " + config.agentVersionId() + " is not found"));
 
-    FlowStepExecution nextExecution =
-        createStepExecution(session, nextConfig, nextAgent, 1, launchContext);
-    flowStepExecutionRepository.save(nextExecution);
-    session.setCurrentStepId(nextConfig.id());
+    FlowStepExecution execution = createStepExecution(session, config, agent, 1, launchContext);
+    flowStepExecutionRepository.save(execution);
+    enqueueStepJob(session, execution, 1, scheduledAt);
+  }
+
+  /**
+   * Enqueues one job per branch in this transaction, so workers pick them up together. Each branch
+   * input carries the source execution id, which identifies the round at join time.
+   */
+  private void startParallelBranches(
+      FlowSession session,
+      FlowStepExecution sourceExecution,
+      FlowDefinitionDocument document,
+      FlowParallelGroup group) {
+    ObjectNode round = objectMapper.createObjectNode();
+    round.put("sourceExecutionId", sourceExecution.getId().toString());
+    round.put("sourceStepId", group.sourceStepId());
+    FlowStepInputPayload branchInput =
+        flowPayloadMapper.withParallelContext(launchContextForNext(session), round);
+    Instant now = Instant.now();
+    for (String branchStepId : group.branchStepIds()) {
+      enqueueFirstAttempt(session, document.step(branchStepId), branchInput, now);
+    }
+    session.setCurrentStepId(group.branchStepIds().get(0));
     flowSessionRepository.save(session);
-    enqueueStepJob(session, nextExecution, 1, Instant.now());
+    telemetry.sessionEvent(session.getId(), "parallel_started", group.sourceStepId());
+  }
+
+  /**
+   * Runs under the session row lock, so exactly one branch sees the join condition become true.
+   * The join step gets the branch outputs keyed by step id in its {@code parallel.branches} input;
+   * without a join step the flow completes.
+   */
+  private void completeParallelBranch(
+      FlowSession session,
+      FlowStepExecution branchExecution,
+      FlowDefinitionDocument document,
+      FlowParallelGroup group,
+      UsageCostEstimate usageCost) {
+    if (session.getStatus() != FlowSessionStatus.RUNNING) {
+      return;
+    }
+    ParallelRound round = parallelRound(session, group, branchExecution);
+    if (round.joined() || round.completed() < group.requiredBranches()) {
+      return;
+    }
+
+    ObjectNode branchOutputs = objectMapper.createObjectNode();
+    ObjectNode branchReferences = objectMapper.createObjectNode();
+    for (String branchStepId : group.branchStepIds()) {
+      FlowStepExecution latest = round.latestByBranch().get(branchStepId);
+      if (latest != null && latest.getStatus() == FlowStepStatus.COMPLETED) {
+        JsonNode output = latest.getOutputPayload().json();
+        branchOutputs.set(branchStepId, cloneNode(output));
+        branchReferences.set(
+            branchStepId, flowPayloadMapper.stepOutputReference(latest, output));
+      }
+    }
+    session.setSharedContext(flowPayloadMapper.applyParallelJoin(session, branchReferences));
+    session.setStateVersion(session.getStateVersion() + 1);
+    telemetry.sessionEvent(session.getId(), "parallel_joined", group.sourceStepId());
+
+    if (!StringUtils.hasText(group.joinStepId())) {
+      session.setStatus(FlowSessionStatus.COMPLETED);
+      session.setCompletedAt(Instant.now());
+      recordEvent(session, branchExecution, FlowEventType.FLOW_COMPLETED, "completed", null, usageCost);
+      flowSessionRepository.save(session);
+      telemetry.sessionCompleted(
+          session.getId(),
+          session.getStatus(),
+          calculateDuration(session.getStartedAt(), session.getCompletedAt()));
+      return;
+    }
+
+    ObjectNode joinContext = objectMapper.createObjectNode();
+    joinContext.put("sourceExecutionId", round.sourceExecutionId());
+    joinContext.put("sourceStepId", group.sourceStepId());
+    joinContext.set("branches", branchOutputs);
+    scheduleNextStep(
+        session,
+        group.joinStepId(),
+        document,
+        flowPayloadMapper.withParallelContext(launchContextForNext(session), joinContext));
+  }
+
+  /**
+   * A branch that exhausted its attempts fails the flow unless a sibling already ended the session,
+   * the round already joined, or the group joins on the first K branches and K is still reachable.
+   */
+  private boolean branchFailureTolerated(
+      FlowSession session, FlowStepExecution branchExecution, FlowParallelGroup group) {
+    if (session.getStatus() != FlowSessionStatus.RUNNING) {
+      return true;
+    }
+    if (group.waitsForAll()) {
+      return false;
+    }
+    ParallelRound round = parallelRound(session, group, branchExecution);
+    if (round.joined()) {
+      return true;
+    }
+    long failed =
+        round.latestByBranch().values().stream()
+            .filter(execution -> execution.getStatus() == FlowStepStatus.FAILED)
+            .count();
+    return group.branchStepIds().size() - failed >= group.requiredBranches();
+  }
+
+  private void skipJoinedBranch(FlowJob job, FlowSession session, FlowStepExecution stepExecution) {
+    log.debug(
+        "Flow session {} already joined past branch {} — cancelling job {}",
+        session.getId(),
+        stepExecution.getStepId(),
+        job.getId());
+    resetJobLock(job, FlowJobStatus.CANCELLED);
+    stepExecution.setStatus(FlowStepStatus.CANCELLED);
+    stepExecution.setCompletedAt(Instant.now());
+    flowStepExecutionRepository.save(stepExecution);
+    recordEvent(session, stepExecution, FlowEventType.STEP_SKIPPED, "joined", null, null);
+  }
+
+  private ParallelRound parallelRound(
+      FlowSession session, FlowParallelGroup group, FlowStepExecution branchExecution) {
+    String sourceExecutionId = parallelSourceExecutionId(branchExecution);
+    Map<String, FlowStepExecution> latestByBranch = new LinkedHashMap<>();
+    boolean joined = false;
+    if (sourceExecutionId == null) {
+      return new ParallelRound(null, latestByBranch, false);
+    }
+    for (FlowStepExecution execution :
+        flowStepExecutionRepository.findByFlowSessionOrderByCreatedAtAsc(session)) {
+      if (!sourceExecutionId.equals(parallelSourceExecutionId(execution))) {
+        continue;
+      }
+      if (group.branchStepIds().contains(execution.getStepId())) {
+        refreshSibling(execution, branchExecution);
+        latestByBranch.merge(
+            execution.getStepId(),
+            execution,
+            (current, candidate) -> candidate.getAttempt() >= current.getAttempt() ? candidate : current);
+      } else {
+        joined = true;
+      }
+    }
+    // the join step carries the round id as well; without one the round ends with the flow
+    joined = joined || session.getStatus() != FlowSessionStatus.RUNNING;
+    return new ParallelRound(sourceExecutionId, latestByBranch, joined);
+  }
+
+  /**
+   * Siblings commit in their own transactions, while the query above hands back the instances this
+   * persistence context already manages (e.g. loaded by the pre-lock join check). Re-read their rows
+   * so the status counts see every branch that committed before the session lock was granted.
+   */
+  private void refreshSibling(FlowStepExecution execution, FlowStepExecution branchExecution) {
+    if (entityManager == null
+        || Objects.equals(execution.getId(), branchExecution.getId())
+        || !entityManager.contains(execution)) {
+      return;
+    }
+    entityManager.refresh(execution);
+  }
+
+  private String parallelSourceExecutionId(FlowStepExecution execution) {
+    if (execution.getInputPayload() == null) {
+      return null;
+    }
+    JsonNode input = execution.getInputPayload().asJson();
+    JsonNode sourceId =
+        input != null
+            ? input.path(FlowPayloadMapper.PARALLEL_FIELD).path("sourceExecutionId")
+            : null;
+    return sourceId != null && sourceId.isTextual() ? sourceId.asText() : null;
+  }
+
+  /**
+   * Parallel branches finish in concurrent transactions: reload the session under its row lock so
+   * this step's context and status updates build on the sibling that committed first.
+   */
+  private void lockSessionIfParallel(FlowSession session, FlowDefinitionDocument document) {
+    if (!document.hasParallelGroups()) {
+      return;
+    }
+    if (entityManager != null) {
+      entityManager.refresh(session, LockModeType.PESSIMISTIC_WRITE);
+    } else {
+      flowSessionRepository.findByIdForUpdate(session.getId());
+    }
+  }
+
+  private record ParallelRound(
+      String sourceExecutionId, Map<String, FlowStepExecution> latestByBranch, boolean joined) {
+
+    long completed() {
+      return latestByBranch.values().stream()
+          .filter(execution -> execution.getStatus() == FlowStepStatus.COMPLETED)
+          .count();
+    }
   }
 
   private FlowStepExecution createStepExecution(
@@ -681,6 +973,7 @@ public class AgentOrchestratorService {
       event.setUsageSource(usageCost.source());
     }
     flowEventRepository.save(event);
+    publishEvent(session);
   }
 
   private JsonNode resultPayload(AgentInvocationResult result) {
@@ -944,4 +1237,10 @@ public class AgentOrchestratorService {
       case STATIC -> FlowMemorySourceType.SYSTEM;
     };
   }
+
+  private void publishEvent(FlowSession session) {
+    if (flowEventBus != null) {
+      flowEventBus.publish(session.getId());
+    }
+  }
 }
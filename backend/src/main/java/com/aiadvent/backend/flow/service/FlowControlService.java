@@ -7,7 +7,6 @@ import com.aiadvent.backend.flow.domain.AgentVersion;
 import com.aiadvent.backend.flow.domain.FlowEvent;
 import com.aiadvent.backend.flow.domain.FlowEventType;
 import com.aiadvent.backend.flow.execution.model.FlowEventPayload;
-import com.aiadvent.backend.flow.execution.model.FlowStepInputPayload;
 import com.aiadvent.backend.flow.domain.FlowInteractionResponseSource;
 import com.aiadvent.backend.flow.domain.FlowSession;
 import com.aiadvent.backend.flow.domain.FlowSessionStatus;
@@ -19,14 +18,16 @@ import com.aiadvent.backend.flow.persistence.AgentVersionRepository;
 import com.aiadvent.backend.flow.persistence.FlowEventRepository;
 import com.aiadvent.backend.flow.persistence.FlowSessionRepository;
 import com.aiadvent.backend.flow.persistence.FlowStepExecutionRepository;
-import com.aiadvent.backend.flow.session.model.FlowLaunchParameters;
-import com.aiadvent.backend.flow.session.model.FlowSharedContext;
+import com.aiadvent.backend.flow.service.payload.FlowPayloadMapper;
+import com.aiadvent.backend.flow.stream.FlowEventBus;
 import com.aiadvent.backend.flow.telemetry.FlowTelemetryService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -42,6 +43,8 @@ public class FlowControlService {
   private final ObjectMapper objectMapper;
   private final FlowTelemetryService telemetry;
   private final FlowInteractionService flowInteractionService;
+  private final FlowEventBus flowEventBus;
+  private final FlowPayloadMapper flowPayloadMapper;
 
   public FlowControlService(
       FlowSessionRepository flowSessionRepository,
@@ -53,6 +56,57 @@ public class FlowControlService {
       ObjectMapper objectMapper,
       FlowTelemetryService telemetry,
       FlowInteractionService flowInteractionService) {
+    this(
+        flowSessionRepository,
+        flowStepExecutionRepository,
+        flowEventRepository,
+        flowBlueprintCompiler,
+        agentVersionRepository,
+        jobQueuePort,
+        objectMapper,
+        telemetry,
+        flowInteractionService,
+        null);
+  }
+
+  public FlowControlService(
+      FlowSessionRepository flowSessionRepository,
+      FlowStepExecutionRepository flowStepExecutionRepository,
+      FlowEventRepository flowEventRepository,
+      FlowBlueprintCompiler flowBlueprintCompiler,
+      AgentVersionRepository agentVersionRepository,
+      JobQueuePort jobQueuePort,
+      ObjectMapper objectMapper,
+      FlowTelemetryService telemetry,
+      FlowInteractionService flowInteractionService,
+      @Nullable FlowEventBus flowEventBus) {
+    this(
+        flowSessionRepository,
+        flowStepExecutionRepository,
+        flowEventRepository,
+        flowBlueprintCompiler,
+        agentVersionRepository,
+        jobQueuePort,
+        objectMapper,
+        telemetry,
+        flowInteractionService,
+        flowEventBus,
+        null);
+  }
+
+  @Autowired
+  public FlowControlService(
+      FlowSessionRepository flowSessionRepository,
+      FlowStepExecutionRepository flowStepExecutionRepository,
+      FlowEventRepository flowEventRepository,
+      FlowBlueprintCompiler flowBlueprintCompiler,
+      AgentVersionRepository agentVersionRepository,
+      JobQueuePort jobQueuePort,
+      ObjectMapper objectMapper,
+      FlowTelemetryService telemetry,
+      FlowInteractionService flowInteractionService,
+      @Nullable FlowEventBus flowEventBus,
+      @Nullable FlowPayloadMapper flowPayloadMapper) {
     this.flowSessionRepository = flowSessionRepository;
     this.flowStepExecutionRepository = flowStepExecutionRepository;
     this.flowEventRepository = flowEventRepository;
@@ -62,6 +116,11 @@ public class FlowControlService {
     this.objectMapper = objectMapper;
     this.telemetry = telemetry;
     this.flowInteractionService = flowInteractionService;
+    this.flowEventBus = flowEventBus;
+    this.flowPayloadMapper =
+        flowPayloadMapper != null
+            ? flowPayloadMapper
+            : new FlowPayloadMapper(objectMapper, flowStepExecutionRepository);
   }
 
   @Transactional
@@ -141,6 +200,7 @@ public class FlowControlService {
     retryEvent.setTraceId(session.getId().toString());
     retryEvent.setSpanId(retryExecution.getId().toString());
     flowEventRepository.save(retryEvent);
+    publishEvent(session);
     session.setStatus(FlowSessionStatus.RUNNING);
     telemetry.retryScheduled(session.getId(), retryExecution.getStepId(), nextAttempt);
   }
@@ -188,6 +248,7 @@ public class FlowControlService {
     retryEvent.setTraceId(session.getId().toString());
     retryEvent.setSpanId(retryExecution.getId().toString());
     flowEventRepository.save(retryEvent);
+    publishEvent(session);
 
     telemetry.retryScheduled(session.getId(), retryExecution.getStepId(), nextAttempt);
     telemetry.sessionEvent(session.getId(), "step_approved", execution.getStepId());
@@ -219,6 +280,7 @@ public class FlowControlService {
     skippedEvent.setTraceId(session.getId().toString());
     skippedEvent.setSpanId(execution.getId().toString());
     flowEventRepository.save(skippedEvent);
+    publishEvent(session);
 
     String nextStepId = config.transitions().onFailure();
     boolean failFlow = config.transitions().failFlowOnFailure();
@@ -234,7 +296,7 @@ public class FlowControlService {
           new FlowStepExecution(session, nextConfig.id(), FlowStepStatus.PENDING, 1);
       nextExecution.setAgentVersion(nextAgent);
       nextExecution.setStepName(nextConfig.name());
-    nextExecution.setInputPayload(FlowStepInputPayload.from(buildStepInputContext(session)));
+      nextExecution.setInputPayload(flowPayloadMapper.buildStepInputPayload(session));
       flowStepExecutionRepository.save(nextExecution);
 
       FlowJobPayload payload =
@@ -281,6 +343,7 @@ public class FlowControlService {
     event.setTraceId(session.getId().toString());
     event.setSpanId(session.getId().toString());
     flowEventRepository.save(event);
+    publishEvent(session);
     telemetry.sessionEvent(session.getId(), eventType.name().toLowerCase(), message);
   }
 
@@ -291,30 +354,9 @@ public class FlowControlService {
     return Duration.between(start, end);
   }
 
-  private com.fasterxml.jackson.databind.JsonNode buildStepInputContext(FlowSession session) {
-    ObjectNode input = objectMapper.createObjectNode();
-    FlowLaunchParameters launchParameters = session.getLaunchParameters();
-    if (!launchParameters.isEmpty()) {
-      input.set("launchParameters", launchParameters.asJson());
-    }
-
-    FlowSharedContext shared = session.getSharedContext();
-    if (!shared.isEmpty()) {
-      ObjectNode sharedNode = shared.asObjectNode(objectMapper);
-      input.set("sharedContext", sharedNode.deepCopy());
-      com.fasterxml.jackson.databind.JsonNode initial = sharedNode.get("initial");
-      if (initial != null) {
-        input.set("initialContext", initial.deepCopy());
-      }
-      com.fasterxml.jackson.databind.JsonNode lastOutput = sharedNode.get("lastOutput");
-      if (lastOutput != null && !lastOutput.isNull()) {
-        input.set("lastOutput", lastOutput.deepCopy());
-      }
-      com.fasterxml.jackson.databind.JsonNode current = sharedNode.get("current");
-      if (current != null && !current.isNull()) {
-        input.set("currentContext", current.deepCopy());
-      }
+  private void publishEvent(FlowSession session) {
+    if (flowEventBus != null) {
+      flowEventBus.publish(session.getId());
     }
-    return input;
   }
 }
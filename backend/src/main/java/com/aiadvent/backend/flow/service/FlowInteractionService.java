@@ -21,6 +21,7 @@ import com.aiadvent.backend.flow.persistence.FlowInteractionRequestRepository;
 import com.aiadvent.backend.flow.persistence.FlowInteractionResponseRepository;
 import com.aiadvent.backend.flow.persistence.FlowSessionRepository;
 import com.aiadvent.backend.flow.persistence.FlowStepExecutionRepository;
+import com.aiadvent.backend.flow.stream.FlowEventBus;
 import com.aiadvent.backend.flow.telemetry.FlowTelemetryService;
 import com.aiadvent.backend.flow.validation.FlowInteractionSchemaValidator;
 import com.aiadvent.backend.flow.memory.FlowMemoryChannels;
@@ -37,6 +38,8 @@ import java.util.Optional;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -57,6 +60,7 @@ public class FlowInteractionService {
   private final ObjectMapper objectMapper;
   private final FlowInteractionSchemaValidator schemaValidator;
   private final SuggestedActionsSanitizer suggestedActionsSanitizer;
+  private final FlowEventBus flowEventBus;
 
   public FlowInteractionService(
       FlowInteractionRequestRepository requestRepository,
@@ -71,6 +75,37 @@ public class FlowInteractionService {
       ObjectMapper objectMapper,
       FlowInteractionSchemaValidator schemaValidator,
       SuggestedActionsSanitizer suggestedActionsSanitizer) {
+    this(
+        requestRepository,
+        responseRepository,
+        flowSessionRepository,
+        flowStepExecutionRepository,
+        flowEventRepository,
+        jobQueuePort,
+        telemetry,
+        flowMemoryService,
+        flowMemorySummarizerService,
+        objectMapper,
+        schemaValidator,
+        suggestedActionsSanitizer,
+        null);
+  }
+
+  @Autowired
+  public FlowInteractionService(
+      FlowInteractionRequestRepository requestRepository,
+      FlowInteractionResponseRepository responseRepository,
+      FlowSessionRepository flowSessionRepository,
+      FlowStepExecutionRepository flowStepExecutionRepository,
+      FlowEventRepository flowEventRepository,
+      JobQueuePort jobQueuePort,
+      FlowTelemetryService telemetry,
+      FlowMemoryService flowMemoryService,
+      FlowMemorySummarizerService flowMemorySummarizerService,
+      ObjectMapper objectMapper,
+      FlowInteractionSchemaValidator schemaValidator,
+      SuggestedActionsSanitizer suggestedActionsSanitizer,
+      @Nullable FlowEventBus flowEventBus) {
     this.requestRepository = requestRepository;
     this.responseRepository = responseRepository;
     this.flowSessionRepository = flowSessionRepository;
@@ -83,6 +118,7 @@ public class FlowInteractionService {
     this.objectMapper = objectMapper;
     this.schemaValidator = schemaValidator;
     this.suggestedActionsSanitizer = suggestedActionsSanitizer;
+    this.flowEventBus = flowEventBus;
   }
 
   @Transactional(readOnly = true)
@@ -339,6 +375,7 @@ public class FlowInteractionService {
     event.setTraceId(session.getId().toString());
     event.setSpanId(stepExecution.getId().toString());
     flowEventRepository.save(event);
+    publishEvent(session);
 
     telemetry.sessionEvent(session.getId(), "interaction_required", stepExecution.getStepId());
     log.debug(
@@ -428,6 +465,7 @@ public class FlowInteractionService {
     event.setTraceId(session.getId().toString());
     event.setSpanId(stepExecution.getId().toString());
     flowEventRepository.save(event);
+    publishEvent(session);
 
     telemetry.sessionEvent(session.getId(), "interaction_responded", stepExecution.getStepId());
 
@@ -589,4 +627,10 @@ public class FlowInteractionService {
     JsonNode sanitized = suggestedActionsSanitizer.sanitize(raw);
     return sanitized != null ? sanitized.deepCopy() : null;
   }
+
+  private void publishEvent(FlowSession session) {
+    if (flowEventBus != null) {
+      flowEventBus.publish(session.getId());
+    }
+  }
 }
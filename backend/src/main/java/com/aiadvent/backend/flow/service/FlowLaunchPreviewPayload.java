@@ -2,6 +2,7 @@ package com.aiadvent.backend.flow.service;
 
 import com.aiadvent.backend.flow.api.FlowLaunchPreviewResponse;
 import com.aiadvent.backend.flow.blueprint.FlowBlueprint;
+import com.aiadvent.backend.flow.config.FlowParallelGroup;
 import java.util.List;
 import java.util.UUID;
 
@@ -13,4 +14,5 @@ public record FlowLaunchPreviewPayload(
     FlowBlueprint blueprint,
     String startStepId,
     List<FlowLaunchPreviewResponse.Step> steps,
+    List<FlowParallelGroup> parallelGroups,
     FlowLaunchPreviewResponse.CostEstimate totalEstimate) {}
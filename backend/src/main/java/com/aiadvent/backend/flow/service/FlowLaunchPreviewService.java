@@ -81,6 +81,7 @@ public class FlowLaunchPreviewService {
         definition.getDefinition(),
         document.startStepId(),
         List.copyOf(steps),
+        document.parallelGroups(),
         totalAccumulator.toEstimate());
   }
 
@@ -7,6 +7,7 @@ import com.aiadvent.backend.flow.domain.FlowSession;
 import com.aiadvent.backend.flow.domain.FlowSessionStatus;
 import com.aiadvent.backend.flow.persistence.FlowEventRepository;
 import com.aiadvent.backend.flow.persistence.FlowSessionRepository;
+import com.aiadvent.backend.flow.service.payload.FlowPayloadMapper;
 import com.aiadvent.backend.flow.session.model.FlowSharedContext;
 import com.aiadvent.backend.flow.telemetry.FlowTelemetryService;
 import java.time.Duration;
@@ -14,6 +15,8 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,16 +29,28 @@ public class FlowStatusService {
   private final FlowEventRepository flowEventRepository;
   private final FlowQueryService flowQueryService;
   private final FlowTelemetryService telemetryService;
+  private final FlowPayloadMapper flowPayloadMapper;
 
   public FlowStatusService(
       FlowSessionRepository flowSessionRepository,
       FlowEventRepository flowEventRepository,
       FlowQueryService flowQueryService,
       FlowTelemetryService telemetryService) {
+    this(flowSessionRepository, flowEventRepository, flowQueryService, telemetryService, null);
+  }
+
+  @Autowired
+  public FlowStatusService(
+      FlowSessionRepository flowSessionRepository,
+      FlowEventRepository flowEventRepository,
+      FlowQueryService flowQueryService,
+      FlowTelemetryService telemetryService,
+      @Nullable FlowPayloadMapper flowPayloadMapper) {
     this.flowSessionRepository = flowSessionRepository;
     this.flowEventRepository = flowEventRepository;
     this.flowQueryService = flowQueryService;
     this.telemetryService = telemetryService;
+    this.flowPayloadMapper = flowPayloadMapper;
   }
 
   @Transactional(readOnly = true)
@@ -54,26 +69,15 @@ public class FlowStatusService {
               .findById(sessionId)
               .orElseThrow(() -> new IllegalArgumentException("Flow session not found: " + sessionId));
 
-      List<FlowEventDto> events =
-          flowEventRepository.findByFlowSessionAndIdGreaterThanOrderByIdAsc(session, baselineEventId).stream()
-              .map(FlowStatusService::toDto)
-              .toList();
+      List<FlowEventDto> events = eventsAfter(session, baselineEventId);
 
       boolean stateChanged = session.getStateVersion() != baselineStateVersion;
       boolean hasEvents = !events.isEmpty();
-      boolean terminal = session.getStatus().name().endsWith("ED");
+      boolean terminal = isTerminal(session.getStatus());
 
       if (hasEvents || stateChanged || terminal) {
-        long nextSince = baselineEventId;
-        if (hasEvents) {
-          nextSince = events.get(events.size() - 1).eventId();
-        } else {
-          FlowEvent last = flowEventRepository.findTopByFlowSessionOrderByIdDesc(session);
-          if (last != null) {
-            nextSince = last.getId();
-          }
-        }
-        return Optional.of(buildResponse(session, events, nextSince));
+        return Optional.of(
+            buildResponse(session, events, nextSinceEventId(session, events, baselineEventId)));
       }
 
       sleep(DEFAULT_POLL_INTERVAL);
@@ -82,6 +86,24 @@ public class FlowStatusService {
     return Optional.empty();
   }
 
+  /**
+   * Single read of the session state and the events written after {@code sinceEventId}. Used by
+   * the SSE event bus, which shares one such read between all subscribers of a session.
+   */
+  @Transactional(readOnly = true)
+  public FlowStatusResponse sessionDelta(UUID sessionId, long sinceEventId) {
+    FlowSession session =
+        flowSessionRepository
+            .findById(sessionId)
+            .orElseThrow(() -> new IllegalArgumentException("Flow session not found: " + sessionId));
+    List<FlowEventDto> events = eventsAfter(session, sinceEventId);
+    return buildResponse(session, events, nextSinceEventId(session, events, sinceEventId));
+  }
+
+  public static boolean isTerminal(FlowSessionStatus status) {
+    return status != null && status.name().endsWith("ED");
+  }
+
   @Transactional(readOnly = true)
   public FlowStatusResponse currentSnapshot(UUID sessionId) {
     FlowSession session =
@@ -103,6 +125,20 @@ public class FlowStatusService {
     return flowQueryService.fetchStepDetails(sessionId, stepId);
   }
 
+  private List<FlowEventDto> eventsAfter(FlowSession session, long sinceEventId) {
+    return flowEventRepository.findByFlowSessionAndIdGreaterThanOrderByIdAsc(session, sinceEventId).stream()
+        .map(FlowStatusService::toDto)
+        .toList();
+  }
+
+  private long nextSinceEventId(FlowSession session, List<FlowEventDto> events, long sinceEventId) {
+    if (!events.isEmpty()) {
+      return events.get(events.size() - 1).eventId();
+    }
+    FlowEvent last = flowEventRepository.findTopByFlowSessionOrderByIdDesc(session);
+    return last != null ? last.getId() : sinceEventId;
+  }
+
   private FlowStatusResponse buildResponse(
       FlowSession session, List<FlowEventDto> events, long nextSinceEventId) {
     var telemetrySnapshot = telemetryService.snapshot(session.getId()).orElse(null);
@@ -117,11 +153,17 @@ public class FlowStatusService {
         session.getCompletedAt(),
         session.getFlowDefinition().getId(),
         session.getFlowDefinitionVersion(),
-        session.getSharedContext().isEmpty() ? null : session.getSharedContext());
+        session.getSharedContext().isEmpty() ? null : materializedSharedContext(session));
 
     return new FlowStatusResponse(state, events, nextSinceEventId, telemetrySnapshot);
   }
 
+  /** Step outputs are stored by reference; the API keeps returning them inline. */
+  private FlowSharedContext materializedSharedContext(FlowSession session) {
+    FlowSharedContext shared = session.getSharedContext();
+    return flowPayloadMapper != null ? flowPayloadMapper.materializeSharedContext(shared) : shared;
+  }
+
   private static FlowEventDto toDto(FlowEvent event) {
     return new FlowEventDto(
         event.getId(),
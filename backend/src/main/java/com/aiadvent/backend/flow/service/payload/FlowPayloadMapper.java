@@ -10,22 +10,57 @@ import com.aiadvent.backend.flow.execution.model.FlowEventPayload;
 import com.aiadvent.backend.flow.execution.model.FlowStepInputPayload;
 import com.aiadvent.backend.flow.execution.model.FlowStepOutputPayload;
 import com.aiadvent.backend.flow.execution.model.FlowUsagePayload;
+import com.aiadvent.backend.flow.persistence.FlowStepExecutionRepository;
 import com.aiadvent.backend.flow.session.model.FlowLaunchParameters;
 import com.aiadvent.backend.flow.session.model.FlowOverrides;
 import com.aiadvent.backend.flow.session.model.FlowSharedContext;
+import com.aiadvent.backend.shared.json.AbstractJsonPayload;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+/**
+ * Maps flow state to step payloads. Step outputs live once in {@code
+ * flow_step_execution.output_payload}; {@code shared_context} only holds {@code {"$stepOutput":
+ * "<executionId>"}} references to them in {@code steps}, {@code lastOutput} and {@code current},
+ * so the session row no longer grows with every output. References are resolved lazily, and only
+ * for the fields a step reads.
+ */
 @Component
 public class FlowPayloadMapper {
 
+  public static final String PARALLEL_FIELD = "parallel";
+  public static final String STEP_OUTPUT_REF = "$stepOutput";
+
   private final ObjectMapper objectMapper;
+  private final FlowStepExecutionRepository flowStepExecutionRepository;
 
   public FlowPayloadMapper(ObjectMapper objectMapper) {
+    this(objectMapper, null);
+  }
+
+  /**
+   * Without a repository references cannot be resolved, so outputs are kept inline in the shared
+   * context as before.
+   */
+  @Autowired
+  public FlowPayloadMapper(
+      ObjectMapper objectMapper,
+      @Nullable FlowStepExecutionRepository flowStepExecutionRepository) {
     this.objectMapper = objectMapper;
+    this.flowStepExecutionRepository = flowStepExecutionRepository;
   }
 
   public FlowSharedContext initializeSharedContext(JsonNode sharedContext) {
@@ -57,56 +92,162 @@ public class FlowPayloadMapper {
       input.set("launchParameters", launchParameters.asJson());
     }
 
+    // nodes of the session context are shared read-only here: FlowStepInputPayload.from copies
+    // the assembled input exactly once
     FlowSharedContext shared = session.getSharedContext();
-    if (!shared.isEmpty()) {
-      ObjectNode sharedNode = shared.asObjectNode(objectMapper);
-      input.set("sharedContext", sharedNode.deepCopy());
+    if (!shared.isEmpty() && shared.json().isObject()) {
+      JsonNode sharedNode = shared.json();
+      input.set("sharedContext", sharedNode);
       JsonNode initial = sharedNode.get("initial");
       if (initial != null) {
-        input.set("initialContext", cloneNode(initial));
+        input.set("initialContext", initial);
       }
       JsonNode lastOutput = sharedNode.get("lastOutput");
-      if (lastOutput != null && !lastOutput.isNull()) {
-        input.set("lastOutput", cloneNode(lastOutput));
-      }
       JsonNode current = sharedNode.get("current");
-      if (current != null && !current.isNull()) {
-        input.set("currentContext", cloneNode(current));
+      boolean hasLastOutput = lastOutput != null && !lastOutput.isNull();
+      // after a step `current` aliases `lastOutput`; agents drop it anyway, so it is not repeated
+      boolean hasCurrent =
+          current != null && !current.isNull() && !(hasLastOutput && current.equals(lastOutput));
+      Set<UUID> references = new LinkedHashSet<>();
+      if (hasLastOutput) {
+        collectReferences(lastOutput, references);
+      }
+      if (hasCurrent) {
+        collectReferences(current, references);
+      }
+      Map<UUID, JsonNode> outputs = loadStepOutputs(references);
+      if (hasLastOutput) {
+        input.set("lastOutput", resolveReferences(lastOutput, outputs));
+      }
+      if (hasCurrent) {
+        input.set("currentContext", resolveReferences(current, outputs));
       }
     }
     return FlowStepInputPayload.from(input);
   }
 
+  /**
+   * Returns the shared context with every step output reference replaced by the output itself, as
+   * exposed by the status API. Outputs are loaded with a single query.
+   */
+  public FlowSharedContext materializeSharedContext(FlowSharedContext shared) {
+    if (shared == null || shared.isEmpty() || !shared.json().isObject()) {
+      return shared;
+    }
+    JsonNode sharedNode = shared.json();
+    Set<UUID> references = new LinkedHashSet<>();
+    JsonNode steps = sharedNode.get("steps");
+    if (steps != null && steps.isObject()) {
+      steps.elements().forEachRemaining(step -> collectReferences(step, references));
+    }
+    collectReferences(sharedNode.get("lastOutput"), references);
+    collectReferences(sharedNode.get("current"), references);
+    if (references.isEmpty()) {
+      return shared;
+    }
+    Map<UUID, JsonNode> outputs = loadStepOutputs(references);
+    ObjectNode materialized = objectMapper.createObjectNode();
+    Iterator<Map.Entry<String, JsonNode>> fields = sharedNode.fields();
+    while (fields.hasNext()) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      JsonNode value = field.getValue();
+      materialized.set(
+          field.getKey(),
+          "steps".equals(field.getKey())
+                  || "lastOutput".equals(field.getKey())
+                  || "current".equals(field.getKey())
+              ? resolveReferences(value, outputs)
+              : value);
+    }
+    return FlowSharedContext.from(materialized);
+  }
+
+  /**
+   * What the shared context stores for a persisted step output: a reference to its execution, or
+   * an inline copy when references cannot be resolved.
+   */
+  public JsonNode stepOutputReference(FlowStepExecution stepExecution, JsonNode stepOutput) {
+    if (flowStepExecutionRepository == null
+        || stepExecution == null
+        || stepExecution.getId() == null) {
+      return cloneNode(stepOutput);
+    }
+    ObjectNode reference = objectMapper.createObjectNode();
+    reference.put(STEP_OUTPUT_REF, stepExecution.getId().toString());
+    return reference;
+  }
+
+  /** Size of the payload as written to its jsonb column, without materializing the bytes. */
+  public long serializedSize(AbstractJsonPayload payload) {
+    if (payload == null || payload.isEmpty()) {
+      return 0L;
+    }
+    CountingOutputStream counter = new CountingOutputStream();
+    try {
+      objectMapper.writeValue(counter, payload.json());
+    } catch (IOException ex) {
+      return 0L;
+    }
+    return counter.count;
+  }
+
   public FlowStepInputPayload mergeInteractionPayload(
       FlowStepInputPayload base, FlowStepInputPayload existing) {
     if (existing == null || existing.isEmpty()) {
       return base;
     }
     JsonNode existingNode = existing.asJson();
-    if (existingNode == null || !existingNode.has("interaction")) {
+    if (existingNode == null
+        || !(existingNode.has("interaction") || existingNode.has(PARALLEL_FIELD))) {
       return base;
     }
     ObjectNode merged = base.asObjectNode(objectMapper);
-    JsonNode interactionNode = existingNode.get("interaction");
-    if (interactionNode != null && !interactionNode.isMissingNode()) {
-      merged.set("interaction", cloneNode(interactionNode));
+    if (existingNode.has("interaction")) {
+      merged.set("interaction", cloneNode(existingNode.get("interaction")));
+      JsonNode overrideNode = existingNode.get("overrides");
+      if (overrideNode != null && !overrideNode.isMissingNode()) {
+        merged.set("overrides", cloneNode(overrideNode));
+      }
     }
-    JsonNode overrideNode = existingNode.get("overrides");
-    if (overrideNode != null && !overrideNode.isMissingNode()) {
-      merged.set("overrides", cloneNode(overrideNode));
+    JsonNode parallelNode = existingNode.get(PARALLEL_FIELD);
+    if (parallelNode != null && !parallelNode.isMissingNode()) {
+      merged.set(PARALLEL_FIELD, cloneNode(parallelNode));
     }
     return FlowStepInputPayload.from(merged);
   }
 
+  /**
+   * Tags the input of a parallel branch or join step with its fan-out round; the tag survives
+   * {@link #mergeInteractionPayload} and retries.
+   */
+  public FlowStepInputPayload withParallelContext(FlowStepInputPayload base, JsonNode parallel) {
+    ObjectNode merged = base.asObjectNode(objectMapper);
+    merged.set(PARALLEL_FIELD, cloneNode(parallel));
+    return FlowStepInputPayload.from(merged);
+  }
+
+  /**
+   * Makes the merged outputs of joined branches, keyed by step id, the current context. Values are
+   * expected to be {@link #stepOutputReference step output references}.
+   */
+  public FlowSharedContext applyParallelJoin(FlowSession session, JsonNode branchOutputs) {
+    ObjectNode context = session.getSharedContext().asObjectNode(objectMapper);
+    context.set("lastOutput", cloneNode(branchOutputs));
+    context.set("current", cloneNode(branchOutputs));
+    context.put("version", context.path("version").asInt(0) + 1);
+    return FlowSharedContext.from(context);
+  }
+
   public FlowSharedContext applyStepOutput(
       FlowSession session, FlowStepExecution stepExecution, JsonNode stepOutput) {
     ObjectNode context = session.getSharedContext().asObjectNode(objectMapper);
 
+    JsonNode stored = stepOutputReference(stepExecution, stepOutput);
     ObjectNode stepsNode = context.with("steps");
-    stepsNode.set(stepExecution.getStepId(), cloneNode(stepOutput));
+    stepsNode.set(stepExecution.getStepId(), stored);
     context.put("lastStepId", stepExecution.getStepId());
-    context.set("lastOutput", cloneNode(stepOutput));
-    context.set("current", cloneNode(stepOutput));
+    context.set("lastOutput", stored);
+    context.set("current", stored);
     context.put("version", context.path("version").asInt(0) + 1);
     return FlowSharedContext.from(context);
   }
@@ -259,6 +400,88 @@ public class FlowPayloadMapper {
     return agentNode;
   }
 
+  private static boolean isReference(JsonNode node) {
+    return node != null
+        && node.isObject()
+        && node.size() == 1
+        && node.path(STEP_OUTPUT_REF).isTextual();
+  }
+
+  /** References sit at the top (a step output) or one level down (joined branch outputs). */
+  private static void collectReferences(JsonNode node, Set<UUID> references) {
+    if (node == null || !node.isObject()) {
+      return;
+    }
+    if (isReference(node)) {
+      addReference(node, references);
+      return;
+    }
+    node.elements()
+        .forEachRemaining(
+            child -> {
+              if (isReference(child)) {
+                addReference(child, references);
+              }
+            });
+  }
+
+  private static void addReference(JsonNode reference, Set<UUID> references) {
+    try {
+      references.add(UUID.fromString(reference.get(STEP_OUTPUT_REF).asText()));
+    } catch (IllegalArgumentException ignore) {
+      // not one of ours, left as is
+    }
+  }
+
+  private Map<UUID, JsonNode> loadStepOutputs(Set<UUID> references) {
+    if (references.isEmpty() || flowStepExecutionRepository == null) {
+      return Map.of();
+    }
+    Map<UUID, JsonNode> outputs = new HashMap<>();
+    for (FlowStepExecution execution : flowStepExecutionRepository.findAllById(references)) {
+      outputs.put(execution.getId(), execution.getOutputPayload().json());
+    }
+    return outputs;
+  }
+
+  private JsonNode resolveReferences(JsonNode node, Map<UUID, JsonNode> outputs) {
+    if (node == null || !node.isObject()) {
+      return node;
+    }
+    if (isReference(node)) {
+      return resolveReference(node, outputs);
+    }
+    boolean hasReference = false;
+    for (Iterator<JsonNode> children = node.elements(); children.hasNext(); ) {
+      if (isReference(children.next())) {
+        hasReference = true;
+        break;
+      }
+    }
+    if (!hasReference) {
+      return node;
+    }
+    ObjectNode resolved = objectMapper.createObjectNode();
+    node.fields()
+        .forEachRemaining(
+            field ->
+                resolved.set(
+                    field.getKey(),
+                    isReference(field.getValue())
+                        ? resolveReference(field.getValue(), outputs)
+                        : field.getValue()));
+    return resolved;
+  }
+
+  private JsonNode resolveReference(JsonNode reference, Map<UUID, JsonNode> outputs) {
+    try {
+      JsonNode output = outputs.get(UUID.fromString(reference.get(STEP_OUTPUT_REF).asText()));
+      return output != null && !output.isMissingNode() ? output : objectMapper.nullNode();
+    } catch (IllegalArgumentException ex) {
+      return reference;
+    }
+  }
+
   private JsonNode cloneNode(JsonNode node) {
     if (node == null || node.isNull()) {
       return objectMapper.nullNode();
@@ -277,4 +500,18 @@ public class FlowPayloadMapper {
       default -> stepId;
     };
   }
+
+  private static final class CountingOutputStream extends OutputStream {
+    private long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
 }
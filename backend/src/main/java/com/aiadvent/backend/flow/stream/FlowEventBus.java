@@ -0,0 +1,561 @@
+package com.aiadvent.backend.flow.stream;
+
+import com.aiadvent.backend.flow.api.FlowEventDto;
+import com.aiadvent.backend.flow.config.FlowStreamProperties;
+import com.aiadvent.backend.flow.service.FlowStatusService;
+import com.aiadvent.backend.flow.service.FlowStatusService.FlowStateDto;
+import com.aiadvent.backend.flow.service.FlowStatusService.FlowStatusResponse;
+import com.aiadvent.backend.flow.telemetry.FlowTelemetryService.FlowTelemetrySnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Pushes flow session updates to SSE subscribers. Writers call {@link #publish(UUID)} when they
+ * store a {@code FlowEvent}; after commit the session is re-read once on a small dispatcher pool
+ * and the delta is fanned out to every subscriber of that session. Writes to the connections run
+ * outside the session lock: each subscriber drains its own bounded queue on a sender thread, so a
+ * stalled client cannot hold up the dispatcher or its siblings. Other backend nodes are woken
+ * through Postgres {@code NOTIFY} (see {@link FlowEventNotificationListener}). Each session keeps a
+ * bounded replay buffer so reconnects with {@code sinceEventId} are served from memory.
+ */
+@Component
+public class FlowEventBus {
+
+  private static final Logger log = LoggerFactory.getLogger(FlowEventBus.class);
+
+  private final FlowStatusService flowStatusService;
+  private final FlowStreamProperties properties;
+  private final JdbcTemplate jdbcTemplate;
+  private final MeterRegistry meterRegistry;
+  private final ExecutorService dispatcher;
+  private final ExecutorService sender;
+  private final Map<UUID, SessionChannel> channels = new ConcurrentHashMap<>();
+  private final AtomicInteger subscriberCount = new AtomicInteger();
+  private final String nodeId = UUID.randomUUID().toString();
+  private final Counter refreshCounter;
+  private final Counter localSignalCounter;
+  private final Counter remoteSignalCounter;
+  private final Counter replayHitCounter;
+  private final Counter replayMissCounter;
+  private final Counter overflowCounter;
+
+  public FlowEventBus(FlowStatusService flowStatusService, FlowStreamProperties properties) {
+    this(flowStatusService, properties, null, null);
+  }
+
+  @Autowired
+  public FlowEventBus(
+      FlowStatusService flowStatusService,
+      FlowStreamProperties properties,
+      @Nullable JdbcTemplate jdbcTemplate,
+      @Nullable MeterRegistry meterRegistry) {
+    this.flowStatusService = flowStatusService;
+    this.properties = properties;
+    this.jdbcTemplate = jdbcTemplate;
+    this.meterRegistry = meterRegistry != null ? meterRegistry : new SimpleMeterRegistry();
+    this.dispatcher =
+        Executors.newFixedThreadPool(
+            properties.getDispatcherThreads(), threadFactory("flow-event-dispatcher-"));
+    // one drain task per subscriber: a virtual thread parked on a slow connection costs no carrier
+    this.sender =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("flow-event-sender-", 0).factory());
+    this.refreshCounter = this.meterRegistry.counter("flow.stream.refreshes");
+    this.localSignalCounter = this.meterRegistry.counter("flow.stream.signals", "source", "local");
+    this.remoteSignalCounter = this.meterRegistry.counter("flow.stream.signals", "source", "remote");
+    this.replayHitCounter = this.meterRegistry.counter("flow.stream.replay", "result", "hit");
+    this.replayMissCounter = this.meterRegistry.counter("flow.stream.replay", "result", "miss");
+    this.overflowCounter = this.meterRegistry.counter("flow.stream.overflows");
+    this.meterRegistry.gauge("flow.stream.subscribers", subscriberCount);
+    this.meterRegistry.gauge("flow.stream.sessions", channels, Map::size);
+  }
+
+  /**
+   * Announces that events of the session were written. Inside a transaction the local refresh is
+   * deferred until commit and the cross-node {@code NOTIFY} rides on the same transaction, so
+   * subscribers never observe rows that end up rolled back.
+   */
+  public void publish(UUID sessionId) {
+    if (sessionId == null) {
+      return;
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      if (pendingInTransaction().add(sessionId)) {
+        notifyPeers(sessionId);
+      }
+      return;
+    }
+    notifyPeers(sessionId);
+    signal(sessionId, false);
+  }
+
+  /**
+   * Registers a subscriber. The first update carries every event after {@code sinceEventId}
+   * (all events when {@code null}) together with the current session state.
+   */
+  public Subscription subscribe(UUID sessionId, Long sinceEventId, FlowEventListener listener) {
+    long cursor = sinceEventId != null ? Math.max(0L, sinceEventId) : 0L;
+    Subscriber[] created = new Subscriber[1];
+    // attach inside compute() so an idle-channel eviction cannot drop the channel in between
+    SessionChannel channel =
+        channels.compute(
+            sessionId,
+            (id, existing) -> {
+              SessionChannel target = existing != null ? existing : new SessionChannel(id);
+              created[0] = new Subscriber(target, listener, cursor);
+              target.subscribers.add(created[0]);
+              return target;
+            });
+    subscriberCount.incrementAndGet();
+    schedule(channel);
+    return created[0];
+  }
+
+  String nodeId() {
+    return nodeId;
+  }
+
+  /** Wakes up a session after a local commit or a notification from another node. */
+  void signal(UUID sessionId, boolean remote) {
+    (remote ? remoteSignalCounter : localSignalCounter).increment();
+    SessionChannel channel = channels.get(sessionId);
+    // a channel without subscribers keeps its buffer and catches up on the next subscribe
+    if (channel != null && !channel.subscribers.isEmpty()) {
+      schedule(channel);
+    }
+  }
+
+  /** Called after the LISTEN connection is (re)established: notifications may have been missed. */
+  void resyncAll() {
+    channels.values().forEach(
+        channel -> {
+          if (!channel.subscribers.isEmpty()) {
+            schedule(channel);
+          }
+        });
+  }
+
+  @Scheduled(fixedDelayString = "${app.flow.stream.heartbeat-interval:PT15S}")
+  public void heartbeat() {
+    long now = System.nanoTime();
+    long resyncNanos = properties.getResyncInterval().toNanos();
+    long retentionNanos = properties.getIdleRetention().toNanos();
+    for (SessionChannel channel : channels.values()) {
+      if (channel.subscribers.isEmpty()) {
+        channels.computeIfPresent(
+            channel.sessionId,
+            (id, existing) ->
+                existing.subscribers.isEmpty() && now - existing.lastTouchedNanos > retentionNanos
+                    ? null
+                    : existing);
+        continue;
+      }
+      if (now - channel.lastRefreshNanos >= resyncNanos) {
+        schedule(channel);
+      }
+      submit(() -> sendHeartbeats(channel));
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    dispatcher.shutdown();
+    try {
+      if (!dispatcher.awaitTermination(5, TimeUnit.SECONDS)) {
+        dispatcher.shutdownNow();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      dispatcher.shutdownNow();
+    }
+    channels.values().forEach(channel -> channel.subscribers.forEach(s -> s.finish(null)));
+    channels.clear();
+    sender.shutdownNow();
+  }
+
+  @SuppressWarnings("unchecked")
+  private Set<UUID> pendingInTransaction() {
+    Set<UUID> pending = (Set<UUID>) TransactionSynchronizationManager.getResource(this);
+    if (pending != null) {
+      return pending;
+    }
+    Set<UUID> created = new LinkedHashSet<>();
+    TransactionSynchronizationManager.bindResource(this, created);
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            created.forEach(sessionId -> signal(sessionId, false));
+          }
+
+          @Override
+          public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(FlowEventBus.this);
+          }
+        });
+    return created;
+  }
+
+  private void notifyPeers(UUID sessionId) {
+    if (jdbcTemplate == null || !properties.isNotifyEnabled()) {
+      return;
+    }
+    try {
+      jdbcTemplate.queryForList(
+          "select pg_notify(?, ?)", properties.getNotifyChannel(), nodeId + "|" + sessionId);
+    } catch (DataAccessException ex) {
+      log.debug("Failed to notify peers about flow session {}: {}", sessionId, ex.getMessage());
+    }
+  }
+
+  private void schedule(SessionChannel channel) {
+    if (channel.scheduled.compareAndSet(false, true)) {
+      if (!submit(() -> refresh(channel))) {
+        channel.scheduled.set(false);
+      }
+    }
+  }
+
+  private boolean submit(Runnable task) {
+    try {
+      dispatcher.execute(task);
+      return true;
+    } catch (RejectedExecutionException ex) {
+      log.debug("Flow event dispatcher is shut down, dropping task");
+      return false;
+    }
+  }
+
+  private void refresh(SessionChannel channel) {
+    channel.scheduled.set(false);
+    List<Subscriber> behind = new ArrayList<>();
+    synchronized (channel) {
+      if (channel.subscribers.isEmpty()) {
+        return;
+      }
+      try {
+        long since = channel.loaded ? channel.lastEventId : channel.lowestCursor();
+        FlowStatusResponse delta = flowStatusService.sessionDelta(channel.sessionId, since);
+        refreshCounter.increment();
+        channel.apply(delta, since, properties.getReplayCapacity());
+      } catch (IllegalArgumentException ex) {
+        channels.remove(channel.sessionId, channel);
+        new ArrayList<>(channel.subscribers).forEach(subscriber -> subscriber.finish(ex));
+        return;
+      } catch (RuntimeException ex) {
+        log.warn("Failed to refresh flow session {}: {}", channel.sessionId, ex.getMessage());
+        return;
+      }
+      for (Subscriber subscriber : new ArrayList<>(channel.subscribers)) {
+        if (!deliverBuffered(channel, subscriber)) {
+          behind.add(subscriber);
+        }
+      }
+    }
+    // the gap reads hit the database, so they run without holding the session lock
+    behind.forEach(subscriber -> backfill(channel, subscriber));
+  }
+
+  /**
+   * Queues the buffered delta for the subscriber. Returns {@code false} when the subscriber is
+   * behind the replay buffer; it is then marked as backfilling and skipped until the read is done.
+   */
+  private boolean deliverBuffered(SessionChannel channel, Subscriber subscriber) {
+    if (subscriber.backfilling || subscriber.ending) {
+      return true;
+    }
+    if (subscriber.cursor < channel.floorEventId) {
+      subscriber.backfilling = true;
+      return false;
+    }
+    if (!subscriber.delivered && subscriber.cursor > 0) {
+      replayHitCounter.increment();
+    }
+    enqueue(
+        subscriber,
+        channel.state,
+        channel.eventsAfter(subscriber.cursor),
+        Math.max(subscriber.cursor, channel.lastEventId),
+        channel.telemetry);
+    return true;
+  }
+
+  private void backfill(SessionChannel channel, Subscriber subscriber) {
+    replayMissCounter.increment();
+    FlowStatusResponse backfill;
+    try {
+      backfill = flowStatusService.sessionDelta(channel.sessionId, subscriber.cursor);
+    } catch (RuntimeException ex) {
+      subscriber.finish(ex);
+      return;
+    }
+    synchronized (channel) {
+      subscriber.backfilling = false;
+      enqueue(
+          subscriber,
+          backfill.state(),
+          backfill.events(),
+          backfill.nextSinceEventId(),
+          backfill.telemetry());
+      // events buffered while the read ran are newer than the backfill and follow right behind it
+      if (channel.loaded && subscriber.cursor >= channel.floorEventId) {
+        deliverBuffered(channel, subscriber);
+      }
+    }
+  }
+
+  /** Advances the subscriber cursor at enqueue time: its queue keeps the updates in order. */
+  private void enqueue(
+      Subscriber subscriber,
+      FlowStateDto state,
+      List<FlowEventDto> events,
+      long nextSince,
+      FlowTelemetrySnapshot telemetry) {
+    if (state == null) {
+      return;
+    }
+    boolean stateChanged = state.stateVersion() != subscriber.stateVersion;
+    if (subscriber.delivered && events.isEmpty() && !stateChanged) {
+      return;
+    }
+    boolean terminal = FlowStatusService.isTerminal(state.status());
+    subscriber.delivered = true;
+    subscriber.cursor = nextSince;
+    subscriber.stateVersion = state.stateVersion();
+    subscriber.ending = terminal;
+    subscriber.offer(
+        new Outbound(new FlowStatusResponse(state, events, nextSince, telemetry), terminal));
+  }
+
+  private void sendHeartbeats(SessionChannel channel) {
+    for (Subscriber subscriber : channel.subscribers) {
+      if (subscriber.delivered) {
+        subscriber.offer(Outbound.HEARTBEAT);
+      }
+    }
+  }
+
+  private static ThreadFactory threadFactory(String prefix) {
+    AtomicInteger index = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable);
+      thread.setName(prefix + index.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /** Receives pushed updates for one SSE connection; called from sender threads. */
+  public interface FlowEventListener {
+
+    void onUpdate(FlowStatusResponse response) throws IOException;
+
+    void onHeartbeat() throws IOException;
+
+    /**
+     * The subscription ended: {@code error} is {@code null} when the session reached a terminal
+     * status, otherwise the failure that closed it.
+     */
+    void onClose(@Nullable Throwable error);
+  }
+
+  public interface Subscription extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  private static final class SessionChannel {
+    private final UUID sessionId;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ArrayDeque<FlowEventDto> replay = new ArrayDeque<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile long lastTouchedNanos = System.nanoTime();
+    private volatile long lastRefreshNanos = System.nanoTime();
+    private boolean loaded;
+    private long floorEventId;
+    private long lastEventId;
+    private FlowStateDto state;
+    private FlowTelemetrySnapshot telemetry;
+
+    private SessionChannel(UUID sessionId) {
+      this.sessionId = sessionId;
+    }
+
+    private long lowestCursor() {
+      return subscribers.stream().mapToLong(s -> s.cursor).min().orElse(0L);
+    }
+
+    private void apply(FlowStatusResponse delta, long since, int capacity) {
+      if (!loaded) {
+        floorEventId = since;
+        loaded = true;
+      }
+      for (FlowEventDto event : delta.events()) {
+        if (event.eventId() > lastEventId) {
+          replay.addLast(event);
+        }
+      }
+      while (replay.size() > capacity) {
+        floorEventId = replay.removeFirst().eventId();
+      }
+      lastEventId = Math.max(lastEventId, delta.nextSinceEventId());
+      state = delta.state();
+      telemetry = delta.telemetry();
+      lastRefreshNanos = System.nanoTime();
+      lastTouchedNanos = lastRefreshNanos;
+    }
+
+    private List<FlowEventDto> eventsAfter(long cursor) {
+      List<FlowEventDto> result = new ArrayList<>();
+      for (FlowEventDto event : replay) {
+        if (event.eventId() > cursor) {
+          result.add(event);
+        }
+      }
+      return result;
+    }
+  }
+
+  /** One pending write; a {@code null} response is a heartbeat. */
+  private record Outbound(FlowStatusResponse response, boolean terminal) {
+    private static final Outbound HEARTBEAT = new Outbound(null, false);
+  }
+
+  private final class Subscriber implements Subscription {
+    private final SessionChannel channel;
+    private final FlowEventListener listener;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final ArrayDeque<Outbound> outbound = new ArrayDeque<>();
+    private boolean draining;
+    private long cursor;
+    private long stateVersion = -1L;
+    private volatile boolean delivered;
+    private boolean backfilling;
+    private boolean ending;
+
+    private Subscriber(SessionChannel channel, FlowEventListener listener, long cursor) {
+      this.channel = channel;
+      this.listener = listener;
+      this.cursor = cursor;
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        detach();
+      }
+    }
+
+    private void offer(Outbound message) {
+      int capacity = properties.getSubscriberQueueCapacity();
+      boolean overflow = false;
+      boolean startDrain = false;
+      synchronized (outbound) {
+        if (closed.get()) {
+          return;
+        }
+        if (message.response() == null) {
+          // a pending or running write keeps the connection alive already
+          if (draining || !outbound.isEmpty()) {
+            return;
+          }
+        }
+        if (outbound.size() >= capacity) {
+          overflow = true;
+        } else {
+          outbound.addLast(message);
+          startDrain = !draining;
+          draining = true;
+        }
+      }
+      if (overflow) {
+        overflowCounter.increment();
+        finish(
+            new IllegalStateException(
+                "Flow event subscriber fell " + capacity + " updates behind, closing stream"));
+        return;
+      }
+      if (startDrain) {
+        try {
+          sender.execute(this::drain);
+        } catch (RejectedExecutionException ex) {
+          finish(null);
+        }
+      }
+    }
+
+    private void drain() {
+      while (true) {
+        Outbound message;
+        synchronized (outbound) {
+          message = closed.get() ? null : outbound.pollFirst();
+          if (message == null) {
+            draining = false;
+            return;
+          }
+        }
+        try {
+          if (message.response() == null) {
+            listener.onHeartbeat();
+          } else {
+            listener.onUpdate(message.response());
+          }
+        } catch (IOException | RuntimeException ex) {
+          finish(ex);
+          continue;
+        }
+        if (message.terminal()) {
+          finish(null);
+        }
+      }
+    }
+
+    private void finish(Throwable error) {
+      if (closed.compareAndSet(false, true)) {
+        synchronized (outbound) {
+          outbound.clear();
+        }
+        detach();
+        try {
+          listener.onClose(error);
+        } catch (RuntimeException ex) {
+          log.debug("Flow event listener failed on close: {}", ex.getMessage());
+        }
+      }
+    }
+
+    private void detach() {
+      if (channel.subscribers.remove(this)) {
+        subscriberCount.decrementAndGet();
+      }
+      channel.lastTouchedNanos = System.nanoTime();
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.aiadvent.backend.flow.stream;
+
+import com.aiadvent.backend.flow.config.FlowStreamProperties;
+import com.aiadvent.backend.flow.persistence.PostgresNotificationListener;
+import jakarta.annotation.PreDestroy;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Forwards flow event notifications written by other backend nodes to the local {@link
+ * FlowEventBus}. Notifications from this node are skipped: the bus already signalled them after
+ * commit.
+ */
+@Component
+public class FlowEventNotificationListener {
+
+  private static final Logger log = LoggerFactory.getLogger(FlowEventNotificationListener.class);
+
+  private final FlowEventBus eventBus;
+  private final FlowStreamProperties properties;
+  private final PostgresNotificationListener listener;
+
+  public FlowEventNotificationListener(
+      DataSource dataSource, FlowEventBus eventBus, FlowStreamProperties properties) {
+    this.eventBus = eventBus;
+    this.properties = properties;
+    this.listener =
+        new PostgresNotificationListener(
+            dataSource,
+            properties.getNotifyChannel(),
+            "flow-event-listener",
+            this::handle,
+            eventBus::resyncAll);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (properties.isNotifyEnabled()) {
+      listener.start();
+    }
+  }
+
+  @PreDestroy
+  public void stop() {
+    listener.stop();
+  }
+
+  void handle(String payload) {
+    if (payload == null) {
+      return;
+    }
+    int separator = payload.indexOf('|');
+    if (separator <= 0 || payload.substring(0, separator).equals(eventBus.nodeId())) {
+      return;
+    }
+    try {
+      eventBus.signal(UUID.fromString(payload.substring(separator + 1)), true);
+    } catch (IllegalArgumentException ex) {
+      log.debug("Ignoring malformed flow event notification '{}'", payload);
+    }
+  }
+}
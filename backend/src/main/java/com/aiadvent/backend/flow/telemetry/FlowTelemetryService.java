@@ -41,6 +41,9 @@ public class FlowTelemetryService {
   private final Counter interactionAutoResolvedCounter;
   private final Counter interactionExpiredCounter;
   private final Timer interactionWaitTimer;
+  private final DistributionSummary sharedContextBytesSummary;
+  private final DistributionSummary stepInputBytesSummary;
+  private final DistributionSummary stepOutputBytesSummary;
 
   public FlowTelemetryService(MeterRegistry meterRegistry) {
     this.meterRegistry = meterRegistry;
@@ -61,6 +64,9 @@ public class FlowTelemetryService {
           meterRegistry.counter("flow_interaction_auto_resolved");
       this.interactionExpiredCounter = meterRegistry.counter("flow_interaction_expired");
       this.interactionWaitTimer = meterRegistry.timer("flow_interaction_wait_duration");
+      this.sharedContextBytesSummary = bytesWrittenSummary(meterRegistry, "shared_context");
+      this.stepInputBytesSummary = bytesWrittenSummary(meterRegistry, "input_payload");
+      this.stepOutputBytesSummary = bytesWrittenSummary(meterRegistry, "output_payload");
     } else {
       SimpleMeterRegistry noopRegistry = new SimpleMeterRegistry();
       this.stepDurationTimer = Timer.builder("flow_step_duration").register(noopRegistry);
@@ -76,9 +82,30 @@ public class FlowTelemetryService {
           Counter.builder("flow_interaction_expired").register(noopRegistry);
       this.interactionWaitTimer =
           Timer.builder("flow_interaction_wait_duration").register(noopRegistry);
+      this.sharedContextBytesSummary = bytesWrittenSummary(noopRegistry, "shared_context");
+      this.stepInputBytesSummary = bytesWrittenSummary(noopRegistry, "input_payload");
+      this.stepOutputBytesSummary = bytesWrittenSummary(noopRegistry, "output_payload");
     }
   }
 
+  private static DistributionSummary bytesWrittenSummary(MeterRegistry registry, String payload) {
+    return DistributionSummary.builder("flow_step_bytes_written")
+        .baseUnit("bytes")
+        .tag("payload", payload)
+        .register(registry);
+  }
+
+  /** Serialized size of the step input written when the step is dispatched. */
+  public void stepInputWritten(long inputPayloadBytes) {
+    stepInputBytesSummary.record(inputPayloadBytes);
+  }
+
+  /** Serialized sizes of the step output and of the shared context rewritten after the step. */
+  public void stepStateWritten(long outputPayloadBytes, long sharedContextBytes) {
+    stepOutputBytesSummary.record(outputPayloadBytes);
+    sharedContextBytesSummary.record(sharedContextBytes);
+  }
+
   public void sessionStarted(UUID sessionId, UUID definitionId, int definitionVersion) {
     activeSessions.incrementAndGet();
     sessionActiveGauge.put(sessionId, System.currentTimeMillis());
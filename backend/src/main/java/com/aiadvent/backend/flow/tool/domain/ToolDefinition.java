@@ -1,9 +1,11 @@
 package com.aiadvent.backend.flow.tool.domain;
 
+import com.aiadvent.backend.mcp.service.McpToolCatalogWriteListener;
 import com.aiadvent.backend.shared.json.StringListJsonConverter;
 import jakarta.persistence.Column;
 import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
@@ -18,6 +20,7 @@ import org.hibernate.annotations.UuidGenerator;
 import org.springframework.util.StringUtils;
 
 @Entity
+@EntityListeners(McpToolCatalogWriteListener.class)
 @Table(name = "tool_definition")
 public class ToolDefinition {
 
@@ -1,8 +1,10 @@
 package com.aiadvent.backend.flow.tool.domain;
 
+import com.aiadvent.backend.mcp.service.McpToolCatalogWriteListener;
 import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
@@ -14,6 +16,7 @@ import org.hibernate.annotations.UuidGenerator;
 import org.hibernate.type.SqlTypes;
 
 @Entity
+@EntityListeners(McpToolCatalogWriteListener.class)
 @Table(name = "tool_schema_version")
 public class ToolSchemaVersion {
 
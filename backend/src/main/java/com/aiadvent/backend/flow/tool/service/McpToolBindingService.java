@@ -2,32 +2,27 @@ package com.aiadvent.backend.flow.tool.service;
 
 import com.aiadvent.backend.chat.logging.ChatLoggingSupport;
 import com.aiadvent.backend.flow.agent.options.AgentInvocationOptions;
-import com.aiadvent.backend.flow.tool.domain.ToolDefinition;
 import com.aiadvent.backend.flow.tool.domain.ToolSchemaVersion;
-import com.aiadvent.backend.flow.tool.persistence.ToolDefinitionRepository;
+import com.aiadvent.backend.mcp.service.McpToolCatalog;
 import com.aiadvent.backend.mcp.util.McpToolNameSanitizer;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.ai.mcp.SyncMcpToolCallbackProvider;
 import org.springframework.ai.tool.ToolCallback;
-import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
@@ -36,7 +31,8 @@ import org.springframework.util.StringUtils;
  * Resolves MCP-backed tool bindings into executable {@link ToolCallback} instances.
  *
  * <p>This service bridges catalogued tool bindings with the active set of tools
- * discovered from configured Model Context Protocol servers.</p>
+ * discovered from configured Model Context Protocol servers. Both sides are read from the
+ * {@link McpToolCatalog} snapshot, so binding costs no database or MCP round-trip.</p>
  */
 @Service
 public class McpToolBindingService {
@@ -46,8 +42,7 @@ public class McpToolBindingService {
   private static final String HTTP_STREAM_TRANSPORT = "http-stream";
   private static final String STDIO_TRANSPORT = "stdio";
 
-  private final ToolDefinitionRepository toolDefinitionRepository;
-  private final ObjectProvider<SyncMcpToolCallbackProvider> toolCallbackProvider;
+  private final McpToolCatalog toolCatalog;
   private final ObjectMapper objectMapper;
   private final ChatLoggingSupport chatLoggingSupport;
   private final AtomicBoolean missingProviderLogged = new AtomicBoolean(false);
@@ -55,12 +50,10 @@ public class McpToolBindingService {
   public record ResolvedTool(String toolCode, ToolCallback callback) {}
 
   public McpToolBindingService(
-      ToolDefinitionRepository toolDefinitionRepository,
-      ObjectProvider<SyncMcpToolCallbackProvider> toolCallbackProvider,
+      McpToolCatalog toolCatalog,
       ObjectMapper objectMapper,
       ChatLoggingSupport chatLoggingSupport) {
-    this.toolDefinitionRepository = toolDefinitionRepository;
-    this.toolCallbackProvider = toolCallbackProvider;
+    this.toolCatalog = toolCatalog;
     this.objectMapper = objectMapper;
     this.chatLoggingSupport = chatLoggingSupport;
   }
@@ -84,10 +77,11 @@ public class McpToolBindingService {
 
     Set<String> allowedToolCodes = normalizeToolCodes(requestedToolCodes);
     Map<String, JsonNode> overridesByTool = normalizeOverrideMap(requestOverrides);
+    McpToolCatalog.Snapshot catalog = toolCatalog.snapshot();
 
     Map<String, ResolvedTool> callbacksByName = new LinkedHashMap<>();
     for (AgentInvocationOptions.ToolBinding binding : bindings) {
-      createCallback(binding, userQuery, allowedToolCodes, overridesByTool)
+      createCallback(catalog, binding, userQuery, allowedToolCodes, overridesByTool)
           .ifPresent(resolved ->
               callbacksByName.putIfAbsent(resolved.callback().getToolDefinition().name(), resolved));
     }
@@ -95,6 +89,7 @@ public class McpToolBindingService {
   }
 
   private Optional<ResolvedTool> createCallback(
+      McpToolCatalog.Snapshot catalog,
       AgentInvocationOptions.ToolBinding binding,
       String userQuery,
       Set<String> allowedToolCodes,
@@ -120,17 +115,11 @@ public class McpToolBindingService {
       return Optional.empty();
     }
 
-    Optional<ToolDefinition> definitionOpt =
-        toolDefinitionRepository.findByCodeIgnoreCase(toolCode.trim());
-    if (definitionOpt.isEmpty()) {
-      log.debug("Tool '{}' is not registered in catalog; skipping MCP resolution", toolCode);
-      return Optional.empty();
-    }
-
-    ToolSchemaVersion schemaVersion = definitionOpt.get().getSchemaVersion();
+    ToolSchemaVersion schemaVersion = catalog.schema(toolCode);
     if (schemaVersion == null) {
       log.debug(
-          "Tool '{}' does not have an attached schema version; skipping MCP resolution", toolCode);
+          "Tool '{}' is not registered in catalog with a schema version; skipping MCP resolution",
+          toolCode);
       return Optional.empty();
     }
 
@@ -166,7 +155,7 @@ public class McpToolBindingService {
 
     Consumer<ObjectNode> payloadCustomizer =
         buildPayloadCustomizer(toolCode, mcpToolName, userQuery);
-    Optional<ToolCallback> resolvedCallback = resolveToolCallbackByName(sanitizedToolName);
+    Optional<ToolCallback> resolvedCallback = resolveToolCallbackByName(catalog, sanitizedToolName);
     if (resolvedCallback.isEmpty()) {
       log.warn(
           "MCP tool '{}' (sanitized '{}') is not available among registered callbacks; skipping binding for tool code '{}'",
@@ -288,9 +277,9 @@ public class McpToolBindingService {
     return toolCode.trim().toLowerCase(Locale.ROOT);
   }
 
-  private Optional<ToolCallback> resolveToolCallbackByName(String sanitizedToolName) {
-    SyncMcpToolCallbackProvider provider = toolCallbackProvider.getIfAvailable();
-    if (provider == null) {
+  private Optional<ToolCallback> resolveToolCallbackByName(
+      McpToolCatalog.Snapshot catalog, String sanitizedToolName) {
+    if (!catalog.providerAvailable()) {
       if (missingProviderLogged.compareAndSet(false, true)) {
         log.warn(
             "MCP tool callback provider is not available; MCP tools are disabled until the provider is configured");
@@ -298,27 +287,12 @@ public class McpToolBindingService {
       return Optional.empty();
     }
 
-    ToolCallback[] callbacks = provider.getToolCallbacks();
-
-    log.debug("Get all tool callbacks {}", Arrays.toString(callbacks));
-
     missingProviderLogged.set(false);
-    Optional<ToolCallback> resolved = Arrays.stream(callbacks)
-        .filter(Objects::nonNull)
-        .filter(
-            callback ->
-                sanitizedToolName.equals(
-                    McpToolNameSanitizer.sanitize(callback.getToolDefinition().name())))
-        .findFirst();
+    Optional<ToolCallback> resolved = Optional.ofNullable(catalog.callback(sanitizedToolName));
     if (resolved.isEmpty()) {
-      Set<String> knownNames =
-          Arrays.stream(callbacks)
-              .filter(Objects::nonNull)
-              .map(callback -> McpToolNameSanitizer.sanitize(callback.getToolDefinition().name()))
-              .filter(Objects::nonNull)
-              .collect(Collectors.toCollection(LinkedHashSet::new));
       log.warn(
-          "Known sanitized MCP tool names from provider: {}", knownNames);
+          "Known sanitized MCP tool names from provider: {}",
+          new TreeSet<>(catalog.callbacksByName().keySet()));
     }
     return resolved;
   }
@@ -16,6 +16,7 @@ public final class FlowBlueprintIssueCodes {
   public static final String MEMORY_CHANNEL_INVALID = "MEMORY_CHANNEL_INVALID";
   public static final String MEMORY_CHANNEL_CONFLICT = "MEMORY_CHANNEL_CONFLICT";
   public static final String TRANSITION_TARGET_INVALID = "TRANSITION_TARGET_INVALID";
+  public static final String PARALLEL_BRANCH_INVALID = "PARALLEL_BRANCH_INVALID";
 
   private FlowBlueprintIssueCodes() {
     throw new AssertionError("Utility class");
@@ -2,79 +2,239 @@ package com.aiadvent.backend.flow.worker;
 
 import com.aiadvent.backend.flow.config.FlowWorkerProperties;
 import com.aiadvent.backend.flow.domain.FlowJob;
+import com.aiadvent.backend.flow.job.JobQueuePort;
+import com.aiadvent.backend.flow.persistence.PostgresNotificationListener;
 import com.aiadvent.backend.flow.service.AgentOrchestratorService;
 import io.micrometer.core.instrument.MeterRegistry;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import jakarta.annotation.PreDestroy;
+import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+/**
+ * Claims flow jobs in batches and runs them on the worker executor. Job inserts wake the worker
+ * through LISTEN/NOTIFY on {@code flow_job}; the scheduled poll is a fallback for delayed retries
+ * and missed notifications. At most {@code max-concurrency} jobs run at once: a claim never asks
+ * for more jobs than there are free permits.
+ */
 @Component
 @ConditionalOnProperty(prefix = "app.flow.worker", name = "enabled", havingValue = "true", matchIfMissing = true)
 public class FlowJobWorker {
 
+  static final String NOTIFY_CHANNEL = "flow_job";
+
   private static final Logger log = LoggerFactory.getLogger(FlowJobWorker.class);
 
   private final AgentOrchestratorService orchestratorService;
+  private final JobQueuePort jobQueuePort;
   private final FlowWorkerProperties properties;
   private final MeterRegistry meterRegistry;
   private final ExecutorService executorService;
-  private final String workerIdPrefix;
+  private final PostgresNotificationListener notificationListener;
+  private final String workerId;
+  private final Semaphore slots;
+  private final AtomicBoolean draining = new AtomicBoolean();
+  private final AtomicBoolean drainRequested = new AtomicBoolean();
+  private final AtomicInteger runningJobs = new AtomicInteger();
+  private final AtomicLong queueDepth = new AtomicLong();
 
   public FlowJobWorker(
       AgentOrchestratorService orchestratorService,
+      JobQueuePort jobQueuePort,
       FlowWorkerProperties properties,
       MeterRegistry meterRegistry,
-      @Qualifier("flowWorkerExecutor") ExecutorService executorService) {
+      ExecutorService executorService) {
+    this(orchestratorService, jobQueuePort, properties, meterRegistry, executorService, null);
+  }
+
+  @Autowired
+  public FlowJobWorker(
+      AgentOrchestratorService orchestratorService,
+      JobQueuePort jobQueuePort,
+      FlowWorkerProperties properties,
+      MeterRegistry meterRegistry,
+      @Qualifier("flowWorkerExecutor") ExecutorService executorService,
+      @Nullable DataSource dataSource) {
     this.orchestratorService = orchestratorService;
+    this.jobQueuePort = jobQueuePort;
     this.properties = properties;
     this.meterRegistry = meterRegistry;
     this.executorService = executorService;
-    this.workerIdPrefix =
+    String workerIdPrefix =
         StringUtils.hasText(properties.getWorkerIdPrefix())
             ? properties.getWorkerIdPrefix()
             : resolveDefaultWorkerId();
+    this.workerId = workerIdPrefix + "-" + UUID.randomUUID().toString().substring(0, 8);
+    this.slots = new Semaphore(properties.getMaxConcurrency());
+    this.notificationListener =
+        dataSource != null && properties.isNotifyEnabled()
+            ? new PostgresNotificationListener(
+                dataSource, NOTIFY_CHANNEL, "flow-job-listener", payload -> onNotify(), this::onNotify)
+            : null;
+    meterRegistry.gauge("flow.job.queue.depth", queueDepth);
+    meterRegistry.gauge("flow.job.running", runningJobs);
   }
 
-  @Scheduled(fixedDelayString = "${app.flow.worker.poll-delay:PT0.5S}")
+  @EventListener(ApplicationReadyEvent.class)
+  public void startListening() {
+    if (properties.isEnabled() && notificationListener != null) {
+      notificationListener.start();
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${app.flow.worker.poll-delay:PT2S}")
   public void pollQueue() {
     if (!properties.isEnabled()) {
       return;
     }
-    executorService.submit(this::processSafely);
+    refreshQueueDepth();
+    drain();
+  }
+
+  private void onNotify() {
+    meterRegistry.counter("flow.job.notifications").increment();
+    drain();
+  }
+
+  /**
+   * Claims jobs while there are free permits and runnable jobs. Concurrent callers (poll,
+   * notification, finished job) collapse into the drain already in progress.
+   */
+  void drain() {
+    drainRequested.set(true);
+    while (drainRequested.get() && draining.compareAndSet(false, true)) {
+      try {
+        drainRequested.set(false);
+        claimWhileCapacity();
+      } finally {
+        draining.set(false);
+      }
+    }
+  }
+
+  private void claimWhileCapacity() {
+    while (properties.isEnabled()) {
+      int permits = acquireUpTo(properties.getBatchSize());
+      if (permits == 0) {
+        return;
+      }
+      Instant now = Instant.now();
+      long start = System.nanoTime();
+      List<FlowJob> jobs;
+      try {
+        jobs = jobQueuePort.claimPending(workerId, now, properties.getStaleLockTimeout(), permits);
+      } catch (RuntimeException ex) {
+        slots.release(permits);
+        recordClaim("error", start);
+        log.error("Worker {} failed to claim jobs", workerId, ex);
+        return;
+      }
+      recordClaim(jobs.isEmpty() ? "empty" : "claimed", start);
+      slots.release(permits - jobs.size());
+      if (!jobs.isEmpty()) {
+        meterRegistry.counter("flow.job.claimed").increment(jobs.size());
+        log.debug("Worker {} claimed {} job(s)", workerId, jobs.size());
+      }
+      for (FlowJob job : jobs) {
+        recordPickupAge(job, now);
+        submit(job.getId());
+      }
+      if (jobs.size() < permits) {
+        return;
+      }
+    }
+  }
+
+  private int acquireUpTo(int max) {
+    int acquired = 0;
+    while (acquired < max && slots.tryAcquire()) {
+      acquired++;
+    }
+    return acquired;
   }
 
-  private void processSafely() {
-    String workerId = workerIdPrefix + "-" + Thread.currentThread().getName();
+  private void submit(Long jobId) {
+    try {
+      executorService.execute(() -> runJob(jobId));
+    } catch (RejectedExecutionException ex) {
+      // the job stays RUNNING without a row lock and is taken over once its lock goes stale
+      slots.release();
+      log.warn("Worker {} is shutting down, job {} left for stale-lock recovery", workerId, jobId);
+    }
+  }
+
+  private void runJob(Long jobId) {
     long start = System.nanoTime();
-    String result = "empty";
+    String result = "processed";
+    runningJobs.incrementAndGet();
     try {
-      Optional<FlowJob> jobOptional = orchestratorService.processNextJob(workerId);
-      if (jobOptional.isPresent()) {
-        result = "processed";
-        log.debug("Worker {} processed job {}", workerId, jobOptional.get().getId());
+      Optional<FlowJob> processed = orchestratorService.processClaimedJob(jobId, workerId);
+      if (processed.isEmpty()) {
+        result = "lost";
+        log.debug("Worker {} lost the claim on job {}", workerId, jobId);
       } else {
-        log.trace("Worker {} polled queue: no pending jobs", workerId);
+        log.debug("Worker {} processed job {}", workerId, jobId);
       }
     } catch (Exception ex) {
       result = "error";
-      log.error("Worker {} failed to process job", workerId, ex);
+      log.error("Worker {} failed to process job {}", workerId, jobId, ex);
     } finally {
-      long elapsed = System.nanoTime() - start;
-      meterRegistry.counter("flow.job.poll.count", "result", result).increment();
+      runningJobs.decrementAndGet();
+      slots.release();
+      meterRegistry.counter("flow.job.processed", "result", result).increment();
       meterRegistry
-          .timer("flow.job.poll.duration", "result", result)
-          .record(Duration.ofNanos(elapsed));
+          .timer("flow.job.execution.duration", "result", result)
+          .record(Duration.ofNanos(System.nanoTime() - start));
+    }
+    drain();
+  }
+
+  private void recordClaim(String result, long startNanos) {
+    meterRegistry.counter("flow.job.poll.count", "result", result).increment();
+    meterRegistry
+        .timer("flow.job.claim.duration", "result", result)
+        .record(Duration.ofNanos(System.nanoTime() - startNanos));
+  }
+
+  private void recordPickupAge(FlowJob job, Instant now) {
+    Instant readySince = job.getCreatedAt();
+    Instant scheduledAt = job.getScheduledAt();
+    if (scheduledAt != null && (readySince == null || scheduledAt.isAfter(readySince))) {
+      readySince = scheduledAt;
+    }
+    if (readySince != null && !readySince.isAfter(now)) {
+      meterRegistry.timer("flow.job.pickup.age").record(Duration.between(readySince, now));
+    }
+  }
+
+  private void refreshQueueDepth() {
+    try {
+      queueDepth.set(jobQueuePort.countReady(Instant.now()));
+    } catch (RuntimeException ex) {
+      log.debug("Unable to refresh flow job queue depth: {}", ex.getMessage());
     }
   }
 
@@ -89,6 +249,9 @@ public class FlowJobWorker {
 
   @PreDestroy
   public void shutdown() {
+    if (notificationListener != null) {
+      notificationListener.stop();
+    }
     executorService.shutdown();
     try {
       if (!executorService.awaitTermination(2, TimeUnit.SECONDS)) {
@@ -1,9 +1,27 @@
 package com.aiadvent.backend.mcp.config;
 
+import com.aiadvent.backend.mcp.service.McpToolCatalog;
+import org.springframework.ai.mcp.customizer.McpSyncClientCustomizer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 @EnableConfigurationProperties(McpCatalogProperties.class)
-public class McpCatalogConfiguration {}
+public class McpCatalogConfiguration {
 
+  /** Rebuilds the tool catalog snapshot when any MCP server sends {@code tools/list_changed}. */
+  @Bean
+  public McpSyncClientCustomizer mcpToolCatalogChangeCustomizer(
+      ObjectProvider<McpToolCatalog> toolCatalog) {
+    return (serverName, spec) ->
+        spec.toolsChangeConsumer(
+            tools -> {
+              McpToolCatalog catalog = toolCatalog.getIfAvailable();
+              if (catalog != null) {
+                catalog.requestRefresh(McpToolCatalog.RefreshTrigger.TOOLS_CHANGED);
+              }
+            });
+  }
+}
@@ -1,5 +1,6 @@
 package com.aiadvent.backend.mcp.config;
 
+import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,10 +11,21 @@ public class McpCatalogProperties {
 
   private final Map<String, ServerProperties> servers = new LinkedHashMap<>();
 
+  /** How often the tool catalog snapshot is rebuilt when no change notification arrived. */
+  private Duration snapshotTtl = Duration.ofMinutes(5);
+
   public Map<String, ServerProperties> getServers() {
     return servers;
   }
 
+  public Duration getSnapshotTtl() {
+    return snapshotTtl;
+  }
+
+  public void setSnapshotTtl(Duration snapshotTtl) {
+    this.snapshotTtl = snapshotTtl;
+  }
+
   public static class ServerProperties {
 
     private String displayName;
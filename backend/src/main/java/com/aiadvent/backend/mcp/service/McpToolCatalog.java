@@ -0,0 +1,226 @@
+package com.aiadvent.backend.mcp.service;
+
+import com.aiadvent.backend.flow.tool.domain.ToolDefinition;
+import com.aiadvent.backend.flow.tool.domain.ToolSchemaVersion;
+import com.aiadvent.backend.flow.tool.persistence.ToolDefinitionRepository;
+import com.aiadvent.backend.mcp.util.McpToolNameSanitizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.mcp.SyncMcpToolCallbackProvider;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Immutable, indexed view of the MCP tool catalog: tool code → schema version from the database
+ * and sanitized tool name → callback from the connected MCP servers. Readers never touch the
+ * network or the database once the first snapshot exists; a new snapshot is built in the
+ * background on MCP {@code tools/list_changed}, on catalog writes and every {@code
+ * app.mcp.catalog.snapshot-ttl}.
+ */
+@Component
+public class McpToolCatalog {
+
+  private static final Logger log = LoggerFactory.getLogger(McpToolCatalog.class);
+
+  public enum RefreshTrigger {
+    STARTUP,
+    TTL,
+    TOOLS_CHANGED,
+    CATALOG_WRITE
+  }
+
+  public record Snapshot(
+      Map<String, ToolSchemaVersion> schemasByCode,
+      Map<String, ToolCallback> callbacksByName,
+      boolean providerAvailable,
+      Instant builtAt) {
+
+    static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), false, Instant.EPOCH);
+
+    public ToolSchemaVersion schema(String toolCode) {
+      return StringUtils.hasText(toolCode)
+          ? schemasByCode.get(toolCode.trim().toLowerCase(Locale.ROOT))
+          : null;
+    }
+
+    public ToolCallback callback(String sanitizedToolName) {
+      return sanitizedToolName != null ? callbacksByName.get(sanitizedToolName) : null;
+    }
+  }
+
+  private final ToolDefinitionRepository toolDefinitionRepository;
+  private final ObjectProvider<SyncMcpToolCallbackProvider> toolCallbackProvider;
+  private final MeterRegistry meterRegistry;
+  private final AtomicReference<Snapshot> current = new AtomicReference<>();
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+  private final AtomicReference<RefreshTrigger> requested = new AtomicReference<>();
+  private final AtomicInteger toolCount = new AtomicInteger();
+  private final AtomicInteger callbackCount = new AtomicInteger();
+  private final ExecutorService refreshExecutor =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "mcp-tool-catalog-refresh");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  public McpToolCatalog(
+      ToolDefinitionRepository toolDefinitionRepository,
+      ObjectProvider<SyncMcpToolCallbackProvider> toolCallbackProvider,
+      MeterRegistry meterRegistry) {
+    this.toolDefinitionRepository = toolDefinitionRepository;
+    this.toolCallbackProvider = toolCallbackProvider;
+    this.meterRegistry = meterRegistry;
+    meterRegistry.gauge("mcp.tool.catalog.tools", toolCount);
+    meterRegistry.gauge("mcp.tool.catalog.callbacks", callbackCount);
+  }
+
+  /**
+   * Returns the current snapshot. Only the very first call before startup finished builds it
+   * inline; afterwards refreshes swap the reference without blocking readers.
+   */
+  public Snapshot snapshot() {
+    Snapshot snapshot = current.get();
+    if (snapshot != null) {
+      return snapshot;
+    }
+    synchronized (this) {
+      snapshot = current.get();
+      if (snapshot == null) {
+        snapshot = rebuild(RefreshTrigger.STARTUP);
+      }
+      return snapshot;
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    requestRefresh(RefreshTrigger.STARTUP);
+  }
+
+  @Scheduled(
+      initialDelayString = "${app.mcp.catalog.snapshot-ttl:PT5M}",
+      fixedDelayString = "${app.mcp.catalog.snapshot-ttl:PT5M}")
+  public void refreshOnTtl() {
+    requestRefresh(RefreshTrigger.TTL);
+  }
+
+  /**
+   * Schedules a background rebuild. Safe to call from MCP client notification threads: the
+   * provider is never listed on the caller's thread. Requests that arrive during a rebuild
+   * collapse into one follow-up rebuild.
+   */
+  public void requestRefresh(RefreshTrigger trigger) {
+    requested.set(trigger);
+    if (!refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      refreshExecutor.execute(this::drainRefreshRequests);
+    } catch (RejectedExecutionException ex) {
+      refreshing.set(false);
+      log.debug("MCP tool catalog refresh skipped, executor is shut down");
+    }
+  }
+
+  private void drainRefreshRequests() {
+    try {
+      RefreshTrigger trigger;
+      while ((trigger = requested.getAndSet(null)) != null) {
+        try {
+          rebuild(trigger);
+        } catch (RuntimeException ex) {
+          log.warn("MCP tool catalog refresh ({}) failed: {}", trigger, ex.getMessage());
+        }
+      }
+    } finally {
+      refreshing.set(false);
+    }
+    RefreshTrigger late = requested.get();
+    if (late != null) {
+      requestRefresh(late);
+    }
+  }
+
+  private Snapshot rebuild(RefreshTrigger trigger) {
+    String tag = trigger.name().toLowerCase(Locale.ROOT);
+    Timer.Sample sample = Timer.start(meterRegistry);
+    try {
+      Map<String, ToolSchemaVersion> schemas = new HashMap<>();
+      for (ToolDefinition definition : toolDefinitionRepository.findAllBySchemaVersionIsNotNull()) {
+        if (StringUtils.hasText(definition.getCode()) && definition.getSchemaVersion() != null) {
+          schemas.put(
+              definition.getCode().trim().toLowerCase(Locale.ROOT), definition.getSchemaVersion());
+        }
+      }
+      SyncMcpToolCallbackProvider provider = toolCallbackProvider.getIfAvailable();
+      Map<String, ToolCallback> callbacks = new HashMap<>();
+      if (provider != null) {
+        ToolCallback[] discovered = provider.getToolCallbacks();
+        if (discovered != null) {
+          for (ToolCallback callback : discovered) {
+            if (callback == null || callback.getToolDefinition() == null) {
+              continue;
+            }
+            String name = McpToolNameSanitizer.sanitize(callback.getToolDefinition().name());
+            if (StringUtils.hasText(name)) {
+              callbacks.putIfAbsent(name, callback);
+            }
+          }
+        }
+      }
+      Snapshot snapshot =
+          new Snapshot(Map.copyOf(schemas), Map.copyOf(callbacks), provider != null, Instant.now());
+      toolCount.set(schemas.size());
+      callbackCount.set(callbacks.size());
+      meterRegistry
+          .counter("mcp.tool.catalog.refresh", "trigger", tag, "result", "success")
+          .increment();
+      current.set(snapshot);
+      log.debug(
+          "MCP tool catalog refreshed ({}): {} catalog tools, {} callbacks",
+          trigger,
+          schemas.size(),
+          callbacks.size());
+      return snapshot;
+    } catch (RuntimeException ex) {
+      meterRegistry
+          .counter("mcp.tool.catalog.refresh", "trigger", tag, "result", "error")
+          .increment();
+      Snapshot previous = current.get();
+      if (previous != null) {
+        throw ex;
+      }
+      // readers get an empty catalog instead of retrying inline; one background retry follows
+      log.warn("Initial MCP tool catalog snapshot failed: {}", ex.getMessage());
+      current.set(Snapshot.EMPTY);
+      requestRefresh(trigger);
+      return Snapshot.EMPTY;
+    } finally {
+      sample.stop(meterRegistry.timer("mcp.tool.catalog.refresh.duration", "trigger", tag));
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    refreshExecutor.shutdownNow();
+  }
+}
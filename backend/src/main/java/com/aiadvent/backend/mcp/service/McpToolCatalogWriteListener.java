@@ -0,0 +1,47 @@
+package com.aiadvent.backend.mcp.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener on the tool catalog tables. A write schedules a {@link McpToolCatalog}
+ * refresh once the surrounding transaction commits, so the rebuild reads the new rows.
+ */
+@Component
+public class McpToolCatalogWriteListener {
+
+  private final ObjectProvider<McpToolCatalog> toolCatalog;
+
+  public McpToolCatalogWriteListener(ObjectProvider<McpToolCatalog> toolCatalog) {
+    this.toolCatalog = toolCatalog;
+  }
+
+  @PostPersist
+  @PostUpdate
+  @PostRemove
+  void onCatalogWrite(Object entity) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              requestRefresh();
+            }
+          });
+    } else {
+      requestRefresh();
+    }
+  }
+
+  private void requestRefresh() {
+    McpToolCatalog catalog = toolCatalog.getIfAvailable();
+    if (catalog != null) {
+      catalog.requestRefresh(McpToolCatalog.RefreshTrigger.CATALOG_WRITE);
+    }
+  }
+}
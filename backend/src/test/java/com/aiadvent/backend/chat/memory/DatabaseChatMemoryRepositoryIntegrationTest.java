@@ -5,11 +5,15 @@ import static org.assertj.core.api.Assertions.assertThat;
 import com.aiadvent.backend.support.PostgresTestContainer;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
@@ -38,11 +42,11 @@ class DatabaseChatMemoryRepositoryIntegrationTest extends PostgresTestContainer
     insertMessage(sessionId, 5, "USER", "hello");
     insertMessage(sessionId, 6, "ASSISTANT", "world");
 
-    List<org.springframework.ai.chat.messages.Message> history =
+    List<Message> history =
         repository.findByConversationId(sessionId.toString());
 
     assertThat(history).hasSize(3);
-    org.springframework.ai.chat.messages.Message summary = history.get(0);
+    Message summary = history.get(0);
     assertThat(summary.getMessageType().name()).isEqualTo("SYSTEM");
     assertThat(summary.getText()).isEqualTo("Earlier summary");
     assertThat(summary.getMetadata()).containsEntry("summary", true);
@@ -62,7 +66,7 @@ class DatabaseChatMemoryRepositoryIntegrationTest extends PostgresTestContainer
     insertMessage(sessionId, 1, "USER", "tail-user");
     insertMessage(sessionId, 2, "ASSISTANT", "tail-assistant");
 
-    List<org.springframework.ai.chat.messages.Message> history =
+    List<Message> history =
         repository.findByConversationId(sessionId.toString());
 
     assertThat(history).hasSize(3);
@@ -77,10 +81,10 @@ class DatabaseChatMemoryRepositoryIntegrationTest extends PostgresTestContainer
   @Transactional
   void saveAllPersistsMessagesInOrder() {
     UUID sessionId = UUID.randomUUID();
-    org.springframework.ai.chat.messages.UserMessage userMessage =
-        org.springframework.ai.chat.messages.UserMessage.builder().text("ping").build();
-    org.springframework.ai.chat.messages.AssistantMessage assistantMessage =
-        org.springframework.ai.chat.messages.AssistantMessage.builder().content("pong").build();
+    UserMessage userMessage =
+        UserMessage.builder().text("ping").build();
+    AssistantMessage assistantMessage =
+        AssistantMessage.builder().content("pong").build();
 
     repository.saveAll(sessionId.toString(), List.of(userMessage, assistantMessage));
 
@@ -96,6 +100,86 @@ class DatabaseChatMemoryRepositoryIntegrationTest extends PostgresTestContainer
     assertThat(rows.get(1).get("content")).isEqualTo("pong");
   }
 
+  @Test
+  @Transactional
+  void saveAllAppendsOnlyNewTailAndPrunesDroppedPrefix() {
+    UUID sessionId = UUID.randomUUID();
+    String conversationId = sessionId.toString();
+    repository.saveAll(
+        conversationId,
+        List.of(
+            UserMessage.builder().text("first").build(),
+            AssistantMessage.builder().content("second").build()));
+    List<Map<String, Object>> before = selectRows(sessionId);
+
+    List<Message> window =
+        new ArrayList<>(repository.findByConversationId(conversationId));
+    window.remove(0);
+    window.add(UserMessage.builder().text("third").build());
+    repository.saveAll(conversationId, window);
+
+    List<Map<String, Object>> after = selectRows(sessionId);
+    assertThat(after).hasSize(2);
+    assertThat(after.get(0))
+        .containsEntry("id", before.get(1).get("id"))
+        .containsEntry("message_order", 2);
+    assertThat(after.get(1)).containsEntry("content", "third").containsEntry("message_order", 3);
+    assertThat(repository.findByConversationId(conversationId))
+        .extracting(Message::getText)
+        .containsExactly("second", "third");
+  }
+
+  @Test
+  @Transactional
+  void findByConversationIdServesCachedWindowUntilEvicted() {
+    UUID sessionId = UUID.randomUUID();
+    String conversationId = sessionId.toString();
+    repository.saveAll(
+        conversationId,
+        List.of(UserMessage.builder().text("cached").build()));
+    insertMessage(sessionId, 2, "ASSISTANT", "written by another node");
+
+    assertThat(repository.findByConversationId(conversationId)).hasSize(1);
+
+    repository.evict(sessionId);
+
+    assertThat(repository.findByConversationId(conversationId))
+        .extracting(Message::getText)
+        .containsExactly("cached", "written by another node");
+  }
+
+  @Test
+  @Transactional
+  void saveAllPrunesSummarizedPrefixWhenTailRepeatsEarlierMessages() {
+    UUID sessionId = UUID.randomUUID();
+    String conversationId = sessionId.toString();
+    repository.saveAll(
+        conversationId,
+        List.of(
+            UserMessage.builder().text("ok").build(),
+            AssistantMessage.builder().content("continue").build(),
+            UserMessage.builder().text("ok").build(),
+            AssistantMessage.builder().content("continue").build()));
+    List<Message> transcript = repository.findByConversationId(conversationId);
+
+    insertSummary(sessionId, 1, 2, "Earlier turns");
+    repository.saveAll(conversationId, new ArrayList<>(transcript.subList(2, 4)));
+    repository.invalidate(sessionId);
+
+    assertThat(selectRows(sessionId))
+        .extracting(row -> row.get("message_order"))
+        .containsExactly(3, 4);
+    assertThat(repository.findByConversationId(conversationId))
+        .extracting(Message::getText)
+        .containsExactly("Earlier turns", "ok", "continue");
+  }
+
+  private List<Map<String, Object>> selectRows(UUID sessionId) {
+    return jdbcTemplate.queryForList(
+        "SELECT id, content, message_order FROM chat_memory_message WHERE session_id = :sessionId ORDER BY message_order",
+        new MapSqlParameterSource("sessionId", sessionId));
+  }
+
   private void insertChatSession(UUID sessionId) {
     jdbcTemplate.update(
         "INSERT INTO chat_session (id, created_at) VALUES (:id, :createdAt)",
@@ -0,0 +1,78 @@
+package com.aiadvent.backend.chat.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.aiadvent.backend.chat.config.ChatStreamProperties;
+import com.aiadvent.backend.chat.config.ChatStreamProperties.SlowConsumerPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+class SseFrameCoalescerTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ChatStreamProperties properties = new ChatStreamProperties();
+  private final List<String> frames = new CopyOnWriteArrayList<>();
+  private SseFrameCoalescer coalescer;
+
+  @AfterEach
+  void tearDown() {
+    if (coalescer != null) {
+      coalescer.shutdown();
+    }
+  }
+
+  @Test
+  void sendsFirstTokenImmediatelyAndMergesTheRestIntoOneFrame() throws Exception {
+    properties.setFlushInterval(Duration.ofHours(1));
+    coalescer = new SseFrameCoalescer(properties, meterRegistry);
+    SseEmitter emitter = mock(SseEmitter.class);
+    SseFrameCoalescer.TokenStream stream = coalescer.open(emitter, this::recordFrame, null);
+
+    stream.append("Hel");
+    stream.append("lo");
+    stream.append(" world");
+    stream.finish("complete", "done");
+
+    assertThat(frames).containsExactly("Hel", "lo world");
+    verify(emitter, times(3)).send(any(SseEmitter.SseEventBuilder.class));
+    assertThat(meterRegistry.counter("chat.stream.tokens.merged").count()).isEqualTo(1.0);
+    assertThat(meterRegistry.summary("chat.stream.frames.per.stream").totalAmount()).isEqualTo(2.0);
+  }
+
+  @Test
+  void disconnectsClientThatFallsBehindBufferLimit() {
+    properties.setFlushInterval(Duration.ofHours(1));
+    properties.setMaxBufferedBytes(4);
+    properties.setSlowConsumerPolicy(SlowConsumerPolicy.DISCONNECT);
+    coalescer = new SseFrameCoalescer(properties, meterRegistry);
+    SseEmitter emitter = mock(SseEmitter.class);
+    AtomicBoolean disconnected = new AtomicBoolean();
+    SseFrameCoalescer.TokenStream stream =
+        coalescer.open(emitter, this::recordFrame, () -> disconnected.set(true));
+
+    stream.append("a");
+    stream.append("bbbb");
+    stream.append("c");
+    stream.finish("complete", "done");
+
+    assertThat(disconnected).isTrue();
+    assertThat(frames).containsExactly("a");
+    verify(emitter).completeWithError(any(Throwable.class));
+    assertThat(meterRegistry.counter("chat.stream.tokens.dropped").count()).isEqualTo(1.0);
+  }
+
+  private String recordFrame(String text) {
+    frames.add(text);
+    return text;
+  }
+}
@@ -11,6 +11,7 @@ import com.knuddels.jtokkit.api.EncodingType;
 import com.knuddels.jtokkit.api.IntArrayList;
 import com.knuddels.jtokkit.api.ModelType;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -64,6 +65,33 @@ class DefaultTokenUsageEstimatorTest {
     assertThat(encoding.strictCalls()).isZero();
   }
 
+  @Test
+  void countsPromptPartsIndividuallyAndTokenizesOnlyNewParts() {
+    CountingEncoding encoding = new CountingEncoding();
+    InMemoryEncodingRegistry registry = new InMemoryEncodingRegistry(encoding);
+    InMemoryTokenUsageCache cache = new InMemoryTokenUsageCache();
+
+    TokenUsageEstimator estimator =
+        new DefaultTokenUsageEstimator(registry, cache, "custom", "chat:usage");
+
+    TokenUsageEstimator.EstimateRequest firstTurn =
+        TokenUsageEstimator.EstimateRequest.ofPromptParts(
+            "stub", "model", null, List.of("user: hello", "assistant: hi there"));
+    TokenUsageEstimator.EstimateRequest secondTurn =
+        TokenUsageEstimator.EstimateRequest.ofPromptParts(
+            "stub", "model", null, List.of("user: hello", "assistant: hi there", "user: next"));
+
+    TokenUsageEstimator.Estimate first = estimator.estimate(firstTurn);
+    int callsAfterFirst = encoding.ordinaryCalls();
+    TokenUsageEstimator.Estimate second = estimator.estimate(secondTurn);
+
+    assertThat(first.promptTokens()).isEqualTo(firstTurn.prompt().length());
+    assertThat(second.promptTokens()).isEqualTo(secondTurn.prompt().length());
+    assertThat(encoding.ordinaryCalls() - callsAfterFirst).isEqualTo(1);
+    assertThat(second.promptCached()).isFalse();
+    assertThat(estimator.estimate(secondTurn).promptCached()).isTrue();
+  }
+
   @Test
   void fallsBackToStrictCountingWhenOrdinaryFails() {
     FailingEncoding encoding = new FailingEncoding();
@@ -0,0 +1,40 @@
+package com.aiadvent.backend.chat.token;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class LocalTokenUsageCacheTest {
+
+  @Test
+  void servesRepeatedReadsLocallyAfterDelegateHit() {
+    TokenUsageCache delegate = mock(TokenUsageCache.class);
+    when(delegate.get("cache:key")).thenReturn(42);
+    LocalTokenUsageCache cache =
+        new LocalTokenUsageCache(
+            100, Duration.ofMinutes(1), delegate, new TokenUsageMetrics(new SimpleMeterRegistry()));
+
+    assertThat(cache.get("cache:key")).isEqualTo(42);
+    assertThat(cache.get("cache:key")).isEqualTo(42);
+
+    verify(delegate, times(1)).get("cache:key");
+  }
+
+  @Test
+  void writesThroughToDelegate() {
+    TokenUsageCache delegate = mock(TokenUsageCache.class);
+    LocalTokenUsageCache cache = new LocalTokenUsageCache(100, null, delegate, null);
+
+    cache.put("cache:key", 7);
+
+    assertThat(cache.get("cache:key")).isEqualTo(7);
+    verify(delegate).put("cache:key", 7);
+    verify(delegate, times(0)).get("cache:key");
+  }
+}
@@ -142,6 +142,61 @@ class FlowDefinitionParserTest {
                     }));
   }
 
+  @Test
+  void parsesParallelGroup() {
+    ObjectNode root = parallelBlueprint();
+
+    FlowDefinitionDocument document = parser.parse(createDefinition("parallel", root));
+
+    FlowParallelGroup group = document.parallelGroup("fan-out");
+    assertThat(group).isNotNull();
+    assertThat(group.branchStepIds()).containsExactly("branch-a", "branch-b");
+    assertThat(group.joinStepId()).isEqualTo("join");
+    assertThat(group.requiredBranches()).isEqualTo(1);
+    assertThat(document.parallelGroupOfBranch("branch-b")).isEqualTo(group);
+    assertThat(document.step("fan-out").transitions().completeOnSuccess()).isFalse();
+  }
+
+  @Test
+  void rejectsBranchWithOwnTransitions() {
+    ObjectNode root = parallelBlueprint();
+    ((ObjectNode) root.withArray("steps").get(1))
+        .putObject("transitions")
+        .putObject("onSuccess")
+        .put("next", "join");
+
+    FlowDefinition definition = createDefinition("parallel-invalid", root);
+
+    assertThatThrownBy(() -> parser.parse(definition))
+        .isInstanceOf(FlowBlueprintParsingException.class)
+        .satisfies(
+            throwable ->
+                assertThat(((FlowBlueprintParsingException) throwable).issues())
+                    .singleElement()
+                    .satisfies(issue -> {
+                      assertThat(issue.code()).isEqualTo(FlowBlueprintIssueCodes.PARALLEL_BRANCH_INVALID);
+                      assertThat(issue.stepId()).isEqualTo("branch-a");
+                    }));
+  }
+
+  private ObjectNode parallelBlueprint() {
+    ObjectNode root = objectMapper.createObjectNode();
+    root.put("startStepId", "fan-out");
+    ArrayNode steps = root.putArray("steps");
+    for (String id : new String[] {"fan-out", "branch-a", "branch-b", "join"}) {
+      ObjectNode step = steps.addObject();
+      step.put("id", id);
+      step.put("name", id);
+      step.put("agentVersionId", UUID.randomUUID().toString());
+    }
+    ObjectNode onSuccess =
+        ((ObjectNode) steps.get(0)).putObject("transitions").putObject("onSuccess");
+    onSuccess.put("next", "join");
+    onSuccess.putArray("parallel").add("branch-a").add("branch-b");
+    onSuccess.put("joinCount", 1);
+    return root;
+  }
+
   private FlowDefinition createDefinition(String name, ObjectNode root) {
     try {
       FlowBlueprint blueprint = objectMapper.treeToValue(root, FlowBlueprint.class);
@@ -30,6 +30,8 @@ import com.aiadvent.backend.flow.domain.FlowSession;
 import com.aiadvent.backend.flow.domain.FlowSessionStatus;
 import com.aiadvent.backend.flow.domain.FlowStepExecution;
 import com.aiadvent.backend.flow.domain.FlowStepStatus;
+import com.aiadvent.backend.flow.execution.model.FlowStepInputPayload;
+import com.aiadvent.backend.flow.execution.model.FlowStepOutputPayload;
 import com.aiadvent.backend.flow.job.FlowJobPayload;
 import com.aiadvent.backend.flow.job.JobQueuePort;
 import com.aiadvent.backend.flow.memory.FlowMemoryService;
@@ -46,8 +48,10 @@ import com.aiadvent.backend.flow.github.GitHubResolverService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.persistence.EntityManager;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -74,6 +78,7 @@ class AgentOrchestratorServiceTest {
   @Mock private JobQueuePort jobQueuePort;
   @Mock private FlowTelemetryService telemetry;
   @Mock private GitHubResolverService gitHubResolverService;
+  @Mock private EntityManager entityManager;
 
   private AgentOrchestratorService orchestratorService;
   private ObjectMapper objectMapper;
@@ -484,6 +489,202 @@ class AgentOrchestratorServiceTest {
     assertThat(event.getStatus()).isEqualTo("cancelled");
   }
 
+  @Test
+  void parallelBranchJoinsWhenSiblingCommittedAfterItWasLoaded() {
+    FlowDefinitionDocument parallelDocument = parallelDocument(List.of("branch-a", "branch-b"), null);
+    FlowSession session = runningSession();
+    FlowStepExecution source = sourceExecution(session);
+    FlowStepExecution branchA = branchExecution(session, "branch-a", source, FlowStepStatus.PENDING);
+    FlowStepExecution branchB = branchExecution(session, "branch-b", source, FlowStepStatus.RUNNING);
+    commitOnRefresh(branchB, FlowStepStatus.COMPLETED);
+    stubParallelBranchJob(parallelDocument, session, branchA, List.of(source, branchA, branchB));
+    when(agentInvocationService.invoke(any())).thenReturn(agentResult("answer-a"));
+
+    parallelOrchestrator().processNextJob("worker");
+
+    assertThat(branchA.getStatus()).isEqualTo(FlowStepStatus.COMPLETED);
+    assertJoinScheduled(session);
+    verify(entityManager).refresh(branchB);
+    verify(entityManager, never()).refresh(branchA);
+  }
+
+  @Test
+  void parallelBranchJoinsOnFirstRequiredBranches() {
+    FlowDefinitionDocument parallelDocument =
+        parallelDocument(List.of("branch-a", "branch-b", "branch-c"), 2);
+    FlowSession session = runningSession();
+    FlowStepExecution source = sourceExecution(session);
+    FlowStepExecution branchA = branchExecution(session, "branch-a", source, FlowStepStatus.PENDING);
+    FlowStepExecution branchB = branchExecution(session, "branch-b", source, FlowStepStatus.RUNNING);
+    FlowStepExecution branchC = branchExecution(session, "branch-c", source, FlowStepStatus.RUNNING);
+    commitOnRefresh(branchB, FlowStepStatus.COMPLETED);
+    stubParallelBranchJob(
+        parallelDocument, session, branchA, List.of(source, branchA, branchB, branchC));
+    when(agentInvocationService.invoke(any())).thenReturn(agentResult("answer-a"));
+
+    parallelOrchestrator().processNextJob("worker");
+
+    assertThat(branchA.getStatus()).isEqualTo(FlowStepStatus.COMPLETED);
+    assertThat(branchC.getStatus()).isEqualTo(FlowStepStatus.RUNNING);
+    assertJoinScheduled(session);
+  }
+
+  @Test
+  void parallelBranchFailureToleratedWhileRequiredBranchesRemainReachable() {
+    FlowDefinitionDocument parallelDocument =
+        parallelDocument(List.of("branch-a", "branch-b", "branch-c"), 2);
+    FlowSession session = runningSession();
+    FlowStepExecution source = sourceExecution(session);
+    FlowStepExecution branchA = branchExecution(session, "branch-a", source, FlowStepStatus.PENDING);
+    FlowStepExecution branchB = branchExecution(session, "branch-b", source, FlowStepStatus.RUNNING);
+    FlowStepExecution branchC = branchExecution(session, "branch-c", source, FlowStepStatus.RUNNING);
+    commitOnRefresh(branchB, FlowStepStatus.COMPLETED);
+    FlowJob job =
+        stubParallelBranchJob(
+            parallelDocument, session, branchA, List.of(source, branchA, branchB, branchC));
+    when(agentInvocationService.invoke(any())).thenThrow(new RuntimeException("boom"));
+
+    parallelOrchestrator().processNextJob("worker");
+
+    assertThat(branchA.getStatus()).isEqualTo(FlowStepStatus.FAILED);
+    assertThat(session.getStatus()).isEqualTo(FlowSessionStatus.RUNNING);
+    assertThat(job.getStatus()).isEqualTo(FlowJobStatus.COMPLETED);
+    verify(telemetry, never()).sessionCompleted(eq(session.getId()), any(), any());
+    verify(entityManager, atLeastOnce()).refresh(branchB);
+  }
+
+  private AgentOrchestratorService parallelOrchestrator() {
+    return new AgentOrchestratorService(
+        flowDefinitionService,
+        flowBlueprintCompiler,
+        flowSessionRepository,
+        flowStepExecutionRepository,
+        flowEventRepository,
+        agentVersionRepository,
+        agentInvocationService,
+        flowMemoryService,
+        flowInteractionService,
+        jobQueuePort,
+        objectMapper,
+        telemetry,
+        flowPayloadMapper,
+        gitHubResolverService,
+        null,
+        entityManager);
+  }
+
+  private FlowDefinitionDocument parallelDocument(List<String> branchStepIds, Integer joinCount) {
+    Map<String, FlowStepConfig> steps = new LinkedHashMap<>();
+    steps.put(
+        "fan-out",
+        stepConfig(
+            "fan-out",
+            new FlowStepTransitions("join", false, null, true, branchStepIds, joinCount)));
+    for (String branchStepId : branchStepIds) {
+      steps.put(branchStepId, stepConfig(branchStepId, FlowStepTransitions.defaults()));
+    }
+    steps.put("join", stepConfig("join", FlowStepTransitions.defaults()));
+    return new FlowDefinitionDocument("fan-out", steps, FlowMemoryConfig.empty());
+  }
+
+  private FlowStepConfig stepConfig(String stepId, FlowStepTransitions transitions) {
+    return new FlowStepConfig(
+        stepId,
+        stepId,
+        agentVersion.getId(),
+        "prompt",
+        null,
+        null,
+        List.of(),
+        List.of(),
+        transitions,
+        1);
+  }
+
+  private FlowSession runningSession() {
+    FlowSession session =
+        new FlowSession(definition, definition.getVersion(), FlowSessionStatus.RUNNING, 1L, 0L);
+    setField(session, "id", UUID.randomUUID());
+    return session;
+  }
+
+  private FlowStepExecution sourceExecution(FlowSession session) {
+    FlowStepExecution source =
+        new FlowStepExecution(session, "fan-out", FlowStepStatus.COMPLETED, 1);
+    setField(source, "id", UUID.randomUUID());
+    return source;
+  }
+
+  private FlowStepExecution branchExecution(
+      FlowSession session, String stepId, FlowStepExecution source, FlowStepStatus status) {
+    FlowStepExecution execution = new FlowStepExecution(session, stepId, status, 1);
+    setField(execution, "id", UUID.randomUUID());
+    execution.setStepName(stepId);
+    execution.setAgentVersion(agentVersion);
+    ObjectNode input = objectMapper.createObjectNode();
+    input
+        .putObject(FlowPayloadMapper.PARALLEL_FIELD)
+        .put("sourceExecutionId", source.getId().toString())
+        .put("sourceStepId", "fan-out");
+    execution.setInputPayload(FlowStepInputPayload.from(input));
+    return execution;
+  }
+
+  /** Simulates a sibling whose row was committed by another worker after this context loaded it. */
+  private void commitOnRefresh(FlowStepExecution sibling, FlowStepStatus committedStatus) {
+    when(entityManager.contains(sibling)).thenReturn(true);
+    doAnswer(
+            invocation -> {
+              sibling.setStatus(committedStatus);
+              ObjectNode output = objectMapper.createObjectNode();
+              output.put("content", sibling.getStepId());
+              sibling.setOutputPayload(FlowStepOutputPayload.from(output));
+              return null;
+            })
+        .when(entityManager)
+        .refresh(sibling);
+  }
+
+  private FlowJob stubParallelBranchJob(
+      FlowDefinitionDocument parallelDocument,
+      FlowSession session,
+      FlowStepExecution branchExecution,
+      List<FlowStepExecution> sessionExecutions) {
+    FlowJob job = buildJob(session, branchExecution, FlowJobStatus.RUNNING);
+    when(jobQueuePort.lockNextPending(eq("worker"), any(Instant.class))).thenReturn(Optional.of(job));
+    when(flowStepExecutionRepository.findById(branchExecution.getId()))
+        .thenReturn(Optional.of(branchExecution));
+    when(flowStepExecutionRepository.findByFlowSessionOrderByCreatedAtAsc(session))
+        .thenReturn(sessionExecutions);
+    when(flowBlueprintCompiler.compile(definition)).thenReturn(parallelDocument);
+    when(agentVersionRepository.findById(agentVersion.getId())).thenReturn(Optional.of(agentVersion));
+    return job;
+  }
+
+  private AgentInvocationResult agentResult(String content) {
+    return new AgentInvocationResult(
+        content,
+        UsageCostEstimate.empty(),
+        List.of(),
+        new com.aiadvent.backend.chat.provider.model.ChatProviderSelection("openai", "gpt-4o-mini"),
+        new com.aiadvent.backend.chat.provider.model.ChatRequestOverrides(0.2, 0.9, 512),
+        "validator-system",
+        List.of(),
+        "user message body",
+        List.of(),
+        null);
+  }
+
+  private void assertJoinScheduled(FlowSession session) {
+    ArgumentCaptor<FlowStepExecution> executionCaptor =
+        ArgumentCaptor.forClass(FlowStepExecution.class);
+    verify(jobQueuePort)
+        .enqueueStepJob(eq(session), executionCaptor.capture(), any(FlowJobPayload.class), any(Instant.class));
+    assertThat(executionCaptor.getValue().getStepId()).isEqualTo("join");
+    assertThat(session.getCurrentStepId()).isEqualTo("join");
+    verify(telemetry).sessionEvent(session.getId(), "parallel_joined", "fan-out");
+  }
+
   private FlowJob buildJob(
       FlowSession session, FlowStepExecution stepExecution, FlowJobStatus status) {
     FlowJobPayload payload =
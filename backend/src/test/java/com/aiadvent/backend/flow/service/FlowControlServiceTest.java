@@ -34,7 +34,12 @@ import com.aiadvent.backend.flow.persistence.FlowSessionRepository;
 import com.aiadvent.backend.flow.persistence.FlowStepExecutionRepository;
 import com.aiadvent.backend.flow.telemetry.FlowTelemetryService;
 import com.aiadvent.backend.flow.execution.model.FlowStepInputPayload;
+import com.aiadvent.backend.flow.execution.model.FlowStepOutputPayload;
+import com.aiadvent.backend.flow.service.payload.FlowPayloadMapper;
+import com.aiadvent.backend.flow.session.model.FlowSharedContext;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
@@ -253,6 +258,75 @@ class FlowControlServiceTest {
         .enqueueStepJob(eq(session), any(FlowStepExecution.class), any(FlowJobPayload.class), any(Instant.class));
   }
 
+  @Test
+  void skipStepResolvesStepOutputReferencesInFallbackInput() {
+    UUID sessionId = session.getId();
+    session.setStatus(FlowSessionStatus.WAITING_STEP_APPROVAL);
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    FlowStepExecution previous = new FlowStepExecution(session, "draft", FlowStepStatus.COMPLETED, 1);
+    setField(previous, "id", UUID.randomUUID());
+    ObjectNode previousOutput = objectMapper.createObjectNode().put("content", "draft answer");
+    previous.setOutputPayload(FlowStepOutputPayload.from(previousOutput));
+    ObjectNode reference =
+        objectMapper.createObjectNode().put(FlowPayloadMapper.STEP_OUTPUT_REF, previous.getId().toString());
+    ObjectNode shared = objectMapper.createObjectNode();
+    shared.set("lastOutput", reference);
+    shared.set("current", reference);
+    session.setSharedContext(FlowSharedContext.from(shared));
+
+    FlowStepExecution execution =
+        new FlowStepExecution(session, "primary", FlowStepStatus.WAITING_APPROVAL, 1);
+    setField(execution, "id", UUID.randomUUID());
+
+    UUID agentVersionId = UUID.randomUUID();
+    FlowStepConfig primaryConfig =
+        new FlowStepConfig(
+            "primary",
+            "Primary",
+            agentVersionId,
+            "prompt",
+            null,
+            null,
+            List.of(),
+            List.of(),
+            new FlowStepTransitions(null, true, "fallback", false),
+            1);
+    FlowStepConfig fallbackConfig =
+        new FlowStepConfig(
+            "fallback",
+            "Fallback",
+            agentVersionId,
+            "cleanup",
+            null,
+            null,
+            List.of(),
+            List.of(),
+            FlowStepTransitions.defaults(),
+            1);
+    FlowDefinitionDocument document =
+        new FlowDefinitionDocument(
+            "primary",
+            Map.of("primary", primaryConfig, "fallback", fallbackConfig),
+            FlowMemoryConfig.empty());
+
+    when(flowSessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+    when(flowStepExecutionRepository.findById(execution.getId())).thenReturn(Optional.of(execution));
+    when(flowStepExecutionRepository.findAllById(any())).thenReturn(List.of(previous));
+    when(flowBlueprintCompiler.compile(session.getFlowDefinition())).thenReturn(document);
+    when(agentVersionRepository.findById(agentVersionId))
+        .thenReturn(Optional.of(createAgentVersion(agentVersionId)));
+
+    flowControlService.skipStep(sessionId, execution.getId());
+
+    ArgumentCaptor<FlowStepExecution> captor = ArgumentCaptor.forClass(FlowStepExecution.class);
+    verify(jobQueuePort)
+        .enqueueStepJob(eq(session), captor.capture(), any(FlowJobPayload.class), any(Instant.class));
+    JsonNode input = captor.getValue().getInputPayload().asJson();
+    assertThat(input.path("lastOutput")).isEqualTo(previousOutput);
+    assertThat(input.path("lastOutput").has(FlowPayloadMapper.STEP_OUTPUT_REF)).isFalse();
+  }
+
   private AgentVersion createAgentVersion(UUID id) {
     AgentDefinition definition = new AgentDefinition("agent", "display", null, true);
     AgentVersion version =
@@ -1,6 +1,11 @@
 package com.aiadvent.backend.flow.service.payload;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import com.aiadvent.backend.chat.config.ChatProviderType;
 import com.aiadvent.backend.chat.provider.model.UsageCostEstimate;
@@ -18,12 +23,16 @@ import com.aiadvent.backend.flow.domain.FlowStepExecution;
 import com.aiadvent.backend.flow.domain.FlowStepStatus;
 import com.aiadvent.backend.flow.execution.model.FlowEventPayload;
 import com.aiadvent.backend.flow.execution.model.FlowStepInputPayload;
+import com.aiadvent.backend.flow.execution.model.FlowStepOutputPayload;
+import com.aiadvent.backend.flow.persistence.FlowStepExecutionRepository;
 import com.aiadvent.backend.flow.session.model.FlowLaunchParameters;
 import com.aiadvent.backend.flow.session.model.FlowSharedContext;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -91,6 +100,52 @@ class FlowPayloadMapperTest {
     assertThat(json.path("currentContext")).isNotNull();
   }
 
+  @Test
+  void stepOutputsAreReferencedAndOnlyReadFieldsAreMaterialized() {
+    FlowStepExecutionRepository repository = mock(FlowStepExecutionRepository.class);
+    FlowPayloadMapper referencing = new FlowPayloadMapper(objectMapper, repository);
+    ObjectNode output = objectMapper.createObjectNode().put("content", "x".repeat(4096));
+    stepExecution.setOutputPayload(FlowStepOutputPayload.from(output));
+    when(repository.findAllById(any())).thenReturn(List.of(stepExecution));
+
+    session.setSharedContext(referencing.applyStepOutput(session, stepExecution, output));
+
+    JsonNode shared = session.getSharedContext().asJson();
+    JsonNode reference = shared.path("steps").path("step-1");
+    assertThat(reference.path(FlowPayloadMapper.STEP_OUTPUT_REF).asText())
+        .isEqualTo(stepExecution.getId().toString());
+    assertThat(shared.path("lastOutput")).isEqualTo(reference);
+    assertThat(shared.path("version").asInt()).isEqualTo(1);
+    assertThat(referencing.serializedSize(session.getSharedContext())).isLessThan(1024);
+
+    JsonNode input = referencing.buildStepInputPayload(session).asJson();
+    assertThat(input.path("lastOutput")).isEqualTo(output);
+    assertThat(input.has("currentContext")).isFalse();
+    assertThat(input.path("initialContext").path("init").asInt()).isEqualTo(1);
+    assertThat(input.path("sharedContext").path("steps").path("step-1")).isEqualTo(reference);
+
+    JsonNode materialized = referencing.materializeSharedContext(session.getSharedContext()).asJson();
+    assertThat(materialized.path("steps").path("step-1")).isEqualTo(output);
+    assertThat(materialized.path("current")).isEqualTo(output);
+    verify(repository, times(2)).findAllById(any());
+  }
+
+  @Test
+  void parallelJoinReferencesResolveInsideMergedOutputs() {
+    FlowStepExecutionRepository repository = mock(FlowStepExecutionRepository.class);
+    FlowPayloadMapper referencing = new FlowPayloadMapper(objectMapper, repository);
+    ObjectNode output = objectMapper.createObjectNode().put("content", "branch");
+    stepExecution.setOutputPayload(FlowStepOutputPayload.from(output));
+    when(repository.findAllById(any())).thenReturn(List.of(stepExecution));
+    ObjectNode branches = objectMapper.createObjectNode();
+    branches.set("step-1", referencing.stepOutputReference(stepExecution, output));
+
+    session.setSharedContext(referencing.applyParallelJoin(session, branches));
+
+    JsonNode input = referencing.buildStepInputPayload(session).asJson();
+    assertThat(input.path("lastOutput").path("step-1")).isEqualTo(output);
+  }
+
   @Test
   void eventPayloadWrapsStepMetadataAndContext() {
     ObjectNode original = objectMapper.createObjectNode().put("content", "result");
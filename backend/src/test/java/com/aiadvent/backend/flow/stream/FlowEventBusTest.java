@@ -0,0 +1,185 @@
+package com.aiadvent.backend.flow.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.aiadvent.backend.flow.api.FlowEventDto;
+import com.aiadvent.backend.flow.config.FlowStreamProperties;
+import com.aiadvent.backend.flow.domain.FlowEventType;
+import com.aiadvent.backend.flow.domain.FlowSessionStatus;
+import com.aiadvent.backend.flow.service.FlowStatusService;
+import com.aiadvent.backend.flow.service.FlowStatusService.FlowStateDto;
+import com.aiadvent.backend.flow.service.FlowStatusService.FlowStatusResponse;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FlowEventBusTest {
+
+  private final UUID sessionId = UUID.randomUUID();
+  private FlowStatusService flowStatusService;
+  private FlowEventBus bus;
+
+  @BeforeEach
+  void setUp() {
+    flowStatusService = mock(FlowStatusService.class);
+    bus = new FlowEventBus(flowStatusService, new FlowStreamProperties());
+  }
+
+  @AfterEach
+  void tearDown() {
+    bus.shutdown();
+  }
+
+  @Test
+  void pushesOnlyNewEventsAfterPublish() throws Exception {
+    when(flowStatusService.sessionDelta(sessionId, 0L))
+        .thenReturn(response(FlowSessionStatus.RUNNING, 1L, 2L, event(1), event(2)));
+    when(flowStatusService.sessionDelta(sessionId, 2L))
+        .thenReturn(response(FlowSessionStatus.RUNNING, 2L, 3L, event(3)));
+    RecordingListener listener = new RecordingListener();
+
+    bus.subscribe(sessionId, null, listener);
+    FlowStatusResponse initial = listener.next();
+    bus.publish(sessionId);
+    FlowStatusResponse update = listener.next();
+
+    assertThat(initial.events()).extracting(FlowEventDto::eventId).containsExactly(1L, 2L);
+    assertThat(update.events()).extracting(FlowEventDto::eventId).containsExactly(3L);
+    assertThat(update.nextSinceEventId()).isEqualTo(3L);
+  }
+
+  @Test
+  void servesReconnectFromReplayBufferWithoutExtraRead() throws Exception {
+    when(flowStatusService.sessionDelta(sessionId, 0L))
+        .thenReturn(response(FlowSessionStatus.RUNNING, 1L, 3L, event(1), event(2), event(3)));
+    when(flowStatusService.sessionDelta(sessionId, 3L))
+        .thenReturn(response(FlowSessionStatus.RUNNING, 1L, 3L));
+    RecordingListener first = new RecordingListener();
+    bus.subscribe(sessionId, null, first);
+    first.next();
+
+    RecordingListener reconnect = new RecordingListener();
+    bus.subscribe(sessionId, 2L, reconnect);
+    FlowStatusResponse resumed = reconnect.next();
+
+    assertThat(resumed.events()).extracting(FlowEventDto::eventId).containsExactly(3L);
+    verify(flowStatusService, times(1)).sessionDelta(sessionId, 0L);
+  }
+
+  @Test
+  void closesSubscriptionWhenSessionIsTerminal() throws Exception {
+    when(flowStatusService.sessionDelta(sessionId, 0L))
+        .thenReturn(response(FlowSessionStatus.COMPLETED, 4L, 1L, event(1)));
+    RecordingListener listener = new RecordingListener();
+
+    bus.subscribe(sessionId, null, listener);
+
+    assertThat(listener.next().state().status()).isEqualTo(FlowSessionStatus.COMPLETED);
+    assertThat(listener.closed.poll(2, TimeUnit.SECONDS)).isEqualTo("completed");
+  }
+
+  @Test
+  void blockedSubscriberDoesNotStallOthersAndIsClosedOnOverflow() throws Exception {
+    bus.shutdown();
+    FlowStreamProperties properties = new FlowStreamProperties();
+    properties.setDispatcherThreads(1);
+    properties.setSubscriberQueueCapacity(1);
+    bus = new FlowEventBus(flowStatusService, properties);
+    AtomicLong head = new AtomicLong(1L);
+    when(flowStatusService.sessionDelta(eq(sessionId), anyLong()))
+        .thenAnswer(
+            invocation -> {
+              long since = invocation.getArgument(1);
+              long last = head.get();
+              FlowEventDto[] events =
+                  LongStream.rangeClosed(since + 1, last).mapToObj(this::event).toArray(FlowEventDto[]::new);
+              return response(FlowSessionStatus.RUNNING, last, last, events);
+            });
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingListener blocked =
+        new RecordingListener() {
+          @Override
+          public void onUpdate(FlowStatusResponse response) {
+            entered.countDown();
+            try {
+              release.await();
+            } catch (InterruptedException ex) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        };
+    RecordingListener fast = new RecordingListener();
+
+    try {
+      bus.subscribe(sessionId, null, blocked);
+      assertThat(entered.await(2, TimeUnit.SECONDS)).isTrue();
+      bus.subscribe(sessionId, null, fast);
+      assertThat(fast.next().events()).extracting(FlowEventDto::eventId).containsExactly(1L);
+
+      head.set(2L);
+      bus.publish(sessionId);
+      assertThat(fast.next().events()).extracting(FlowEventDto::eventId).containsExactly(2L);
+      head.set(3L);
+      bus.publish(sessionId);
+      assertThat(fast.next().events()).extracting(FlowEventDto::eventId).containsExactly(3L);
+
+      assertThat(blocked.closed.poll(2, TimeUnit.SECONDS)).contains("updates behind");
+      assertThat(fast.closed).isEmpty();
+    } finally {
+      release.countDown();
+    }
+  }
+
+  private FlowStatusResponse response(
+      FlowSessionStatus status, long stateVersion, long nextSince, FlowEventDto... events) {
+    FlowStateDto state =
+        new FlowStateDto(
+            sessionId, status, "step-1", stateVersion, 0L, Instant.now(), null, UUID.randomUUID(), 1, null);
+    return new FlowStatusResponse(state, List.of(events), nextSince, null);
+  }
+
+  private FlowEventDto event(long id) {
+    return new FlowEventDto(
+        id, FlowEventType.STEP_STARTED, "running", null, null, null, null, null, Instant.now(), null);
+  }
+
+  private static class RecordingListener implements FlowEventBus.FlowEventListener {
+    private final BlockingQueue<FlowStatusResponse> updates = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> closed = new LinkedBlockingQueue<>();
+
+    @Override
+    public void onUpdate(FlowStatusResponse response) {
+      updates.add(response);
+    }
+
+    @Override
+    public void onHeartbeat() {}
+
+    @Override
+    public void onClose(Throwable error) {
+      closed.add(error == null ? "completed" : error.getMessage());
+    }
+
+    FlowStatusResponse next() throws InterruptedException {
+      FlowStatusResponse response = updates.poll(2, TimeUnit.SECONDS);
+      assertThat(response).as("pushed update").isNotNull();
+      return response;
+    }
+  }
+}
@@ -1,15 +1,21 @@
 package com.aiadvent.backend.flow.worker;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.aiadvent.backend.flow.config.FlowWorkerProperties;
 import com.aiadvent.backend.flow.domain.FlowJob;
+import com.aiadvent.backend.flow.job.JobQueuePort;
 import com.aiadvent.backend.flow.service.AgentOrchestratorService;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -28,6 +34,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 class FlowJobWorkerTest {
 
   @Mock private AgentOrchestratorService orchestratorService;
+  @Mock private JobQueuePort jobQueuePort;
 
   private SimpleMeterRegistry meterRegistry;
   private FlowWorkerProperties properties;
@@ -40,8 +47,10 @@ class FlowJobWorkerTest {
     properties = new FlowWorkerProperties();
     properties.setEnabled(true);
     properties.setWorkerIdPrefix("test-worker");
+    properties.setMaxConcurrency(4);
     executorService = new DirectExecutorService();
-    worker = new FlowJobWorker(orchestratorService, properties, meterRegistry, executorService);
+    worker =
+        new FlowJobWorker(orchestratorService, jobQueuePort, properties, meterRegistry, executorService);
   }
 
   @AfterEach
@@ -54,56 +63,93 @@ class FlowJobWorkerTest {
   void pollsQueueAndProcessesJob() {
     FlowJob job = org.mockito.Mockito.mock(FlowJob.class);
     when(job.getId()).thenReturn(42L);
-    when(orchestratorService.processNextJob(anyString())).thenReturn(Optional.of(job));
+    when(job.getCreatedAt()).thenReturn(Instant.now().minusSeconds(1));
+    when(jobQueuePort.claimPending(anyString(), any(Instant.class), any(Duration.class), anyInt()))
+        .thenReturn(List.of(job), List.of());
+    when(orchestratorService.processClaimedJob(eq(42L), anyString())).thenReturn(Optional.of(job));
 
     worker.pollQueue();
 
     ArgumentCaptor<String> workerCaptor = ArgumentCaptor.forClass(String.class);
-    verify(orchestratorService).processNextJob(workerCaptor.capture());
+    verify(orchestratorService).processClaimedJob(eq(42L), workerCaptor.capture());
     assertThat(workerCaptor.getValue()).startsWith("test-worker-");
-    assertThat(meterRegistry.counter("flow.job.poll.count", "result", "processed").count())
+    assertThat(meterRegistry.counter("flow.job.poll.count", "result", "claimed").count())
         .isEqualTo(1.0d);
+    assertThat(meterRegistry.counter("flow.job.processed", "result", "processed").count())
+        .isEqualTo(1.0d);
+    assertThat(meterRegistry.timer("flow.job.pickup.age").count()).isEqualTo(1L);
   }
 
   @Test
   void pollsQueueAndHandlesEmptyResult() {
-    when(orchestratorService.processNextJob(anyString())).thenReturn(Optional.empty());
+    when(jobQueuePort.claimPending(anyString(), any(Instant.class), any(Duration.class), anyInt()))
+        .thenReturn(List.of());
 
     worker.pollQueue();
 
     ArgumentCaptor<String> workerCaptor = ArgumentCaptor.forClass(String.class);
-    verify(orchestratorService).processNextJob(workerCaptor.capture());
+    verify(jobQueuePort)
+        .claimPending(workerCaptor.capture(), any(Instant.class), any(Duration.class), anyInt());
     assertThat(workerCaptor.getValue()).startsWith("test-worker-");
+    verify(orchestratorService, never()).processClaimedJob(any(), anyString());
     assertThat(meterRegistry.counter("flow.job.poll.count", "result", "empty").count())
         .isEqualTo(1.0d);
   }
 
+  @Test
+  void claimsNoMoreJobsThanFreeSlots() {
+    properties.setBatchSize(10);
+    when(jobQueuePort.claimPending(anyString(), any(Instant.class), any(Duration.class), anyInt()))
+        .thenReturn(List.of());
+
+    worker.pollQueue();
+
+    verify(jobQueuePort).claimPending(anyString(), any(Instant.class), any(Duration.class), eq(4));
+  }
+
   @Test
   void disabledWorkerDoesNotInvokeService() {
     FlowWorkerProperties disabled = new FlowWorkerProperties();
     disabled.setEnabled(false);
     disabled.setWorkerIdPrefix("disabled");
     FlowJobWorker disabledWorker =
-        new FlowJobWorker(orchestratorService, disabled, meterRegistry, executorService);
+        new FlowJobWorker(orchestratorService, jobQueuePort, disabled, meterRegistry, executorService);
 
     disabledWorker.pollQueue();
 
-    verify(orchestratorService, never()).processNextJob(anyString());
+    verify(jobQueuePort, never())
+        .claimPending(anyString(), any(Instant.class), any(Duration.class), anyInt());
+    verify(orchestratorService, never()).processClaimedJob(any(), anyString());
     assertThat(meterRegistry.find("flow.job.poll.count").counter()).isNull();
     disabledWorker.shutdown();
   }
 
+  @Test
+  void recordsErrorWhenClaimFails() {
+    when(jobQueuePort.claimPending(anyString(), any(Instant.class), any(Duration.class), anyInt()))
+        .thenThrow(new IllegalStateException("boom"));
+
+    worker.pollQueue();
+
+    assertThat(meterRegistry.counter("flow.job.poll.count", "result", "error").count())
+        .isEqualTo(1.0d);
+  }
+
   @Test
   void recordsErrorWhenProcessingFails() {
-    when(orchestratorService.processNextJob(anyString()))
+    FlowJob job = org.mockito.Mockito.mock(FlowJob.class);
+    when(job.getId()).thenReturn(7L);
+    when(jobQueuePort.claimPending(anyString(), any(Instant.class), any(Duration.class), anyInt()))
+        .thenReturn(List.of(job), List.of());
+    when(orchestratorService.processClaimedJob(eq(7L), anyString()))
         .thenThrow(new IllegalStateException("boom"));
 
     worker.pollQueue();
 
     ArgumentCaptor<String> workerCaptor = ArgumentCaptor.forClass(String.class);
-    verify(orchestratorService).processNextJob(workerCaptor.capture());
+    verify(orchestratorService).processClaimedJob(eq(7L), workerCaptor.capture());
     assertThat(workerCaptor.getValue()).startsWith("test-worker-");
-    assertThat(meterRegistry.counter("flow.job.poll.count", "result", "error").count())
+    assertThat(meterRegistry.counter("flow.job.processed", "result", "error").count())
         .isEqualTo(1.0d);
   }
 
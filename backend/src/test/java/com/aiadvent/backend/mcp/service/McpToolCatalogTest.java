@@ -0,0 +1,108 @@
+package com.aiadvent.backend.mcp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.aiadvent.backend.flow.tool.domain.ToolDefinition;
+import com.aiadvent.backend.flow.tool.domain.ToolDefinition.ToolCallType;
+import com.aiadvent.backend.flow.tool.domain.ToolSchemaVersion;
+import com.aiadvent.backend.flow.tool.persistence.ToolDefinitionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.mcp.SyncMcpToolCallbackProvider;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.ObjectProvider;
+
+class McpToolCatalogTest {
+
+  private ToolDefinitionRepository toolDefinitionRepository;
+  private SimpleMeterRegistry meterRegistry;
+  private AtomicInteger providerCalls;
+  private McpToolCatalog catalog;
+
+  @BeforeEach
+  void setUp() {
+    toolDefinitionRepository = mock(ToolDefinitionRepository.class);
+    meterRegistry = new SimpleMeterRegistry();
+    providerCalls = new AtomicInteger();
+    ToolCallback callback = callback("flow_ops.list_flows");
+    SyncMcpToolCallbackProvider provider =
+        new SyncMcpToolCallbackProvider() {
+          @Override
+          public ToolCallback[] getToolCallbacks() {
+            providerCalls.incrementAndGet();
+            return new ToolCallback[] {callback};
+          }
+        };
+    @SuppressWarnings("unchecked")
+    ObjectProvider<SyncMcpToolCallbackProvider> objectProvider = mock(ObjectProvider.class);
+    when(objectProvider.getIfAvailable()).thenReturn(provider);
+    when(toolDefinitionRepository.findAllBySchemaVersionIsNotNull())
+        .thenReturn(List.of(definition("Flow_Ops.List_Flows", "flow_ops.list_flows")));
+    catalog = new McpToolCatalog(toolDefinitionRepository, objectProvider, meterRegistry);
+  }
+
+  @AfterEach
+  void tearDown() {
+    catalog.shutdown();
+  }
+
+  @Test
+  void indexesCatalogOnceAndServesLookupsFromSnapshot() {
+    McpToolCatalog.Snapshot first = catalog.snapshot();
+    McpToolCatalog.Snapshot second = catalog.snapshot();
+
+    assertThat(second).isSameAs(first);
+    assertThat(first.schema(" flow_ops.list_flows ")).isNotNull();
+    assertThat(first.callback("flow_ops.list_flows")).isNotNull();
+    assertThat(first.callback("missing")).isNull();
+    verify(toolDefinitionRepository, times(1)).findAllBySchemaVersionIsNotNull();
+    assertThat(providerCalls).hasValue(1);
+  }
+
+  @Test
+  void rebuildsSnapshotInBackgroundOnRefreshRequest() throws InterruptedException {
+    McpToolCatalog.Snapshot initial = catalog.snapshot();
+
+    catalog.requestRefresh(McpToolCatalog.RefreshTrigger.TOOLS_CHANGED);
+
+    long deadline = System.nanoTime() + 2_000_000_000L;
+    while (catalog.snapshot() == initial && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(catalog.snapshot()).isNotSameAs(initial);
+    assertThat(providerCalls).hasValue(2);
+    assertThat(
+            meterRegistry
+                .counter(
+                    "mcp.tool.catalog.refresh", "trigger", "tools_changed", "result", "success")
+                .count())
+        .isEqualTo(1.0);
+  }
+
+  private static ToolDefinition definition(String code, String toolName) {
+    ToolDefinition definition =
+        new ToolDefinition(
+            code, code, null, null, ToolCallType.MANUAL, List.of(), List.of(), null, null, null);
+    definition.setSchemaVersion(
+        new ToolSchemaVersion(
+            code, 1, null, null, null, null, "flowops", toolName, "http-stream", null));
+    return definition;
+  }
+
+  private static ToolCallback callback(String name) {
+    ToolCallback callback = mock(ToolCallback.class);
+    org.springframework.ai.tool.definition.ToolDefinition toolDefinition =
+        mock(org.springframework.ai.tool.definition.ToolDefinition.class);
+    when(callback.getToolDefinition()).thenReturn(toolDefinition);
+    when(toolDefinition.name()).thenReturn(name);
+    return callback;
+  }
+}
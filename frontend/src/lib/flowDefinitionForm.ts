@@ -64,6 +64,8 @@ export type FlowStepTransitionsForm = {
   onSuccessComplete: boolean;
   onFailureNext: string;
   onFailureFail: boolean;
+  onSuccessParallel?: string;
+  onSuccessJoinCount?: string;
 };
 
 export type FlowStepForm = {
@@ -272,6 +274,15 @@ export function parseFlowDefinition(definition: unknown): FlowDefinitionFormStat
       onSuccessComplete: Boolean(step.transitions?.onSuccess?.complete),
       onFailureNext: step.transitions?.onFailure?.next ?? '',
       onFailureFail: Boolean(step.transitions?.onFailure?.fail),
+      ...(step.transitions?.onSuccess?.parallel?.length
+        ? {
+            onSuccessParallel: step.transitions.onSuccess.parallel.join(', '),
+            onSuccessJoinCount:
+              step.transitions.onSuccess.joinCount !== undefined
+                ? String(step.transitions.onSuccess.joinCount)
+                : '',
+          }
+        : {}),
     },
     maxAttempts:
       step.maxAttempts !== undefined ? String(step.maxAttempts) : '1',
@@ -521,12 +532,29 @@ export function buildFlowDefinition(form: FlowDefinitionFormState): FlowDefiniti
         }
       : undefined;
 
+    const parallel = (step.transitions.onSuccessParallel ?? '')
+      .split(',')
+      .map((branch) => branch.trim())
+      .filter(Boolean);
+    const joinCount =
+      parallel.length > 0
+        ? normalizeNumber(
+            `Шаг "${step.id}" joinCount`,
+            step.transitions.onSuccessJoinCount ?? '',
+            { integer: true },
+          )
+        : undefined;
+
     const transitions = {
       onSuccess:
-        step.transitions.onSuccessNext || step.transitions.onSuccessComplete
+        step.transitions.onSuccessNext ||
+        step.transitions.onSuccessComplete ||
+        parallel.length > 0
           ? {
               next: step.transitions.onSuccessNext || undefined,
               complete: step.transitions.onSuccessComplete || undefined,
+              ...(parallel.length > 0 ? { parallel } : {}),
+              ...(joinCount !== undefined ? { joinCount } : {}),
             }
           : undefined,
       onFailure:
@@ -77,6 +77,8 @@ export const FlowDefinitionTransitionsSchema = z.object({
     .object({
       next: z.string().optional(),
       complete: z.boolean().optional(),
+      parallel: z.array(z.string()).optional(),
+      joinCount: z.number().int().min(1).optional(),
     })
     .optional(),
   onFailure: z
@@ -60,6 +60,8 @@ export const FlowLaunchStepSchema = z.object({
       completeOnSuccess: z.boolean(),
       onFailure: z.string().nullable().optional(),
       failFlowOnFailure: z.boolean(),
+      parallel: z.array(z.string()).optional(),
+      joinCount: z.number().int().nullable().optional(),
     })
     .default({
       onSuccess: null,
@@ -72,6 +74,14 @@ export const FlowLaunchStepSchema = z.object({
 });
 export type FlowLaunchStep = z.infer<typeof FlowLaunchStepSchema>;
 
+export const FlowLaunchParallelGroupSchema = z.object({
+  sourceStepId: z.string(),
+  branchStepIds: z.array(z.string()),
+  joinStepId: z.string().nullable().optional(),
+  requiredBranches: z.number().int().min(1),
+});
+export type FlowLaunchParallelGroup = z.infer<typeof FlowLaunchParallelGroupSchema>;
+
 export const FlowLaunchPreviewSchema = z.object({
   definitionId: z.string().uuid(),
   definitionName: z.string(),
@@ -79,6 +89,7 @@ export const FlowLaunchPreviewSchema = z.object({
   description: z.string().nullable().optional(),
   startStepId: z.string().nullable().optional(),
   steps: z.array(FlowLaunchStepSchema).min(1),
+  parallelGroups: z.array(FlowLaunchParallelGroupSchema).optional(),
   totalEstimate: FlowLaunchCostEstimateSchema,
 });
 export type FlowLaunchPreview = z.infer<typeof FlowLaunchPreviewSchema>;
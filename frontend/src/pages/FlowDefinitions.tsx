@@ -910,6 +910,40 @@ const FlowDefinitions = () => {
             Завершить флоу на успехе
           </label>
         </div>
+        <div className="field-grid">
+          <label>
+            Параллельные ветки (через запятую)
+            <input
+              value={step.transitions.onSuccessParallel ?? ''}
+              onChange={(event: ChangeEvent<HTMLInputElement>) =>
+                updateStep((prev) => ({
+                  ...prev,
+                  transitions: {
+                    ...prev.transitions,
+                    onSuccessParallel: event.target.value,
+                  },
+                }))
+              }
+              placeholder="branch-a, branch-b"
+            />
+          </label>
+          <label>
+            Ждать веток (joinCount)
+            <input
+              value={step.transitions.onSuccessJoinCount ?? ''}
+              onChange={(event: ChangeEvent<HTMLInputElement>) =>
+                updateStep((prev) => ({
+                  ...prev,
+                  transitions: {
+                    ...prev.transitions,
+                    onSuccessJoinCount: event.target.value,
+                  },
+                }))
+              }
+              placeholder="все"
+            />
+          </label>
+        </div>
         <div className="field-grid">
           <label>
             On failure → next step